@@ -1,38 +1,419 @@
-package de.ativelox.relentlessfisher;
-
-import java.io.IOException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
-import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
-import de.ativelox.relentlessfisher.listeners.IConnectionListener;
-import de.ativelox.relentlessfisher.listeners.IJoinListener;
-import de.ativelox.relentlessfisher.listeners.IWhisperListener;
-import de.ativelox.relentlessfisher.settings.Settings;
-
-/**
- * Starts a new {@link TwitchClient} and {@link RelentlessFisher}. Also manages
- * listener registering.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public class Launcher {
-
-    public static void main(final String[] args) throws IOException {
-	final ExecutorService executor = Executors.newFixedThreadPool(3);
-
-	final Settings s = new Settings();
-	s.load("settings.cfg");
-
-	TwitchClient client = new TwitchClient(s.get("client_id"), s.get("client_secret"), s.get("refresh_token"),
-		s.get("user"), executor);
-	RelentlessFisher rf = new RelentlessFisher(client, executor);
-	client.register((IConnectionListener) rf);
-	client.register((IJoinListener) rf);
-	client.register((IWhisperListener) rf);
-
-	executor.submit(client);
-    }
-
-}
+package de.ativelox.relentlessfisher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import de.ativelox.relentlessfisher.auth.RefreshTokenProvider;
+import de.ativelox.relentlessfisher.auth.TokenManager;
+import de.ativelox.relentlessfisher.capture.TrafficCapture;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.NioTwitchIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.SecureTwitchIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
+import de.ativelox.relentlessfisher.irc.twitch.UnsecuredTwitchIRCController;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.logging.AsyncLogger;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.pacing.WhisperPacing;
+import de.ativelox.relentlessfisher.pacing.WhisperScheduler;
+import de.ativelox.relentlessfisher.protocols.LobotJrProtocolMapper;
+import de.ativelox.relentlessfisher.protocols.ResponseClassifier;
+import de.ativelox.relentlessfisher.session.SessionManager;
+import de.ativelox.relentlessfisher.settings.Settings;
+import de.ativelox.relentlessfisher.timer.HashedWheelTimer;
+import de.ativelox.relentlessfisher.utils.HTTPRequest;
+
+/**
+ * Starts a new {@link TwitchClient} and {@link RelentlessFisher}. Also manages
+ * listener registering.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class Launcher {
+
+    /**
+     * The transport used if none is specified in the settings.
+     */
+    private final static String DEFAULT_TRANSPORT = "nio";
+
+    /**
+     * The amount of event loops used for multiple accounts if none is specified
+     * in the settings.
+     */
+    private final static int DEFAULT_LOOPS = 1;
+
+    /**
+     * The amount of threads used for blocking tasks of multiple accounts.
+     */
+    private final static int DEFAULT_WORKERS = 2;
+
+    /**
+     * The resolution of the timers in ms if none is specified by the
+     * <tt>timer_tick</tt> key in the settings.
+     */
+    private final static long DEFAULT_TIMER_TICK = 100;
+
+    /**
+     * The amount of buckets of the timing wheel.
+     */
+    private final static int WHEEL_SIZE = 512;
+
+    /**
+     * The amount of logs buffered by the asynchronous logger.
+     */
+    private final static int LOG_CAPACITY = 8192;
+
+    /**
+     * The size of a capture segment in MB if none is specified by the
+     * <tt>capture_segment_mb</tt> key in the settings.
+     */
+    private final static int DEFAULT_CAPTURE_SEGMENT_MB = 64;
+
+    /**
+     * The amount of capture segments kept on disk if none is specified by the
+     * <tt>capture_segments</tt> key in the settings.
+     */
+    private final static int DEFAULT_CAPTURE_SEGMENTS = 16;
+
+    /**
+     * The file the learned pacing is kept in if none is specified by the
+     * <tt>pacing_file</tt> key in the settings.
+     */
+    private final static String DEFAULT_PACING_FILE = "pacing.cfg";
+
+    /**
+     * The directory the access tokens are kept in if none is specified by the
+     * <tt>token_dir</tt> key in the settings.
+     */
+    private final static String DEFAULT_TOKEN_DIR = "tokens";
+
+    /**
+     * The tasks run when the application exits, in the order they were added,
+     * before the logger gets closed, so whatever they log is still printed.
+     */
+    private final static Queue<Runnable> EXIT_TASKS = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Runs the given task when the application exits, before the logger gets
+     * closed.
+     * 
+     * @param task The task.
+     */
+    private static void onExit(final Runnable task) {
+        EXIT_TASKS.add(task);
+
+    }
+
+    /**
+     * Runs all tasks added by {@link Launcher#onExit(Runnable)}, then closes the
+     * logger if it prints on a background thread.
+     */
+    private static void exit() {
+        for (final Runnable task : EXIT_TASKS) {
+            try {
+                task.run();
+
+            } catch (final RuntimeException e) {
+                // the remaining tasks, e.g. storing state, still deserve their turn.
+                LoggerFactory.Get().log(ELogType.DANGER, "An exit task failed: {}", e);
+
+            }
+        }
+        final ILogger logger = LoggerFactory.Get();
+
+        if (logger instanceof AsyncLogger) {
+            // print whatever is still buffered.
+            ((AsyncLogger) logger).close();
+        }
+    }
+
+    /**
+     * Sets the timeouts of all HTTP requests to the ones given in ms by the
+     * <tt>http_connect_timeout</tt> and <tt>http_timeout</tt> keys in the
+     * settings.
+     * 
+     * @param connectTimeout The time to wait for a connection, or <tt>null</tt>
+     *                       for the default.
+     * @param requestTimeout The time to wait for a response, or <tt>null</tt>
+     *                       for the default.
+     */
+    private static void setUpHttp(final String connectTimeout, final String requestTimeout) {
+        if (connectTimeout == null && requestTimeout == null) {
+            return;
+        }
+        HTTPRequest.Set(new HTTPRequest(
+                connectTimeout == null ? HTTPRequest.DEFAULT_CONNECT_TIMEOUT
+                        : Duration.ofMillis(Long.parseLong(connectTimeout)),
+                requestTimeout == null ? HTTPRequest.DEFAULT_REQUEST_TIMEOUT
+                        : Duration.ofMillis(Long.parseLong(requestTimeout))));
+
+    }
+
+    /**
+     * Creates the manager handing out the access tokens of the given user,
+     * refreshed at the endpoint given by the <tt>token_url</tt> key in the
+     * settings, if any, and kept in the directory given by the
+     * <tt>token_dir</tt> key, which is created only accessible by its owner if
+     * needed. The token is loaded and its refresh scheduled right away.
+     * 
+     * @param s            The settings to use.
+     * @param user         The user.
+     * @param refreshToken The refresh token of the user.
+     * @return The manager.
+     * @throws IOException If the directory couldn't be created.
+     */
+    private static TokenManager setUpTokens(final Settings s, final String user, final String refreshToken)
+            throws IOException {
+        final String url = s.get("token_url");
+        final Path directory = Paths.get(s.get("token_dir") == null ? DEFAULT_TOKEN_DIR : s.get("token_dir"));
+
+        if (!Files.isDirectory(directory)) {
+            if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+            } else {
+                Files.createDirectories(directory);
+
+            }
+        }
+        final TokenManager tokens = new TokenManager(new RefreshTokenProvider(
+                url == null ? RefreshTokenProvider.DEFAULT_URL : url, s.get("client_id"), s.get("client_secret"),
+                refreshToken), directory.resolve(user + ".token"));
+        tokens.start();
+
+        return tokens;
+
+    }
+
+    /**
+     * Loads the pacing learned by previous runs from the file given by the
+     * <tt>pacing_file</tt> key in the settings, and stores it back there, along
+     * with logging it, when the application exits.
+     * 
+     * @param file   The file, or <tt>null</tt> for the default.
+     * @param pacing The pacing to load into.
+     * @throws IOException If the file exists, but couldn't be read.
+     */
+    private static void setUpPacing(final String file, final WhisperPacing pacing) throws IOException {
+        final Path path = Paths.get(file == null ? DEFAULT_PACING_FILE : file);
+        pacing.load(path);
+
+        onExit(() -> {
+            LoggerFactory.Get().log(ELogType.INFO, "Pacing: {}", pacing);
+
+            try {
+                pacing.store(path);
+
+            } catch (final IOException e) {
+                LoggerFactory.Get().log(ELogType.WARNING, "Couldn't store the pacing: {}", e);
+
+            }
+        });
+    }
+
+    /**
+     * Sets the budget of whispers shared by all accounts to the limits given by
+     * the <tt>whispers_per_second</tt> and <tt>whispers_per_minute</tt> keys in
+     * the settings, <tt>0</tt> lifting a limit, and logs how the whispers got
+     * scheduled when the application exits.
+     * 
+     * @param perSecond The whispers per second, or <tt>null</tt> for the
+     *                  default.
+     * @param perMinute The whispers per minute, or <tt>null</tt> for the
+     *                  default.
+     */
+    private static void setUpWhispers(final String perSecond, final String perMinute) {
+        final WhisperScheduler whispers = WhisperScheduler.Get();
+
+        whispers.setGlobalLimits(
+                perSecond == null ? WhisperScheduler.GLOBAL_PER_SECOND : Integer.parseInt(perSecond),
+                perMinute == null ? WhisperScheduler.GLOBAL_PER_MINUTE : Integer.parseInt(perMinute));
+
+        onExit(() -> LoggerFactory.Get().log(ELogType.INFO, "Whispers: {}", whispers));
+
+    }
+
+    /**
+     * Starts capturing the raw traffic of the given controller into the
+     * directory given by the <tt>capture_dir</tt> key in the settings, if any.
+     * 
+     * @param s          The settings to use.
+     * @param controller The controller to capture the traffic of.
+     * @throws IOException If the capture couldn't be started.
+     */
+    private static void setUpCapture(final Settings s, final IIRCController controller) throws IOException {
+        final String directory = s.get("capture_dir");
+
+        if (directory == null) {
+            return;
+        }
+        final String segmentSize = s.get("capture_segment_mb");
+        final String segments = s.get("capture_segments");
+
+        final TrafficCapture capture = new TrafficCapture(Paths.get(directory),
+                (segmentSize == null ? DEFAULT_CAPTURE_SEGMENT_MB : Integer.parseInt(segmentSize)) << 20,
+                segments == null ? DEFAULT_CAPTURE_SEGMENTS : Integer.parseInt(segments));
+        controller.setCapture(capture);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(capture::close));
+
+    }
+
+    /**
+     * Classifies the whispers of the bot by the phrases listed in the file given
+     * by the <tt>phrases</tt> key in the settings, if any, instead of the
+     * phrases shipped with this application.
+     * 
+     * @param phrases The file listing the phrases, or <tt>null</tt> for the
+     *                default.
+     * @throws IOException If the file couldn't be read or is malformed.
+     */
+    private static void setUpProtocol(final String phrases) throws IOException {
+        if (phrases == null) {
+            return;
+        }
+        LobotJrProtocolMapper.Set(new LobotJrProtocolMapper(ResponseClassifier.Load(Paths.get(phrases))));
+
+    }
+
+    /**
+     * The types of logs disabled if none are specified in the settings, the raw
+     * traffic from the server being by far the most logs.
+     */
+    private final static String DEFAULT_DISABLED_LOGS = "SERVER";
+
+    /**
+     * Sets up the logger given by the <tt>logger</tt> key in the settings, either
+     * <tt>async</tt> to print on a background thread, or <tt>console</tt> (the
+     * default) to print directly. The types of logs listed under the
+     * <tt>log_disabled</tt> key are disabled, they can be enabled again at
+     * runtime by {@link ILogger#setEnabled(ELogType, boolean)}.
+     * 
+     * @param logger   The logger to use, or <tt>null</tt> for the default.
+     * @param disabled The comma separated types of logs to disable, or
+     *                 <tt>null</tt> for the default. Empty to enable all.
+     */
+    private static void setUpLogger(final String logger, final String disabled) {
+        if ("async".equals(logger)) {
+            final AsyncLogger async = new AsyncLogger(LOG_CAPACITY);
+            // closed when the application exits, printing whatever is still buffered.
+            LoggerFactory.Set(async);
+
+        } else if (logger != null && !"console".equals(logger)) {
+            throw new IllegalArgumentException("Unknown logger: " + logger);
+
+        }
+
+        for (final String type : (disabled == null ? DEFAULT_DISABLED_LOGS : disabled).split(",")) {
+            if (!type.isBlank()) {
+                LoggerFactory.Get().setEnabled(ELogType.valueOf(type.trim().toUpperCase()), false);
+            }
+        }
+    }
+
+    /**
+     * Creates the controller for the given transport, which can be specified by
+     * the <tt>transport</tt> key in the settings.
+     * 
+     * @param transport The transport to use, either <tt>nio</tt>, <tt>tls</tt>
+     *                  or <tt>unsecured</tt>, or <tt>null</tt> for the default.
+     * @param user      The user who gave authorization to be utilized by this
+     *                  application.
+     * @return The controller for the given transport.
+     * @throws IOException If the controller couldn't be created.
+     */
+    private static IIRCController createController(final String transport, final String user) throws IOException {
+        final String chosen = transport == null ? DEFAULT_TRANSPORT : transport;
+
+        switch (chosen) {
+        case "nio":
+            return new NioTwitchIRCController(user);
+        case "tls":
+            return new SecureTwitchIRCController(user);
+        case "unsecured":
+            return new UnsecuredTwitchIRCController(user);
+        default:
+            throw new IllegalArgumentException("Unknown transport: " + chosen);
+
+        }
+    }
+
+    /**
+     * Starts a session for every account listed under the <tt>accounts</tt> key
+     * in the settings, all multiplexed over a single {@link SessionManager}. The
+     * refresh token of each account is given by the
+     * <tt>&lt;account&gt;.refresh_token</tt> key. Sessions connect via TLS if
+     * the <tt>transport</tt> is <tt>tls</tt>, otherwise unsecured.
+     * 
+     * @param s        The settings to use.
+     * @param accounts The comma separated list of accounts.
+     * @throws IOException If the session manager couldn't be created.
+     */
+    private static void launchSessions(final Settings s, final String accounts) throws IOException {
+        final String loops = s.get("loops");
+
+        final int loopCount = loops == null ? DEFAULT_LOOPS : Integer.parseInt(loops);
+
+        final SessionManager manager = "tls".equals(s.get("transport"))
+                ? new SessionManager(SecureTwitchIRCController.DefaultContext(), loopCount, DEFAULT_WORKERS)
+                : new SessionManager(loopCount, DEFAULT_WORKERS);
+        setUpPacing(s.get("pacing_file"), manager.getPacing());
+
+        for (final String account : accounts.split(",")) {
+            final String user = account.trim();
+
+            manager.add(user, setUpTokens(s, user, s.get(user + ".refresh_token")));
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final Settings s = new Settings();
+        s.load("settings.cfg");
+        Runtime.getRuntime().addShutdownHook(new Thread(Launcher::exit));
+        setUpLogger(s.get("logger"), s.get("log_disabled"));
+        setUpProtocol(s.get("phrases"));
+        setUpWhispers(s.get("whispers_per_second"), s.get("whispers_per_minute"));
+        setUpHttp(s.get("http_connect_timeout"), s.get("http_timeout"));
+
+        if (s.get("accounts") != null) {
+            launchSessions(s, s.get("accounts"));
+            return;
+
+        }
+        final String tick = s.get("timer_tick");
+        final HashedWheelTimer timers = new HashedWheelTimer(
+                tick == null ? DEFAULT_TIMER_TICK : Long.parseLong(tick), WHEEL_SIZE);
+
+        // the client occupies a thread, the other one reconnects and delays replies.
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+
+        final IIRCController controller = createController(s.get("transport"), s.get("user"));
+        setUpCapture(s, controller);
+
+        TwitchClient client = new TwitchClient(controller, setUpTokens(s, s.get("user"), s.get("refresh_token")),
+                s.get("user"), executor, timers);
+        RelentlessFisher rf = new RelentlessFisher(client, executor, timers);
+        setUpPacing(s.get("pacing_file"), rf.getPacing());
+        onExit(() -> LoggerFactory.Get().log(ELogType.INFO, "Catch latency: {}", rf.getCatchLatency()));
+        client.register((IConnectionListener) rf);
+        client.register((IJoinListener) rf);
+        client.register((IWhisperListener) rf);
+
+        executor.submit(client);
+    }
+
+}
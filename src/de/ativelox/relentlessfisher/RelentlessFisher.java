@@ -1,179 +1,480 @@
-package de.ativelox.relentlessfisher;
-
-import java.util.concurrent.ExecutorService;
-
-import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
-import de.ativelox.relentlessfisher.listeners.IConnectionListener;
-import de.ativelox.relentlessfisher.listeners.IJoinListener;
-import de.ativelox.relentlessfisher.listeners.IWhisperListener;
-import de.ativelox.relentlessfisher.logging.ELogType;
-import de.ativelox.relentlessfisher.logging.ILogger;
-import de.ativelox.relentlessfisher.logging.LoggerFactory;
-import de.ativelox.relentlessfisher.protocols.LobotJrProtocolMapper;
-import de.ativelox.relentlessfisher.timer.ITimeoutListener;
-import de.ativelox.relentlessfisher.timer.ITimer;
-import de.ativelox.relentlessfisher.timer.SimpleTimer;
-import de.ativelox.relentlessfisher.utils.EFishingState;
-
-/**
- * This class provides the actual functionality to play the fishing mini-game
- * from "lobotjr. Gets driven by callbacks from the underlying
- * {@link TwitchClient}.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public class RelentlessFisher implements IWhisperListener, IConnectionListener, IJoinListener, ITimeoutListener {
-
-    /**
-     * The command used to cast the fishing rod.
-     */
-    private final static String CAST_COMMAND = "!cast";
-
-    /**
-     * The command to catch a fish after it has taken the bait.
-     */
-    private final static String CATCH_COMMAND = "!catch";
-
-    /**
-     * The name of the channel the bot operates on.
-     */
-    private final static String CHANNEL_NAME = "lobosjr";
-
-    /**
-     * The name of the bot providing the fishing mini-game.
-     */
-    private final static String BOT_NAME = "lobotjr";
-
-    /**
-     * The delay (in milliseconds) used to respond to whispers. This is used, since
-     * twitch will not allow rapid conversations.
-     */
-    private final static int WHISPER_DELAY = 2000;
-
-    /**
-     * The time in ms after which this application assumes the bot isn't working
-     * properly and starts the mini-game from anew.
-     */
-    private final static long NO_RESPONSE_TIMEOUT = 300000;
-
-    /**
-     * The accuracy of the underlying timer in ms.
-     */
-    private final static long TIMER_ACCURACY = 30000;
-
-    /**
-     * The client which manages this class' callbacks.
-     */
-    private final TwitchClient mClient;
-
-    /**
-     * The logger used for logging.
-     */
-    private final ILogger mLogger;
-
-    /**
-     * Represents the current state of the fishing minigame.
-     */
-    private EFishingState mCurrentState;
-
-    /**
-     * The timer used to handle possible bot failure.
-     */
-    private final ITimer mWhisperTimer;
-
-    /**
-     * The executor used to handle threading.
-     */
-    private final ExecutorService mExecutor;
-
-    /**
-     * Creates a new {@link RelentlessFisher}.
-     * 
-     * @param client   The client which drives this instances callbacks.
-     * @param executor The executor used to handle threading.
-     */
-    public RelentlessFisher(final TwitchClient client, final ExecutorService executor) {
-	mClient = client;
-	mLogger = LoggerFactory.Get();
-	mExecutor = executor;
-
-	mWhisperTimer = new SimpleTimer(NO_RESPONSE_TIMEOUT, TIMER_ACCURACY, this);
-
-	mCurrentState = EFishingState.CAN_CAST;
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.bridge.listeners.IConnectionListener#
-     * onConnection()
-     */
-    @Override
-    public void onConnection() {
-	mExecutor.submit(mWhisperTimer);
-
-	mLogger.log(ELogType.INFO, "Got connection.");
-	mClient.send("CAP REQ :twitch.tv/tags twitch.tv/commands");
-	mClient.join(CHANNEL_NAME);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see
-     * de.ativelox.relentlessfisher.bridge.listeners.IJoinListener#onJoin(java.lang.
-     * String)
-     */
-    @Override
-    public void onJoin(final String channel) {
-	mClient.whisper(CHANNEL_NAME, BOT_NAME, CAST_COMMAND);
-
-    }
-
-    @Override
-    public void onTimeout(final long ms) {
-	// the bot hasn't responded for some amount of time, so we retry.
-	mCurrentState = EFishingState.CAN_CAST;
-	mClient.whisper(CHANNEL_NAME, BOT_NAME, CAST_COMMAND);
-
-	mExecutor.submit(mWhisperTimer);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.bridge.listeners.IWhisperListener#
-     * onWhisperReceived(java.lang.String, java.lang.String)
-     */
-    @Override
-    public void onWhisperReceived(final String sender, final String message) {
-	mWhisperTimer.reset();
-
-	if (!sender.equals(BOT_NAME)) {
-	    return;
-	}
-	try {
-	    Thread.sleep(WHISPER_DELAY);
-	} catch (InterruptedException e) {
-	    e.printStackTrace();
-
-	}
-	mCurrentState = LobotJrProtocolMapper.Next(mCurrentState, message);
-
-	switch (mCurrentState) {
-	case CAN_CAST:
-	    mClient.whisper(CHANNEL_NAME, BOT_NAME, CAST_COMMAND);
-	    break;
-	case CAN_CATCH:
-	    mClient.whisper(CHANNEL_NAME, BOT_NAME, CATCH_COMMAND);
-	    break;
-	default:
-	    break;
-
-	}
-    }
-}
+package de.ativelox.relentlessfisher;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.pacing.WhisperPacing;
+import de.ativelox.relentlessfisher.pacing.WhisperScheduler;
+import de.ativelox.relentlessfisher.protocols.EBotResponse;
+import de.ativelox.relentlessfisher.protocols.EFishingAction;
+import de.ativelox.relentlessfisher.protocols.LobotJrProtocolMapper;
+import de.ativelox.relentlessfisher.timer.IClock;
+import de.ativelox.relentlessfisher.timer.ITimeoutListener;
+import de.ativelox.relentlessfisher.timer.ITimer;
+import de.ativelox.relentlessfisher.timer.ITimerFactory;
+import de.ativelox.relentlessfisher.timer.SimpleTimer;
+import de.ativelox.relentlessfisher.timer.SystemClock;
+import de.ativelox.relentlessfisher.utils.EFishingState;
+
+/**
+ * This class provides the actual functionality to play the fishing mini-game
+ * from "lobotjr. Gets driven by callbacks from the underlying
+ * {@link TwitchClient}. Replies to the bot are delayed by the
+ * {@link WhisperScheduler} shared with all other accounts, so the thread
+ * delivering the callbacks (i.e. reading from the server) never blocks. Only a
+ * bite is answered right away, by a pre-encoded <tt>!catch</tt>, as long as
+ * twitchs' whisper rate limits allow it, sent
+ * {@link EPriority#GAME_CRITICAL} so it overtakes anything else waiting to be
+ * written.<br>
+ * 
+ * The delay before casting again and the time to wait for the bot before
+ * starting anew are learned by a {@link WhisperPacing}, which gets told how
+ * long the bot takes to respond to every command and which commands it never
+ * responded to.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class RelentlessFisher implements IWhisperListener, IConnectionListener, IJoinListener, ITimeoutListener {
+
+    /**
+     * The command used to cast the fishing rod.
+     */
+    private final static String CAST_COMMAND = "!cast";
+
+    /**
+     * The command to catch a fish after it has taken the bait.
+     */
+    private final static String CATCH_COMMAND = "!catch";
+
+    /**
+     * The name of the channel the bot operates on.
+     */
+    private final static String CHANNEL_NAME = "lobosjr";
+
+    /**
+     * The name of the bot providing the fishing mini-game.
+     */
+    private final static String BOT_NAME = "lobotjr";
+
+    /**
+     * The time in ms a <tt>!catch</tt> may wait for its slot, the fish only bites
+     * for a while.
+     */
+    private final static long CATCH_SLACK = 1000;
+
+    /**
+     * The time in ms casting again may wait for its slot, once its delay passed.
+     */
+    private final static long CAST_SLACK = 2000;
+
+    /**
+     * The whisper casting the fishing rod, encoded once.
+     */
+    private final static ByteBuffer CAST_FRAME = TwitchClient.WhisperFrame(CHANNEL_NAME, BOT_NAME, CAST_COMMAND);
+
+    /**
+     * The whisper catching a fish, encoded once, since it's sent in a hurry.
+     */
+    private final static ByteBuffer CATCH_FRAME = TwitchClient.WhisperFrame(CHANNEL_NAME, BOT_NAME, CATCH_COMMAND);
+
+    /**
+     * The accuracy of the underlying timer in ms.
+     */
+    private final static long TIMER_ACCURACY = 30000;
+
+    /**
+     * The client which manages this class' callbacks.
+     */
+    private final TwitchClient mClient;
+
+    /**
+     * The logger used for logging.
+     */
+    private final ILogger mLogger;
+
+    /**
+     * Represents the current state of the fishing minigame.
+     */
+    private volatile EFishingState mCurrentState;
+
+    /**
+     * The protocol of the fishing mini-game.
+     */
+    private final LobotJrProtocolMapper mProtocol;
+
+    /**
+     * The reply to the bot currently waiting for its slot, if any.
+     */
+    private WhisperScheduler.Request mPendingReply;
+
+    /**
+     * The latencies from receiving a bite to the <tt>!catch</tt> being written to
+     * the socket.
+     */
+    private final LatencyHistogram mCatchLatency;
+
+    /**
+     * Learns the delay before casting again and the time to wait for the bot.
+     */
+    private final WhisperPacing mPacing;
+
+    /**
+     * The clock the response times and latencies are measured with.
+     */
+    private final IClock mClock;
+
+    /**
+     * The command sent last which the bot hasn't responded to yet, guarded by
+     * this instance.
+     */
+    private EFishingAction mOutstanding;
+
+    /**
+     * The time the outstanding command got sent at in ns, given by the clock of
+     * this instance, guarded by this instance.
+     */
+    private long mSentAt;
+
+    /**
+     * The time the last cast got acknowledged at in ns, given by the clock of
+     * this instance, or <tt>0</tt> if not waiting for a bite, guarded by this
+     * instance.
+     */
+    private long mCastAt;
+
+    /**
+     * The timer used to handle possible bot failure, its timeout following the
+     * response currently expected from the bot.
+     */
+    private final ITimer mWhisperTimer;
+
+    /**
+     * The executor used to handle threading, e.g. running the timer waiting for
+     * the bot.
+     */
+    private final ScheduledExecutorService mExecutor;
+
+    /**
+     * Creates a new {@link RelentlessFisher}.
+     * 
+     * @param client   The client which drives this instances callbacks.
+     * @param executor The executor used to handle threading, e.g. running
+     *                 the timer waiting for the bot.
+     */
+    public RelentlessFisher(final TwitchClient client, final ScheduledExecutorService executor) {
+        this(client, executor, SimpleTimer.Factory(TIMER_ACCURACY));
+
+    }
+
+    /**
+     * Creates a new {@link RelentlessFisher}.
+     * 
+     * @param client   The client which drives this instances callbacks.
+     * @param executor The executor used to handle threading, e.g. running
+     *                 the timer waiting for the bot.
+     * @param timers   The factory used to create the timers of this instance.
+     */
+    public RelentlessFisher(final TwitchClient client, final ScheduledExecutorService executor,
+            final ITimerFactory timers) {
+        this(client, executor, timers, SystemClock.INSTANCE);
+
+    }
+
+    /**
+     * Creates a new {@link RelentlessFisher}.
+     * 
+     * @param client   The client which drives this instances callbacks.
+     * @param executor The executor used to handle threading, e.g. running
+     *                 the timer waiting for the bot.
+     * @param timers   The factory used to create the timers of this instance.
+     * @param clock    The clock to measure time with, the same the timers use.
+     */
+    public RelentlessFisher(final TwitchClient client, final ScheduledExecutorService executor,
+            final ITimerFactory timers, final IClock clock) {
+        this(client, executor, timers, clock, new LatencyHistogram(), new WhisperPacing(clock));
+
+    }
+
+    /**
+     * Creates a new {@link RelentlessFisher}.
+     * 
+     * @param client       The client which drives this instances callbacks.
+     * @param executor     The executor used to handle threading, e.g. running
+     *                     the timer waiting for the bot.
+     * @param timers       The factory used to create the timers of this instance.
+     * @param clock        The clock to measure time with, the same the timers
+     *                     and the pacing use.
+     * @param catchLatency The histogram the latencies from a bite to the
+     *                     <tt>!catch</tt> are recorded into, may be shared with
+     *                     other instances.
+     * @param pacing       Learns the delay before casting again and the time to
+     *                     wait for the bot, may be shared with other instances.
+     */
+    public RelentlessFisher(final TwitchClient client, final ScheduledExecutorService executor,
+            final ITimerFactory timers, final IClock clock, final LatencyHistogram catchLatency,
+            final WhisperPacing pacing) {
+        mClient = client;
+        mLogger = LoggerFactory.Get();
+        mExecutor = executor;
+        mProtocol = LobotJrProtocolMapper.Get();
+        mCatchLatency = catchLatency;
+        mPacing = pacing;
+        mClock = clock;
+        mOutstanding = EFishingAction.NONE;
+
+        mWhisperTimer = timers.create(WhisperPacing.MAX_TIMEOUT, this);
+
+        mCurrentState = EFishingState.CAN_CAST;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.bridge.listeners.IConnectionListener#
+     * onConnection()
+     */
+    @Override
+    public void onConnection() {
+        mExecutor.submit(mWhisperTimer);
+
+        mLogger.log(ELogType.INFO, "Got connection.");
+        mClient.send("CAP REQ :twitch.tv/tags twitch.tv/commands");
+        mClient.join(CHANNEL_NAME);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.bridge.listeners.IJoinListener#onJoin(java.lang.
+     * String)
+     */
+    @Override
+    public void onJoin(final String channel) {
+        this.reply(EFishingAction.CAST, 0, null);
+
+    }
+
+    @Override
+    public void onTimeout(final long ms) {
+        // the bot hasn't responded for some amount of time, so we retry.
+        synchronized (this) {
+            if (mOutstanding != EFishingAction.NONE) {
+                mPacing.onDropped();
+                mLogger.log(ELogType.WARNING, "No response of the bot to {} for {} ms.", mOutstanding, ms);
+
+            } else if (mCastAt != 0) {
+                mPacing.onBiteTimeout(TimeUnit.MILLISECONDS.toNanos(ms));
+                mLogger.log(ELogType.WARNING, "No bite for {} ms.", ms);
+
+            }
+            mOutstanding = EFishingAction.NONE;
+            mCastAt = 0;
+
+        }
+
+        mCurrentState = EFishingState.CAN_CAST;
+        this.reply(EFishingAction.CAST, mPacing.delay(), null);
+
+        mExecutor.submit(mWhisperTimer);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.bridge.listeners.IWhisperListener#
+     * onWhisperReceived(java.lang.String, java.lang.String)
+     */
+    @Override
+    public void onWhisperReceived(final String sender, final String message) {
+        final long received = mClock.nanoTime();
+        mWhisperTimer.reset();
+
+        if (!sender.equals(BOT_NAME)) {
+            return;
+        }
+        final LobotJrProtocolMapper.Transition transition = mProtocol.next(mCurrentState, message);
+
+        if (transition.getResponse() == EBotResponse.UNKNOWN) {
+            mLogger.log(ELogType.WARNING, "Unrecognized whisper of the bot, staying in {}: {}", mCurrentState, message);
+        }
+        this.learn(transition.getResponse(), received);
+
+        // the state changes right away, only the reply waits for the delay.
+        mCurrentState = transition.getNext();
+
+        switch (transition.getAction()) {
+        case CAST:
+            this.reply(EFishingAction.CAST, mPacing.delay(), null);
+            break;
+        case CATCH:
+            // the fish only bites for a while, so no artificial delay here.
+            this.reply(EFishingAction.CATCH, 0, () -> mCatchLatency.record(mClock.nanoTime() - received));
+            break;
+        default:
+            break;
+
+        }
+    }
+
+    /**
+     * Tells the pacing about the given response of the bot, if it responds to
+     * the outstanding command or ends the wait for a bite, and expects the next
+     * response accordingly.
+     * 
+     * @param response The response of the bot.
+     * @param received The time the response got received at in ns, given by
+     *                 the clock of this instance.
+     */
+    private synchronized void learn(final EBotResponse response, final long received) {
+        if (response == EBotResponse.BITE && mCastAt != 0) {
+            mPacing.onBite(received - mCastAt);
+            mCastAt = 0;
+
+        }
+
+        if (!Acknowledges(mOutstanding, response)) {
+            return;
+        }
+        mPacing.onAcknowledged(mOutstanding, received - mSentAt);
+
+        if (mOutstanding == EFishingAction.CAST) {
+            mCastAt = received;
+            this.expect(mPacing.biteTimeout());
+
+        }
+        mOutstanding = EFishingAction.NONE;
+
+    }
+
+    /**
+     * Whether the given response of the bot responds to the given command.
+     * 
+     * @param command  The command.
+     * @param response The response.
+     * @return <tt>True</tt> if it does, <tt>false</tt> otherwise.
+     */
+    private static boolean Acknowledges(final EFishingAction command, final EBotResponse response) {
+        switch (command) {
+        case CAST:
+            return response == EBotResponse.CAST || response == EBotResponse.ALREADY_CAST;
+        case CATCH:
+            return response == EBotResponse.CAUGHT || response == EBotResponse.ESCAPED;
+        default:
+            return false;
+
+        }
+    }
+
+    /**
+     * Expects the next whisper of the bot within the given time, starting now.
+     * 
+     * @param timeout The time in ms.
+     */
+    private void expect(final long timeout) {
+        mWhisperTimer.setTimeout(timeout);
+        mWhisperTimer.reset();
+
+    }
+
+    /**
+     * Marks the given command as sent, expecting the bot to respond to it. Done
+     * right before writing it, since the response may be read before the
+     * writing thread returns.
+     * 
+     * @param command The command.
+     */
+    private synchronized void sending(final EFishingAction command) {
+        mOutstanding = command;
+        mSentAt = mClock.nanoTime();
+        mCastAt = 0;
+
+        this.expect(mPacing.responseTimeout(command));
+
+    }
+
+    /**
+     * Whispers the given command to the bot after the given delay, or later if
+     * the {@link WhisperScheduler} hands out its slot later, without blocking.
+     * Without any delay needed the command is sent by the calling thread right
+     * away. A reply still waiting is dropped, since only the reply to the latest
+     * state matters.
+     * 
+     * @param command The command, either {@link EFishingAction#CAST} or
+     *                {@link EFishingAction#CATCH}.
+     * @param delay   The minimum delay in ms.
+     * @param onSent  Gets called once the whisper got written to the socket,
+     *                <tt>null</tt> if not needed.
+     */
+    private synchronized void reply(final EFishingAction command, final long delay, final Runnable onSent) {
+        this.cancelPendingReply();
+
+        final ByteBuffer frame = command == EFishingAction.CATCH ? CATCH_FRAME : CAST_FRAME;
+        // only the catch races the fish, casting again can wait behind anything.
+        final EPriority priority = command == EFishingAction.CATCH ? EPriority.GAME_CRITICAL : EPriority.BEST_EFFORT;
+
+        final long slack = command == EFishingAction.CATCH ? CATCH_SLACK : CAST_SLACK;
+
+        // sent right away by this thread, or by the scheduler once this returned the monitor.
+        final WhisperScheduler.Request request = mClient.whisper(priority, TimeUnit.MILLISECONDS.toNanos(delay),
+                TimeUnit.MILLISECONDS.toNanos(slack), () -> {
+                    this.sending(command);
+                    mClient.sendFrame(frame, priority, onSent);
+                });
+
+        if (request.isGranted()) {
+            return;
+        }
+        // no response is due before the reply is even sent.
+        this.expect(delay + slack + mPacing.responseTimeout(command));
+        mPendingReply = request;
+
+    }
+
+    /**
+     * The latencies from receiving a bite to the <tt>!catch</tt> being written to
+     * the socket.
+     * 
+     * @return The histogram of the latencies.
+     */
+    public LatencyHistogram getCatchLatency() {
+        return mCatchLatency;
+
+    }
+
+    /**
+     * The pacing of this instance, learning the delay before casting again and
+     * the time to wait for the bot.
+     * 
+     * @return The pacing.
+     */
+    public WhisperPacing getPacing() {
+        return mPacing;
+
+    }
+
+    /**
+     * Cancels the reply still waiting for its delay to pass, if any.
+     */
+    private synchronized void cancelPendingReply() {
+        if (mPendingReply != null) {
+            mPendingReply.cancel();
+            mPendingReply = null;
+
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.ativelox.relentlessfisher.auth;
+
+/**
+ * Provides an oauth2 access token along with the time it expires at, and the
+ * refresh token to fetch the next one with.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class AccessToken {
+
+    /**
+     * The access token.
+     */
+    private final String mToken;
+
+    /**
+     * The time the token expires at, in ms since the epoch, since it has to
+     * survive restarts.
+     */
+    private final long mExpiresAt;
+
+    /**
+     * The refresh token to fetch the next access token with, which twitch may
+     * have rotated along with this one.
+     */
+    private final String mRefreshToken;
+
+    /**
+     * Creates a new {@link AccessToken}.
+     * 
+     * @param token        The access token.
+     * @param expiresAt    The time the token expires at, in ms since the epoch.
+     * @param refreshToken The refresh token to fetch the next access token
+     *                     with.
+     */
+    public AccessToken(final String token, final long expiresAt, final String refreshToken) {
+        mToken = token;
+        mExpiresAt = expiresAt;
+        mRefreshToken = refreshToken;
+
+    }
+
+    /**
+     * The access token.
+     * 
+     * @return The access token.
+     */
+    public String getToken() {
+        return mToken;
+
+    }
+
+    /**
+     * The time the token expires at.
+     * 
+     * @return The time in ms since the epoch.
+     */
+    public long getExpiresAt() {
+        return mExpiresAt;
+
+    }
+
+    /**
+     * The refresh token to fetch the next access token with.
+     * 
+     * @return The refresh token.
+     */
+    public String getRefreshToken() {
+        return mRefreshToken;
+
+    }
+
+    /**
+     * The time left until the token expires.
+     * 
+     * @param now The current time in ms since the epoch.
+     * @return The time in ms, negative if the token expired already.
+     */
+    public long expiresIn(final long now) {
+        return mExpiresAt - now;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        // never the tokens themselves, this ends up in logs.
+        return String.format("token expiring in %d s", this.expiresIn(System.currentTimeMillis()) / 1000);
+
+    }
+}
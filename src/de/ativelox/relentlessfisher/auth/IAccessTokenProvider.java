@@ -0,0 +1,22 @@
+package de.ativelox.relentlessfisher.auth;
+
+import java.io.IOException;
+
+/**
+ * Provides an interface for objects handing out the oauth2 access token used to
+ * log onto twitchs' IRC server.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface IAccessTokenProvider {
+
+    /**
+     * Gets a currently valid access token.
+     * 
+     * @return The access token.
+     * @throws IOException When the access token couldn't properly get fetched.
+     */
+    String getAccessToken() throws IOException;
+
+}
@@ -0,0 +1,246 @@
+package de.ativelox.relentlessfisher.auth;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.utils.HTTPRequest;
+
+/**
+ * Provides an {@link IAccessTokenProvider} which refreshes the access token on
+ * every call, using the refresh token granted to this application. Twitch may
+ * hand out a new refresh token along with an access token, in which case the
+ * former one is no longer valid and the new one is used from then on. More can be
+ * found here: <a href=
+ * "https://dev.twitch.tv/docs/authentication/#refreshing-access-tokens">https://dev.twitch.tv/docs/authentication/#refreshing-access-tokens</a>
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class RefreshTokenProvider implements IAccessTokenProvider {
+
+    /**
+     * The key that is given in a JSON object referring to the access token for the
+     * oauth2 authentification for this application.
+     */
+    private final static String ACCESS_TOKEN_IDENTIFIER = "access_token";
+
+    /**
+     * The key that is given in a JSON object referring to the amount of seconds
+     * the access token stays valid for.
+     */
+    private final static String EXPIRES_IN_IDENTIFIER = "expires_in";
+
+    /**
+     * The key that is given in a JSON object referring to the refresh token to
+     * use for the next refresh.
+     */
+    private final static String REFRESH_TOKEN_IDENTIFIER = "refresh_token";
+
+    /**
+     * The time in s an access token is assumed to stay valid for, if the server
+     * doesn't tell.
+     */
+    private final static long DEFAULT_EXPIRES_IN = 3600;
+
+    /**
+     * The endpoint of twitch refreshing access tokens.
+     */
+    public final static String DEFAULT_URL = "https://id.twitch.tv/oauth2/token";
+
+    /**
+     * The endpoint refreshing access tokens.
+     */
+    private final String mUrl;
+
+    /**
+     * The refresh token granted initially, identifying the access tokens
+     * refreshed by this provider even after twitch rotated it.
+     */
+    private final String mGrantedToken;
+
+    /**
+     * The latest refresh token, which is used to refresh your access token.
+     */
+    private volatile String mRefreshToken;
+
+    /**
+     * The client id, which is uniquely assigned to every twitch-application. Used
+     * to identify this application.
+     */
+    private final String mClientId;
+
+    /**
+     * The client secret, which is used in refreshing access tokens.
+     */
+    private final String mClientSecret;
+
+    /**
+     * Creates a new {@link RefreshTokenProvider}.
+     * 
+     * @param clientId     The ID used to uniquely identify this application.
+     *                     Provided by Twitch.
+     * @param clientSecret The secret used to refresh access tokens. Provided by
+     *                     Twitch.
+     * @param refreshToken The refresh token, used to refresh access tokens.
+     *                     Provided by Twitch when registering this application for
+     *                     an oauth token.
+     */
+    public RefreshTokenProvider(final String clientId, final String clientSecret, final String refreshToken) {
+        this(DEFAULT_URL, clientId, clientSecret, refreshToken);
+
+    }
+
+    /**
+     * Creates a new {@link RefreshTokenProvider} refreshing access tokens at the
+     * given endpoint, e.g. a stand-in for twitch.
+     * 
+     * @param url          The endpoint refreshing access tokens.
+     * @param clientId     The ID used to uniquely identify this application.
+     *                     Provided by Twitch.
+     * @param clientSecret The secret used to refresh access tokens. Provided by
+     *                     Twitch.
+     * @param refreshToken The refresh token, used to refresh access tokens.
+     *                     Provided by Twitch when registering this application for
+     *                     an oauth token.
+     */
+    public RefreshTokenProvider(final String url, final String clientId, final String clientSecret,
+            final String refreshToken) {
+        mUrl = url;
+        mClientId = clientId;
+        mClientSecret = clientSecret;
+        mGrantedToken = refreshToken;
+        mRefreshToken = refreshToken;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.auth.IAccessTokenProvider#getAccessToken()
+     */
+    @Override
+    public String getAccessToken() throws IOException {
+        return this.refresh().getToken();
+
+    }
+
+    /**
+     * Refreshes the access token, blocking until the endpoint answered.
+     * 
+     * @return The access token, along with the time it expires at.
+     * @throws IOException When the access token couldn't properly get fetched.
+     */
+    public AccessToken refresh() throws IOException {
+        return HTTPRequest.Await(this.refreshAsync());
+
+    }
+
+    /**
+     * Refreshes the access token without blocking, using the refresh token
+     * handed out along with it from then on.
+     * 
+     * @return The refresh, completing with the access token along with the time
+     *         it expires at, or failing with an {@link IOException} when the
+     *         access token couldn't properly get fetched.
+     */
+    public CompletableFuture<AccessToken> refreshAsync() {
+        final long requested = System.currentTimeMillis();
+        final String refreshToken = mRefreshToken;
+
+        return HTTPRequest.Get()
+                .post(mUrl + "?grant_type=refresh_token&refresh_token="
+                        + URLEncoder.encode(refreshToken, StandardCharsets.UTF_8) + "&client_id=" + mClientId
+                        + "&client_secret=" + mClientSecret, "", ACCESS_TOKEN_IDENTIFIER, EXPIRES_IN_IDENTIFIER,
+                        REFRESH_TOKEN_IDENTIFIER)
+                .thenApply(answer -> {
+                    try {
+                        final AccessToken token = Token(answer, requested, refreshToken);
+                        mRefreshToken = token.getRefreshToken();
+
+                        return token;
+
+                    } catch (final IOException e) {
+                        throw new CompletionException(e);
+
+                    }
+                });
+    }
+
+    /**
+     * Reads the access token off the answer of the endpoint.
+     * 
+     * @param answer       The fields of the answer.
+     * @param requested    The time the answer was requested at, in ms since the
+     *                     epoch.
+     * @param refreshToken The refresh token the answer was requested with,
+     *                     kept if the answer doesn't contain a new one.
+     * @return The access token, along with the time it expires at.
+     * @throws IOException If the answer didn't contain a proper access token.
+     */
+    private static AccessToken Token(final Map<String, String> answer, final long requested,
+            final String refreshToken) throws IOException {
+        final String token = answer.get(ACCESS_TOKEN_IDENTIFIER);
+        final String expiresIn = answer.get(EXPIRES_IN_IDENTIFIER);
+        final String rotated = answer.get(REFRESH_TOKEN_IDENTIFIER);
+
+        if (token == null) {
+            throw new IOException("The answer didn't contain an access token.");
+        }
+
+        try {
+            // counted from the request, the answer could have taken a while.
+            return new AccessToken(token,
+                    requested + TimeUnit.SECONDS
+                            .toMillis(expiresIn == null ? DEFAULT_EXPIRES_IN : Long.parseLong(expiresIn)),
+                    rotated == null || rotated.isEmpty() ? refreshToken : rotated);
+
+        } catch (final NumberFormatException e) {
+            throw new IOException("Malformed expiry: " + expiresIn, e);
+
+        }
+    }
+
+    /**
+     * Continues refreshing with the given refresh token, e.g. the latest one
+     * kept from a former run, since the one granted initially is no longer
+     * valid once twitch rotated it.
+     * 
+     * @param refreshToken The refresh token.
+     */
+    public void setRefreshToken(final String refreshToken) {
+        mRefreshToken = refreshToken;
+
+    }
+
+    /**
+     * Identifies the application and the refresh token granted initially the
+     * access tokens are refreshed for, without revealing either, to tell whether
+     * a cached access token still belongs to them.
+     * 
+     * @return The hex encoded identification.
+     */
+    public String fingerprint() {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((mClientId + ":" + mGrantedToken).getBytes(StandardCharsets.UTF_8));
+            final StringBuilder builder = new StringBuilder();
+
+            for (int i = 0; i < 16; i++) {
+                builder.append(String.format("%02x", digest[i]));
+            }
+            return builder.toString();
+
+        } catch (final NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256.
+            throw new IllegalStateException(e);
+
+        }
+    }
+}
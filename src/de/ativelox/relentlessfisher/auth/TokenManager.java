@@ -0,0 +1,467 @@
+package de.ativelox.relentlessfisher.auth;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.settings.Settings;
+import de.ativelox.relentlessfisher.utils.HTTPRequest;
+
+/**
+ * Provides an {@link IAccessTokenProvider} handing out a cached access token,
+ * refreshed by a {@link RefreshTokenProvider} in the background well before it
+ * expires. Connecting thereby never waits for twitch, unless the cached token
+ * is about to expire anyway, e.g. because the refreshes kept failing. The token
+ * is also kept in a file only readable by its owner, so restarts reuse it as
+ * well.<br>
+ * 
+ * Call {@link TokenManager#start()} once to load the file and schedule the
+ * refreshes, without it the token is only refreshed on demand.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class TokenManager implements IAccessTokenProvider {
+
+    /**
+     * The time in ms before a token expires it is refreshed at, or half its
+     * lifetime for tokens living shorter than twice that.
+     */
+    private final static long REFRESH_AHEAD = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * The time in ms a token has to stay valid for at least to be handed out
+     * without refreshing it first, so it doesn't expire while logging in.
+     */
+    private final static long MIN_VALIDITY = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * The time in ms to wait before retrying a failed refresh, doubled on every
+     * further failure.
+     */
+    private final static long MIN_RETRY = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * The longest time in ms to wait before retrying a failed refresh.
+     */
+    private final static long MAX_RETRY = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * The permissions of the file the token is kept in.
+     */
+    private final static Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    /**
+     * The name of the thread refreshing the tokens of all managers created
+     * without an executor.
+     */
+    private final static String THREAD_NAME = "rf-tokens";
+
+    /**
+     * Starts refreshing the tokens of all managers created without an
+     * executor, created once needed.
+     */
+    private static volatile ScheduledExecutorService REFRESHER = null;
+
+    /**
+     * Fetches new tokens.
+     */
+    private final RefreshTokenProvider mSource;
+
+    /**
+     * The file the token is kept in, <tt>null</tt> to only keep it in memory.
+     */
+    private final Path mCache;
+
+    /**
+     * Starts refreshing the token ahead of its expiry.
+     */
+    private final ScheduledExecutorService mExecutor;
+
+    /**
+     * The logger used for logging.
+     */
+    private final ILogger mLogger;
+
+    /**
+     * The current token, <tt>null</tt> until the first one got loaded or
+     * fetched.
+     */
+    private volatile AccessToken mToken;
+
+    /**
+     * The upcoming refresh, if any, guarded by this instance.
+     */
+    private ScheduledFuture<?> mRefresh;
+
+    /**
+     * The latest refresh started, guarded by this instance.
+     */
+    private CompletableFuture<AccessToken> mRefreshing;
+
+    /**
+     * The time in ms to wait before retrying the next failed refresh, guarded by
+     * this instance.
+     */
+    private long mRetry;
+
+    /**
+     * The amount of tokens fetched so far, guarded by this instance.
+     */
+    private long mRefreshes;
+
+    /**
+     * The amount of failed refreshes so far, guarded by this instance.
+     */
+    private long mFailures;
+
+    /**
+     * The amount of times a token had to be fetched while a client waited for
+     * it, guarded by this instance.
+     */
+    private long mBlocking;
+
+    /**
+     * Creates a new {@link TokenManager} refreshing its token on a thread shared
+     * by all managers.
+     * 
+     * @param source Fetches new tokens.
+     * @param cache  The file the token is kept in, <tt>null</tt> to only keep it
+     *               in memory.
+     */
+    public TokenManager(final RefreshTokenProvider source, final Path cache) {
+        this(source, cache, Refresher());
+
+    }
+
+    /**
+     * Creates a new {@link TokenManager}.
+     * 
+     * @param source   Fetches new tokens.
+     * @param cache    The file the token is kept in, <tt>null</tt> to only keep
+     *                 it in memory.
+     * @param executor Starts refreshing the token ahead of its expiry, the
+     *                 token is fetched without blocking it.
+     */
+    public TokenManager(final RefreshTokenProvider source, final Path cache,
+            final ScheduledExecutorService executor) {
+        mSource = source;
+        mCache = cache;
+        mExecutor = executor;
+        mLogger = LoggerFactory.Get();
+        mRetry = MIN_RETRY;
+
+    }
+
+    /**
+     * The executor refreshing the tokens of all managers created without one.
+     * 
+     * @return The executor.
+     */
+    private static ScheduledExecutorService Refresher() {
+        ScheduledExecutorService refresher = REFRESHER;
+
+        if (refresher == null) {
+            synchronized (TokenManager.class) {
+                if (REFRESHER == null) {
+                    REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, THREAD_NAME);
+                        thread.setDaemon(true);
+
+                        return thread;
+                    });
+                }
+                refresher = REFRESHER;
+
+            }
+        }
+        return refresher;
+
+    }
+
+    /**
+     * Loads the token kept in the file, if it still belongs to the refresh token
+     * of the source and hasn't expired, and schedules its refresh. Without a
+     * token to load, fetching one starts right away. The refresh token kept is
+     * used from then on even if the access token expired, as twitch may have
+     * rotated the one granted initially.
+     */
+    public void start() {
+        if (mCache != null) {
+            try {
+                final AccessToken token = this.load();
+
+                if (token != null && token.getRefreshToken() != null) {
+                    mSource.setRefreshToken(token.getRefreshToken());
+                }
+
+                if (token != null && token.expiresIn(System.currentTimeMillis()) > MIN_VALIDITY) {
+                    mToken = token;
+                    mLogger.log(ELogType.INFO, "Loaded the cached access {}.", token);
+
+                }
+            } catch (final IOException e) {
+                mLogger.log(ELogType.WARNING, "Couldn't load the cached access token: {}", e);
+
+            }
+        }
+
+        synchronized (this) {
+            this.schedule(mToken == null ? 0 : this.refreshDelay(mToken));
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.auth.IAccessTokenProvider#getAccessToken()
+     */
+    @Override
+    public String getAccessToken() throws IOException {
+        final AccessToken token = mToken;
+
+        if (token != null && token.expiresIn(System.currentTimeMillis()) > MIN_VALIDITY) {
+            return token.getToken();
+        }
+        final CompletableFuture<AccessToken> refreshing;
+
+        synchronized (this) {
+            // a refresh may have completed meanwhile.
+            final AccessToken current = mToken;
+
+            if (current != null && current.expiresIn(System.currentTimeMillis()) > MIN_VALIDITY) {
+                return current.getToken();
+            }
+            mBlocking++;
+            refreshing = this.refresh();
+
+        }
+
+        try {
+            return HTTPRequest.Await(refreshing).getToken();
+
+        } catch (final IOException e) {
+            final AccessToken current = mToken;
+
+            if (current != null && current.expiresIn(System.currentTimeMillis()) > 0) {
+                // still good for logging in, if only barely.
+                mLogger.log(ELogType.WARNING, "Couldn't refresh the access token, using the old one: {}", e);
+                return current.getToken();
+
+            }
+            throw e;
+
+        }
+    }
+
+    /**
+     * Fetches a new token, unless a refresh is underway already, keeping it and
+     * scheduling its refresh once fetched. Must be called while holding the
+     * monitor of this instance.
+     * 
+     * @return The refresh, completing once the new token got kept.
+     */
+    private CompletableFuture<AccessToken> refresh() {
+        if (mRefreshing == null || mRefreshing.isDone()) {
+            mRefreshing = mSource.refreshAsync().whenComplete(this::onRefreshed);
+        }
+        return mRefreshing;
+
+    }
+
+    /**
+     * Keeps the token fetched and schedules its refresh, or retries if fetching
+     * it failed.
+     * 
+     * @param token The token, <tt>null</tt> if fetching it failed.
+     * @param error Why fetching the token failed, <tt>null</tt> if it didn't.
+     */
+    private synchronized void onRefreshed(final AccessToken token, final Throwable error) {
+        if (error != null) {
+            mFailures++;
+            this.schedule(mRetry);
+            mRetry = Math.min(MAX_RETRY, 2 * mRetry);
+
+            mLogger.log(ELogType.WARNING, "Couldn't refresh the access token, retrying: {}", HTTPRequest.Unwrap(error));
+            return;
+
+        }
+        mToken = token;
+        mRefreshes++;
+        mRetry = MIN_RETRY;
+        this.schedule(this.refreshDelay(token));
+
+        mLogger.log(ELogType.INFO, "Refreshed the access {}.", token);
+
+        if (mCache != null) {
+            try {
+                this.store(token);
+
+            } catch (final IOException e) {
+                // the token is still good for this run.
+                mLogger.log(ELogType.WARNING, "Couldn't cache the access token: {}", e);
+
+            }
+        }
+    }
+
+    /**
+     * The time until the given token is to be refreshed, at least as long as
+     * retrying a failed refresh waits, so tokens expiring right away don't get
+     * refreshed over and over.
+     * 
+     * @param token The token.
+     * @return The time in ms.
+     */
+    private long refreshDelay(final AccessToken token) {
+        final long left = token.expiresIn(System.currentTimeMillis());
+
+        return Math.max(MIN_RETRY, left > 2 * REFRESH_AHEAD ? left - REFRESH_AHEAD : left / 2);
+
+    }
+
+    /**
+     * Replaces the upcoming refresh by one after the given delay. Must be
+     * called while holding the monitor of this instance.
+     * 
+     * @param delay The delay in ms.
+     */
+    private void schedule(final long delay) {
+        if (mRefresh != null) {
+            mRefresh.cancel(false);
+        }
+        mRefresh = mExecutor.schedule(this::refreshAhead, delay, TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * Starts refreshing the token ahead of its expiry, on the executor.
+     */
+    private synchronized void refreshAhead() {
+        this.refresh();
+
+    }
+
+    /**
+     * Loads the token kept in the file.
+     * 
+     * @return The token, or <tt>null</tt> if there is none, or it belongs to
+     *         another refresh token.
+     * @throws IOException If the file couldn't be read or is malformed.
+     */
+    private AccessToken load() throws IOException {
+        if (!Files.exists(mCache)) {
+            return null;
+        }
+        final Settings s = new Settings();
+        s.load(mCache.toString());
+
+        if (!mSource.fingerprint().equals(s.get("source"))) {
+            return null;
+        }
+
+        try {
+            return new AccessToken(s.get("access_token"), Long.parseLong(s.get("expires_at")),
+                    s.get("refresh_token"));
+
+        } catch (final NumberFormatException e) {
+            throw new IOException("Malformed token file: " + mCache, e);
+
+        }
+    }
+
+    /**
+     * Stores the given token into the file, along with the refresh token to
+     * fetch the next one with, replacing it as a whole, so a crash never leaves
+     * it half written. The file is only ever readable by its owner.
+     * 
+     * @param token The token.
+     * @throws IOException If the file couldn't be written.
+     */
+    private void store(final AccessToken token) throws IOException {
+        final Path absolute = mCache.toAbsolutePath();
+        final Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+
+        Files.deleteIfExists(temporary);
+
+        if (absolute.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            // restricted from its creation on, before the token is written to it.
+            Files.createFile(temporary, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+
+        } else {
+            final File file = Files.createFile(temporary).toFile();
+
+            if (!file.setReadable(false, false) || !file.setReadable(true, true) || !file.setWritable(false, false)
+                    || !file.setWritable(true, true)) {
+                Files.delete(temporary);
+                throw new IOException("Couldn't restrict the access to " + temporary);
+
+            }
+        }
+        Files.write(temporary, Arrays.asList("source=" + mSource.fingerprint(), "access_token=" + token.getToken(),
+                "expires_at=" + token.getExpiresAt(), "refresh_token=" + token.getRefreshToken()),
+                StandardCharsets.UTF_8);
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /**
+     * Cancels the upcoming refresh, keeping the current token.
+     */
+    public synchronized void stop() {
+        if (mRefresh != null) {
+            mRefresh.cancel(false);
+            mRefresh = null;
+
+        }
+    }
+
+    /**
+     * The amount of tokens fetched so far.
+     * 
+     * @return The amount of tokens.
+     */
+    public synchronized long refreshes() {
+        return mRefreshes;
+
+    }
+
+    /**
+     * The amount of times a client had to wait for a token to be fetched, i.e.
+     * the amount of times connecting waited for twitch.
+     * 
+     * @return The amount of times.
+     */
+    public synchronized long blocking() {
+        return mBlocking;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("%s, refreshes=%d failed=%d blocking=%d", mToken == null ? "no token" : mToken,
+                mRefreshes, mFailures, mBlocking);
+
+    }
+}
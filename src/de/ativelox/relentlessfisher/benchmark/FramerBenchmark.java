@@ -0,0 +1,153 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import de.ativelox.relentlessfisher.irc.framing.ILineHandler;
+import de.ativelox.relentlessfisher.irc.framing.LineFramer;
+
+/**
+ * Measures the time and the heap allocated per line when splitting inbound
+ * traffic into lines, comparing a <tt>BufferedReader</tt> with the
+ * {@link LineFramer}, once only framing and once also decoding every line.<br>
+ * 
+ * Usage: <tt>FramerBenchmark [lines] [rounds]</tt>, defaults to <tt>100000
+ * 50</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class FramerBenchmark {
+
+    /**
+     * The amount of bytes handed to the framer at once, roughly what a single
+     * socket read returns under load.
+     */
+    private final static int CHUNK = 4096;
+
+    /**
+     * Counts the lines and bytes it gets handed, to keep the work from being
+     * optimized away.
+     */
+    private static long sSink;
+
+    public static void main(final String[] args) throws IOException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        final byte[] wire = TwitchCorpus.Encode(TwitchCorpus.Lines(count, 42));
+
+        final LineFramer framer = new LineFramer(16384);
+        final ILineHandler framing = line -> sSink += line.length();
+        final ILineHandler decoding = line -> sSink += line.toString().length();
+
+        // warm up all paths before measuring any of them.
+        for (int i = 0; i < rounds; i++) {
+            reader(wire);
+            framer(framer, wire, framing);
+            framer(framer, wire, decoding);
+        }
+        final long readerStart = allocated();
+        final long readerTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            reader(wire);
+        }
+        report("BufferedReader.readLine", readerStart, readerTime, (long) count * rounds);
+
+        final long framingStart = allocated();
+        final long framingTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            framer(framer, wire, framing);
+        }
+        report("LineFramer, framing only", framingStart, framingTime, (long) count * rounds);
+
+        final long decodingStart = allocated();
+        final long decodingTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            framer(framer, wire, decoding);
+        }
+        report("LineFramer, decoding all", decodingStart, decodingTime, (long) count * rounds);
+
+        System.out.println("(checksum " + sSink + ")");
+
+    }
+
+    /**
+     * Splits the given data into lines with a <tt>BufferedReader</tt>.
+     * 
+     * @param wire The data.
+     * @throws IOException Never, the data is held in memory.
+     */
+    private static void reader(final byte[] wire) throws IOException {
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(wire), StandardCharsets.UTF_8));
+
+        String line = reader.readLine();
+
+        while (line != null) {
+            sSink += line.length();
+            line = reader.readLine();
+
+        }
+    }
+
+    /**
+     * Splits the given data into lines with the given framer, handing it the data
+     * in chunks like a socket would.
+     * 
+     * @param framer  The framer.
+     * @param wire    The data.
+     * @param handler The handler receiving the lines.
+     */
+    private static void framer(final LineFramer framer, final byte[] wire, final ILineHandler handler) {
+        final ByteBuffer buffer = framer.buffer();
+        framer.clear();
+
+        int offset = 0;
+
+        while (offset < wire.length) {
+            final int length = Math.min(CHUNK, Math.min(buffer.remaining(), wire.length - offset));
+            buffer.put(wire, offset, length);
+            offset += length;
+
+            framer.frame(handler);
+
+        }
+    }
+
+    /**
+     * The amount of heap allocated by the current thread so far.
+     * 
+     * @return The allocated bytes.
+     */
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Prints the time and heap allocated per line since the given start.
+     * 
+     * @param name           The name of the measured path.
+     * @param allocatedStart The allocated bytes at the start.
+     * @param timeStart      The time at the start, in ns.
+     * @param lines          The amount of lines processed.
+     */
+    private static void report(final String name, final long allocatedStart, final long timeStart,
+            final long lines) {
+        final long time = System.nanoTime() - timeStart;
+        final long bytes = allocated() - allocatedStart;
+
+        System.out.println(String.format("%-26s %8.1f ns/line %8.1f B/line", name, (double) time / lines,
+                (double) bytes / lines));
+
+    }
+}
@@ -0,0 +1,264 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.ativelox.relentlessfisher.utils.HTTPRequest;
+import de.ativelox.relentlessfisher.utils.JsonReader;
+
+/**
+ * Compares reading responses of twitchs' oauth2 endpoint the way
+ * {@link HTTPRequest} formerly did, concatenating the lines of the response and
+ * splitting it up character by character, against reading only the needed
+ * fields straight off the stream with a {@link JsonReader}. The reader has to
+ * get every field right, otherwise the benchmark fails, while the responses the
+ * former parser got wrong are merely counted.<br>
+ * 
+ * Usage: <tt>JsonBenchmark [rounds]</tt>, defaults to <tt>20000</tt>. Longer
+ * responses are read proportionally fewer times.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class JsonBenchmark {
+
+    /**
+     * The fields read off every response.
+     */
+    private final static String[] FIELDS = { "access_token", "expires_in", "refresh_token" };
+
+    /**
+     * The access token of every response.
+     */
+    private final static String ACCESS_TOKEN = "0123456789abcdefghijklmnopqrst";
+
+    /**
+     * The lifetime of every response.
+     */
+    private final static String EXPIRES_IN = "14523";
+
+    /**
+     * The refresh token of every response.
+     */
+    private final static String REFRESH_TOKEN = "eyJfaWQmNzMtNGCJ9%6VFV5LNrZFUj8oU231/3Aj";
+
+    /**
+     * The length of the responses read <tt>rounds</tt> times, longer ones are
+     * read fewer times.
+     */
+    private final static int BASE_LENGTH = 256;
+
+    public static void main(final String[] args) throws IOException {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        final String[] names = { "refresh", "pretty-printed", "escaped", "64 scopes", "1024 scopes" };
+        final String[] responses = { Response(4, false, false), Response(4, true, false), Response(4, false, true),
+                Response(64, false, false), Response(1024, false, false) };
+
+        int wrong = 0;
+
+        for (int i = 0; i < responses.length; i++) {
+            final byte[] bytes = responses[i].getBytes(StandardCharsets.UTF_8);
+
+            if (!Expected(reader(bytes))) {
+                throw new IllegalStateException("The reader got the " + names[i] + " response wrong.");
+            }
+
+            if (!Expected(former(bytes))) {
+                wrong++;
+            }
+        }
+        System.out.println(String.format("the former parser got %d of %d responses wrong", wrong, responses.length));
+
+        for (int i = 0; i < responses.length; i++) {
+            final byte[] bytes = responses[i].getBytes(StandardCharsets.UTF_8);
+            final int iterations = Math.max(1, (int) ((long) rounds * BASE_LENGTH / bytes.length));
+
+            // warm up both paths before measuring either.
+            for (int j = 0; j < iterations; j++) {
+                former(bytes);
+                reader(bytes);
+            }
+            final long formerBytes = allocated();
+            final long formerTime = System.nanoTime();
+
+            for (int j = 0; j < iterations; j++) {
+                former(bytes);
+            }
+            report(names[i] + " former", formerBytes, formerTime, iterations, bytes.length);
+
+            final long readerBytes = allocated();
+            final long readerTime = System.nanoTime();
+
+            for (int j = 0; j < iterations; j++) {
+                reader(bytes);
+            }
+            report(names[i] + " reader", readerBytes, readerTime, iterations, bytes.length);
+
+        }
+    }
+
+    /**
+     * Builds a response of the oauth2 endpoint refreshing an access token.
+     * 
+     * @param scopes  The amount of scopes granted.
+     * @param pretty  Whether to spread the response over multiple indented
+     *                lines.
+     * @param escaped Whether to add a field containing escaped quotes and
+     *                commas, before the fields read, and escape the slashes of
+     *                the refresh token.
+     * @return The response.
+     */
+    private static String Response(final int scopes, final boolean pretty, final boolean escaped) {
+        final List<String> scope = new ArrayList<>();
+
+        for (int i = 0; i < scopes; i++) {
+            scope.add("\"" + (i % 2 == 0 ? "chat:read" : "whispers:edit") + (i < 2 ? "" : ":" + i) + "\"");
+        }
+        final List<String> members = new ArrayList<>();
+
+        if (escaped) {
+            members.add("\"message\":\"refreshed, \\\"as\\\": asked \\u00e4\"");
+        }
+        members.add("\"access_token\":\"" + ACCESS_TOKEN + "\"");
+        members.add("\"expires_in\":" + EXPIRES_IN);
+        members.add("\"refresh_token\":\"" + (escaped ? REFRESH_TOKEN.replace("/", "\\/") : REFRESH_TOKEN) + "\"");
+        members.add("\"scope\":[" + String.join(",", scope) + "]");
+        members.add("\"token_type\":\"bearer\"");
+
+        if (pretty) {
+            return "{\n  " + String.join(",\n  ", members).replace("\":", "\": ") + "\n}\n";
+        }
+        return "{" + String.join(",", members) + "}";
+
+    }
+
+    /**
+     * Whether the given fields are the ones of every response.
+     * 
+     * @param fields The fields.
+     * @return <tt>True</tt> if they are, <tt>false</tt> otherwise.
+     */
+    private static boolean Expected(final Map<String, String> fields) {
+        return ACCESS_TOKEN.equals(fields.get(FIELDS[0])) && EXPIRES_IN.equals(fields.get(FIELDS[1]))
+                && REFRESH_TOKEN.equals(fields.get(FIELDS[2]));
+
+    }
+
+    /**
+     * Reads the given response with the {@link JsonReader}.
+     * 
+     * @param bytes The response.
+     * @return The fields read.
+     * @throws IOException If the response is malformed.
+     */
+    private static Map<String, String> reader(final byte[] bytes) throws IOException {
+        return JsonReader.ReadFields(new ByteArrayInputStream(bytes), FIELDS);
+
+    }
+
+    /**
+     * Reads the given response the way {@link HTTPRequest} formerly did.
+     * 
+     * @param bytes The response.
+     * @return The fields read.
+     * @throws IOException If the response couldn't be read.
+     */
+    private static Map<String, String> former(final byte[] bytes) throws IOException {
+        final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+
+        String answer = "";
+
+        String line = reader.readLine();
+
+        while (line != null) {
+            answer += line;
+            line = reader.readLine();
+
+        }
+        return parseSimpleJSON(answer);
+
+    }
+
+    /**
+     * The parser formerly used by {@link HTTPRequest}, kept as is, except for
+     * ignoring a name without a value instead of failing.
+     * 
+     * @param json The json to parse to a map.
+     * @return A map representing the top-level-view of the given json.
+     */
+    private static Map<String, String> parseSimpleJSON(final String json) {
+        int depth = 0;
+        String current = "";
+
+        final List<String> contents = new ArrayList<>();
+
+        for (final char s : json.toCharArray()) {
+            if (s == '{' || s == '[') {
+                depth++;
+            } else if (s == '}' || s == ']') {
+                depth--;
+
+            }
+
+            if (depth <= 1) {
+                if (s == ':' || s == ',' || s == '}') {
+                    contents.add(current);
+                    current = "";
+                    continue;
+                }
+                if (s == '\"' || s == '{') {
+                    continue;
+                }
+            }
+            current += s;
+
+        }
+
+        final Map<String, String> mapping = new HashMap<>();
+
+        for (int i = 0; i + 1 < contents.size(); i += 2) {
+            mapping.put(contents.get(i), contents.get(i + 1));
+
+        }
+        return mapping;
+    }
+
+    /**
+     * The amount of heap allocated by the current thread so far.
+     * 
+     * @return The allocated bytes.
+     */
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Prints the time and heap allocated per response since the given start.
+     * 
+     * @param name           The name of the measured path.
+     * @param allocatedStart The allocated bytes at the start.
+     * @param timeStart      The time at the start, in ns.
+     * @param responses      The amount of responses read.
+     * @param length         The length of every response in bytes.
+     */
+    private static void report(final String name, final long allocatedStart, final long timeStart,
+            final int responses, final int length) {
+        final long time = System.nanoTime() - timeStart;
+        final long bytes = allocated() - allocatedStart;
+
+        System.out.println(String.format("%-22s %6d B %12.1f ns/response %12.1f B/response", name, length,
+                (double) time / responses, (double) bytes / responses));
+
+    }
+}
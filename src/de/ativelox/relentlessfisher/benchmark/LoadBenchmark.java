@@ -0,0 +1,150 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.pacing.WhisperScheduler;
+import de.ativelox.relentlessfisher.session.SessionManager;
+import de.ativelox.relentlessfisher.simulation.LobotJrSimulator;
+import de.ativelox.relentlessfisher.simulation.MockTwitchServer;
+
+/**
+ * Load-tests many fishing sessions of a {@link SessionManager} against a
+ * {@link MockTwitchServer} with a {@link LobotJrSimulator}, all in-process on
+ * loopback, and reports the catches per hour, the reaction latency between a
+ * bite and the <tt>!catch</tt> arriving at the server, the latency between a
+ * bite arriving at the client and its <tt>!catch</tt> being written, the CPU
+ * time used per session by the threads of the manager, and the pacing learned
+ * by the sessions. The server and the bot run on threads of their own, which
+ * aren't counted.<br>
+ * 
+ * Usage: <tt>LoadBenchmark [sessions] [seconds] [chat lines/s] [min bite ms]
+ * [max bite ms] [failure rate] [ignore rate]</tt>, defaults to <tt>1000 60 10
+ * 5000 30000 0.1 0</tt>. Every session needs two file descriptors.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class LoadBenchmark {
+
+    /**
+     * The amount of event loops used by the manager.
+     */
+    private final static int LOOPS = 2;
+
+    /**
+     * The amount of workers used by the manager.
+     */
+    private final static int WORKERS = 2;
+
+    /**
+     * The interval in ms at which the server pings every session.
+     */
+    private final static long PING_INTERVAL = 60000;
+
+    /**
+     * The time in ms a biting fish can be caught, longer than the delay of the
+     * fisher.
+     */
+    private final static long CATCH_WINDOW = 10000;
+
+    /**
+     * The maximum time in ms to wait for all sessions to join.
+     */
+    private final static long JOIN_TIMEOUT = 120000;
+
+    /**
+     * The seed of the bot.
+     */
+    private final static long SEED = 42;
+
+    public static void main(final String[] args) throws Exception {
+        final int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final long seconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+        final double chat = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        final long minBite = args.length > 3 ? Long.parseLong(args[3]) : 5000;
+        final long maxBite = args.length > 4 ? Long.parseLong(args[4]) : 30000;
+        final double failureRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.1;
+        final double ignoreRate = args.length > 6 ? Double.parseDouble(args[6]) : 0;
+
+        LoggerFactory.Get().setEnabled(ELogType.SERVER, false);
+        LoggerFactory.Get().setEnabled(ELogType.CLIENT, false);
+        LoggerFactory.Get().setEnabled(ELogType.INFO, false);
+
+        final LobotJrSimulator bot = new LobotJrSimulator(minBite, maxBite, CATCH_WINDOW, failureRate, SEED);
+        bot.setIgnoreRate(ignoreRate);
+        final MockTwitchServer server = new MockTwitchServer(bot, PING_INTERVAL);
+        server.setChatFlood(chat);
+
+        final Thread serverThread = new Thread(server, "mock-twitch");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        // the mock server doesn't limit whispers per host, so neither do the sessions.
+        WhisperScheduler.Get().setGlobalLimits(0, 0);
+
+        final SessionManager manager = new SessionManager("127.0.0.1", server.port(), null, LOOPS, WORKERS);
+
+        for (int i = 0; i < sessions; i++) {
+            manager.add("user" + i, () -> "benchmark");
+
+        }
+        final long joinDeadline = System.currentTimeMillis() + JOIN_TIMEOUT;
+
+        while (server.joins() < sessions) {
+            if (System.currentTimeMillis() > joinDeadline) {
+                System.err.println("Only " + server.joins() + " of " + sessions + " sessions joined in time.");
+                System.exit(1);
+
+            }
+            Thread.sleep(10);
+
+        }
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        bot.resetStatistics();
+        manager.getCatchLatency().reset();
+        final long floodedBefore = server.flooded();
+        final long cpuBefore = cpuTime(threads);
+        final long start = System.nanoTime();
+
+        Thread.sleep(seconds * 1000);
+
+        final long cpu = cpuTime(threads) - cpuBefore;
+        final double hours = (System.nanoTime() - start) / 3.6e12;
+
+        System.out.println(String.format("sessions: %d, %d s, %.0f chat lines/s per session, bite after %d to %d ms",
+                sessions, seconds, chat, minBite, maxBite));
+        System.out.println(String.format("casts: %d, bites: %d, catches: %d, escaped: %d, too slow: %d, ignored: %d",
+                bot.casts(), bot.bites(), bot.catches(), bot.escapes(), bot.tooSlow(), bot.ignored()));
+        System.out.println(String.format("catches/hour: %.0f total, %.1f per session", bot.catches() / hours,
+                bot.catches() / hours / sessions));
+        System.out.println(String.format("reaction latency: %.1f ms mean, %.1f ms max", bot.meanReaction() / 1e6,
+                bot.maxReaction() / 1e6));
+        System.out.println("catch latency in the client: " + manager.getCatchLatency());
+        System.out.println("pacing: " + manager.getPacing());
+        System.out.println(String.format("cpu/session: %.1f us/s, chat lines flooded: %d, dropped: %d",
+                cpu / 1e3 / sessions / (hours * 3600), server.flooded() - floodedBefore, server.floodDropped()));
+
+        // sessions aren't disconnected gracefully, so the run just ends here.
+        System.exit(0);
+
+    }
+
+    /**
+     * The summed up CPU time of all threads of the manager.
+     * 
+     * @param threads The bean used to query threads.
+     * @return The CPU time in ns.
+     */
+    private static long cpuTime(final ThreadMXBean threads) {
+        return Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds()))
+                .filter(info -> info != null && info.getThreadName().startsWith(SessionManager.THREAD_PREFIX))
+                .mapToLong(ThreadInfo::getThreadId).map(id -> Math.max(0, threads.getThreadCpuTime(id))).sum();
+
+    }
+}
@@ -0,0 +1,173 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.ativelox.relentlessfisher.irc.AClient;
+import de.ativelox.relentlessfisher.irc.framing.ILineHandler;
+import de.ativelox.relentlessfisher.irc.framing.LineFramer;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.irc.twitch.UnsecuredTwitchIRCController;
+import de.ativelox.relentlessfisher.logging.AsyncLogger;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.logging.TimestampedConsoleLogger;
+
+/**
+ * Measures the throughput of the reader loop (framing, prefiltering, parsing
+ * and dispatching) while every line is logged, comparing SERVER logs disabled,
+ * logging synchronously with {@link TimestampedConsoleLogger} and logging with
+ * the {@link AsyncLogger}. The client handles chat as well, so every line is
+ * logged, like when debugging a busy channel. Logs go to a temporary file
+ * flushed on every line, just like the console.<br>
+ * 
+ * Usage: <tt>LoggerBenchmark [lines] [rounds]</tt>, defaults to <tt>100000
+ * 20</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class LoggerBenchmark {
+
+    /**
+     * The amount of bytes handed to the framer at once, roughly what a single
+     * socket read returns under load.
+     */
+    private final static int CHUNK = 4096;
+
+    /**
+     * The amount of logs buffered by the {@link AsyncLogger}.
+     */
+    private final static int CAPACITY = 8192;
+
+    public static void main(final String[] args) throws IOException {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        final byte[] wire = TwitchCorpus.Encode(TwitchCorpus.Lines(count, 42));
+
+        final Path file = Files.createTempFile("rf-log", ".txt");
+        file.toFile().deleteOnExit();
+
+        try (PrintStream log = new PrintStream(new FileOutputStream(file.toFile()), true)) {
+            final ILogger disabled = new TimestampedConsoleLogger(log, log);
+            disabled.setEnabled(ELogType.SERVER, false);
+
+            run("disabled", disabled, wire, count, rounds);
+            run("synchronous", new TimestampedConsoleLogger(log, log), wire, count, rounds);
+
+            final AsyncLogger async = new AsyncLogger(CAPACITY, log, log);
+            run("asynchronous", async, wire, count, rounds);
+            async.close();
+
+            System.out.println("asynchronous dropped " + async.dropped(ELogType.SERVER) + " SERVER logs");
+
+        }
+    }
+
+    /**
+     * Runs the reader loop over the given data with the given logger, first to
+     * warm up and then measured.
+     * 
+     * @param name   The name of the configuration.
+     * @param logger The logger.
+     * @param wire   The data.
+     * @param count  The amount of lines of the data.
+     * @param rounds The amount of measured rounds.
+     */
+    private static void run(final String name, final ILogger logger, final byte[] wire, final int count,
+            final int rounds) {
+        LoggerFactory.Set(logger);
+
+        final LoggingClient client = new LoggingClient();
+        final LineFramer framer = new LineFramer(16384);
+        final ILineHandler handler = line -> {
+            if (client.getPrefilter().accepts(line)) {
+                client.onServerMessageReceived(line.toString());
+            }
+        };
+
+        for (int i = 0; i < rounds; i++) {
+            feed(framer, wire, handler);
+        }
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            feed(framer, wire, handler);
+        }
+        final long time = System.nanoTime() - start;
+
+        System.out.println(String.format("%-13s %8.1f ns/line %10.0f lines/s (%d handled)", name,
+                (double) time / count / rounds, count * rounds * 1e9 / time, client.mHandled));
+
+    }
+
+    /**
+     * Hands the given data to the given framer in chunks like a socket would.
+     * 
+     * @param framer  The framer.
+     * @param wire    The data.
+     * @param handler The handler receiving the lines.
+     */
+    private static void feed(final LineFramer framer, final byte[] wire, final ILineHandler handler) {
+        final ByteBuffer buffer = framer.buffer();
+        framer.clear();
+
+        int offset = 0;
+
+        while (offset < wire.length) {
+            final int length = Math.min(CHUNK, Math.min(buffer.remaining(), wire.length - offset));
+            buffer.put(wire, offset, length);
+            offset += length;
+
+            framer.frame(handler);
+
+        }
+    }
+
+    /**
+     * Handles chat and PINGs, without answering them since it never connects.
+     */
+    private static class LoggingClient extends AClient {
+
+        /**
+         * The amount of messages handled.
+         */
+        private long mHandled;
+
+        /**
+         * Creates a new {@link LoggingClient}, which never connects.
+         */
+        LoggingClient() {
+            super(new UnsecuredTwitchIRCController("bench"));
+
+            this.registerHandler("PRIVMSG", this::handle);
+            this.registerHandler("WHISPER", this::handle);
+        }
+
+        /**
+         * Counts the given message.
+         * 
+         * @param message The message.
+         */
+        private void handle(final IRCMessage message) {
+            mHandled++;
+
+        }
+
+        @Override
+        protected void onPing(final IRCMessage message) {
+            this.handle(message);
+
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
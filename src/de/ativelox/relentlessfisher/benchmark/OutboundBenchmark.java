@@ -0,0 +1,191 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.IntConsumer;
+
+import de.ativelox.relentlessfisher.irc.AIRCController;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.framing.OutboundQueue;
+import de.ativelox.relentlessfisher.irc.twitch.NioTwitchIRCController;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * Measures the throughput of many threads sending lines over a single
+ * {@link NioTwitchIRCController} concurrently, once encoding every line anew
+ * and once sending a pre-encoded frame, the way timers, the reading thread and
+ * the scheduler all send over the same connection. A stand-in server on
+ * loopback counts the lines and the reads it took to receive them, fewer reads
+ * than lines meaning the lines got coalesced on the way. A last run mixes in
+ * some lines of higher priorities and prints how long the lines of every
+ * priority waited to be written.<br>
+ * 
+ * Usage: <tt>OutboundBenchmark [threads] [lines per thread]</tt>, defaults to
+ * <tt>4 200000</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class OutboundBenchmark {
+
+    /**
+     * The user logging in.
+     */
+    private final static String USER = "bench";
+
+    /**
+     * The line sent by every thread.
+     */
+    private final static String LINE = "PRIVMSG #lobosjr :/w lobotjr !cast";
+
+    /**
+     * Every how many lines of the mixed run a thread sends a line of each
+     * higher priority.
+     */
+    private final static int URGENT_EVERY = 100;
+
+    public static void main(final String[] args) throws Exception {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int lines = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        LoggerFactory.Get().setEnabled(ELogType.CLIENT, false);
+
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+
+        final NioTwitchIRCController controller = new NioTwitchIRCController(USER, "127.0.0.1",
+                ((InetSocketAddress) server.getLocalAddress()).getPort());
+        // the stand-in server isn't twitch, there is no limit to keep to.
+        controller.getOutbound().setLimit(null);
+        controller.connect("benchmark");
+
+        // the loop thread writes whatever the senders queue up.
+        final Thread reader = new Thread(() -> {
+            while (true) {
+                controller.read();
+            }
+        }, "reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        final SocketChannel sink = server.accept();
+        // PASS and NICK are sent right away.
+        count(sink, 2);
+
+        final ByteBuffer frame = AIRCController.Encode(LINE);
+        final ByteBuffer pong = AIRCController.Encode("PONG :tmi.twitch.tv");
+        final ByteBuffer urgent = AIRCController.Encode("PRIVMSG #lobosjr :/w lobotjr !catch");
+
+        for (int round = 0; round < 3; round++) {
+            final boolean last = round == 2;
+
+            run("encoded per line", threads, lines, sink, i -> controller.sendRawData(LINE), last);
+            run("pre-encoded", threads, lines, sink, i -> controller.sendFrame(frame, EPriority.BEST_EFFORT, null),
+                    last);
+
+        }
+        final OutboundQueue outbound = controller.getOutbound();
+
+        for (final EPriority priority : EPriority.values()) {
+            outbound.getLane(priority).getWaits().reset();
+        }
+
+        run("mixed", threads, lines, sink, i -> {
+            if (i % URGENT_EVERY == 0) {
+                controller.sendFrame(pong, EPriority.KEEPALIVE, null);
+
+            } else if (i % URGENT_EVERY == URGENT_EVERY / 2) {
+                controller.sendFrame(urgent, EPriority.GAME_CRITICAL, null);
+
+            } else {
+                controller.sendFrame(frame, EPriority.BEST_EFFORT, null);
+
+            }
+        }, true);
+        System.out.print(outbound);
+
+        System.exit(0);
+
+    }
+
+    /**
+     * Lets the given amount of threads send lines concurrently, and waits for the
+     * stand-in server to receive all of them.
+     * 
+     * @param name    The name of the run.
+     * @param threads The amount of threads.
+     * @param lines   The amount of lines sent by every thread.
+     * @param sink    The end of the connection of the stand-in server.
+     * @param send    Sends the line of the given index.
+     * @param print   Whether to print the results.
+     * @throws Exception If the run failed.
+     */
+    private static void run(final String name, final int threads, final int lines, final SocketChannel sink,
+            final IntConsumer send, final boolean print) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for (int i = 0; i < threads; i++) {
+            final Thread sender = new Thread(() -> {
+                try {
+                    start.await();
+
+                } catch (final InterruptedException e) {
+                    return;
+
+                }
+
+                for (int j = 0; j < lines; j++) {
+                    send.accept(j);
+                }
+            }, "sender-" + i);
+            sender.setDaemon(true);
+            sender.start();
+
+        }
+        final long time = System.nanoTime();
+        start.countDown();
+
+        final long reads = count(sink, (long) threads * lines);
+        final double seconds = (System.nanoTime() - time) / 1e9;
+
+        if (print) {
+            System.out.println(String.format("%-17s %10.0f lines/s, %.1f lines per read", name + ":",
+                    threads * lines / seconds, (double) threads * lines / reads));
+        }
+    }
+
+    /**
+     * Reads from the given channel until the given amount of lines got received.
+     * 
+     * @param sink  The channel.
+     * @param lines The amount of lines.
+     * @return The amount of reads it took.
+     * @throws Exception If the channel couldn't be read.
+     */
+    private static long count(final SocketChannel sink, final long lines) throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        long received = 0;
+        long reads = 0;
+
+        while (received < lines) {
+            buffer.clear();
+
+            if (sink.read(buffer) < 0) {
+                throw new IllegalStateException("The client closed the connection.");
+            }
+            reads++;
+
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    received++;
+                }
+            }
+        }
+        return reads;
+
+    }
+}
@@ -0,0 +1,278 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.irc.message.IRCTags;
+import de.ativelox.relentlessfisher.protocols.TwitchProtocolConfirmation;
+
+/**
+ * Compares recognizing logins, JOINs and whispers with the regular expressions
+ * formerly used by {@link TwitchProtocolConfirmation} against parsing every
+ * line into a reused {@link IRCMessage} and querying it. Both have to
+ * recognize the same messages, otherwise the benchmark fails. Also compares
+ * looking up the <tt>user-id</tt> tag of every line via a map of all tags
+ * against the lazy {@link IRCTags} view.<br>
+ * 
+ * Usage: <tt>ParserBenchmark [lines] [rounds]</tt>, defaults to <tt>100000
+ * 20</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class ParserBenchmark {
+
+    /**
+     * The user the lines of the corpus are addressed to.
+     */
+    private final static String USER = "bench";
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        final String[] lines = Arrays.copyOf(TwitchCorpus.Lines(count, 42), count + 2);
+        lines[count] = ":tmi.twitch.tv 376 " + USER + " :>";
+        lines[count + 1] = ":" + USER + ".tmi.twitch.tv 366 " + USER + " #lobosjr :End of /NAMES list";
+
+        final IRCMessage message = new IRCMessage();
+
+        final long regexRecognized = regex(lines);
+        final long parserRecognized = parser(lines, message);
+
+        if (regexRecognized != parserRecognized) {
+            throw new IllegalStateException(
+                    "The regex path recognized " + regexRecognized + " messages, the parser " + parserRecognized);
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            regex(lines);
+            parser(lines, message);
+        }
+        final long regexBytes = allocated();
+        final long regexTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            regex(lines);
+        }
+        report("regex", regexBytes, regexTime, (long) lines.length * rounds);
+
+        final long parserBytes = allocated();
+        final long parserTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            parser(lines, message);
+        }
+        report("IRCMessage", parserBytes, parserTime, (long) lines.length * rounds);
+
+        System.out.println("recognized " + parserRecognized + " of " + lines.length + " lines per round");
+
+        if (tagMap(lines, message) != tagView(lines, message)) {
+            throw new IllegalStateException("The tag map and view disagree.");
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            tagMap(lines, message);
+            tagView(lines, message);
+        }
+        final long mapBytes = allocated();
+        final long mapTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            tagMap(lines, message);
+        }
+        report("tag map", mapBytes, mapTime, (long) lines.length * rounds);
+
+        final long viewBytes = allocated();
+        final long viewTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            tagView(lines, message);
+        }
+        report("tag view", viewBytes, viewTime, (long) lines.length * rounds);
+
+    }
+
+    /**
+     * Recognizes the given lines with the regular expressions.
+     * 
+     * @param lines The lines.
+     * @return The amount of recognized messages.
+     */
+    private static long regex(final String[] lines) {
+        long recognized = 0;
+
+        for (final String line : lines) {
+            if (IsConnect(USER, line)) {
+                recognized++;
+            } else if (IsJoin(USER, line) != null) {
+                recognized++;
+            } else if (IsWhisper(USER, line) != null) {
+                recognized++;
+            }
+        }
+        return recognized;
+    }
+
+    /**
+     * Recognizes the given lines by parsing them.
+     * 
+     * @param lines   The lines.
+     * @param message The message to parse into.
+     * @return The amount of recognized messages.
+     */
+    private static long parser(final String[] lines, final IRCMessage message) {
+        long recognized = 0;
+
+        for (final String line : lines) {
+            if (!message.parse(line)) {
+                continue;
+            }
+            if (TwitchProtocolConfirmation.IsConnect(USER, message)) {
+                recognized++;
+            } else if (TwitchProtocolConfirmation.IsJoin(USER, message) != null) {
+                recognized++;
+            } else if (TwitchProtocolConfirmation.IsWhisper(USER, message) != null) {
+                recognized++;
+            }
+        }
+        return recognized;
+    }
+
+    /**
+     * Sums the <tt>user-id</tt> of the given lines, by splitting all tags into a
+     * map.
+     * 
+     * @param lines   The lines.
+     * @param message The message to parse into.
+     * @return The sum of the ids.
+     */
+    private static long tagMap(final String[] lines, final IRCMessage message) {
+        long sum = 0;
+
+        for (final String line : lines) {
+            if (!message.parse(line) || !message.hasTags()) {
+                continue;
+            }
+            final Map<String, String> tags = new HashMap<>();
+
+            for (final String tag : message.getRawTags().split(";")) {
+                final int separator = tag.indexOf('=');
+
+                if (separator < 0) {
+                    tags.put(tag, "");
+                } else {
+                    tags.put(tag.substring(0, separator), tag.substring(separator + 1));
+                }
+            }
+            final String id = tags.get(IRCTags.USER_ID);
+
+            if (id != null && !id.isEmpty()) {
+                sum += Long.parseLong(id);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Sums the <tt>user-id</tt> of the given lines, with the lazy tag view.
+     * 
+     * @param lines   The lines.
+     * @param message The message to parse into.
+     * @return The sum of the ids.
+     */
+    private static long tagView(final String[] lines, final IRCMessage message) {
+        long sum = 0;
+
+        for (final String line : lines) {
+            if (message.parse(line)) {
+                sum += message.getTags().getLong(IRCTags.USER_ID, 0);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * The former connection check.
+     * 
+     * @param user    The user.
+     * @param toCheck The line.
+     * @return Whether the line is a connection message.
+     */
+    private static boolean IsConnect(final String user, final String toCheck) {
+        final String wanted = ":tmi.twitch.tv 376 " + user + " :>";
+
+        return toCheck.equals(wanted);
+    }
+
+    /**
+     * The former JOIN check.
+     * 
+     * @param user    The user.
+     * @param toCheck The line.
+     * @return The channel, or <tt>null</tt>.
+     */
+    private static String IsJoin(final String user, final String toCheck) {
+        Pattern pattern = Pattern.compile(
+                "^:" + user + "\\.tmi\\.twitch\\.tv\\s366\\s" + user + "\\s#(\\w+)\\s:End\\sof\\s\\/NAMES\\slist$");
+        Matcher matcher = pattern.matcher(toCheck);
+
+        if (matcher.matches()) {
+            return matcher.group(1);
+
+        }
+        return null;
+    }
+
+    /**
+     * The former whisper check.
+     * 
+     * @param user    The user.
+     * @param toCheck The line.
+     * @return The sender and contents, or <tt>null</tt>.
+     */
+    private static String[] IsWhisper(final String user, final String toCheck) {
+        Pattern pattern = Pattern
+                .compile("^.*?:(\\w+)?\\!\\w+@\\w+\\.tmi.twitch.tv\\sWHISPER\\s" + user + "\\s:(.*)?$");
+        Matcher matcher = pattern.matcher(toCheck);
+
+        if (matcher.matches()) {
+            return new String[] { matcher.group(1), matcher.group(2) };
+
+        }
+        return null;
+    }
+
+    /**
+     * The amount of heap allocated by the current thread so far.
+     * 
+     * @return The allocated bytes.
+     */
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Prints the time and heap allocated per line since the given start.
+     * 
+     * @param name           The name of the measured path.
+     * @param allocatedStart The allocated bytes at the start.
+     * @param timeStart      The time at the start, in ns.
+     * @param lines          The amount of lines processed.
+     */
+    private static void report(final String name, final long allocatedStart, final long timeStart,
+            final long lines) {
+        final long time = System.nanoTime() - timeStart;
+        final long bytes = allocated() - allocatedStart;
+
+        System.out.println(String.format("%-12s %8.1f ns/line %8.1f B/line", name, (double) time / lines,
+                (double) bytes / lines));
+
+    }
+}
@@ -0,0 +1,153 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import de.ativelox.relentlessfisher.RelentlessFisher;
+import de.ativelox.relentlessfisher.irc.twitch.NioTwitchIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.timer.ScheduledTimer;
+
+/**
+ * Measures how long a {@link TwitchClient} driving a {@link RelentlessFisher}
+ * takes to answer a PING, while the bot keeps whispering it. Every whisper
+ * leads to a delayed reply, which must not hold up reading the PING.<br>
+ * 
+ * Usage: <tt>PongLatencyBenchmark [pings]</tt>, defaults to <tt>50</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class PongLatencyBenchmark {
+
+    /**
+     * The user logging in.
+     */
+    private final static String USER = "bench";
+
+    /**
+     * The time in ms between two PINGs, each preceded by a whisper of the bot.
+     */
+    private final static long INTERVAL = 100;
+
+    public static void main(final String[] args) throws Exception {
+        final int pings = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+        final ServerSocket server = new ServerSocket(0);
+        final double[] latencies = new double[pings];
+        final Thread stub = new Thread(() -> serve(server, latencies), "stand-in");
+        stub.setDaemon(true);
+        stub.start();
+
+        final PrintStream out = System.out;
+        // the client logs every line it receives and sends.
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+        }));
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        final TwitchClient client = new TwitchClient(
+                new NioTwitchIRCController(USER, "localhost", server.getLocalPort()), () -> "benchmark", USER,
+                executor, ScheduledTimer.Factory(executor));
+        final RelentlessFisher fisher = new RelentlessFisher(client, executor, ScheduledTimer.Factory(executor));
+
+        client.register((IConnectionListener) fisher);
+        client.register((IJoinListener) fisher);
+        client.register((IWhisperListener) fisher);
+
+        final Thread reader = new Thread(client, "reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        stub.join();
+        System.setOut(out);
+
+        final double[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format("PONG latency over %d PINGs (ms): median %.3f, p99 %.3f, max %.3f", pings,
+                sorted[pings / 2], sorted[(int) (pings * 0.99)], sorted[pings - 1]));
+
+        System.exit(0);
+
+    }
+
+    /**
+     * Serves a single client: confirms its login and JOIN, then alternates
+     * whispers of the bot with PINGs and records the time until each PONG.
+     * 
+     * @param server    The server.
+     * @param latencies The latencies to fill, in ms.
+     */
+    private static void serve(final ServerSocket server, final double[] latencies) {
+        try (Socket socket = server.accept();
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            socket.setTcpNoDelay(true);
+
+            String line = reader.readLine();
+
+            while (line != null && !line.startsWith("JOIN ")) {
+                if (line.startsWith("NICK ")) {
+                    send(writer, ":tmi.twitch.tv 376 " + USER + " :>");
+                }
+                line = reader.readLine();
+
+            }
+            send(writer, ":" + USER + ".tmi.twitch.tv 366 " + USER + " #lobosjr :End of /NAMES list");
+
+            for (int i = 0; i < latencies.length; i++) {
+                Thread.sleep(INTERVAL);
+
+                send(writer, "@badges=;color=;display-name=LobotJR;emotes=;message-id=" + i + ";thread-id=1_2;"
+                        + "turbo=0;user-id=1;user-type= :lobotjr!lobotjr@lobotjr.tmi.twitch.tv WHISPER " + USER
+                        + " :Something's tugging at your line! Type !catch to reel it in!");
+
+                final long pingSent = System.nanoTime();
+                send(writer, "PING :tmi.twitch.tv");
+
+                line = reader.readLine();
+
+                while (line != null && !line.startsWith("PONG")) {
+                    line = reader.readLine();
+                }
+                latencies[i] = (System.nanoTime() - pingSent) / 1e6;
+
+            }
+        } catch (final IOException | InterruptedException e) {
+            throw new IllegalStateException("The stand-in server failed.", e);
+
+        }
+    }
+
+    /**
+     * Sends a single line.
+     * 
+     * @param writer The writer to send with.
+     * @param line   The line.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void send(final Writer writer, final String line) throws IOException {
+        writer.write(line);
+        writer.write("\r\n");
+        writer.flush();
+
+    }
+}
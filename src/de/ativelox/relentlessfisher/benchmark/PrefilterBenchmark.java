@@ -0,0 +1,130 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.nio.ByteBuffer;
+
+import de.ativelox.relentlessfisher.irc.framing.ILineHandler;
+import de.ativelox.relentlessfisher.irc.framing.LineFramer;
+import de.ativelox.relentlessfisher.irc.framing.LinePrefilter;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.protocols.TwitchProtocolConfirmation;
+
+/**
+ * Measures the CPU time spent per inbound line by the checks a twitch client
+ * runs on it, once for every line and once only for the lines passing a
+ * {@link LinePrefilter} configured like the one of a twitch client. Logging is
+ * left out on both sides.<br>
+ * 
+ * Usage: <tt>PrefilterBenchmark [lines] [rounds]</tt>, defaults to <tt>100000
+ * 20</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class PrefilterBenchmark {
+
+    /**
+     * The user the lines of the corpus are addressed to.
+     */
+    private final static String USER = "bench";
+
+    /**
+     * Counts the lines recognized, to keep the work from being optimized away.
+     */
+    private static long sSink;
+
+    /**
+     * The message every line gets parsed into.
+     */
+    private final static IRCMessage MESSAGE = new IRCMessage();
+
+    public static void main(final String[] args) {
+        final int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        final byte[] wire = TwitchCorpus.Encode(TwitchCorpus.Lines(count, 42));
+        final LineFramer framer = new LineFramer(16384);
+
+        final LinePrefilter prefilter = new LinePrefilter();
+        prefilter.accept("PING", "376", "366", "WHISPER");
+
+        final ILineHandler unfiltered = line -> check(line.toString());
+        final ILineHandler filtered = line -> {
+            if (prefilter.accepts(line)) {
+                check(line.toString());
+            }
+        };
+
+        for (int i = 0; i < rounds; i++) {
+            feed(framer, wire, unfiltered);
+            feed(framer, wire, filtered);
+        }
+        final long unfilteredTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            feed(framer, wire, unfiltered);
+        }
+        final double unfilteredNs = (double) (System.nanoTime() - unfilteredTime) / count / rounds;
+
+        final long accepted = prefilter.accepted();
+        final long dropped = prefilter.dropped();
+        final long filteredTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            feed(framer, wire, filtered);
+        }
+        final double filteredNs = (double) (System.nanoTime() - filteredTime) / count / rounds;
+
+        System.out.println(String.format("every line checked: %8.1f ns/line", unfilteredNs));
+        System.out.println(String.format("prefiltered:        %8.1f ns/line (%.1fx)", filteredNs,
+                unfilteredNs / filteredNs));
+        System.out.println(String.format("accepted %d, dropped %d per round (checksum %d)",
+                (prefilter.accepted() - accepted) / rounds, (prefilter.dropped() - dropped) / rounds, sSink));
+
+    }
+
+    /**
+     * Runs the checks a twitch client runs on every line it receives.
+     * 
+     * @param line The line.
+     */
+    private static void check(final String line) {
+        if (!MESSAGE.parse(line)) {
+            return;
+        }
+        if (MESSAGE.isCommand("PING")) {
+            sSink++;
+        }
+        if (TwitchProtocolConfirmation.IsConnect(USER, MESSAGE)) {
+            sSink++;
+        }
+        if (TwitchProtocolConfirmation.IsJoin(USER, MESSAGE) != null) {
+            sSink++;
+        }
+        if (TwitchProtocolConfirmation.IsWhisper(USER, MESSAGE) != null) {
+            sSink++;
+        }
+    }
+
+    /**
+     * Hands the given data to the given framer in socket sized chunks.
+     * 
+     * @param framer  The framer.
+     * @param wire    The data.
+     * @param handler The handler receiving the lines.
+     */
+    private static void feed(final LineFramer framer, final byte[] wire, final ILineHandler handler) {
+        final ByteBuffer buffer = framer.buffer();
+        framer.clear();
+
+        int offset = 0;
+
+        while (offset < wire.length) {
+            final int length = Math.min(4096, Math.min(buffer.remaining(), wire.length - offset));
+            buffer.put(wire, offset, length);
+            offset += length;
+
+            framer.frame(handler);
+
+        }
+    }
+}
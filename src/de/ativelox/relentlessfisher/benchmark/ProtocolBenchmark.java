@@ -0,0 +1,187 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.ativelox.relentlessfisher.protocols.EBotResponse;
+import de.ativelox.relentlessfisher.protocols.EFishingAction;
+import de.ativelox.relentlessfisher.protocols.LobotJrProtocolMapper;
+import de.ativelox.relentlessfisher.protocols.ResponseClassifier;
+import de.ativelox.relentlessfisher.utils.EFishingState;
+
+/**
+ * Checks the fishing protocol against a conformance corpus, failing with exit
+ * code <tt>1</tt> if any case doesn't hold, then measures the throughput of
+ * classifying the whispers of the corpus, once by the
+ * {@link ResponseClassifier} and once by searching every phrase on its own.<br>
+ * 
+ * A case of the corpus is a line <tt>STATE|RESPONSE|NEXT|ACTION|whisper</tt>.
+ * The phrases are the ones shipped with this application unless given.<br>
+ * 
+ * Usage: <tt>ProtocolBenchmark [corpus] [phrases] [rounds]</tt>, defaults to
+ * the corpus shipped with this benchmark and <tt>200000</tt> rounds.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class ProtocolBenchmark {
+
+    /**
+     * The resource holding the corpus used by default.
+     */
+    private final static String DEFAULT_CORPUS = "lobotjr.conformance";
+
+    /**
+     * The phrases shipped with this application, in the order listed.
+     */
+    private final static String[] PHRASES = { "line is already cast", "something's tugging at your line",
+            "to reel it in", "congratulations! you caught", "new record", "got away", "too slow",
+            "your line is cast", "you cast your line", "your line has been cast" };
+
+    /**
+     * Counts the responses classified, to keep the work from being optimized
+     * away.
+     */
+    private static long sSink;
+
+    public static void main(final String[] args) throws IOException {
+        final List<String[]> cases = Cases(args.length > 0 ? Files.newInputStream(Paths.get(args[0]))
+                : ProtocolBenchmark.class.getResourceAsStream(DEFAULT_CORPUS));
+        final LobotJrProtocolMapper mapper = args.length > 1
+                ? new LobotJrProtocolMapper(ResponseClassifier.Load(Paths.get(args[1])))
+                : LobotJrProtocolMapper.Get();
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 200000;
+
+        if (!conforms(mapper, cases)) {
+            System.exit(1);
+        }
+        final String[] whispers = cases.stream().map(c -> c[4]).toArray(String[]::new);
+        final ResponseClassifier classifier = mapper.getClassifier();
+
+        for (int i = 0; i < rounds / 10; i++) {
+            classify(classifier, whispers);
+            search(whispers);
+        }
+        final long classifierTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            classify(classifier, whispers);
+        }
+        final double classifierNs = (double) (System.nanoTime() - classifierTime) / whispers.length / rounds;
+
+        final long searchTime = System.nanoTime();
+
+        for (int i = 0; i < rounds; i++) {
+            search(whispers);
+        }
+        final double searchNs = (double) (System.nanoTime() - searchTime) / whispers.length / rounds;
+
+        System.out.println(String.format("classifier:       %8.1f ns/whisper, %10.0f whispers/s", classifierNs,
+                1e9 / classifierNs));
+        System.out.println(String.format("phrase by phrase: %8.1f ns/whisper, %10.0f whispers/s (%.1fx)", searchNs,
+                1e9 / searchNs, searchNs / classifierNs));
+        System.out.println("checksum " + sSink);
+
+    }
+
+    /**
+     * Reads the cases of the given corpus.
+     * 
+     * @param in The corpus, closed afterwards.
+     * @return The cases, each split into state, response, next state, action and
+     *         whisper.
+     * @throws IOException If the corpus couldn't be read or is malformed.
+     */
+    private static List<String[]> Cases(final InputStream in) throws IOException {
+        if (in == null) {
+            throw new IOException("Missing resource: " + DEFAULT_CORPUS);
+        }
+        final List<String[]> cases = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final String[] fields = line.split("\\|", 5);
+
+                if (fields.length != 5) {
+                    throw new IOException("Malformed case: " + line);
+                }
+                cases.add(fields);
+
+            }
+        }
+        return cases;
+
+    }
+
+    /**
+     * Checks every case of the corpus, printing the ones which don't hold.
+     * 
+     * @param mapper The mapper to check.
+     * @param cases  The cases.
+     * @return <tt>True</tt> if all cases hold, <tt>false</tt> otherwise.
+     */
+    private static boolean conforms(final LobotJrProtocolMapper mapper, final List<String[]> cases) {
+        int failed = 0;
+
+        for (final String[] c : cases) {
+            final LobotJrProtocolMapper.Transition transition = mapper.next(EFishingState.valueOf(c[0]), c[4]);
+
+            if (transition.getResponse() != EBotResponse.valueOf(c[1])
+                    || transition.getNext() != EFishingState.valueOf(c[2])
+                    || transition.getAction() != EFishingAction.valueOf(c[3])) {
+                System.out.println(String.format("%s on \"%s\": expected %s -> %s/%s, got %s -> %s/%s", c[0], c[4],
+                        c[1], c[2], c[3], transition.getResponse(), transition.getNext(), transition.getAction()));
+                failed++;
+
+            }
+        }
+        System.out.println(String.format("%d of %d conformance cases hold", cases.size() - failed, cases.size()));
+        return failed == 0;
+
+    }
+
+    /**
+     * Classifies all whispers by the classifier.
+     * 
+     * @param classifier The classifier.
+     * @param whispers   The whispers.
+     */
+    private static void classify(final ResponseClassifier classifier, final String[] whispers) {
+        for (final String whisper : whispers) {
+            sSink += classifier.classify(whisper).ordinal();
+        }
+    }
+
+    /**
+     * Classifies all whispers by searching every phrase on its own, the way a
+     * chain of checks would.
+     * 
+     * @param whispers The whispers.
+     */
+    private static void search(final String[] whispers) {
+        for (final String whisper : whispers) {
+            final String lower = whisper.toLowerCase(Locale.ROOT);
+
+            for (int i = 0; i < PHRASES.length; i++) {
+                if (lower.contains(PHRASES[i])) {
+                    sSink += i;
+                    break;
+
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import de.ativelox.relentlessfisher.RelentlessFisher;
+import de.ativelox.relentlessfisher.capture.Recording;
+import de.ativelox.relentlessfisher.irc.replay.ReplayIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.timer.HashedWheelTimer;
+
+/**
+ * Replays a captured session into a {@link TwitchClient} driving a
+ * {@link RelentlessFisher}, without any connection, and reports how fast the
+ * whole inbound pipeline got through it. Afterwards the lines the client sent
+ * are compared with the lines sent during the recording, failing with exit
+ * code <tt>1</tt> if they differ, so recordings of past sessions serve as a
+ * regression suite for the fishing protocol. Login lines are not compared.<br>
+ * 
+ * Replies of the fisher are delayed in real time, so they only line up with the
+ * recording as long as the sped up gaps between whispers stay longer than that
+ * delay, i.e. at the original speed.<br>
+ * 
+ * Usage: <tt>ReplayBenchmark &lt;segment or directory&gt; [speed|afap]
+ * [user]</tt>, defaults to the original speed and the user logged in during
+ * the recording.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class ReplayBenchmark {
+
+    /**
+     * The time in ms to wait for replies after the last line got replayed, longer
+     * than the delay of the fisher.
+     */
+    private final static long REPLY_GRACE = 3000;
+
+    /**
+     * The time in ms to wait for the replay on top of its expected duration.
+     */
+    private final static long END_GRACE = 60000;
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayBenchmark <segment or directory> [speed|afap] [user]");
+            System.exit(1);
+
+        }
+        final Recording recording = Recording.Load(Paths.get(args[0]));
+        final double speed = args.length < 2 ? 1
+                : "afap".equals(args[1]) ? ReplayIRCController.AS_FAST_AS_POSSIBLE : Double.parseDouble(args[1]);
+        final String user = args.length > 2 ? args[2] : recording.getUser();
+
+        if (user == null) {
+            System.err.println("No user logged in during the recording, please specify one.");
+            System.exit(1);
+
+        }
+        LoggerFactory.Get().setEnabled(ELogType.SERVER, false);
+        LoggerFactory.Get().setEnabled(ELogType.CLIENT, false);
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+        final HashedWheelTimer timers = new HashedWheelTimer(100, 512);
+        final ReplayIRCController replay = new ReplayIRCController(recording, speed);
+
+        final TwitchClient client = new TwitchClient(replay, () -> "replay", user, executor, timers);
+        final RelentlessFisher fisher = new RelentlessFisher(client, executor, timers);
+        client.register((IConnectionListener) fisher);
+        client.register((IJoinListener) fisher);
+        client.register((IWhisperListener) fisher);
+
+        final long[] times = recording.getTimes();
+        final long duration = times.length == 0 ? 0 : (long) ((times[times.length - 1] - times[0]) / 1e6 / speed);
+
+        final long start = System.nanoTime();
+        final Thread reader = new Thread(client, "replay");
+        reader.setDaemon(true);
+        reader.start();
+
+        if (!replay.awaitEnd(duration + END_GRACE)) {
+            System.err.println("The replay didn't finish in time.");
+            System.exit(1);
+
+        }
+        final long time = System.nanoTime() - start;
+
+        System.out.println(String.format("replayed %d lines in %.1f ms, %.0f lines/s", replay.replayed(), time / 1e6,
+                replay.replayed() * 1e9 / time));
+
+        Thread.sleep(REPLY_GRACE);
+        final int exitCode = compare(recording.getSent(), replay.getSent()) ? 0 : 1;
+
+        System.exit(exitCode);
+
+    }
+
+    /**
+     * Compares the lines sent during the recording with the lines sent during the
+     * replay, ignoring login lines, and prints the result.
+     * 
+     * @param recorded The lines sent during the recording.
+     * @param replayed The lines sent during the replay.
+     * @return <tt>True</tt> if they are the same, <tt>false</tt> otherwise.
+     */
+    private static boolean compare(final List<String> recorded, final List<String> replayed) {
+        final List<String> expected = withoutLogin(recorded);
+        final List<String> actual = withoutLogin(replayed);
+
+        for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+            final String e = i < expected.size() ? expected.get(i) : "<nothing>";
+            final String a = i < actual.size() ? actual.get(i) : "<nothing>";
+
+            if (!e.equals(a)) {
+                System.out.println(String.format("sent line %d differs:%n  recorded: %s%n  replayed: %s", i, e, a));
+                return false;
+
+            }
+        }
+        System.out.println("sent the same " + actual.size() + " lines as during the recording");
+        return true;
+
+    }
+
+    /**
+     * Removes the login lines of the given lines.
+     * 
+     * @param lines The lines sent to the server.
+     * @return The lines, without <tt>PASS</tt> and <tt>NICK</tt>.
+     */
+    private static List<String> withoutLogin(final List<String> lines) {
+        final List<String> result = new ArrayList<>();
+
+        for (final String line : lines) {
+            if (!line.startsWith("PASS ") && !line.startsWith("NICK ")) {
+                result.add(line);
+            }
+        }
+        return result;
+
+    }
+}
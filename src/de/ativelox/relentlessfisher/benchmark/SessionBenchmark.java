@@ -0,0 +1,305 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.session.SessionManager;
+
+/**
+ * Measures the threads, heap and CPU time used per session by a
+ * {@link SessionManager}, connected to a local stand-in server which answers the
+ * login and JOIN of every session and sends a PING to every session once per
+ * second.<br>
+ * 
+ * Usage: <tt>SessionBenchmark [sessions...]</tt>, defaults to <tt>1 100
+ * 1000</tt>. Every session needs two file descriptors.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class SessionBenchmark {
+
+    /**
+     * The amount of event loops used by the manager.
+     */
+    private final static int LOOPS = 2;
+
+    /**
+     * The amount of workers used by the manager.
+     */
+    private final static int WORKERS = 2;
+
+    /**
+     * The duration of the measured steady state in ms.
+     */
+    private final static long MEASURE_TIME = 10000;
+
+    public static void main(final String[] args) throws Exception {
+        final int[] sessionCounts = args.length == 0 ? new int[] { 1, 100, 1000 }
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.println("sessions\tthreads\theap/session (KiB)\tcpu/session (us/s)");
+
+        for (final int sessions : sessionCounts) {
+            run(sessions);
+
+        }
+    }
+
+    /**
+     * Runs a single measurement with the given amount of sessions.
+     * 
+     * @param sessions The amount of sessions.
+     * @throws Exception If the measurement fails.
+     */
+    private static void run(final int sessions) throws Exception {
+        final StubServer server = new StubServer();
+        final Thread serverThread = new Thread(server, "stub-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.gc();
+        final long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        final SessionManager manager = new SessionManager("127.0.0.1", server.port(), null, LOOPS, WORKERS);
+
+        for (int i = 0; i < sessions; i++) {
+            manager.add("user" + i, () -> "benchmark");
+
+        }
+
+        while (server.joined() < sessions) {
+            Thread.sleep(10);
+
+        }
+        System.gc();
+        final long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+        final long cpuBefore = cpuTime(threads);
+        Thread.sleep(MEASURE_TIME);
+        final long cpuAfter = cpuTime(threads);
+
+        final int managerThreads = managerThreads(threads).length;
+
+        System.out.println(sessions + "\t\t" + managerThreads + "\t" + (heapAfter - heapBefore) / 1024 / sessions
+                + "\t\t\t" + (cpuAfter - cpuBefore) / 1000 / sessions / (MEASURE_TIME / 1000));
+
+        manager.shutdown();
+        Thread.sleep(500);
+        serverThread.interrupt();
+
+    }
+
+    /**
+     * The summed up CPU time of all threads of the manager.
+     * 
+     * @param threads The bean used to query threads.
+     * @return The CPU time in ns.
+     */
+    private static long cpuTime(final ThreadMXBean threads) {
+        long sum = 0;
+
+        for (final ThreadInfo info : managerThreads(threads)) {
+            sum += Math.max(0, threads.getThreadCpuTime(info.getThreadId()));
+
+        }
+        return sum;
+    }
+
+    /**
+     * All currently alive threads started by a {@link SessionManager}.
+     * 
+     * @param threads The bean used to query threads.
+     * @return The threads.
+     */
+    private static ThreadInfo[] managerThreads(final ThreadMXBean threads) {
+        return Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds())).filter(
+                info -> info != null && info.getThreadName().startsWith(SessionManager.THREAD_PREFIX))
+                .toArray(ThreadInfo[]::new);
+
+    }
+
+    /**
+     * A minimal stand-in for twitchs' IRC server, which confirms logins and JOINs
+     * and sends a PING to every connection once per second.
+     */
+    private static class StubServer implements Runnable {
+
+        /**
+         * The channel accepting connections.
+         */
+        private final ServerSocketChannel mServer;
+
+        /**
+         * The selector used for all connections.
+         */
+        private final Selector mSelector;
+
+        /**
+         * The amount of confirmed JOINs.
+         */
+        private final AtomicInteger mJoined;
+
+        /**
+         * The buffer all connections are read into.
+         */
+        private final ByteBuffer mBuffer;
+
+        /**
+         * Creates a new {@link StubServer} on an ephemeral loopback port.
+         * 
+         * @throws IOException If the server couldn't be bound.
+         */
+        StubServer() throws IOException {
+            mSelector = Selector.open();
+            mServer = ServerSocketChannel.open();
+            mServer.bind(new InetSocketAddress("127.0.0.1", 0), 4096);
+            mServer.configureBlocking(false);
+            mServer.register(mSelector, SelectionKey.OP_ACCEPT);
+
+            mJoined = new AtomicInteger();
+            mBuffer = ByteBuffer.allocate(4096);
+        }
+
+        int port() throws IOException {
+            return ((InetSocketAddress) mServer.getLocalAddress()).getPort();
+        }
+
+        int joined() {
+            return mJoined.get();
+        }
+
+        @Override
+        public void run() {
+            long nextPing = System.currentTimeMillis() + 1000;
+
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    mSelector.select(Math.max(1, nextPing - System.currentTimeMillis()));
+
+                    for (final SelectionKey key : mSelector.selectedKeys()) {
+                        if (key.isAcceptable()) {
+                            final SocketChannel channel = mServer.accept();
+
+                            if (channel != null) {
+                                channel.configureBlocking(false);
+                                channel.register(mSelector, SelectionKey.OP_READ, new Connection());
+                            }
+                        } else if (key.isReadable()) {
+                            this.read(key);
+
+                        }
+                    }
+                    mSelector.selectedKeys().clear();
+
+                    if (System.currentTimeMillis() >= nextPing) {
+                        nextPing += 1000;
+
+                        for (final SelectionKey key : mSelector.keys()) {
+                            if (key.attachment() != null && key.isValid()) {
+                                write((SocketChannel) key.channel(), "PING :tmi.twitch.tv");
+                            }
+                        }
+                    }
+                }
+                for (final SelectionKey key : mSelector.keys()) {
+                    key.channel().close();
+                }
+                mSelector.close();
+
+            } catch (final IOException e) {
+                // the sessions notice the server is gone, the measurement fails on its own.
+                LoggerFactory.Get().log(ELogType.DANGER, "The stub server failed: {}", e);
+
+            }
+        }
+
+        /**
+         * Reads from the given connection and answers NICK and JOIN commands.
+         * 
+         * @param key The key of the connection.
+         * @throws IOException If an I/O error occurs.
+         */
+        private void read(final SelectionKey key) throws IOException {
+            final SocketChannel channel = (SocketChannel) key.channel();
+            final Connection connection = (Connection) key.attachment();
+
+            mBuffer.clear();
+
+            if (channel.read(mBuffer) < 0) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            connection.mPending.append(new String(mBuffer.array(), 0, mBuffer.position(), StandardCharsets.UTF_8));
+
+            int newline = connection.mPending.indexOf("\r\n");
+
+            while (newline >= 0) {
+                final String line = connection.mPending.substring(0, newline);
+                connection.mPending.delete(0, newline + 2);
+
+                if (line.startsWith("NICK ")) {
+                    connection.mUser = line.substring(5);
+                    write(channel, ":tmi.twitch.tv 376 " + connection.mUser + " :>");
+
+                } else if (line.startsWith("JOIN #")) {
+                    write(channel, ":" + connection.mUser + ".tmi.twitch.tv 366 " + connection.mUser + " "
+                            + line.substring(5) + " :End of /NAMES list");
+                    mJoined.incrementAndGet();
+
+                }
+                newline = connection.mPending.indexOf("\r\n");
+            }
+        }
+
+        /**
+         * Writes the given line to the given connection.
+         * 
+         * @param channel The connection.
+         * @param line    The line to write.
+         * @throws IOException If an I/O error occurs.
+         */
+        private static void write(final SocketChannel channel, final String line) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * The state of a single connection to the {@link StubServer}.
+     */
+    private static class Connection {
+
+        /**
+         * The data read, which doesn't form a complete line yet.
+         */
+        private final StringBuilder mPending = new StringBuilder();
+
+        /**
+         * The user logged in on this connection.
+         */
+        private String mUser;
+
+    }
+}
@@ -0,0 +1,298 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.Arrays;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import de.ativelox.relentlessfisher.irc.AClient;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.irc.twitch.SecureTwitchIRCController;
+
+/**
+ * Measures the handshake latency (full vs. resumed) and the inbound throughput
+ * of {@link SecureTwitchIRCController} against a local TLS stand-in server. A
+ * self-signed certificate for <tt>localhost</tt> is generated with the JDKs'
+ * <tt>keytool</tt>.<br>
+ * 
+ * Usage: <tt>TlsBenchmark [handshakes] [lines]</tt>, defaults to <tt>200
+ * 200000</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class TlsBenchmark {
+
+    /**
+     * The password of the generated key store.
+     */
+    private final static char[] PASSWORD = "benchmark".toCharArray();
+
+    /**
+     * A typical line of chat in a busy channel.
+     */
+    private final static String CHAT_LINE = "@badge-info=;badges=;color=#1E90FF;display-name=someone;emotes=;"
+            + "id=0f6c2b5a-3a4e-4c1b-9d5e-6f7a8b9c0d1e;mod=0;room-id=28640725;subscriber=0;"
+            + "tmi-sent-ts=1600000000000;turbo=0;user-id=12345678;user-type= "
+            + ":someone!someone@someone.tmi.twitch.tv PRIVMSG #lobosjr :LUL that was close";
+
+    public static void main(final String[] args) throws Exception {
+        final int handshakes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        final int lines = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        final KeyStore keyStore = createKeyStore();
+
+        final KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(keyStore, PASSWORD);
+        final SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keys.getKeyManagers(), null, null);
+
+        final SSLServerSocket server = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0);
+        final Thread acceptor = new Thread(() -> accept(server, lines), "tls-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        final PrintStream out = System.out;
+        // the controllers log every line they send.
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(final int b) {
+            }
+        }));
+
+        final double[] full = new double[handshakes];
+        final double[] resumed = new double[handshakes];
+        final SSLContext shared = clientContext(keyStore);
+
+        for (int i = 0; i < handshakes; i++) {
+            full[i] = connectTime(new SecureTwitchIRCController("bench", "localhost", server.getLocalPort(),
+                    clientContext(keyStore)));
+            resumed[i] = connectTime(
+                    new SecureTwitchIRCController("bench", "localhost", server.getLocalPort(), shared));
+
+        }
+        final SecureTwitchIRCController controller = new SecureTwitchIRCController("bench", "localhost",
+                server.getLocalPort(), shared);
+        final CountingClient client = new CountingClient(controller);
+
+        controller.connect("benchmark");
+        final long start = System.nanoTime();
+        controller.JOIN("flood", "");
+
+        while (client.mLines < lines) {
+            controller.read();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        controller.disconnect();
+
+        System.setOut(out);
+        // the first resumed connect has no session to resume yet.
+        System.out.println("full handshake login (ms):    median " + median(full));
+        System.out.println("resumed handshake login (ms): median "
+                + median(Arrays.copyOfRange(resumed, 1, resumed.length)));
+        System.out.println("throughput: " + (long) (lines / seconds) + " lines/s, "
+                + (long) (client.mBytes / seconds / 1024 / 1024) + " MiB/s");
+
+    }
+
+    /**
+     * Connects the given controller, waits for the login confirmation and
+     * disconnects again. Waiting for the confirmation also lets the controller
+     * process session tickets the server sends after the handshake.
+     * 
+     * @param controller The controller to connect.
+     * @return The time until the login got confirmed in ms.
+     */
+    private static double connectTime(final IIRCController controller) {
+        final CountingClient client = new CountingClient(controller);
+        final long start = System.nanoTime();
+
+        if (!controller.connect("benchmark")) {
+            throw new IllegalStateException("Couldn't connect to the stand-in server.");
+        }
+
+        while (client.mLines == 0) {
+            controller.read();
+        }
+        final double time = (System.nanoTime() - start) / 1e6;
+
+        controller.disconnect();
+        return time;
+    }
+
+    /**
+     * The median of the given values.
+     * 
+     * @param values The values.
+     * @return The median.
+     */
+    private static double median(final double[] values) {
+        final double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Creates a key store holding a self-signed certificate for
+     * <tt>localhost</tt>.
+     * 
+     * @return The key store.
+     * @throws Exception If the key store couldn't be created.
+     */
+    private static KeyStore createKeyStore() throws Exception {
+        final File file = File.createTempFile("tls-benchmark", ".p12");
+        file.delete();
+        file.deleteOnExit();
+
+        final String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        final Process process = new ProcessBuilder(keytool, "-genkeypair", "-keyalg", "EC", "-alias", "localhost",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "1", "-storetype",
+                "PKCS12", "-keystore", file.getPath(), "-storepass", new String(PASSWORD)).inheritIO().start();
+
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("keytool failed.");
+        }
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+
+        try (InputStream in = new FileInputStream(file)) {
+            keyStore.load(in, PASSWORD);
+        }
+        return keyStore;
+    }
+
+    /**
+     * Creates a client context trusting the certificate in the given key store.
+     * 
+     * @param keyStore The key store.
+     * @return The context.
+     * @throws Exception If the context couldn't be created.
+     */
+    private static SSLContext clientContext(final KeyStore keyStore) throws Exception {
+        final TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(keyStore);
+
+        final SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trust.getTrustManagers(), null);
+        return context;
+    }
+
+    /**
+     * Accepts connections on the given server, each served on a thread of its
+     * own.
+     * 
+     * @param server The server.
+     * @param lines  The amount of chat lines sent after a JOIN.
+     */
+    private static void accept(final SSLServerSocket server, final int lines) {
+        while (true) {
+            try {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                final Thread thread = new Thread(() -> serve(socket, lines), "tls-connection");
+                thread.setDaemon(true);
+                thread.start();
+
+            } catch (final IOException e) {
+                return;
+
+            }
+        }
+    }
+
+    /**
+     * Confirms the login on the given connection, and floods it with chat after a
+     * JOIN.
+     * 
+     * @param socket The connection.
+     * @param lines  The amount of chat lines sent after a JOIN.
+     */
+    private static void serve(final Socket socket, final int lines) {
+        try (Socket s = socket;
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+                BufferedWriter writer = new BufferedWriter(
+                        new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+
+            String line = reader.readLine();
+
+            while (line != null) {
+                if (line.startsWith("NICK ")) {
+                    writer.write(":tmi.twitch.tv 376 " + line.substring(5) + " :>\r\n");
+                    writer.flush();
+
+                } else if (line.startsWith("JOIN ")) {
+                    for (int i = 0; i < lines; i++) {
+                        writer.write(CHAT_LINE);
+                        writer.write("\r\n");
+                    }
+                    writer.flush();
+
+                }
+                line = reader.readLine();
+            }
+        } catch (final IOException e) {
+            // the client disconnected.
+        }
+    }
+
+    /**
+     * A client which only counts the login confirmation and chat lines it
+     * receives.
+     */
+    private static class CountingClient extends AClient {
+
+        /**
+         * The amount of lines received.
+         */
+        private long mLines;
+
+        /**
+         * The amount of bytes received, excluding line endings.
+         */
+        private long mBytes;
+
+        /**
+         * Creates a new {@link CountingClient}.
+         * 
+         * @param controller The controller to count the lines of.
+         */
+        CountingClient(final IIRCController controller) {
+            super(controller);
+
+            this.registerHandler("376", this::count);
+            this.registerHandler("PRIVMSG", this::count);
+        }
+
+        /**
+         * Counts the given message.
+         * 
+         * @param message The message.
+         */
+        private void count(final IRCMessage message) {
+            mLines++;
+            mBytes += message.getLine().length();
+
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.ativelox.relentlessfisher.auth.IAccessTokenProvider;
+import de.ativelox.relentlessfisher.auth.RefreshTokenProvider;
+import de.ativelox.relentlessfisher.auth.TokenManager;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.utils.HTTPRequest;
+
+/**
+ * Measures how long getting the access token for a reconnect takes, against a
+ * stand-in for twitchs' oauth2 endpoint on loopback, which answers after the
+ * given round-trip time. It is measured once refreshing the token on every
+ * reconnect, and once with a {@link TokenManager} refreshing it ahead of its
+ * expiry. The stand-in counts the connections the requests came in on, fewer
+ * connections than requests meaning {@link HTTPRequest} kept them alive. Then
+ * the tokens of as many accounts as reconnects are refreshed all at once, then
+ * the cached token is loaded by a new manager, like after a restart, and
+ * finally tokens expiring within seconds show whether any reconnect still has
+ * to wait for a refresh.<br>
+ * 
+ * Usage: <tt>TokenBenchmark [round-trip ms] [reconnects]</tt>, defaults to
+ * <tt>100 50</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class TokenBenchmark {
+
+    /**
+     * The path of the stand-in endpoint.
+     */
+    private final static String PATH = "/oauth2/token";
+
+    /**
+     * The lifetime in s of the tokens handed out, unless a run shortens it.
+     */
+    private final static long LIFETIME = 14400;
+
+    /**
+     * The lifetime in s of the tokens handed out by the last run.
+     */
+    private final static long SHORT_LIFETIME = 12;
+
+    /**
+     * The time in ms the last run keeps reconnecting for.
+     */
+    private final static long SHORT_RUN = 20000;
+
+    /**
+     * The time in ms between two reconnects of the last run.
+     */
+    private final static long SHORT_INTERVAL = 20;
+
+    public static void main(final String[] args) throws Exception {
+        final long roundTrip = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        final int reconnects = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        LoggerFactory.Get().setEnabled(ELogType.INFO, false);
+
+        final AtomicInteger requests = new AtomicInteger();
+        final Set<Integer> connections = ConcurrentHashMap.newKeySet();
+        final AtomicLong lifetime = new AtomicLong(LIFETIME);
+
+        // otherwise every answer waits for the delayed acknowledgement of its headers.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        final HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(PATH, exchange -> {
+            connections.add(exchange.getRemoteAddress().getPort());
+            answer(exchange, roundTrip, requests.incrementAndGet(), lifetime.get());
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        final RefreshTokenProvider source = new RefreshTokenProvider(
+                "http://127.0.0.1:" + server.getAddress().getPort() + PATH, "client", "secret", "refresh");
+        final Path directory = Files.createTempDirectory("rf-tokens");
+        final Path cache = directory.resolve("bench.token");
+
+        System.out.println(String.format("stand-in endpoint answering after %d ms, %d reconnects", roundTrip,
+                reconnects));
+
+        measure("refresh per reconnect", source, reconnects, requests, connections);
+
+        final TokenManager manager = new TokenManager(source, cache);
+        manager.start();
+        awaitRefreshes(manager, 1);
+        measure("token manager", manager, reconnects, requests, connections);
+        manager.stop();
+
+        final int before = requests.get();
+        final int connectionsBefore = connections.size();
+        final long started = System.nanoTime();
+        final CompletableFuture<?>[] refreshes = new CompletableFuture<?>[reconnects];
+
+        for (int i = 0; i < reconnects; i++) {
+            refreshes[i] = source.refreshAsync();
+        }
+        HTTPRequest.Await(CompletableFuture.allOf(refreshes));
+        System.out.println(String.format("%-22s %4d requests, %4d new connections, all done after %.1f ms",
+                "concurrent refreshes:", requests.get() - before, connections.size() - connectionsBefore,
+                (System.nanoTime() - started) / 1e6));
+
+        System.out.println(String.format("cache file permissions: %s",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(cache))));
+
+        requests.set(0);
+        final TokenManager restarted = new TokenManager(source, cache);
+        restarted.start();
+        restarted.getAccessToken();
+        System.out.println(String.format("after a restart: %d requests, %s", requests.get(), restarted));
+        restarted.stop();
+
+        lifetime.set(SHORT_LIFETIME);
+        requests.set(0);
+        final TokenManager expiring = new TokenManager(source, directory.resolve("expiring.token"));
+        expiring.start();
+        awaitRefreshes(expiring, 1);
+
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHORT_RUN);
+
+        while (System.nanoTime() - end < 0) {
+            final long start = System.nanoTime();
+            expiring.getAccessToken();
+            latencies.record(System.nanoTime() - start);
+
+            Thread.sleep(SHORT_INTERVAL);
+
+        }
+        System.out.println(String.format("tokens living %d s, reconnecting for %d s: %s", SHORT_LIFETIME,
+                SHORT_RUN / 1000, expiring));
+        System.out.println("  latency: " + latencies);
+
+        server.stop(0);
+        System.exit(0);
+
+    }
+
+    /**
+     * Gets the access token for the given amount of reconnects, and prints how
+     * long it took and how many requests the endpoint got meanwhile.
+     * 
+     * @param name        The name of the run.
+     * @param provider    Hands out the access tokens.
+     * @param reconnects  The amount of reconnects.
+     * @param requests    The amount of requests the endpoint got so far.
+     * @param connections The ports of the connections the endpoint got
+     *                    requests on so far.
+     * @throws IOException If an access token couldn't be gotten.
+     */
+    private static void measure(final String name, final IAccessTokenProvider provider, final int reconnects,
+            final AtomicInteger requests, final Set<Integer> connections) throws IOException {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final int before = requests.get();
+        final int connectionsBefore = connections.size();
+
+        for (int i = 0; i < reconnects; i++) {
+            final long start = System.nanoTime();
+            provider.getAccessToken();
+            latencies.record(System.nanoTime() - start);
+
+        }
+        System.out.println(String.format("%-22s %4d requests, %4d new connections, latency: %s", name + ":",
+                requests.get() - before, connections.size() - connectionsBefore, latencies));
+
+    }
+
+    /**
+     * Waits until the given manager fetched the given amount of tokens.
+     * 
+     * @param manager    The manager.
+     * @param refreshes  The amount of tokens.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void awaitRefreshes(final TokenManager manager, final long refreshes)
+            throws InterruptedException {
+        while (manager.refreshes() < refreshes) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Answers a request of the stand-in endpoint after the round-trip time,
+     * the way twitch does.
+     * 
+     * @param exchange  The request.
+     * @param roundTrip The round-trip time in ms.
+     * @param request   The number of the request.
+     * @param lifetime  The lifetime in s of the token handed out.
+     * @throws IOException If the answer couldn't be sent.
+     */
+    private static void answer(final HttpExchange exchange, final long roundTrip, final int request,
+            final long lifetime) throws IOException {
+        try {
+            Thread.sleep(roundTrip);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        }
+        final byte[] body = ("{\"access_token\":\"token" + request + "\",\"expires_in\":" + lifetime
+                + ",\"refresh_token\":\"refresh\",\"scope\":[\"chat:read\",\"whispers:edit\"],\"token_type\":\"bearer\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates a reproducible corpus of server lines, modelled after the traffic
+ * of a busy channel: mostly tagged chat, some room and user notices, now and
+ * then a ping and the whispers of the fishing bot.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+final class TwitchCorpus {
+
+    /**
+     * The tags of a chat message, the display name and id get filled in.
+     */
+    private final static String CHAT_TAGS = "@badge-info=;badges=subscriber/12,bits/100;color=#1E90FF;"
+            + "display-name=%s;emotes=25:0-4;flags=;id=%s;mod=0;room-id=28640725;subscriber=1;"
+            + "tmi-sent-ts=1600000000000;turbo=0;user-id=%d;user-type= ";
+
+    /**
+     * Typical chat messages.
+     */
+    private final static String[] CHAT = { "Kappa that was close", "LUL", "!cast",
+            "did anyone see that?? PogChamp PogChamp", "wolfpack wolfpack wolfpack",
+            "hey lobos how is the stream going today", "F", "monkaS monkaS monkaS monkaS monkaS monkaS" };
+
+    /**
+     * The whispers of the fishing bot.
+     */
+    private final static String[] WHISPERS = { "Your line is cast. Type !catch when you get a bite.",
+            "Something's tugging at your line! Type !catch to reel it in!",
+            "Congratulations! You caught a 12.3 lb Salmon!", "You were too slow and the fish got away." };
+
+    /**
+     * Utility class.
+     */
+    private TwitchCorpus() {
+
+    }
+
+    /**
+     * Creates the lines of the corpus.
+     * 
+     * @param count The amount of lines.
+     * @param seed  The seed, the same seed always creates the same corpus.
+     * @return The lines, without line endings.
+     */
+    static String[] Lines(final int count, final long seed) {
+        final Random random = new Random(seed);
+        final String[] lines = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            final int kind = random.nextInt(100);
+            final String nick = "viewer" + random.nextInt(5000);
+
+            if (kind < 85) {
+                lines[i] = String.format(CHAT_TAGS, nick, Long.toHexString(random.nextLong()),
+                        random.nextInt(100000000)) + ":" + nick + "!" + nick + "@" + nick
+                        + ".tmi.twitch.tv PRIVMSG #lobosjr :" + CHAT[random.nextInt(CHAT.length)];
+
+            } else if (kind < 90) {
+                lines[i] = "@badge-info=;badges=;color=;display-name=" + nick + ";emote-sets=0;mod=0;subscriber=0;"
+                        + "user-type= :tmi.twitch.tv USERSTATE #lobosjr";
+
+            } else if (kind < 94) {
+                lines[i] = ":" + nick + "!" + nick + "@" + nick + ".tmi.twitch.tv JOIN #lobosjr";
+
+            } else if (kind < 97) {
+                lines[i] = "@badges=;color=;display-name=LobotJR;emotes=;message-id=3;thread-id=1_2;turbo=0;"
+                        + "user-id=1;user-type= :lobotjr!lobotjr@lobotjr.tmi.twitch.tv WHISPER bench :"
+                        + WHISPERS[random.nextInt(WHISPERS.length)];
+
+            } else if (kind < 99) {
+                lines[i] = "@emote-only=0;followers-only=-1;r9k=0;rituals=0;room-id=28640725;slow=0;subs-only=0 "
+                        + ":tmi.twitch.tv ROOMSTATE #lobosjr";
+
+            } else {
+                lines[i] = "PING :tmi.twitch.tv";
+
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Encodes the given lines as they arrive on the wire, terminated by
+     * <tt>\r\n</tt>.
+     * 
+     * @param lines The lines.
+     * @return The encoded lines.
+     */
+    static byte[] Encode(final String[] lines) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        for (final String line : lines) {
+            final byte[] bytes = (line + "\r\n").getBytes(StandardCharsets.UTF_8);
+            out.write(bytes, 0, bytes.length);
+
+        }
+        return out.toByteArray();
+    }
+}
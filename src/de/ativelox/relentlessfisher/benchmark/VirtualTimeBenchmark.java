@@ -0,0 +1,190 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.ativelox.relentlessfisher.timer.HashedWheelTimer;
+import de.ativelox.relentlessfisher.timer.ITimeoutListener;
+import de.ativelox.relentlessfisher.timer.ITimer;
+import de.ativelox.relentlessfisher.timer.ScheduledTimer;
+import de.ativelox.relentlessfisher.timer.SimpleTimer;
+import de.ativelox.relentlessfisher.timer.VirtualClock;
+
+/**
+ * Lets a timeout pass on a {@link VirtualClock} for every timer
+ * implementation, and measures how long that takes in real time. Every timer is
+ * armed, reset halfway through its timeout, and then has to stay quiet until
+ * shortly before its timeout counted from the reset, and fire shortly after,
+ * otherwise the benchmark fails. The timing wheel is additionally reset a whole
+ * turn of the wheel after it got armed, which moves its deadline into the
+ * bucket of its previous deadline.<br>
+ * 
+ * Usage: <tt>VirtualTimeBenchmark [timeout s]</tt>, defaults to <tt>300</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class VirtualTimeBenchmark {
+
+    /**
+     * The time in ms the clock stops short of the timeout, and then advances
+     * past it.
+     */
+    private final static long SLACK = 1000;
+
+    /**
+     * The accuracy in ms of the simple timer.
+     */
+    private final static long ACCURACY = 1000;
+
+    /**
+     * The tick in ms of the timing wheel.
+     */
+    private final static long TICK = 100;
+
+    /**
+     * The amount of buckets of the timing wheel.
+     */
+    private final static int WHEEL_SIZE = 512;
+
+    /**
+     * The real time in ms given to timer threads to react to the clock.
+     */
+    private final static long SETTLE = 50;
+
+    /**
+     * The longest real time in s to wait for a timer to fire.
+     */
+    private final static long FIRE_WAIT = 5;
+
+    public static void main(final String[] args) throws InterruptedException {
+        final long timeout = TimeUnit.SECONDS.toMillis(args.length > 0 ? Long.parseLong(args[0]) : 300);
+
+        final VirtualClock simpleClock = new VirtualClock();
+        final Listener simple = new Listener();
+        final ITimer simpleTimer = new SimpleTimer(simpleClock, timeout, ACCURACY, simple);
+
+        measure("simple", simpleClock, simpleTimer, simple, timeout, timeout / 2, () -> {
+            final Thread thread = new Thread(simpleTimer, "rf-simple-timer");
+            thread.setDaemon(true);
+            thread.start();
+
+            // the timer starts counting once its thread runs it.
+            while (simpleClock.sleepers() == 0) {
+                Thread.yield();
+            }
+        });
+
+        // never used, the checks are run by the virtual clock.
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        final VirtualClock scheduledClock = new VirtualClock();
+        final Listener scheduled = new Listener();
+        final ITimer scheduledTimer = new ScheduledTimer(scheduler, scheduledClock, timeout, scheduled);
+
+        measure("scheduled", scheduledClock, scheduledTimer, scheduled, timeout, timeout / 2,
+                scheduledTimer::run);
+        scheduler.shutdownNow();
+
+        final VirtualClock wheelClock = new VirtualClock();
+        final HashedWheelTimer wheel = new HashedWheelTimer(wheelClock, TICK, WHEEL_SIZE);
+        final Listener wheeled = new Listener();
+        final ITimer wheelTimer = wheel.create(timeout, wheeled);
+
+        measure("hashed wheel", wheelClock, wheelTimer, wheeled, timeout, timeout / 2, wheelTimer::run);
+        wheel.stop();
+
+        // reset half a tick past a whole turn, the timer has to be moved while its bucket is expired.
+        final long turn = WHEEL_SIZE * TICK + TICK / 2;
+
+        if (timeout > turn + TICK) {
+            final VirtualClock turnClock = new VirtualClock();
+            final HashedWheelTimer turnWheel = new HashedWheelTimer(turnClock, TICK, WHEEL_SIZE);
+            final Listener turned = new Listener();
+            final ITimer turnTimer = turnWheel.create(timeout, turned);
+
+            measure("wheel turn", turnClock, turnTimer, turned, timeout, turn, turnTimer::run);
+            turnWheel.stop();
+        }
+
+    }
+
+    /**
+     * Arms the given timer, resets it after the given time, and lets the
+     * clock pass until shortly before and after the timeout counted from the
+     * reset, checking the timer only fires after. Prints the time passed
+     * reported by the timer, and the real time it all took.
+     * 
+     * @param name     The name of the timer.
+     * @param clock    The clock the timer measures time with.
+     * @param timer    The timer.
+     * @param listener The listener of the timer.
+     * @param timeout  The timeout of the timer in ms.
+     * @param resetAt  The time in ms after arming to reset the timer at.
+     * @param arm      Arms the timer.
+     * @throws InterruptedException If interrupted while waiting for the timer.
+     */
+    private static void measure(final String name, final VirtualClock clock, final ITimer timer,
+            final Listener listener, final long timeout, final long resetAt, final Runnable arm)
+            throws InterruptedException {
+        final long start = System.nanoTime();
+        arm.run();
+
+        clock.advance(resetAt, TimeUnit.MILLISECONDS);
+        Thread.sleep(SETTLE);
+
+        timer.reset();
+        clock.advance(timeout - SLACK, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(SETTLE);
+
+        if (listener.mFired.getCount() == 0) {
+            throw new IllegalStateException(
+                    "The " + name + " timer fired after " + listener.mPassed.get() + " ms, before its timeout.");
+        }
+        clock.advance(2 * SLACK, TimeUnit.MILLISECONDS);
+
+        if (!listener.mFired.await(FIRE_WAIT, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("The " + name + " timer didn't fire after its timeout.");
+        }
+        final long passed = listener.mPassed.get();
+
+        if (passed < timeout || passed > timeout + 2 * SLACK) {
+            throw new IllegalStateException("The " + name + " timer reported " + passed + " ms passed.");
+        }
+        System.out.println(
+                String.format("%-12s timeout of %d s fired after %d ms of virtual time, %.1f ms of real time", name,
+                        TimeUnit.MILLISECONDS.toSeconds(timeout), passed, (System.nanoTime() - start) / 1e6));
+
+    }
+
+    /**
+     * Remembers when the timer it listens to fired.
+     */
+    private static final class Listener implements ITimeoutListener {
+
+        /**
+         * Counted down once the timer fired.
+         */
+        private final CountDownLatch mFired = new CountDownLatch(1);
+
+        /**
+         * The time in ms the timer reported to have passed.
+         */
+        private final AtomicLong mPassed = new AtomicLong();
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see de.ativelox.relentlessfisher.timer.ITimeoutListener#onTimeout(long)
+         */
+        @Override
+        public void onTimeout(final long ms) {
+            mPassed.set(ms);
+            mFired.countDown();
+
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package de.ativelox.relentlessfisher.benchmark;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.pacing.WhisperScheduler;
+import de.ativelox.relentlessfisher.timer.VirtualClock;
+import de.ativelox.relentlessfisher.utils.RateWindow;
+
+/**
+ * Simulates many accounts fishing from a single host on a
+ * {@link VirtualClock}, to show how the casts per hour of all accounts together
+ * scale with the amount of accounts. Twitch is simulated as dropping every
+ * whisper beyond the limits of its account or the budget of the host, a dropped
+ * whisper costing the account the time until it gives up waiting for the bot.
+ * Every amount of accounts is simulated twice: once with every account only
+ * keeping to the limits of its own account, like fishers pacing themselves
+ * independently, and once with all accounts drawing from the budget of a single
+ * {@link WhisperScheduler}.<br>
+ * 
+ * Usage: <tt>WhisperBudgetBenchmark [hours] [accounts...]</tt>, defaults to
+ * <tt>1 1 5 10 25 50 100 200</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class WhisperBudgetBenchmark {
+
+    /**
+     * The time in ms a whisper takes from one end to the other.
+     */
+    private final static long LATENCY = 150;
+
+    /**
+     * The shortest time in ms from a cast to the bite.
+     */
+    private final static long MIN_BITE = 5000;
+
+    /**
+     * The longest time in ms from a cast to the bite.
+     */
+    private final static long MAX_BITE = 30000;
+
+    /**
+     * The time in ms after a bite within which the <tt>!catch</tt> has to
+     * arrive.
+     */
+    private final static long CATCH_WINDOW = 10000;
+
+    /**
+     * The delay in ms before casting again, after the bot answered the
+     * <tt>!catch</tt>.
+     */
+    private final static long CAST_DELAY = 1000;
+
+    /**
+     * The time in ms a cast may wait for its slot.
+     */
+    private final static long CAST_SLACK = 2000;
+
+    /**
+     * The time in ms a <tt>!catch</tt> may wait for its slot.
+     */
+    private final static long CATCH_SLACK = 1000;
+
+    /**
+     * The time in ms an account waits for the bot before casting anew.
+     */
+    private final static long RESPONSE_TIMEOUT = 2000;
+
+    /**
+     * The longest time in ms after the start of the simulation an account starts
+     * fishing at.
+     */
+    private final static long MAX_START = 5000;
+
+    /**
+     * The seed of every simulation.
+     */
+    private final static long SEED = 42;
+
+    public static void main(final String[] args) {
+        final long hours = args.length > 0 ? Long.parseLong(args[0]) : 1;
+        final int[] accounts = args.length > 1 ? new int[args.length - 1] : new int[] { 1, 5, 10, 25, 50, 100, 200 };
+
+        for (int i = 1; i < args.length; i++) {
+            accounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        System.out.println(String.format("budget of the host: %d whispers/s, %d whispers/min, simulating %d h",
+                WhisperScheduler.GLOBAL_PER_SECOND, WhisperScheduler.GLOBAL_PER_MINUTE, hours));
+        System.out.println(String.format("%-12s %8s %12s %12s %12s %10s %14s %8s", "scheduling", "accounts",
+                "casts/hour", "per account", "catches/h", "dropped", "lateness p99", "missed"));
+
+        for (final int count : accounts) {
+            for (final boolean shared : new boolean[] { false, true }) {
+                new Simulation(count, shared).run(TimeUnit.HOURS.toNanos(hours));
+            }
+        }
+        System.exit(0);
+
+    }
+
+    /**
+     * A single run of many accounts fishing on a virtual clock.
+     */
+    private static final class Simulation {
+
+        /**
+         * The amount of accounts.
+         */
+        private final int mAccounts;
+
+        /**
+         * Whether the accounts draw from the budget of the host, or only keep to
+         * the limits of their own account.
+         */
+        private final boolean mShared;
+
+        /**
+         * The clock of the simulation.
+         */
+        private final VirtualClock mClock;
+
+        /**
+         * The scheduler handing out the slots of all accounts.
+         */
+        private final WhisperScheduler mScheduler;
+
+        /**
+         * The budget of the host, as enforced by twitch.
+         */
+        private final RateWindow[] mBudget;
+
+        /**
+         * The events yet to happen, ordered by their time.
+         */
+        private final PriorityQueue<Event> mEvents;
+
+        /**
+         * Draws the times until bites and the times accounts start at.
+         */
+        private final Random mRandom;
+
+        /**
+         * The amount of events scheduled so far, to order events happening at the
+         * same time.
+         */
+        private long mScheduled;
+
+        /**
+         * The amount of casts arriving at the bot.
+         */
+        private long mCasts;
+
+        /**
+         * The amount of fish caught.
+         */
+        private long mCatches;
+
+        /**
+         * The amount of whispers dropped by twitch.
+         */
+        private long mDropped;
+
+        /**
+         * Creates a new {@link Simulation}.
+         * 
+         * @param accounts The amount of accounts.
+         * @param shared   Whether the accounts draw from the budget of the host.
+         */
+        Simulation(final int accounts, final boolean shared) {
+            mAccounts = accounts;
+            mShared = shared;
+            mClock = new VirtualClock();
+            mScheduler = shared
+                    ? new WhisperScheduler(mClock, null, WhisperScheduler.GLOBAL_PER_SECOND,
+                            WhisperScheduler.GLOBAL_PER_MINUTE)
+                    : new WhisperScheduler(mClock, null, 0, 0);
+            mBudget = new RateWindow[] {
+                    new RateWindow(WhisperScheduler.GLOBAL_PER_SECOND, TimeUnit.SECONDS.toNanos(1)),
+                    new RateWindow(WhisperScheduler.GLOBAL_PER_MINUTE, TimeUnit.MINUTES.toNanos(1)) };
+            mEvents = new PriorityQueue<>();
+            mRandom = new Random(SEED);
+
+        }
+
+        /**
+         * Runs the simulation for the given time and prints its results.
+         * 
+         * @param duration The time to simulate in ns.
+         */
+        void run(final long duration) {
+            for (int i = 0; i < mAccounts; i++) {
+                final WhisperScheduler.Account account = mScheduler.register("user" + i);
+                this.at(this.between(0, MAX_START), () -> this.cast(account, 0));
+
+            }
+
+            while (true) {
+                final long now = mClock.nanoTime();
+                final long wait = mScheduler.runDue();
+                final Event next = mEvents.peek();
+                long target = next == null ? Long.MAX_VALUE : next.mTime;
+
+                if (wait >= 0) {
+                    target = Math.min(target, now + wait);
+                }
+
+                if (target == Long.MAX_VALUE || target > duration) {
+                    break;
+                }
+                mClock.advance(target - now, TimeUnit.NANOSECONDS);
+
+                while (!mEvents.isEmpty() && mEvents.peek().mTime <= target) {
+                    mEvents.poll().mAction.run();
+                }
+            }
+            final double hours = duration / (double) TimeUnit.HOURS.toNanos(1);
+
+            System.out.println(String.format("%-12s %8d %12.0f %12.1f %12.0f %10d %11.1f ms %8d",
+                    mShared ? "shared" : "independent", mAccounts, mCasts / hours, mCasts / hours / mAccounts,
+                    mCatches / hours, mDropped, mScheduler.getLateness().percentile(99) / 1e6, mScheduler.missed()));
+
+        }
+
+        /**
+         * Casts the line of the given account, once the given delay passed and the
+         * cast got its slot.
+         * 
+         * @param account The account.
+         * @param delay   The delay in ms.
+         */
+        private void cast(final WhisperScheduler.Account account, final long delay) {
+            account.submit(EPriority.BEST_EFFORT, TimeUnit.MILLISECONDS.toNanos(delay), TimeUnit.MILLISECONDS.toNanos(CAST_SLACK),
+                    () -> this.whisper(account, () -> {
+                        mCasts++;
+                        final long bite = this.between(MIN_BITE, MAX_BITE);
+
+                        this.at(mClock.nanoTime() + bite, () -> this.bite(account));
+                    }));
+        }
+
+        /**
+         * Lets a fish bite on the line of the given account, which the account
+         * learns about once the whisper of the bot arrived.
+         * 
+         * @param account The account.
+         */
+        private void bite(final WhisperScheduler.Account account) {
+            final long bitten = mClock.nanoTime();
+
+            this.at(bitten + TimeUnit.MILLISECONDS.toNanos(LATENCY),
+                    () -> account.submit(EPriority.GAME_CRITICAL, 0, TimeUnit.MILLISECONDS.toNanos(CATCH_SLACK),
+                            () -> this.whisper(account, () -> {
+                        if (mClock.nanoTime() - bitten <= TimeUnit.MILLISECONDS.toNanos(CATCH_WINDOW)) {
+                            mCatches++;
+                        }
+                        // the answer of the bot arrives, then the account casts again.
+                        this.at(mClock.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LATENCY),
+                                () -> this.cast(account, CAST_DELAY));
+                    })));
+        }
+
+        /**
+         * Sends a whisper of the given account, which arrives at the bot after the
+         * latency, unless twitch drops it for exceeding the budget of the host. A
+         * dropped whisper is never answered, so the account casts anew once it
+         * gave up waiting.
+         * 
+         * @param account The account.
+         * @param arrived Gets called once the whisper arrived at the bot.
+         */
+        private void whisper(final WhisperScheduler.Account account, final Runnable arrived) {
+            final long now = mClock.nanoTime();
+
+            for (final RateWindow limit : mBudget) {
+                if (limit.earliest(now) > now) {
+                    mDropped++;
+                    this.at(now + TimeUnit.MILLISECONDS.toNanos(RESPONSE_TIMEOUT), () -> this.cast(account, 0));
+                    return;
+
+                }
+            }
+
+            for (final RateWindow limit : mBudget) {
+                limit.reserve(now);
+            }
+            this.at(now + TimeUnit.MILLISECONDS.toNanos(LATENCY), arrived);
+
+        }
+
+        /**
+         * Schedules the given action at the given time.
+         * 
+         * @param time   The time in ns.
+         * @param action The action.
+         */
+        private void at(final long time, final Runnable action) {
+            mEvents.add(new Event(time, mScheduled++, action));
+
+        }
+
+        /**
+         * Draws a time between the given bounds.
+         * 
+         * @param min The lower bound in ms.
+         * @param max The upper bound in ms.
+         * @return The time in ns.
+         */
+        private long between(final long min, final long max) {
+            return TimeUnit.MILLISECONDS.toNanos(min + (long) (mRandom.nextDouble() * (max - min)));
+
+        }
+    }
+
+    /**
+     * Something happening at a given time of the simulation.
+     */
+    private static final class Event implements Comparable<Event> {
+
+        /**
+         * The time of the event in ns.
+         */
+        private final long mTime;
+
+        /**
+         * The order of the event among events happening at the same time.
+         */
+        private final long mSequence;
+
+        /**
+         * What happens.
+         */
+        private final Runnable mAction;
+
+        /**
+         * Creates a new {@link Event}.
+         * 
+         * @param time     The time of the event in ns.
+         * @param sequence The order of the event among events happening at the
+         *                 same time.
+         * @param action   What happens.
+         */
+        Event(final long time, final long sequence, final Runnable action) {
+            mTime = time;
+            mSequence = sequence;
+            mAction = action;
+
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(final Event other) {
+            final int byTime = Long.compare(mTime, other.mTime);
+
+            return byTime != 0 ? byTime : Long.compare(mSequence, other.mSequence);
+
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package de.ativelox.relentlessfisher.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the segments written by a {@link TrafficCapture}. Can also be run to
+ * dump or grep captured traffic.<br>
+ * 
+ * Usage: <tt>CaptureReader &lt;segment or directory&gt; [regex]</tt>, prints
+ * every line (matching the given regex) of the segment or all segments of the
+ * directory, prefixed by its time and direction.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class CaptureReader {
+
+    /**
+     * The format of the times printed.
+     */
+    private final static DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    /**
+     * The amount of ns per ms.
+     */
+    private final static long NANOS_PER_MILLI = 1_000_000;
+
+    /**
+     * Reads all records of the given segment, in the order they were captured.
+     * 
+     * @param segment The segment.
+     * @param handler The handler receiving the records.
+     * @throws IOException If the segment couldn't be read or isn't one.
+     */
+    public static void Read(final Path segment, final IRecordHandler handler) throws IOException {
+        final ByteBuffer buffer = Open(segment);
+
+        // maps the monotonic times of the records onto the wall clock.
+        final long epoch = buffer.getLong() * NANOS_PER_MILLI - buffer.getLong();
+
+        while (buffer.remaining() >= TrafficCapture.RECORD_HEADER) {
+            final EDirection direction = EDirection.Of(buffer.get());
+
+            if (direction == null) {
+                return;
+            }
+            final int length = buffer.getInt();
+            final long time = buffer.getLong();
+
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Corrupt record in capture segment: " + segment);
+            }
+            final byte[] line = new byte[length];
+            buffer.get(line);
+
+            handler.onRecord(direction, epoch + time, new String(line, StandardCharsets.UTF_8));
+
+        }
+    }
+
+    /**
+     * Reads all records of the given segments, in the order they were captured.
+     * 
+     * @param segments The segments, oldest first.
+     * @param handler  The handler receiving the records.
+     * @throws IOException If a segment couldn't be read or isn't one.
+     */
+    public static void Read(final List<Path> segments, final IRecordHandler handler) throws IOException {
+        for (final Path segment : segments) {
+            Read(segment, handler);
+        }
+    }
+
+    /**
+     * Maps the given segment for reading, checking its header.
+     * 
+     * @param segment The segment.
+     * @return The segment, positioned after the magic number and version.
+     * @throws IOException If the segment couldn't be read or isn't one.
+     */
+    private static ByteBuffer Open(final Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < TrafficCapture.SEGMENT_HEADER || buffer.getInt() != TrafficCapture.MAGIC) {
+                throw new IOException("Not a capture segment: " + segment);
+            }
+
+            if (buffer.getInt() != TrafficCapture.VERSION) {
+                throw new IOException("Unsupported capture segment version: " + segment);
+            }
+            return buffer;
+
+        }
+    }
+
+    public static void main(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CaptureReader <segment or directory> [regex]");
+            System.exit(1);
+
+        }
+        final Path path = Paths.get(args[0]);
+        final Pattern pattern = args.length > 1 ? Pattern.compile(args[1]) : null;
+        final ZoneId zone = ZoneId.systemDefault();
+
+        final List<Path> segments = Files.isDirectory(path) ? TrafficCapture.Segments(path)
+                : Collections.singletonList(path);
+
+        Read(segments, (direction, time, line) -> {
+            if (pattern != null && !pattern.matcher(line).find()) {
+                return;
+            }
+            final LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochSecond(0, time), zone);
+
+            System.out.println(TIME.format(at) + (direction == EDirection.INBOUND ? " < " : " > ") + line);
+
+        });
+    }
+
+    private CaptureReader() {
+    }
+
+}
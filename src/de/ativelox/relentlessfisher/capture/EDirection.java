@@ -0,0 +1,44 @@
+package de.ativelox.relentlessfisher.capture;
+
+/**
+ * Provides the directions of captured traffic, see {@link TrafficCapture}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public enum EDirection {
+
+    /**
+     * Lines received from the server.
+     */
+    INBOUND,
+
+    /**
+     * Lines sent to the server.
+     */
+    OUTBOUND;
+
+    /**
+     * The code of this direction in a segment, never <tt>0</tt> since that marks
+     * the end of the records.
+     * 
+     * @return The code.
+     */
+    byte code() {
+        return (byte) (this.ordinal() + 1);
+
+    }
+
+    /**
+     * The direction with the given code.
+     * 
+     * @param code The code, as given by {@link EDirection#code()}.
+     * @return The direction, or <tt>null</tt> if the code belongs to none.
+     */
+    static EDirection Of(final byte code) {
+        final EDirection[] directions = EDirection.values();
+
+        return code > 0 && code <= directions.length ? directions[code - 1] : null;
+
+    }
+}
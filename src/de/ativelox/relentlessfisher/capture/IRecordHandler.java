@@ -0,0 +1,21 @@
+package de.ativelox.relentlessfisher.capture;
+
+/**
+ * Provides callbacks for objects reading captured traffic, see
+ * {@link CaptureReader}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface IRecordHandler {
+
+    /**
+     * Gets called for every captured line, in the order they were captured.
+     * 
+     * @param direction The direction of the line.
+     * @param time      The time the line was captured at, in ns since the epoch.
+     * @param line      The line, excluding the line break.
+     */
+    void onRecord(final EDirection direction, final long time, final String line);
+
+}
@@ -0,0 +1,134 @@
+package de.ativelox.relentlessfisher.capture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provides a recorded session, i.e. the lines received from and sent to the
+ * server as captured by a {@link TrafficCapture}, loaded into memory for
+ * replaying.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class Recording {
+
+    /**
+     * The prefix of the line logging a user in.
+     */
+    private final static String NICK = "NICK ";
+
+    /**
+     * The lines received from the server, in order.
+     */
+    private final String[] mReceived;
+
+    /**
+     * The times the lines were received at, in ns since the epoch.
+     */
+    private final long[] mTimes;
+
+    /**
+     * The lines sent to the server, in order.
+     */
+    private final List<String> mSent;
+
+    /**
+     * Creates a new {@link Recording}.
+     * 
+     * @param received The lines received from the server, in order.
+     * @param times    The times the lines were received at, in ns since the
+     *                 epoch.
+     * @param sent     The lines sent to the server, in order.
+     */
+    public Recording(final String[] received, final long[] times, final List<String> sent) {
+        if (received.length != times.length) {
+            throw new IllegalArgumentException("Every received line needs a time.");
+        }
+        mReceived = received;
+        mTimes = times;
+        mSent = Collections.unmodifiableList(sent);
+
+    }
+
+    /**
+     * Loads the recording of the given segment, or of all segments of the given
+     * directory.
+     * 
+     * @param path The segment or directory.
+     * @return The recording.
+     * @throws IOException If a segment couldn't be read.
+     */
+    public static Recording Load(final Path path) throws IOException {
+        final List<Path> segments = Files.isDirectory(path) ? TrafficCapture.Segments(path)
+                : Collections.singletonList(path);
+
+        final List<String> received = new ArrayList<>();
+        final List<String> sent = new ArrayList<>();
+        final List<Long> times = new ArrayList<>();
+
+        CaptureReader.Read(segments, (direction, time, line) -> {
+            if (direction == EDirection.OUTBOUND) {
+                sent.add(line);
+                return;
+
+            }
+            received.add(line);
+            times.add(time);
+
+        });
+        return new Recording(received.toArray(new String[0]), times.stream().mapToLong(Long::longValue).toArray(),
+                sent);
+
+    }
+
+    /**
+     * The lines received from the server, in order.
+     * 
+     * @return The lines, not to be modified.
+     */
+    public String[] getReceived() {
+        return mReceived;
+
+    }
+
+    /**
+     * The times the lines were received at.
+     * 
+     * @return The times in ns since the epoch, not to be modified.
+     */
+    public long[] getTimes() {
+        return mTimes;
+
+    }
+
+    /**
+     * The lines sent to the server, in order.
+     * 
+     * @return The lines.
+     */
+    public List<String> getSent() {
+        return mSent;
+
+    }
+
+    /**
+     * The user logged in during this recording, as given by the first line
+     * sending its nick.
+     * 
+     * @return The user, or <tt>null</tt> if no user logged in.
+     */
+    public String getUser() {
+        for (final String line : mSent) {
+            if (line.startsWith(NICK)) {
+                return line.substring(NICK.length()).trim();
+            }
+        }
+        return null;
+
+    }
+}
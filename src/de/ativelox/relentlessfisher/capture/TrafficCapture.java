@@ -0,0 +1,303 @@
+package de.ativelox.relentlessfisher.capture;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import de.ativelox.relentlessfisher.irc.framing.LineSlice;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * Captures raw traffic into fixed-size, memory-mapped segment files, such that
+ * every line can be inspected later with the {@link CaptureReader}. Capturing
+ * a line only copies it into the mapped segment, only starting a new segment
+ * touches the file system. Once the given amount of segments is exceeded, the
+ * oldest one is deleted, capping the disk usage.<br>
+ * 
+ * A segment starts with a {@link TrafficCapture#SEGMENT_HEADER header}: a magic
+ * number, the format version, the time it was started at in ms since the epoch
+ * and the same moment in {@link System#nanoTime()}. It's followed by the
+ * records, each a {@link EDirection#code() direction}, the length of the line,
+ * the time it was captured at in {@link System#nanoTime()} and the line itself
+ * without its line break. A direction of <tt>0</tt> ends the records, the
+ * direction is written last so a record is only visible once complete. The
+ * access token sent on login is masked.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class TrafficCapture implements AutoCloseable {
+
+    /**
+     * The magic number every segment starts with.
+     */
+    static final int MAGIC = 0x52464350;
+
+    /**
+     * The version of the segment format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the header of a segment in bytes.
+     */
+    static final int SEGMENT_HEADER = 24;
+
+    /**
+     * The size of the header of a record in bytes.
+     */
+    static final int RECORD_HEADER = 13;
+
+    /**
+     * The prefix of the names of segment files.
+     */
+    static final String PREFIX = "capture-";
+
+    /**
+     * The suffix of the names of segment files.
+     */
+    static final String SUFFIX = ".seg";
+
+    /**
+     * The prefix of the line carrying the access token, which never gets
+     * captured.
+     */
+    private static final String PASS = "PASS ";
+
+    /**
+     * Captured instead of the line carrying the access token.
+     */
+    private static final String MASKED_PASS = PASS + "***";
+
+    /**
+     * The directory holding the segments.
+     */
+    private final Path mDirectory;
+
+    /**
+     * The size of every segment in bytes.
+     */
+    private final int mSegmentSize;
+
+    /**
+     * The maximum amount of segments kept on disk.
+     */
+    private final int mMaxSegments;
+
+    /**
+     * The segments on disk, oldest first.
+     */
+    private final Deque<Path> mSegments;
+
+    /**
+     * The segment currently written to, <tt>null</tt> once closed.
+     */
+    private MappedByteBuffer mSegment;
+
+    /**
+     * The index of the segment currently written to.
+     */
+    private long mIndex;
+
+    /**
+     * The amount of lines dropped, because they didn't fit into a segment or a
+     * new segment couldn't be started.
+     */
+    private long mDropped;
+
+    /**
+     * Creates a new {@link TrafficCapture}, continuing after the segments
+     * already held by the given directory.
+     * 
+     * @param directory   The directory to put the segments into, created if
+     *                    absent.
+     * @param segmentSize The size of every segment in bytes.
+     * @param maxSegments The maximum amount of segments kept on disk, the oldest
+     *                    ones are deleted first.
+     * @throws IOException If the directory couldn't be read or the first segment
+     *                     couldn't be started.
+     */
+    public TrafficCapture(final Path directory, final int segmentSize, final int maxSegments) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER + RECORD_HEADER || maxSegments <= 0) {
+            throw new IllegalArgumentException("The segments are too small or too few.");
+        }
+        mDirectory = Files.createDirectories(directory);
+        mSegmentSize = segmentSize;
+        mMaxSegments = maxSegments;
+        mSegments = new ArrayDeque<>(Segments(directory));
+
+        if (!mSegments.isEmpty()) {
+            mIndex = IndexOf(mSegments.peekLast()) + 1;
+        }
+        this.startSegment();
+
+    }
+
+    /**
+     * All segments in the given directory, oldest first.
+     * 
+     * @param directory The directory.
+     * @return The segments.
+     * @throws IOException If the directory couldn't be read.
+     */
+    public static List<Path> Segments(final Path directory) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (final Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // the indices are zero padded, so the names sort by age.
+        Collections.sort(segments);
+        return segments;
+
+    }
+
+    /**
+     * The index of the given segment, as given by its name.
+     * 
+     * @param segment The segment.
+     * @return The index.
+     */
+    private static long IndexOf(final Path segment) {
+        final String name = segment.getFileName().toString();
+
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+
+    }
+
+    /**
+     * Maps a new segment and deletes the oldest ones exceeding the maximum
+     * amount of segments.
+     * 
+     * @throws IOException If the segment couldn't be created.
+     */
+    private void startSegment() throws IOException {
+        final Path segment = mDirectory.resolve(String.format("%s%016d%s", PREFIX, mIndex++, SUFFIX));
+
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed.
+            mSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+
+        }
+        mSegment.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putLong(System.nanoTime());
+        mSegments.addLast(segment);
+
+        while (mSegments.size() > mMaxSegments) {
+            Files.deleteIfExists(mSegments.pollFirst());
+        }
+    }
+
+    /**
+     * Makes sure the current segment has room for a record of the given length,
+     * starting a new one if needed.
+     * 
+     * @param length The length of the line.
+     * @return <tt>True</tt> if there's room, <tt>false</tt> if the line has to be
+     *         dropped.
+     */
+    private boolean reserve(final int length) {
+        if (mSegment == null) {
+            return false;
+        }
+
+        if (mSegment.remaining() >= RECORD_HEADER + length) {
+            return true;
+        }
+
+        if (SEGMENT_HEADER + RECORD_HEADER + length > mSegmentSize) {
+            mDropped++;
+            return false;
+
+        }
+        // no force, the old mapping gets written back by the system on its own.
+        try {
+            this.startSegment();
+            return true;
+
+        } catch (final IOException e) {
+            mSegment = null;
+            mDropped++;
+            LoggerFactory.Get().log(ELogType.DANGER, "Couldn't start a new capture segment, capturing stops: {}", e);
+            return false;
+
+        }
+    }
+
+    /**
+     * Captures the given line.
+     * 
+     * @param direction The direction of the line.
+     * @param line      The line, excluding the line break.
+     */
+    public synchronized void capture(final EDirection direction, final LineSlice line) {
+        if (!this.reserve(line.length())) {
+            return;
+        }
+        final int start = mSegment.position();
+
+        mSegment.position(start + 1);
+        mSegment.putInt(line.length()).putLong(System.nanoTime());
+        line.copyTo(mSegment);
+        mSegment.put(start, direction.code());
+
+    }
+
+    /**
+     * Captures the given line.
+     * 
+     * @param direction The direction of the line.
+     * @param line      The line, excluding the line break.
+     */
+    public synchronized void capture(final EDirection direction, final String line) {
+        final byte[] bytes = (line.startsWith(PASS) ? MASKED_PASS : line).getBytes(StandardCharsets.UTF_8);
+
+        if (!this.reserve(bytes.length)) {
+            return;
+        }
+        final int start = mSegment.position();
+
+        mSegment.position(start + 1);
+        mSegment.putInt(bytes.length).putLong(System.nanoTime()).put(bytes);
+        mSegment.put(start, direction.code());
+
+    }
+
+    /**
+     * The amount of lines dropped, because they didn't fit into a segment or a
+     * new segment couldn't be started.
+     * 
+     * @return The amount of dropped lines.
+     */
+    public synchronized long dropped() {
+        return mDropped;
+
+    }
+
+    /**
+     * Writes the current segment to disk and stops capturing, lines captured
+     * afterwards are ignored.
+     */
+    @Override
+    public synchronized void close() {
+        if (mSegment == null) {
+            return;
+        }
+        mSegment.force();
+        mSegment = null;
+
+    }
+}
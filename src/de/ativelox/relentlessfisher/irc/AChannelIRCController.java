@@ -0,0 +1,479 @@
+package de.ativelox.relentlessfisher.irc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import de.ativelox.relentlessfisher.capture.EDirection;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.framing.ILineHandler;
+import de.ativelox.relentlessfisher.irc.framing.LineFramer;
+import de.ativelox.relentlessfisher.irc.framing.LineSlice;
+import de.ativelox.relentlessfisher.irc.framing.OutboundQueue;
+import de.ativelox.relentlessfisher.irc.nio.EventLoop;
+import de.ativelox.relentlessfisher.irc.nio.ISelectionHandler;
+import de.ativelox.relentlessfisher.logging.ELogType;
+
+/**
+ * Provides an abstract implementation for the {@link IIRCController} interface
+ * based on a non-blocking {@link SocketChannel}. Reading is driven by an
+ * {@link EventLoop}, which only wakes up when data arrives. Incoming data is
+ * split into lines by a {@link LineFramer} without copying, only lines passing
+ * the clients' {@link AClient#getPrefilter() prefilter} are then decoded and
+ * dispatched to {@link AClient#onServerMessageReceived(String)}.<br>
+ * 
+ * Outgoing lines may be sent by any thread. They are queued into an
+ * {@link OutboundQueue} without locking, and written by the thread driving the
+ * loop, all lines pending by then coalesced into a single gathering write,
+ * highest {@link EPriority priority} first. Lines held back by twitchs' rate
+ * limit are written by a delayed task of the loop.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public abstract class AChannelIRCController extends AIRCController implements ISelectionHandler {
+
+    /**
+     * The capacity of the inbound buffer in bytes. Twitch allows up to 8192 bytes
+     * of tags in front of the 512 bytes of a regular IRC message.
+     */
+    private final static int INBOUND_CAPACITY = 16384;
+
+    /**
+     * The loop used to wait for incoming data.
+     */
+    protected final EventLoop mLoop;
+
+    /**
+     * Whether {@link AChannelIRCController#mLoop the loop} is owned by this
+     * controller and driven by {@link IIRCController#read()}, or shared with other
+     * controllers and driven by a thread of its own.
+     */
+    private final boolean mOwnsLoop;
+
+    /**
+     * The channel to the server specified by {@link AIRCController#mHost host} and
+     * {@link AIRCController#mPort port}.
+     */
+    protected volatile SocketChannel mChannel;
+
+    /**
+     * Splits incoming data into lines, holds at most one incomplete line
+     * in-between reads.
+     */
+    private final LineFramer mFramer;
+
+    /**
+     * Receives the lines split by the {@link AChannelIRCController#mFramer
+     * framer}, created once to not allocate on every read.
+     */
+    private final ILineHandler mLineHandler;
+
+    /**
+     * The frames waiting to be written to the {@link AChannelIRCController#mChannel
+     * channel}.
+     */
+    private final OutboundQueue mOutbound;
+
+    /**
+     * Drains the {@link AChannelIRCController#mOutbound outbound queue}, created
+     * once to not allocate on every send.
+     */
+    private final Runnable mFlush;
+
+    /**
+     * Drains the {@link AChannelIRCController#mOutbound outbound queue} once lines
+     * held back by the rate limit may be written, created once to not allocate
+     * whenever the limit is hit.
+     */
+    private final Runnable mResume;
+
+    /**
+     * Gets called for every frame written, created once to not allocate on every
+     * write.
+     */
+    private final OutboundQueue.ISentHandler mSentHandler;
+
+    /**
+     * Creates a new {@link AChannelIRCController}.
+     * 
+     * @param host The host (URI) to connect to.
+     * @param port The port on which to connect to the given host.
+     * 
+     * @throws IOException If the underlying {@link EventLoop} couldn't be created.
+     */
+    public AChannelIRCController(final String host, final int port) throws IOException {
+        this(host, port, new EventLoop(), true);
+
+    }
+
+    /**
+     * Creates a new {@link AChannelIRCController} which shares the given loop with
+     * other controllers. The loop has to be driven by a thread of its own, see
+     * {@link EventLoop#run()}, {@link IIRCController#read()} must not be called on
+     * such a controller.
+     * 
+     * @param host The host (URI) to connect to.
+     * @param port The port on which to connect to the given host.
+     * @param loop The loop shared with other controllers.
+     */
+    public AChannelIRCController(final String host, final int port, final EventLoop loop) {
+        this(host, port, loop, false);
+
+    }
+
+    /**
+     * Creates a new {@link AChannelIRCController}.
+     * 
+     * @param host     The host (URI) to connect to.
+     * @param port     The port on which to connect to the given host.
+     * @param loop     The loop used to wait for incoming data.
+     * @param ownsLoop Whether the given loop is driven by
+     *                 {@link IIRCController#read()}.
+     */
+    private AChannelIRCController(final String host, final int port, final EventLoop loop, final boolean ownsLoop) {
+        super(host, port);
+
+        mLoop = loop;
+        mOwnsLoop = ownsLoop;
+        mFramer = new LineFramer(INBOUND_CAPACITY);
+        mLineHandler = this::onLine;
+        mOutbound = new OutboundQueue();
+        mFlush = this::flush;
+        mResume = this::resume;
+        mSentHandler = this::onFrameSent;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#connect(java.lang.String)
+     */
+    @Override
+    public boolean connect(final String token) {
+        try {
+            final SocketChannel channel = SocketChannel.open(new InetSocketAddress(mHost, mPort));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            this.onTransportConnected(channel);
+            channel.configureBlocking(false);
+
+            mFramer.clear();
+            // whatever was meant for the previous connection makes no sense on this one.
+            mOutbound.clear();
+            mChannel = channel;
+
+            this.onChannelConnected(token);
+            // the transport may hold data read along with its handshake, which no readiness reports.
+            mLoop.register(channel, SelectionKey.OP_READ, this, true);
+
+        } catch (final IOException e) {
+            this.closeChannel();
+
+            mLogger.log(ELogType.WARNING, "Couldn't properly establish a connection to: {}:{}.", mHost, mPort);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#disconnect()
+     */
+    @Override
+    public boolean disconnect() {
+        return this.closeChannel();
+
+    }
+
+    /**
+     * Gets called once the channel to the server is established, while it is still
+     * in blocking mode. Used by transports which need to set up a session before
+     * any IRC data is exchanged, e.g. a TLS handshake. The channel is read once
+     * right after being registered to the loop, so data buffered by the transport
+     * meanwhile isn't left waiting for the next data to arrive.
+     * 
+     * @param channel The freshly connected channel.
+     * 
+     * @throws IOException If an I/O error occurs.
+     */
+    protected void onTransportConnected(final SocketChannel channel) throws IOException {
+
+    }
+
+    /**
+     * Reads data from the given channel into <tt>dst</tt>. Transports wrapping the
+     * IRC data, e.g. TLS, override this to unwrap what they read.
+     * 
+     * @param channel The channel to read from.
+     * @param dst     The buffer to read the IRC data into.
+     * @return The amount of IRC data read, possibly <tt>0</tt>, or <tt>-1</tt> if
+     *         the channel reached its end.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected int readTransport(final SocketChannel channel, final ByteBuffer dst) throws IOException {
+        return channel.read(dst);
+
+    }
+
+    /**
+     * Writes all of the given buffers to the given channel, by as few gathering
+     * writes as possible. Transports wrapping the IRC data, e.g. TLS, override
+     * this to wrap what they write. Calls are always serialized.
+     * 
+     * @param channel The channel to write to.
+     * @param srcs    The IRC data to write, the first <tt>length</tt> buffers of
+     *                which are written.
+     * @param length  The amount of buffers to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    protected void writeTransport(final SocketChannel channel, final ByteBuffer[] srcs, final int length)
+            throws IOException {
+        // IRC messages are tiny, the socket buffer practically never fills up.
+        while (srcs[length - 1].hasRemaining()) {
+            channel.write(srcs, 0, length);
+        }
+    }
+
+    /**
+     * Gets called once the channel to the server is established, but before any
+     * data is read from it. Used to log onto the server.
+     * 
+     * @param token The token used to authenticate.
+     * 
+     * @throws IOException If an I/O error occurs.
+     */
+    protected abstract void onChannelConnected(final String token) throws IOException;
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.nio.ISelectionHandler#onSelected(java.nio.
+     * channels.SelectionKey)
+     */
+    @Override
+    public void onSelected(final SelectionKey key) {
+        final SocketChannel channel = (SocketChannel) key.channel();
+
+        try {
+            int read = this.readTransport(channel, mFramer.buffer());
+
+            // drain everything available, the transport might hold more than fit in.
+            while (read > 0) {
+                this.dispatchLines();
+                read = this.readTransport(channel, mFramer.buffer());
+
+            }
+
+            if (read < 0) {
+                mLogger.log(ELogType.WARNING, "The server closed the connection.");
+                this.closeSelected(key);
+
+            }
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING,
+                    "Encountered an I/O issue while trying to read from the clients channel.");
+            this.closeSelected(key);
+
+        }
+
+    }
+
+    /**
+     * Stops selecting the channel of the given key and closes it, once the
+     * connection to the server ended or broke.
+     * 
+     * @param key The key of the channel.
+     */
+    private void closeSelected(final SelectionKey key) {
+        key.cancel();
+
+        try {
+            key.channel().close();
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't properly disconnect.");
+
+        }
+    }
+
+    /**
+     * Dispatches every complete line currently held by the framer, and keeps a
+     * possibly incomplete trailing line for the next read.
+     */
+    private void dispatchLines() {
+        final long oversized = mFramer.oversizedLines();
+        mFramer.frame(mLineHandler);
+
+        if (mFramer.oversizedLines() != oversized) {
+            mLogger.log(ELogType.WARNING, "Discarding an oversized line from the server.");
+        }
+    }
+
+    /**
+     * Gets called for every complete line received from the server.
+     * 
+     * @param line The line, only valid for the duration of this call.
+     */
+    private void onLine(final LineSlice line) {
+        if (mCapture != null) {
+            mCapture.capture(EDirection.INBOUND, line);
+        }
+
+        if (mClient.getPrefilter().accepts(line)) {
+            mClient.onServerMessageReceived(line.toString());
+        }
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#read()
+     */
+    @Override
+    public void read() {
+        if (!mOwnsLoop) {
+            throw new IllegalStateException("This controller is driven by a shared event loop.");
+        }
+        mLoop.runOnce();
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#sendRawData(java.lang.String)
+     */
+    @Override
+    public void sendRawData(final String data) {
+        this.sendFrame(Encode(data), EPriority.Of(data), null);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.AIRCController#sendFrame(java.nio.
+     * ByteBuffer, de.ativelox.relentlessfisher.irc.framing.EPriority,
+     * java.lang.Runnable)
+     */
+    @Override
+    public void sendFrame(final ByteBuffer frame, final EPriority priority, final Runnable onSent) {
+        if (mChannel == null) {
+            mLogger.log(ELogType.WARNING, "Couldn't send data, not connected.");
+            return;
+
+        }
+
+        if (!mOutbound.offer(frame, priority, onSent)) {
+            return;
+        }
+
+        // the loop thread, e.g. answering a line it just read, writes right away.
+        if (mLoop.inLoop()) {
+            this.flush();
+
+        } else {
+            mLoop.execute(mFlush);
+
+        }
+    }
+
+    /**
+     * Writes all frames pending in the outbound queue to the channel, on the
+     * thread driving the loop.
+     */
+    private void flush() {
+        final SocketChannel channel = mChannel;
+
+        try {
+            // failing the write rather than skipping the drain leaves the queue idle again.
+            final long delay = mOutbound.drain((frames, length) -> {
+                if (channel == null) {
+                    throw new IOException("Not connected.");
+                }
+                this.writeTransport(channel, frames, length);
+            }, mSentHandler);
+
+            if (delay >= 0) {
+                mLoop.schedule(mResume, delay);
+            }
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't send data to the server.");
+
+        }
+    }
+
+    /**
+     * Writes the lines held back by the rate limit, once the delay asked for by
+     * the outbound queue passed.
+     */
+    private void resume() {
+        if (mOutbound.resume()) {
+            this.flush();
+        }
+    }
+
+    /**
+     * The queue of the lines waiting to be written, e.g. to look at the metrics
+     * of its lanes or to change its rate limit.
+     * 
+     * @return The queue.
+     */
+    public OutboundQueue getOutbound() {
+        return mOutbound;
+
+    }
+
+    /**
+     * Gets called for every frame once it got written to the channel.
+     * 
+     * @param frame  The frame.
+     * @param onSent The callback sent along with the frame, possibly
+     *               <tt>null</tt>.
+     */
+    private void onFrameSent(final ByteBuffer frame, final Runnable onSent) {
+        if (onSent != null) {
+            onSent.run();
+        }
+
+        // only decoded if someone actually looks at it, after the line is out.
+        if (mCapture != null) {
+            mCapture.capture(EDirection.OUTBOUND, Decode(frame));
+        }
+        mLogger.log(ELogType.CLIENT, () -> Decode(frame));
+
+    }
+
+    /**
+     * Closes the current channel, if any.
+     * 
+     * @return <tt>True</tt> if the channel could be closed, <tt>false</tt>
+     *         otherwise.
+     */
+    private boolean closeChannel() {
+        final SocketChannel channel = mChannel;
+
+        if (channel == null) {
+            return true;
+        }
+
+        try {
+            channel.close();
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't properly disconnect.");
+            return false;
+
+        }
+        return true;
+    }
+}
@@ -1,105 +1,244 @@
-package de.ativelox.relentlessfisher.irc;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import de.ativelox.relentlessfisher.listeners.IConnectionListener;
-import de.ativelox.relentlessfisher.listeners.IJoinListener;
-import de.ativelox.relentlessfisher.logging.ELogType;
-import de.ativelox.relentlessfisher.logging.ILogger;
-import de.ativelox.relentlessfisher.logging.LoggerFactory;
-
-/**
- * A abstract implementation for a IRC Client, which mainly makes sure to
- * respond to IRC heartbeats.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public abstract class AClient implements Runnable {
-
-    /**
-     * The underlying controller, which manages connection to it's server.
-     */
-    protected final IIRCController mController;
-
-    /**
-     * The logger used to log information.
-     */
-    protected final ILogger mLogger;
-
-    /**
-     * All the objects wanting to receive callbacks when this application properly
-     * connected to twitchs' IRC server.
-     */
-    protected final List<IConnectionListener> mConnectionListeners;
-
-    /**
-     * All the objects wanting to receive callbacks when this application properly
-     * joins a channel.
-     */
-    protected final List<IJoinListener> mJoinListeners;
-
-    /**
-     * Creates a new {@link AClient}.
-     * 
-     * @param controller The controller which handles further server communication.
-     */
-    public AClient(final IIRCController controller) {
-	mController = controller;
-	mLogger = LoggerFactory.Get();
-	controller.register(this);
-
-	mConnectionListeners = new ArrayList<>();
-	mJoinListeners = new ArrayList<>();
-
-    }
-
-    /**
-     * Gets called by the underlying {@link IIRCController} when a message was sent
-     * to the client by the server.
-     * 
-     * @param serverMessage The (raw) message from the server.
-     */
-    public void onServerMessageReceived(final String serverMessage) {
-	if (serverMessage.contains("PING")) {
-	    this.send("PONG");
-	}
-	mLogger.log(ELogType.SERVER, serverMessage);
-
-    }
-
-    /**
-     * Registers the given listener to receive
-     * {@link IConnectionListener#onConnection()} callbacks.
-     * 
-     * @param listener The listener to receive callbacks.
-     */
-    public void register(final IConnectionListener listener) {
-	mConnectionListeners.add(listener);
-    }
-
-    /**
-     * Registers the given listener to receive {@link IJoinListener#onJoin(String)}
-     * callbacks.
-     * 
-     * @param listener The listener to receive callbacks.
-     */
-    public void register(final IJoinListener listener) {
-	mJoinListeners.add(listener);
-    }
-
-    @Override
-    public abstract void run();
-
-    /**
-     * Sends the given data to the underlying controllers server. Calls
-     * {@link IIRCController#sendRawData(String)}.
-     * 
-     * @param data The data to send.
-     */
-    public void send(final String data) {
-	mController.sendRawData(data);
-
-    }
-}
+package de.ativelox.relentlessfisher.irc;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.framing.LinePrefilter;
+import de.ativelox.relentlessfisher.irc.message.CommandTable;
+import de.ativelox.relentlessfisher.irc.message.IMessageHandler;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * A abstract implementation for a IRC Client, which mainly makes sure to
+ * respond to IRC heartbeats. Every message is routed to the single
+ * {@link IMessageHandler} registered for its command, subclasses register
+ * handlers for the commands they act on with
+ * {@link AClient#registerHandler(String, IMessageHandler)}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public abstract class AClient implements Runnable {
+
+    /**
+     * The underlying controller, which manages connection to it's server.
+     */
+    protected final IIRCController mController;
+
+    /**
+     * The logger used to log information.
+     */
+    protected final ILogger mLogger;
+
+    /**
+     * All the objects wanting to receive callbacks when this application properly
+     * connected to twitchs' IRC server.
+     */
+    protected final List<IConnectionListener> mConnectionListeners;
+
+    /**
+     * All the objects wanting to receive callbacks when this application properly
+     * joins a channel.
+     */
+    protected final List<IJoinListener> mJoinListeners;
+
+    /**
+     * The command of a heartbeat.
+     */
+    protected static final String PING = "PING";
+
+    /**
+     * Decides which lines from the server reach
+     * {@link AClient#onServerMessageReceived(String)} at all, accepts exactly the
+     * commands handlers are registered for.
+     */
+    protected final LinePrefilter mPrefilter;
+
+    /**
+     * The handlers, by the command they handle.
+     */
+    private final CommandTable mHandlers;
+
+    /**
+     * The amount of messages no handler was registered for.
+     */
+    private long mUnhandled;
+
+    /**
+     * The parameter of the <tt>PING</tt> answered last, the server always sends
+     * the same one. Only accessed by the reading thread.
+     */
+    private String mPongToken;
+
+    /**
+     * The <tt>PONG</tt> answering {@link AClient#mPongToken}, encoded once. Only
+     * accessed by the reading thread.
+     */
+    private ByteBuffer mPongFrame;
+
+    /**
+     * The message currently received, parsed by
+     * {@link AClient#onServerMessageReceived(String)} and reused for every line.
+     * Only valid during that call.
+     */
+    protected final IRCMessage mMessage;
+
+    /**
+     * Creates a new {@link AClient}.
+     * 
+     * @param controller The controller which handles further server communication.
+     */
+    public AClient(final IIRCController controller) {
+        mController = controller;
+        mLogger = LoggerFactory.Get();
+        mPrefilter = new LinePrefilter();
+        mMessage = new IRCMessage();
+        mHandlers = new CommandTable();
+        controller.register(this);
+
+        mConnectionListeners = new ArrayList<>();
+        mJoinListeners = new ArrayList<>();
+
+        this.registerHandler(PING, this::onPing);
+    }
+
+    /**
+     * The prefilter the underlying {@link IIRCController} applies to every line,
+     * before passing it to {@link AClient#onServerMessageReceived(String)}.
+     * 
+     * @return The prefilter of this client.
+     */
+    public LinePrefilter getPrefilter() {
+        return mPrefilter;
+
+    }
+
+    /**
+     * Gets called by the underlying {@link IIRCController} when a message was sent
+     * to the client by the server, and passed its
+     * {@link AClient#getPrefilter() prefilter}. Parses the message and passes it
+     * to the handler registered for its command, messages without a handler are
+     * counted and skipped.
+     * 
+     * @param serverMessage The (raw) message from the server.
+     */
+    public void onServerMessageReceived(final String serverMessage) {
+        mLogger.log(ELogType.SERVER, serverMessage);
+
+        if (!mMessage.parse(serverMessage)) {
+            mLogger.log(ELogType.WARNING, "Received a malformed message from the server.");
+            return;
+
+        }
+        final IMessageHandler handler = mHandlers.get(mMessage);
+
+        if (handler == null) {
+            mUnhandled++;
+            return;
+
+        }
+        handler.onMessage(mMessage);
+
+    }
+
+    /**
+     * Answers a heartbeat of the server, echoing its parameter. The answer is
+     * only encoded again if the parameter changed, which it practically never
+     * does.
+     * 
+     * @param message The <tt>PING</tt> message.
+     */
+    protected void onPing(final IRCMessage message) {
+        final String token = message.getTrailing();
+
+        if (mPongFrame == null || !Objects.equals(token, mPongToken)) {
+            mPongFrame = AIRCController.Encode(token == null ? "PONG" : "PONG :" + token);
+            mPongToken = token;
+
+        }
+        this.sendFrame(mPongFrame, EPriority.KEEPALIVE, null);
+    }
+
+    /**
+     * Registers the given handler for all messages with the given command,
+     * replacing the handler registered before, if any. Lines with the command
+     * also pass the {@link AClient#getPrefilter() prefilter} from now on. Has to
+     * be called before connecting, usually in the constructor.
+     * 
+     * @param command The command, e.g. <tt>PING</tt> or <tt>376</tt>.
+     * @param handler The handler.
+     */
+    protected void registerHandler(final String command, final IMessageHandler handler) {
+        mHandlers.put(command, handler);
+        mPrefilter.accept(command);
+
+    }
+
+    /**
+     * The amount of messages received so far, which had no handler registered
+     * for their command.
+     * 
+     * @return The amount of unhandled messages.
+     */
+    public long getUnhandledCount() {
+        return mUnhandled;
+
+    }
+
+    /**
+     * Registers the given listener to receive
+     * {@link IConnectionListener#onConnection()} callbacks.
+     * 
+     * @param listener The listener to receive callbacks.
+     */
+    public void register(final IConnectionListener listener) {
+        mConnectionListeners.add(listener);
+    }
+
+    /**
+     * Registers the given listener to receive {@link IJoinListener#onJoin(String)}
+     * callbacks.
+     * 
+     * @param listener The listener to receive callbacks.
+     */
+    public void register(final IJoinListener listener) {
+        mJoinListeners.add(listener);
+    }
+
+    @Override
+    public abstract void run();
+
+    /**
+     * Sends the given data to the underlying controllers server. Calls
+     * {@link IIRCController#sendRawData(String)}.
+     * 
+     * @param data The data to send.
+     */
+    public void send(final String data) {
+        mController.sendRawData(data);
+
+    }
+
+    /**
+     * Sends the given pre-encoded line to the underlying controllers server.
+     * Calls {@link IIRCController#sendFrame(ByteBuffer, EPriority, Runnable)}.
+     * 
+     * @param frame    The UTF-8 encoded line, including its line break, left
+     *                 untouched.
+     * @param priority The priority of the line.
+     * @param onSent   Gets called once the line got written to the socket,
+     *                 <tt>null</tt> if not needed.
+     */
+    public void sendFrame(final ByteBuffer frame, final EPriority priority, final Runnable onSent) {
+        mController.sendFrame(frame, priority, onSent);
+
+    }
+}
@@ -1,80 +1,139 @@
-package de.ativelox.relentlessfisher.irc;
-
-import java.io.BufferedReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-
-import de.ativelox.relentlessfisher.logging.ILogger;
-import de.ativelox.relentlessfisher.logging.LoggerFactory;
-
-/**
- * Provides an abstract implementation for the {@link IIRCController} interface.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public abstract class AIRCController implements IIRCController {
-
-    /**
-     * The host (URI) to which this controller maintains connection.
-     */
-    protected final String mHost;
-
-    /**
-     * The port on which to connect to the {@link AIRCController#mHost host}.
-     */
-    protected final int mPort;
-
-    /**
-     * A <tt>BufferedReader</tt> which is used to read from the servers
-     * <tt>OutputStream</tt>.
-     */
-    protected BufferedReader mReader;
-
-    /**
-     * A <tt>PrintWriter</tt> which is used to write to the servers
-     * <tt>InputStream</tt>.
-     */
-    protected PrintWriter mWriter;
-
-    /**
-     * The logger used to log information.
-     */
-    protected ILogger mLogger;
-
-    /**
-     * The socket to the server specified by {@link AIRCController#mHost host} and
-     * {@link AIRCController#mPort port}.
-     */
-    protected Socket mSocket;
-
-    /**
-     * The client managing top-level interaction to this controller.
-     */
-    protected AClient mClient;
-
-    /**
-     * Creates a new {@link AIRCController}.
-     * 
-     * @param host The host (URI) to connect to.
-     * @param port The port on which to connect to the given host.
-     */
-    public AIRCController(final String host, final int port) {
-	mHost = host;
-	mPort = port;
-
-	mLogger = LoggerFactory.Get();
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.IIRCController#register(de.ativelox.
-     * relentlessfisher.irc.AClient)
-     */
-    @Override
-    public void register(final AClient client) {
-	mClient = client;
-
-    }
-}
+package de.ativelox.relentlessfisher.irc;
+
+import java.io.BufferedReader;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import de.ativelox.relentlessfisher.capture.TrafficCapture;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * Provides an abstract implementation for the {@link IIRCController} interface.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public abstract class AIRCController implements IIRCController {
+
+    /**
+     * The host (URI) to which this controller maintains connection.
+     */
+    protected final String mHost;
+
+    /**
+     * The port on which to connect to the {@link AIRCController#mHost host}.
+     */
+    protected final int mPort;
+
+    /**
+     * A <tt>BufferedReader</tt> which is used to read from the servers
+     * <tt>OutputStream</tt>.
+     */
+    protected BufferedReader mReader;
+
+    /**
+     * The logger used to log information.
+     */
+    protected ILogger mLogger;
+
+    /**
+     * The socket to the server specified by {@link AIRCController#mHost host} and
+     * {@link AIRCController#mPort port}.
+     */
+    protected Socket mSocket;
+
+    /**
+     * The client managing top-level interaction to this controller.
+     */
+    protected AClient mClient;
+
+    /**
+     * The capture of the raw traffic, <tt>null</tt> if it isn't captured.
+     */
+    protected TrafficCapture mCapture;
+
+    /**
+     * Creates a new {@link AIRCController}.
+     * 
+     * @param host The host (URI) to connect to.
+     * @param port The port on which to connect to the given host.
+     */
+    public AIRCController(final String host, final int port) {
+        mHost = host;
+        mPort = port;
+
+        mLogger = LoggerFactory.Get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#register(de.ativelox.
+     * relentlessfisher.irc.AClient)
+     */
+    @Override
+    public void register(final AClient client) {
+        mClient = client;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#setCapture(de.ativelox.
+     * relentlessfisher.capture.TrafficCapture)
+     */
+    @Override
+    public void setCapture(final TrafficCapture capture) {
+        mCapture = capture;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#sendFrame(java.nio.
+     * ByteBuffer, de.ativelox.relentlessfisher.irc.framing.EPriority,
+     * java.lang.Runnable)
+     */
+    @Override
+    public void sendFrame(final ByteBuffer frame, final EPriority priority, final Runnable onSent) {
+        // controllers without a channel to write to just decode it again, in order.
+        this.sendRawData(Decode(frame));
+
+        if (onSent != null) {
+            onSent.run();
+        }
+    }
+
+    /**
+     * Encodes the given line into a frame, which can be sent by
+     * {@link IIRCController#sendFrame(ByteBuffer, EPriority, Runnable)} as often
+     * as needed.
+     * 
+     * @param line The line, excluding its line break.
+     * @return The read-only, UTF-8 encoded frame, including the line break.
+     */
+    public static ByteBuffer Encode(final String line) {
+        return ByteBuffer.wrap((line + "\r\n").getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+
+    }
+
+    /**
+     * Decodes the given frame into the line it holds.
+     * 
+     * @param frame The UTF-8 encoded line, including its line break, left
+     *              untouched.
+     * @return The line, excluding its line break.
+     */
+    protected static String Decode(final ByteBuffer frame) {
+        final String line = StandardCharsets.UTF_8.decode(frame.duplicate()).toString();
+
+        return line.endsWith("\r\n") ? line.substring(0, line.length() - 2) : line;
+
+    }
+}
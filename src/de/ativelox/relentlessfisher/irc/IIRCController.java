@@ -1,90 +1,122 @@
-package de.ativelox.relentlessfisher.irc;
-
-/**
- * 
- * Provides a very incomplete interface for the <tt>RFC 1459</tt> protocol. The
- * specifications can be found here: <a href=
- * "https://tools.ietf.org/html/rfc1459.html">https://tools.ietf.org/html/rfc1459.html</a>.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public interface IIRCController {
-
-    /**
-     * Connects this controller to the client's specified <tt>(host, port)</tt>
-     * pair.
-     * 
-     * @return <tt>True</tt> if the connection was successful, <tt>false</tt>
-     *         otherwise.
-     */
-    boolean connect(final String token);
-
-    /**
-     * Disconnects this controller from the client's specified <tt>(host, port)</tt>
-     * pair.
-     * 
-     * @return <tt>True</tt> if the disconnection was successful, <tt>false</tt>
-     *         otherwise.
-     */
-    boolean disconnect();
-
-    /**
-     * The JOIN command is used by client to start listening a specific channel.
-     * Whether or not a client is allowed to join a channel is checked only by the
-     * server the client is connected to; all other servers automatically add the
-     * user to the channel when it is received from other servers.<br>
-     * 
-     * The actual functionality of this command is given by the implementation.
-     * 
-     * @param channel The channel to join.
-     * @param key     The key (password) used to join the channel if needed.
-     * 
-     * @see <a href="https://tools.ietf.org/html/rfc1459.html#section-4.2.1">JOIN
-     *      Protocol</a>
-     */
-    void JOIN(final String channel, final String key);
-
-    /**
-     * The PART message causes the client sending the message to be removed from the
-     * list of active users for all given channels listed in the parameter
-     * string.<br>
-     * 
-     * The actual functionality of this command is given by the implementation.
-     * 
-     * @param channel The channel to part from.
-     */
-    void PART(final String channel);
-
-    /**
-     * PRIVMSG is used to send private messages between users. <tt>receiver</tt> is
-     * the nickname of the receiver of the message. <br>
-     * 
-     * The actual functionality of this command is given by the implementation.
-     * 
-     * @param receiver     The name of the receiver of the message.
-     * @param textToBeSent The text to send to the receiver.
-     */
-    void PRIVMSG(final String receiver, final String textToBeSent);
-
-    /**
-     * Reads messages from the server.
-     */
-    void read();
-
-    /**
-     * Registers the client managing this controller to this controller, used for
-     * callbacks etc.
-     * 
-     * @param client The client managing this controller.
-     */
-    void register(final AClient client);
-
-    /**
-     * Sends the given <tt>data</tt> String to the connected servers' input stream.
-     * 
-     * @param data The data to send to the connected server's input stream.
-     */
-    void sendRawData(final String data);
-
-}
+package de.ativelox.relentlessfisher.irc;
+
+import java.nio.ByteBuffer;
+
+import de.ativelox.relentlessfisher.capture.TrafficCapture;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+
+/**
+ * 
+ * Provides a very incomplete interface for the <tt>RFC 1459</tt> protocol. The
+ * specifications can be found here: <a href=
+ * "https://tools.ietf.org/html/rfc1459.html">https://tools.ietf.org/html/rfc1459.html</a>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface IIRCController {
+
+    /**
+     * Connects this controller to the client's specified <tt>(host, port)</tt>
+     * pair.
+     * 
+     * @return <tt>True</tt> if the connection was successful, <tt>false</tt>
+     *         otherwise.
+     */
+    boolean connect(final String token);
+
+    /**
+     * Disconnects this controller from the client's specified <tt>(host, port)</tt>
+     * pair.
+     * 
+     * @return <tt>True</tt> if the disconnection was successful, <tt>false</tt>
+     *         otherwise.
+     */
+    boolean disconnect();
+
+    /**
+     * The JOIN command is used by client to start listening a specific channel.
+     * Whether or not a client is allowed to join a channel is checked only by the
+     * server the client is connected to; all other servers automatically add the
+     * user to the channel when it is received from other servers.<br>
+     * 
+     * The actual functionality of this command is given by the implementation.
+     * 
+     * @param channel The channel to join.
+     * @param key     The key (password) used to join the channel if needed.
+     * 
+     * @see <a href="https://tools.ietf.org/html/rfc1459.html#section-4.2.1">JOIN
+     *      Protocol</a>
+     */
+    void JOIN(final String channel, final String key);
+
+    /**
+     * The PART message causes the client sending the message to be removed from the
+     * list of active users for all given channels listed in the parameter
+     * string.<br>
+     * 
+     * The actual functionality of this command is given by the implementation.
+     * 
+     * @param channel The channel to part from.
+     */
+    void PART(final String channel);
+
+    /**
+     * PRIVMSG is used to send private messages between users. <tt>receiver</tt> is
+     * the nickname of the receiver of the message. <br>
+     * 
+     * The actual functionality of this command is given by the implementation.
+     * 
+     * @param receiver     The name of the receiver of the message.
+     * @param textToBeSent The text to send to the receiver.
+     */
+    void PRIVMSG(final String receiver, final String textToBeSent);
+
+    /**
+     * Reads messages from the server, blocking until at least one message arrived
+     * or the connection got interrupted. Every message read gets passed to
+     * {@link AClient#onServerMessageReceived(String)}.
+     */
+    void read();
+
+    /**
+     * Registers the client managing this controller to this controller, used for
+     * callbacks etc.
+     * 
+     * @param client The client managing this controller.
+     */
+    void register(final AClient client);
+
+    /**
+     * Sends the given <tt>data</tt> String to the connected servers' input stream,
+     * with the priority given by {@link EPriority#Of(String)}.
+     * 
+     * @param data The data to send to the connected server's input stream.
+     */
+    void sendRawData(final String data);
+
+    /**
+     * Sends the given pre-encoded line to the connected server, skipping the
+     * encoding done by {@link IIRCController#sendRawData(String)}. Meant for
+     * lines sent often and in a hurry, which are encoded once up front.
+     * 
+     * @param frame    The UTF-8 encoded line, including its line break. Only its
+     *                 remaining bytes are sent, its position is left untouched,
+     *                 so the same frame can be sent again.
+     * @param priority The priority of the line, lines of higher priorities are
+     *                 sent first.
+     * @param onSent   Gets called by the sending thread once the line got
+     *                 written to the socket, <tt>null</tt> if not needed. Not
+     *                 called if the line couldn't be sent.
+     */
+    void sendFrame(final ByteBuffer frame, final EPriority priority, final Runnable onSent);
+
+    /**
+     * Sets the capture every line received from and sent to the server is
+     * written to, before any filtering. Should be set before connecting.
+     * 
+     * @param capture The capture, or <tt>null</tt> to stop capturing.
+     */
+    void setCapture(final TrafficCapture capture);
+
+}
@@ -0,0 +1,85 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+/**
+ * Provides the priorities of outgoing lines, in descending order. Every
+ * priority has a lane of its own in the {@link OutboundQueue}, a line is only
+ * written once no line of a higher priority is waiting to be written.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public enum EPriority {
+
+    /**
+     * Lines keeping the connection alive, i.e. answers to heartbeats and the
+     * login. Twitch doesn't count them against its rate limits.
+     */
+    KEEPALIVE(false),
+
+    /**
+     * Lines the game waits for, e.g. a <tt>!catch</tt> after a bite.
+     */
+    GAME_CRITICAL(true),
+
+    /**
+     * Everything else, e.g. casting again or joining a channel.
+     */
+    BEST_EFFORT(true);
+
+    /**
+     * All priorities in descending order, kept to not copy them on every drain.
+     */
+    final static EPriority[] PRIORITIES = EPriority.values();
+
+    /**
+     * The commands of the lines sent with {@link EPriority#KEEPALIVE}, including
+     * the space separating them from their parameters.
+     */
+    private final static String[] KEEPALIVE_COMMANDS = { "PONG ", "PING ", "PASS ", "NICK ", "CAP " };
+
+    /**
+     * Whether the lines of this priority count against twitchs' rate limits.
+     */
+    private final boolean mLimited;
+
+    /**
+     * Creates a new {@link EPriority}.
+     * 
+     * @param limited Whether the lines of this priority count against twitchs'
+     *                rate limits.
+     */
+    private EPriority(final boolean limited) {
+        mLimited = limited;
+
+    }
+
+    /**
+     * Whether the lines of this priority count against twitchs' rate limits.
+     * 
+     * @return <tt>True</tt> if they do, <tt>false</tt> otherwise.
+     */
+    public boolean isLimited() {
+        return mLimited;
+
+    }
+
+    /**
+     * The priority of the given line, if the sender didn't tell. Lines keeping
+     * the connection alive are {@link EPriority#KEEPALIVE}, everything else is
+     * {@link EPriority#BEST_EFFORT}, since only the sender knows whether the game
+     * waits for it.
+     * 
+     * @param line The line, excluding its line break.
+     * @return The priority.
+     */
+    public static EPriority Of(final String line) {
+        for (final String command : KEEPALIVE_COMMANDS) {
+            if (line.startsWith(command) || line.length() == command.length() - 1
+                    && line.regionMatches(0, command, 0, line.length())) {
+                return KEEPALIVE;
+            }
+        }
+        return BEST_EFFORT;
+
+    }
+}
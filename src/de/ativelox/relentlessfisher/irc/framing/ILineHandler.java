@@ -0,0 +1,20 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+/**
+ * Provides callbacks for objects receiving the lines split by a
+ * {@link LineFramer}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface ILineHandler {
+
+    /**
+     * Gets called for every complete line. The given slice is only valid for the
+     * duration of this call, since it gets reused for the next line.
+     * 
+     * @param line The line, excluding its line ending.
+     */
+    void onLine(final LineSlice line);
+
+}
@@ -0,0 +1,152 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits inbound IRC traffic into lines, directly on a reusable direct
+ * {@link ByteBuffer}. Lines are handed out as a single reused
+ * {@link LineSlice}, so framing itself doesn't allocate, a <tt>String</tt> only
+ * gets created for lines a handler actually decodes.<br>
+ * 
+ * Lines are terminated by <tt>\n</tt>, an optional preceding <tt>\r</tt> gets
+ * stripped. A line longer than the buffer gets dropped as a whole.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class LineFramer {
+
+    /**
+     * The buffer data gets read into, always in write mode between calls.
+     */
+    private final ByteBuffer mBuffer;
+
+    /**
+     * The slice handed to the handler for every line.
+     */
+    private final LineSlice mSlice;
+
+    /**
+     * The index up to which the pending data has already been searched for a
+     * line feed.
+     */
+    private int mScanned;
+
+    /**
+     * Whether the rest of an oversized line is being dropped.
+     */
+    private boolean mDiscarding;
+
+    /**
+     * The amount of lines dropped for being longer than the buffer.
+     */
+    private long mOversized;
+
+    /**
+     * Creates a new {@link LineFramer}.
+     * 
+     * @param capacity The size of the buffer, which is also the maximum length of
+     *                 a line.
+     */
+    public LineFramer(final int capacity) {
+        mBuffer = ByteBuffer.allocateDirect(capacity);
+        mSlice = new LineSlice(mBuffer, new byte[capacity]);
+
+    }
+
+    /**
+     * The buffer to read inbound data into. The buffer must be left in write
+     * mode, i.e. data gets appended at its position.
+     * 
+     * @return The buffer.
+     */
+    public ByteBuffer buffer() {
+        return mBuffer;
+
+    }
+
+    /**
+     * Drops all buffered data.
+     */
+    public void clear() {
+        mBuffer.clear();
+        mScanned = 0;
+        mDiscarding = false;
+
+    }
+
+    /**
+     * Hands all complete lines in the buffer to the given handler, and keeps a
+     * trailing partial line for the next call.
+     * 
+     * @param handler The handler receiving the lines.
+     * @return The amount of lines handed to the handler.
+     */
+    public int frame(final ILineHandler handler) {
+        final int end = mBuffer.position();
+
+        int start = 0;
+        int lines = 0;
+        int lf = this.indexOfLineFeed(mScanned, end);
+
+        while (lf >= 0) {
+            if (mDiscarding) {
+                mDiscarding = false;
+
+            } else {
+                int length = lf - start;
+
+                if (length > 0 && mBuffer.get(lf - 1) == '\r') {
+                    length--;
+                }
+                mSlice.set(start, length);
+                handler.onLine(mSlice);
+                lines++;
+
+            }
+            start = lf + 1;
+            lf = this.indexOfLineFeed(start, end);
+
+        }
+
+        if (start == 0 && end == mBuffer.capacity()) {
+            // no line fits into the buffer, drop it until the next line feed.
+            if (!mDiscarding) {
+                mOversized++;
+            }
+            mDiscarding = true;
+            mBuffer.clear();
+            mScanned = 0;
+
+        } else {
+            mBuffer.flip();
+            mBuffer.position(start);
+            mBuffer.compact();
+            mScanned = end - start;
+
+        }
+        return lines;
+    }
+
+    /**
+     * The amount of lines dropped so far, for being longer than the buffer.
+     * 
+     * @return The amount of dropped lines.
+     */
+    public long oversizedLines() {
+        return mOversized;
+
+    }
+
+    /**
+     * Searches the buffer for a line feed.
+     * 
+     * @param from The index to start searching at.
+     * @param to   The index to stop searching at, exclusive.
+     * @return The index of the line feed, or <tt>-1</tt> if there is none.
+     */
+    private int indexOfLineFeed(final int from, final int to) {
+        return LineSlice.IndexOf(mBuffer, (byte) '\n', from, to);
+
+    }
+}
@@ -0,0 +1,217 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Classifies server lines by their IRC command before they get decoded, to
+ * drop traffic a client never acts on (e.g. the chat of a busy channel) as
+ * early and as cheap as possible. The command is located by skipping the
+ * optional tags (<tt>@...</tt>) and prefix (<tt>:...</tt>) of a line.<br>
+ * 
+ * A prefilter without any accepted commands accepts every line. The counters
+ * are only updated by the thread reading the lines, other threads should only
+ * read them for reporting.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class LinePrefilter {
+
+    /**
+     * The accepted commands, encoded.
+     */
+    private volatile byte[][] mCommands;
+
+    /**
+     * The accepted commands.
+     */
+    private volatile String[] mNames;
+
+    /**
+     * The amount of lines accepted.
+     */
+    private long mAccepted;
+
+    /**
+     * The amount of lines dropped.
+     */
+    private long mDropped;
+
+    /**
+     * Creates a new {@link LinePrefilter}, which accepts every line until
+     * commands get added with {@link LinePrefilter#accept(String...)}.
+     */
+    public LinePrefilter() {
+        mCommands = new byte[0][];
+        mNames = new String[0];
+
+    }
+
+    /**
+     * Adds the given commands to the accepted ones, e.g. <tt>PING</tt> or
+     * <tt>376</tt>.
+     * 
+     * @param commands The commands to accept.
+     */
+    public synchronized void accept(final String... commands) {
+        final byte[][] encoded = new byte[mCommands.length + commands.length][];
+        final String[] names = new String[mNames.length + commands.length];
+
+        System.arraycopy(mCommands, 0, encoded, 0, mCommands.length);
+        System.arraycopy(mNames, 0, names, 0, mNames.length);
+
+        for (int i = 0; i < commands.length; i++) {
+            encoded[mCommands.length + i] = commands[i].getBytes(StandardCharsets.US_ASCII);
+            names[mNames.length + i] = commands[i];
+
+        }
+        mCommands = encoded;
+        mNames = names;
+
+    }
+
+    /**
+     * Checks whether the given line carries an accepted command, without
+     * decoding it.
+     * 
+     * @param line The line to check.
+     * @return <tt>True</tt> if the line should be processed, <tt>false</tt> if it
+     *         can be dropped.
+     */
+    public boolean accepts(final LineSlice line) {
+        final byte[][] commands = mCommands;
+
+        if (commands.length == 0) {
+            mAccepted++;
+            return true;
+
+        }
+        final int start = CommandStart(line);
+
+        if (start >= 0) {
+            int end = line.indexOf((byte) ' ', start);
+
+            if (end < 0) {
+                end = line.length();
+            }
+
+            for (final byte[] command : commands) {
+                if (command.length == end - start && line.regionMatches(start, command)) {
+                    mAccepted++;
+                    return true;
+
+                }
+            }
+        }
+        mDropped++;
+        return false;
+    }
+
+    /**
+     * Checks whether the given, already decoded line carries an accepted command.
+     * 
+     * @param line The line to check.
+     * @return <tt>True</tt> if the line should be processed, <tt>false</tt> if it
+     *         can be dropped.
+     */
+    public boolean accepts(final String line) {
+        final String[] names = mNames;
+
+        if (names.length == 0) {
+            mAccepted++;
+            return true;
+
+        }
+        final int start = CommandStart(line);
+
+        if (start >= 0) {
+            int end = line.indexOf(' ', start);
+
+            if (end < 0) {
+                end = line.length();
+            }
+
+            for (final String name : names) {
+                if (name.length() == end - start && line.regionMatches(start, name, 0, name.length())) {
+                    mAccepted++;
+                    return true;
+
+                }
+            }
+        }
+        mDropped++;
+        return false;
+    }
+
+    /**
+     * Locates the command of the given line, by skipping its tags and prefix.
+     * 
+     * @param line The line.
+     * @return The index of the command, or <tt>-1</tt> if the line is malformed.
+     */
+    private static int CommandStart(final LineSlice line) {
+        int start = 0;
+
+        if (line.length() > 0 && line.byteAt(0) == '@') {
+            start = line.indexOf((byte) ' ', 0) + 1;
+
+            if (start == 0) {
+                return -1;
+            }
+        }
+        if (start < line.length() && line.byteAt(start) == ':') {
+            start = line.indexOf((byte) ' ', start) + 1;
+
+            if (start == 0) {
+                return -1;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Locates the command of the given line, by skipping its tags and prefix.
+     * 
+     * @param line The line.
+     * @return The index of the command, or <tt>-1</tt> if the line is malformed.
+     */
+    private static int CommandStart(final String line) {
+        int start = 0;
+
+        if (line.startsWith("@")) {
+            start = line.indexOf(' ') + 1;
+
+            if (start == 0) {
+                return -1;
+            }
+        }
+        if (line.startsWith(":", start)) {
+            start = line.indexOf(' ', start) + 1;
+
+            if (start == 0) {
+                return -1;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * The amount of lines accepted so far.
+     * 
+     * @return The amount of accepted lines.
+     */
+    public long accepted() {
+        return mAccepted;
+
+    }
+
+    /**
+     * The amount of lines dropped so far.
+     * 
+     * @return The amount of dropped lines.
+     */
+    public long dropped() {
+        return mDropped;
+
+    }
+}
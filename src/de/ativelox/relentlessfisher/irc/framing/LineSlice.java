@@ -0,0 +1,199 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Provides a lightweight view onto a single line held by the buffer of a
+ * {@link LineFramer}, given by an offset and a length. A slice gets reused for
+ * every line, so inspecting it doesn't allocate, only
+ * {@link LineSlice#toString()} creates a <tt>String</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class LineSlice {
+
+    /**
+     * The lowest bit of every byte set.
+     */
+    private final static long LOW_BITS = 0x0101010101010101L;
+
+    /**
+     * The highest bit of every byte set.
+     */
+    private final static long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * The buffer holding the line.
+     */
+    private final ByteBuffer mBuffer;
+
+    /**
+     * A scratch array used to decode the line.
+     */
+    private final byte[] mScratch;
+
+    /**
+     * The index of the first byte of the line in the buffer.
+     */
+    private int mOffset;
+
+    /**
+     * The amount of bytes of the line.
+     */
+    private int mLength;
+
+    /**
+     * Creates a new {@link LineSlice}.
+     * 
+     * @param buffer  The buffer holding the lines.
+     * @param scratch A scratch array, at least as large as the longest line.
+     */
+    LineSlice(final ByteBuffer buffer, final byte[] scratch) {
+        mBuffer = buffer;
+        mScratch = scratch;
+
+    }
+
+    /**
+     * Moves this slice onto another line.
+     * 
+     * @param offset The index of the first byte of the line in the buffer.
+     * @param length The amount of bytes of the line.
+     */
+    void set(final int offset, final int length) {
+        mOffset = offset;
+        mLength = length;
+
+    }
+
+    /**
+     * The byte at the given index of this line.
+     * 
+     * @param index The index, relative to the start of this line.
+     * @return The byte.
+     */
+    public byte byteAt(final int index) {
+        return mBuffer.get(mOffset + index);
+
+    }
+
+    /**
+     * Copies this line into the given array.
+     * 
+     * @param dst    The array to copy into.
+     * @param offset The index in <tt>dst</tt> to start copying to.
+     */
+    public void copyTo(final byte[] dst, final int offset) {
+        final int position = mBuffer.position();
+
+        mBuffer.position(mOffset);
+        mBuffer.get(dst, offset, mLength);
+        mBuffer.position(position);
+
+    }
+
+    /**
+     * Copies this line into the given buffer, at its position.
+     * 
+     * @param dst The buffer to copy into, its position is advanced by the length
+     *            of this line.
+     */
+    public void copyTo(final ByteBuffer dst) {
+        final int position = mBuffer.position();
+        final int limit = mBuffer.limit();
+
+        mBuffer.limit(mOffset + mLength).position(mOffset);
+        dst.put(mBuffer);
+        mBuffer.limit(limit).position(position);
+
+    }
+
+    /**
+     * The index of the first occurrence of the given byte in this line, starting
+     * at <tt>from</tt>.
+     * 
+     * @param b    The byte to search for.
+     * @param from The index to start searching at.
+     * @return The index relative to the start of this line, or <tt>-1</tt> if the
+     *         byte doesn't occur.
+     */
+    public int indexOf(final byte b, final int from) {
+        final int index = IndexOf(mBuffer, b, mOffset + from, mOffset + mLength);
+
+        return index < 0 ? -1 : index - mOffset;
+    }
+
+    /**
+     * Searches the given buffer for a byte, eight bytes at a time.
+     * 
+     * @param buffer The buffer to search.
+     * @param b      The byte to search for.
+     * @param from   The index to start searching at.
+     * @param to     The index to stop searching at, exclusive.
+     * @return The index of the byte, or <tt>-1</tt> if it doesn't occur.
+     */
+    static int IndexOf(final ByteBuffer buffer, final byte b, final int from, final int to) {
+        final long pattern = (b & 0xFFL) * LOW_BITS;
+        int i = from;
+
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            final long word = buffer.getLong(i) ^ pattern;
+
+            // a byte of the word is zero, i.e. the one searched for, only if this is non-zero.
+            if (((word - LOW_BITS) & ~word & HIGH_BITS) != 0) {
+                break;
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The amount of bytes of this line.
+     * 
+     * @return The length.
+     */
+    public int length() {
+        return mLength;
+
+    }
+
+    /**
+     * Checks whether this line contains the given bytes at the given index.
+     * 
+     * @param index The index relative to the start of this line.
+     * @param bytes The bytes to compare.
+     * @return <tt>True</tt> if the bytes match, <tt>false</tt> otherwise.
+     */
+    public boolean regionMatches(final int index, final byte[] bytes) {
+        if (index < 0 || index + bytes.length > mLength) {
+            return false;
+        }
+
+        for (int i = 0; i < bytes.length; i++) {
+            if (mBuffer.get(mOffset + index + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes this line (UTF-8), which is the only operation on a slice that
+     * allocates.
+     * 
+     * @return The line.
+     */
+    @Override
+    public String toString() {
+        this.copyTo(mScratch, 0);
+
+        return new String(mScratch, 0, mLength, StandardCharsets.UTF_8);
+    }
+}
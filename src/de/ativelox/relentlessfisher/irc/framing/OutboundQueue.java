@@ -0,0 +1,564 @@
+package de.ativelox.relentlessfisher.irc.framing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.utils.RateWindow;
+
+/**
+ * Queues the frames (encoded lines) to be written to a single connection.
+ * Frames can be offered by any thread without locking, while at most one thread
+ * at a time drains them, coalescing all frames pending by then into a single
+ * gathering write. Which thread drains is up to the caller: the offer which
+ * finds the queue idle is told so, and either drains right away or hands the
+ * drain to the thread doing the connections' I/O.<br>
+ * 
+ * Every {@link EPriority} has a lane of its own, which is drained strictly
+ * before the lanes of lower priorities. Lanes of priorities counting against
+ * twitchs' rate limits share a single {@link RateWindow}: once it is used up
+ * their frames are held back, while frames keeping the connection alive are
+ * still written right away. Draining then asks the caller to resume once the
+ * window frees up again.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class OutboundQueue {
+
+    /**
+     * The most frames written by a single gathering write.
+     */
+    private final static int BATCH = 64;
+
+    /**
+     * The amount of lines twitch allows to be sent per
+     * {@link OutboundQueue#RATE_WINDOW window}, for users which are neither
+     * moderator nor broadcaster of the channel.
+     */
+    public final static int RATE_LIMIT = 20;
+
+    /**
+     * The length of the window of twitchs' rate limit in ms.
+     */
+    public final static long RATE_WINDOW = 30000;
+
+    /**
+     * Writes frames to a connection.
+     */
+    @FunctionalInterface
+    public interface IFrameWriter {
+
+        /**
+         * Writes all of the given frames, in order.
+         * 
+         * @param frames The frames, the first <tt>length</tt> of which are to be
+         *               written.
+         * @param length The amount of frames to write.
+         * @throws IOException If an I/O error occurs.
+         */
+        void write(final ByteBuffer[] frames, final int length) throws IOException;
+
+    }
+
+    /**
+     * Gets called for every frame once it got written.
+     */
+    @FunctionalInterface
+    public interface ISentHandler {
+
+        /**
+         * Gets called once the given frame got written.
+         * 
+         * @param frame  The frame, as offered.
+         * @param onSent The callback offered along with the frame, possibly
+         *               <tt>null</tt>.
+         */
+        void onSent(final ByteBuffer frame, final Runnable onSent);
+
+    }
+
+    /**
+     * A frame waiting to be written.
+     */
+    private static final class Pending {
+
+        /**
+         * The frame, as offered.
+         */
+        private final ByteBuffer mFrame;
+
+        /**
+         * Gets called once the frame got written, possibly <tt>null</tt>.
+         */
+        private final Runnable mOnSent;
+
+        /**
+         * The time the frame got offered at in ns, given by
+         * {@link System#nanoTime()}.
+         */
+        private final long mOffered;
+
+        /**
+         * Creates a new {@link Pending}.
+         * 
+         * @param frame   The frame, as offered.
+         * @param onSent  Gets called once the frame got written, possibly
+         *                <tt>null</tt>.
+         * @param offered The time the frame got offered at in ns.
+         */
+        Pending(final ByteBuffer frame, final Runnable onSent, final long offered) {
+            mFrame = frame;
+            mOnSent = onSent;
+            mOffered = offered;
+
+        }
+    }
+
+    /**
+     * The frames of a single priority waiting to be written, along with the
+     * metrics of the lane.
+     */
+    public static final class Lane {
+
+        /**
+         * The frames waiting to be written.
+         */
+        private final Queue<Pending> mQueue;
+
+        /**
+         * The amount of frames waiting to be written.
+         */
+        private final AtomicInteger mDepth;
+
+        /**
+         * The most frames that were waiting to be written at once.
+         */
+        private final AtomicInteger mMaxDepth;
+
+        /**
+         * The times frames waited from being offered to being written.
+         */
+        private final LatencyHistogram mWaits;
+
+        /**
+         * Creates a new, empty {@link Lane}.
+         */
+        Lane() {
+            mQueue = new ConcurrentLinkedQueue<>();
+            mDepth = new AtomicInteger();
+            mMaxDepth = new AtomicInteger();
+            mWaits = new LatencyHistogram();
+
+        }
+
+        /**
+         * Queues the given frame.
+         * 
+         * @param pending The frame.
+         */
+        void add(final Pending pending) {
+            mQueue.add(pending);
+
+            final int depth = mDepth.incrementAndGet();
+
+            if (depth > mMaxDepth.get()) {
+                mMaxDepth.accumulateAndGet(depth, Math::max);
+            }
+        }
+
+        /**
+         * Removes the frame waiting the longest, only called by the draining
+         * thread.
+         * 
+         * @return The frame, or <tt>null</tt> if none is waiting.
+         */
+        Pending poll() {
+            final Pending pending = mQueue.poll();
+
+            if (pending != null) {
+                mDepth.decrementAndGet();
+            }
+            return pending;
+
+        }
+
+        /**
+         * Whether no frame is waiting.
+         * 
+         * @return <tt>True</tt> if none is, <tt>false</tt> otherwise.
+         */
+        boolean isEmpty() {
+            return mQueue.isEmpty();
+
+        }
+
+        /**
+         * Drops all frames waiting.
+         */
+        void clear() {
+            while (this.poll() != null) {
+                // just counting them down.
+            }
+        }
+
+        /**
+         * The amount of frames currently waiting to be written.
+         * 
+         * @return The amount of frames.
+         */
+        public int depth() {
+            return mDepth.get();
+
+        }
+
+        /**
+         * The most frames that were waiting to be written at once.
+         * 
+         * @return The amount of frames.
+         */
+        public int maxDepth() {
+            return mMaxDepth.get();
+
+        }
+
+        /**
+         * The times frames of this lane waited from being offered to being
+         * written, the amount of which is the amount of frames written.
+         * 
+         * @return The histogram of the waits.
+         */
+        public LatencyHistogram getWaits() {
+            return mWaits;
+
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return "depth=" + this.depth() + " max depth=" + this.maxDepth() + " waits: " + mWaits;
+
+        }
+    }
+
+    /**
+     * The lanes, indexed by the ordinal of their priority.
+     */
+    private final Lane[] mLanes;
+
+    /**
+     * The rate limit shared by all lanes of
+     * {@link EPriority#isLimited() limited} priorities, <tt>null</tt> if
+     * unlimited. Only accessed by the draining thread, besides being replaced.
+     */
+    private volatile RateWindow mLimit;
+
+    /**
+     * Whether a thread is draining or about to drain, i.e. whether an offer
+     * doesn't have to care about draining.
+     */
+    private final AtomicBoolean mScheduled;
+
+    /**
+     * Whether a drain returned a delay, i.e. whether a caller is going to
+     * {@link OutboundQueue#resume() resume} for frames held back by the rate
+     * limit.
+     */
+    private final AtomicBoolean mDeferred;
+
+    /**
+     * The frames of the current batch, only accessed by the draining thread.
+     */
+    private final ByteBuffer[] mBatch;
+
+    /**
+     * The entries of the current batch, only accessed by the draining thread.
+     */
+    private final Pending[] mBatchEntries;
+
+    /**
+     * The lanes of the entries of the current batch, only accessed by the
+     * draining thread.
+     */
+    private final int[] mBatchLanes;
+
+    /**
+     * Creates a new, empty {@link OutboundQueue}, limited to twitchs' default
+     * rate limit.
+     */
+    public OutboundQueue() {
+        this(new RateWindow(RATE_LIMIT, TimeUnit.MILLISECONDS.toNanos(RATE_WINDOW)));
+
+    }
+
+    /**
+     * Creates a new, empty {@link OutboundQueue}.
+     * 
+     * @param limit The rate limit shared by all lanes of
+     *              {@link EPriority#isLimited() limited} priorities,
+     *              <tt>null</tt> if unlimited.
+     */
+    public OutboundQueue(final RateWindow limit) {
+        mLanes = new Lane[EPriority.PRIORITIES.length];
+
+        for (int i = 0; i < mLanes.length; i++) {
+            mLanes[i] = new Lane();
+        }
+        mLimit = limit;
+        mScheduled = new AtomicBoolean();
+        mDeferred = new AtomicBoolean();
+        mBatch = new ByteBuffer[BATCH];
+        mBatchEntries = new Pending[BATCH];
+        mBatchLanes = new int[BATCH];
+
+    }
+
+    /**
+     * Queues the given frame into the lane of the given priority. The frame
+     * itself is left untouched, so immutable frames can be offered as often as
+     * needed, even concurrently.
+     * 
+     * @param frame    The frame, e.g. a line including its line break.
+     * @param priority The priority of the frame.
+     * @param onSent   Gets called by the draining thread once the frame got
+     *                 written, <tt>null</tt> if not needed.
+     * @return <tt>True</tt> if the queue was idle, in which case the caller has
+     *         to make sure {@link OutboundQueue#drain(IFrameWriter, ISentHandler)}
+     *         gets called, <tt>false</tt> if a drain is already pending.
+     */
+    public boolean offer(final ByteBuffer frame, final EPriority priority, final Runnable onSent) {
+        mLanes[priority.ordinal()].add(new Pending(frame, onSent, System.nanoTime()));
+
+        return !mScheduled.get() && mScheduled.compareAndSet(false, true);
+
+    }
+
+    /**
+     * Gets called once the delay returned by a drain passed. Frames held back by
+     * the rate limit might be written now.
+     * 
+     * @return <tt>True</tt> if the queue was idle, in which case the caller has
+     *         to make sure {@link OutboundQueue#drain(IFrameWriter, ISentHandler)}
+     *         gets called, <tt>false</tt> if a drain is already pending.
+     */
+    public boolean resume() {
+        mDeferred.set(false);
+
+        return !mScheduled.get() && mScheduled.compareAndSet(false, true);
+
+    }
+
+    /**
+     * Writes all frames pending, including the ones offered while writing, in
+     * batches of up to {@link OutboundQueue#BATCH} frames per write, highest
+     * priority first. Frames held back by the rate limit stay queued. Must only
+     * be called after an {@link OutboundQueue#offer(ByteBuffer, EPriority, Runnable)
+     * offer} or {@link OutboundQueue#resume() resume} returned <tt>true</tt>, once
+     * per such call.
+     * 
+     * @param writer  Writes the frames to the connection.
+     * @param handler Gets called for every frame once it got written.
+     * @return The delay in ns after which {@link OutboundQueue#resume()} has to be
+     *         called, since frames are held back by the rate limit, or
+     *         <tt>-1</tt> if there is no need to.
+     * @throws IOException If the frames couldn't be written. The queue is idle
+     *                     again and all frames pending got dropped. The queue is
+     *                     idle again as well, if the handler throws.
+     */
+    public long drain(final IFrameWriter writer, final ISentHandler handler) throws IOException {
+        while (true) {
+            final int length = this.fill(System.nanoTime());
+
+            if (length == 0) {
+                mScheduled.set(false);
+
+                // an offer might have seen the queue busy right before it turned idle.
+                if (!this.ready(System.nanoTime()) || !mScheduled.compareAndSet(false, true)) {
+                    return this.defer();
+                }
+                continue;
+
+            }
+
+            try {
+                writer.write(mBatch, length);
+
+            } catch (final IOException e) {
+                Arrays.fill(mBatchEntries, 0, length, null);
+                this.clear();
+                mScheduled.set(false);
+                throw e;
+
+            } finally {
+                for (int i = 0; i < length; i++) {
+                    mBatch[i] = null;
+                }
+            }
+            final long written = System.nanoTime();
+
+            try {
+                for (int i = 0; i < length; i++) {
+                    final Pending pending = mBatchEntries[i];
+
+                    mLanes[mBatchLanes[i]].mWaits.record(written - pending.mOffered);
+                    handler.onSent(pending.mFrame, pending.mOnSent);
+
+                }
+            } catch (final RuntimeException e) {
+                // the frames are out, later offers still have to be able to drain.
+                mScheduled.set(false);
+                throw e;
+
+            } finally {
+                Arrays.fill(mBatchEntries, 0, length, null);
+
+            }
+        }
+    }
+
+    /**
+     * Fills the current batch with the frames to be written next, taking every
+     * lane only once all lanes of higher priorities are empty or held back.
+     * 
+     * @param now The current time in ns, given by {@link System#nanoTime()}.
+     * @return The amount of frames in the batch.
+     */
+    private int fill(final long now) {
+        final RateWindow limit = mLimit;
+        final EPriority[] priorities = EPriority.PRIORITIES;
+        int length = 0;
+
+        for (int i = 0; i < mLanes.length; i++) {
+            final Lane lane = mLanes[i];
+            final boolean limited = limit != null && priorities[i].isLimited();
+
+            while (length < BATCH && !lane.isEmpty()) {
+                if (limited) {
+                    if (limit.earliest(now) - now > 0) {
+                        break;
+                    }
+                    limit.reserve(now);
+
+                }
+                final Pending pending = lane.poll();
+
+                mBatchEntries[length] = pending;
+                mBatchLanes[length] = i;
+                mBatch[length] = pending.mFrame.duplicate();
+                length++;
+
+            }
+        }
+        return length;
+
+    }
+
+    /**
+     * Whether a frame could be written right away.
+     * 
+     * @param now The current time in ns, given by {@link System#nanoTime()}.
+     * @return <tt>True</tt> if one could, <tt>false</tt> otherwise.
+     */
+    private boolean ready(final long now) {
+        final RateWindow limit = mLimit;
+        final boolean free = limit == null || limit.earliest(now) - now <= 0;
+        final EPriority[] priorities = EPriority.PRIORITIES;
+
+        for (int i = 0; i < mLanes.length; i++) {
+            if (!mLanes[i].isEmpty() && (free || !priorities[i].isLimited())) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    /**
+     * The delay until frames held back by the rate limit may be written, if the
+     * caller has to wait for it.
+     * 
+     * @return The delay in ns, or <tt>-1</tt> if no frame is held back or a
+     *         caller is already waiting.
+     */
+    private long defer() {
+        final RateWindow limit = mLimit;
+
+        if (limit == null) {
+            return -1;
+        }
+        final EPriority[] priorities = EPriority.PRIORITIES;
+
+        for (int i = 0; i < mLanes.length; i++) {
+            if (priorities[i].isLimited() && !mLanes[i].isEmpty()) {
+                if (!mDeferred.compareAndSet(false, true)) {
+                    return -1;
+                }
+                final long now = System.nanoTime();
+
+                return Math.max(0, limit.earliest(now) - now);
+
+            }
+        }
+        return -1;
+
+    }
+
+    /**
+     * The lane of the given priority, e.g. to look at its metrics.
+     * 
+     * @param priority The priority.
+     * @return The lane.
+     */
+    public Lane getLane(final EPriority priority) {
+        return mLanes[priority.ordinal()];
+
+    }
+
+    /**
+     * Replaces the rate limit shared by all lanes of
+     * {@link EPriority#isLimited() limited} priorities, e.g. for moderators of
+     * the channel, which twitch allows to send more.
+     * 
+     * @param limit The rate limit, <tt>null</tt> if unlimited.
+     */
+    public void setLimit(final RateWindow limit) {
+        mLimit = limit;
+
+    }
+
+    /**
+     * Drops all frames pending, e.g. since they were meant for a connection
+     * which broke.
+     */
+    public void clear() {
+        for (final Lane lane : mLanes) {
+            lane.clear();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+
+        for (final EPriority priority : EPriority.PRIORITIES) {
+            builder.append(priority).append(": ").append(this.getLane(priority)).append(System.lineSeparator());
+        }
+        return builder.toString();
+
+    }
+}
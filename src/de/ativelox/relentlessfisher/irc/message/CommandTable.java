@@ -0,0 +1,141 @@
+package de.ativelox.relentlessfisher.irc.message;
+
+/**
+ * Routes parsed messages to the {@link IMessageHandler} registered for their
+ * command. Looking up a handler hashes the command in place, so it takes
+ * constant time and doesn't allocate.<br>
+ * 
+ * Handlers have to be registered before messages get dispatched, i.e. before
+ * connecting, registering isn't thread safe.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class CommandTable {
+
+    /**
+     * The initial amount of slots, always a power of two.
+     */
+    private final static int INITIAL_CAPACITY = 16;
+
+    /**
+     * The registered commands, by slot.
+     */
+    private String[] mCommands;
+
+    /**
+     * The registered handlers, by slot.
+     */
+    private IMessageHandler[] mHandlers;
+
+    /**
+     * The amount of registered commands.
+     */
+    private int mSize;
+
+    /**
+     * Creates a new, empty {@link CommandTable}.
+     */
+    public CommandTable() {
+        mCommands = new String[INITIAL_CAPACITY];
+        mHandlers = new IMessageHandler[INITIAL_CAPACITY];
+
+    }
+
+    /**
+     * Registers the given handler for the given command, replacing the handler
+     * registered before, if any.
+     * 
+     * @param command The command, e.g. <tt>PING</tt> or <tt>376</tt>.
+     * @param handler The handler.
+     */
+    public void put(final String command, final IMessageHandler handler) {
+        // keep the table at most half full, so probe sequences stay short.
+        if ((mSize + 1) * 2 > mCommands.length) {
+            this.grow();
+        }
+        final int mask = mCommands.length - 1;
+        int slot = Spread(command.hashCode()) & mask;
+
+        while (mCommands[slot] != null) {
+            if (mCommands[slot].equals(command)) {
+                mHandlers[slot] = handler;
+                return;
+
+            }
+            slot = (slot + 1) & mask;
+
+        }
+        mCommands[slot] = command;
+        mHandlers[slot] = handler;
+        mSize++;
+
+    }
+
+    /**
+     * The handler registered for the command of the given message.
+     * 
+     * @param message The message.
+     * @return The handler, or <tt>null</tt> if none is registered.
+     */
+    public IMessageHandler get(final IRCMessage message) {
+        final int mask = mCommands.length - 1;
+        int slot = Spread(message.commandHash()) & mask;
+
+        while (mCommands[slot] != null) {
+            if (message.isCommand(mCommands[slot])) {
+                return mHandlers[slot];
+            }
+            slot = (slot + 1) & mask;
+
+        }
+        return null;
+    }
+
+    /**
+     * The registered commands.
+     * 
+     * @return The commands, in no particular order.
+     */
+    public String[] commands() {
+        final String[] commands = new String[mSize];
+        int i = 0;
+
+        for (final String command : mCommands) {
+            if (command != null) {
+                commands[i++] = command;
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Doubles the amount of slots.
+     */
+    private void grow() {
+        final String[] commands = mCommands;
+        final IMessageHandler[] handlers = mHandlers;
+
+        mCommands = new String[commands.length * 2];
+        mHandlers = new IMessageHandler[commands.length * 2];
+        mSize = 0;
+
+        for (int i = 0; i < commands.length; i++) {
+            if (commands[i] != null) {
+                this.put(commands[i], handlers[i]);
+            }
+        }
+    }
+
+    /**
+     * Mixes the high bits of the given hash into the low ones, which select the
+     * slot.
+     * 
+     * @param hash The hash.
+     * @return The mixed hash.
+     */
+    private static int Spread(final int hash) {
+        return hash ^ (hash >>> 16);
+
+    }
+}
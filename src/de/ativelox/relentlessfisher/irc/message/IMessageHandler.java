@@ -0,0 +1,21 @@
+package de.ativelox.relentlessfisher.irc.message;
+
+/**
+ * Provides callbacks for objects handling messages of a specific IRC command,
+ * see {@link CommandTable}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface IMessageHandler {
+
+    /**
+     * Gets called for every message with the command this handler is registered
+     * for. The message is only valid for the duration of this call, since it gets
+     * reused for the next line.
+     * 
+     * @param message The message.
+     */
+    void onMessage(final IRCMessage message);
+
+}
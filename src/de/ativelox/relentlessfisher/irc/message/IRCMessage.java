@@ -0,0 +1,443 @@
+package de.ativelox.relentlessfisher.irc.message;
+
+/**
+ * Provides a parsed IRC message (IRCv3, i.e. including tags), which is reused
+ * for every line: {@link IRCMessage#parse(String)} only records where the
+ * tags, prefix, command and parameters of a line start and end, in a single
+ * pass. The parts are only cut out of the line when asked for, queries like
+ * {@link IRCMessage#isCommand(String)} don't allocate at all. The same goes for
+ * the tags, see {@link IRCTags}.<br>
+ * 
+ * The format is
+ * <tt>[@tags] [:nick!user@host] command [params...] [:trailing]</tt>.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class IRCMessage {
+
+    /**
+     * The maximum amount of parameters of a message, including the trailing one.
+     */
+    public final static int MAX_PARAMS = 15;
+
+    /**
+     * The line currently parsed.
+     */
+    private String mLine;
+
+    /**
+     * The start of the tags (excluding the <tt>@</tt>), <tt>-1</tt> if there are
+     * none.
+     */
+    private int mTagsStart;
+
+    /**
+     * The end of the tags, exclusive.
+     */
+    private int mTagsEnd;
+
+    /**
+     * The start of the prefix (excluding the <tt>:</tt>), <tt>-1</tt> if there is
+     * none.
+     */
+    private int mPrefixStart;
+
+    /**
+     * The end of the prefix, exclusive.
+     */
+    private int mPrefixEnd;
+
+    /**
+     * The end of the nick in the prefix, exclusive.
+     */
+    private int mNickEnd;
+
+    /**
+     * The index of the <tt>!</tt> in the prefix, <tt>-1</tt> if there is no user.
+     */
+    private int mUserSeparator;
+
+    /**
+     * The index of the <tt>@</tt> in the prefix, <tt>-1</tt> if there is no host.
+     */
+    private int mHostSeparator;
+
+    /**
+     * The start of the command.
+     */
+    private int mCommandStart;
+
+    /**
+     * The end of the command, exclusive.
+     */
+    private int mCommandEnd;
+
+    /**
+     * The start of each parameter.
+     */
+    private final int[] mParamStarts;
+
+    /**
+     * The end of each parameter, exclusive.
+     */
+    private final int[] mParamEnds;
+
+    /**
+     * The amount of parameters.
+     */
+    private int mParamCount;
+
+    /**
+     * The view onto the tags, reused for every line.
+     */
+    private final IRCTags mTags;
+
+    /**
+     * Creates a new, empty {@link IRCMessage}.
+     */
+    public IRCMessage() {
+        mParamStarts = new int[MAX_PARAMS];
+        mParamEnds = new int[MAX_PARAMS];
+        mTags = new IRCTags();
+
+        this.clear();
+    }
+
+    /**
+     * Resets this message to not hold any line.
+     */
+    public void clear() {
+        mLine = null;
+        mTagsStart = -1;
+        mTagsEnd = -1;
+        mPrefixStart = -1;
+        mPrefixEnd = -1;
+        mNickEnd = -1;
+        mUserSeparator = -1;
+        mHostSeparator = -1;
+        mCommandStart = 0;
+        mCommandEnd = 0;
+        mParamCount = 0;
+        mTags.reset(null, 0, 0);
+
+    }
+
+    /**
+     * Parses the given line into this message, replacing the previous one.
+     * 
+     * @param line The line, excluding its line ending.
+     * @return <tt>True</tt> if the line is a well-formed message, <tt>false</tt>
+     *         otherwise, in which case this message is empty.
+     */
+    public boolean parse(final String line) {
+        this.clear();
+
+        final int length = line.length();
+        int i = 0;
+
+        if (i < length && line.charAt(i) == '@') {
+            mTagsStart = i + 1;
+            mTagsEnd = line.indexOf(' ', mTagsStart);
+
+            if (mTagsEnd < 0) {
+                this.clear();
+                return false;
+            }
+            i = SkipSpaces(line, mTagsEnd);
+
+        }
+
+        if (i < length && line.charAt(i) == ':') {
+            mPrefixStart = i + 1;
+            mPrefixEnd = line.indexOf(' ', mPrefixStart);
+
+            if (mPrefixEnd < 0) {
+                this.clear();
+                return false;
+            }
+            mNickEnd = mPrefixEnd;
+
+            for (int j = mPrefixStart; j < mPrefixEnd; j++) {
+                final char c = line.charAt(j);
+
+                if (c == '!' && mUserSeparator < 0 && mHostSeparator < 0) {
+                    mUserSeparator = j;
+                    mNickEnd = j;
+
+                } else if (c == '@' && mHostSeparator < 0) {
+                    mHostSeparator = j;
+                    mNickEnd = Math.min(mNickEnd, j);
+
+                }
+            }
+            i = SkipSpaces(line, mPrefixEnd);
+
+        }
+        mCommandStart = i;
+
+        while (i < length && line.charAt(i) != ' ') {
+            i++;
+        }
+        mCommandEnd = i;
+
+        if (mCommandEnd == mCommandStart) {
+            this.clear();
+            return false;
+        }
+
+        i = SkipSpaces(line, i);
+
+        while (i < length) {
+            if (line.charAt(i) == ':' || mParamCount == MAX_PARAMS - 1) {
+                // the trailing parameter spans the rest of the line.
+                final boolean colon = line.charAt(i) == ':';
+                mParamStarts[mParamCount] = colon ? i + 1 : i;
+                mParamEnds[mParamCount] = length;
+                mParamCount++;
+                break;
+
+            }
+            int end = line.indexOf(' ', i);
+
+            if (end < 0) {
+                end = length;
+            }
+            mParamStarts[mParamCount] = i;
+            mParamEnds[mParamCount] = end;
+            mParamCount++;
+
+            i = SkipSpaces(line, end);
+
+        }
+        mLine = line;
+
+        if (mTagsStart >= 0) {
+            mTags.reset(line, mTagsStart, mTagsEnd);
+        }
+        return true;
+    }
+
+    /**
+     * The line this message was parsed from.
+     * 
+     * @return The line, or <tt>null</tt> if this message is empty.
+     */
+    public String getLine() {
+        return mLine;
+
+    }
+
+    /**
+     * Whether this message carries tags.
+     * 
+     * @return <tt>True</tt> if there are tags, <tt>false</tt> otherwise.
+     */
+    public boolean hasTags() {
+        return mTagsStart >= 0;
+
+    }
+
+    /**
+     * The tags of this message as they were sent, e.g.
+     * <tt>badges=;color=#1E90FF</tt>.
+     * 
+     * @return The tags, or <tt>null</tt> if there are none.
+     */
+    public String getRawTags() {
+        return mTagsStart < 0 ? null : mLine.substring(mTagsStart, mTagsEnd);
+
+    }
+
+    /**
+     * The tags of this message, which are only indexed and decoded when asked
+     * for. The view is reused for every line, just like this message.
+     * 
+     * @return The tags, empty if there are none.
+     */
+    public IRCTags getTags() {
+        return mTags;
+
+    }
+
+    /**
+     * Whether this message carries a prefix.
+     * 
+     * @return <tt>True</tt> if there is a prefix, <tt>false</tt> otherwise.
+     */
+    public boolean hasPrefix() {
+        return mPrefixStart >= 0;
+
+    }
+
+    /**
+     * The whole prefix of this message, e.g.
+     * <tt>nick!user@nick.tmi.twitch.tv</tt> or <tt>tmi.twitch.tv</tt>.
+     * 
+     * @return The prefix, or <tt>null</tt> if there is none.
+     */
+    public String getPrefix() {
+        return mPrefixStart < 0 ? null : mLine.substring(mPrefixStart, mPrefixEnd);
+
+    }
+
+    /**
+     * The nick of the prefix, or the server name if the message was sent by the
+     * server itself.
+     * 
+     * @return The nick, or <tt>null</tt> if there is no prefix.
+     */
+    public String getNick() {
+        return mPrefixStart < 0 ? null : mLine.substring(mPrefixStart, mNickEnd);
+
+    }
+
+    /**
+     * The user of the prefix.
+     * 
+     * @return The user, or <tt>null</tt> if there is none.
+     */
+    public String getUser() {
+        if (mUserSeparator < 0) {
+            return null;
+        }
+        return mLine.substring(mUserSeparator + 1, mHostSeparator < 0 ? mPrefixEnd : mHostSeparator);
+    }
+
+    /**
+     * The host of the prefix.
+     * 
+     * @return The host, or <tt>null</tt> if there is none.
+     */
+    public String getHost() {
+        return mHostSeparator < 0 ? null : mLine.substring(mHostSeparator + 1, mPrefixEnd);
+
+    }
+
+    /**
+     * Whether the prefix carries a user and a host, i.e. the message was sent by
+     * a user rather than the server.
+     * 
+     * @return <tt>True</tt> if the message was sent by a user, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isFromUser() {
+        return mUserSeparator >= 0 && mHostSeparator > mUserSeparator;
+
+    }
+
+    /**
+     * The command of this message, e.g. <tt>PRIVMSG</tt> or <tt>376</tt>.
+     * 
+     * @return The command, or <tt>null</tt> if this message is empty.
+     */
+    public String getCommand() {
+        return mLine == null ? null : mLine.substring(mCommandStart, mCommandEnd);
+
+    }
+
+    /**
+     * Checks whether this message has the given command, without allocating.
+     * 
+     * @param command The command to check for.
+     * @return <tt>True</tt> if the command matches, <tt>false</tt> otherwise.
+     */
+    public boolean isCommand(final String command) {
+        return mLine != null && mCommandEnd - mCommandStart == command.length()
+                && mLine.startsWith(command, mCommandStart);
+    }
+
+    /**
+     * The hash of the command of this message, equal to the
+     * {@link String#hashCode()} of {@link IRCMessage#getCommand()}, computed
+     * without allocating.
+     * 
+     * @return The hash of the command.
+     */
+    public int commandHash() {
+        int hash = 0;
+
+        for (int i = mCommandStart; i < mCommandEnd; i++) {
+            hash = 31 * hash + mLine.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * The amount of parameters of this message, including the trailing one.
+     * 
+     * @return The amount of parameters.
+     */
+    public int getParamCount() {
+        return mParamCount;
+
+    }
+
+    /**
+     * The parameter at the given index.
+     * 
+     * @param index The index of the parameter.
+     * @return The parameter, or <tt>null</tt> if there is no such parameter.
+     */
+    public String getParam(final int index) {
+        if (index < 0 || index >= mParamCount) {
+            return null;
+        }
+        return mLine.substring(mParamStarts[index], mParamEnds[index]);
+    }
+
+    /**
+     * Checks whether the parameter at the given index equals the given value,
+     * without allocating.
+     * 
+     * @param index The index of the parameter.
+     * @param value The value to compare with.
+     * @return <tt>True</tt> if the parameter exists and matches, <tt>false</tt>
+     *         otherwise.
+     */
+    public boolean isParam(final int index, final String value) {
+        if (index < 0 || index >= mParamCount) {
+            return false;
+        }
+        return mParamEnds[index] - mParamStarts[index] == value.length()
+                && mLine.startsWith(value, mParamStarts[index]);
+    }
+
+    /**
+     * The last parameter of this message, which usually holds the text of e.g. a
+     * <tt>PRIVMSG</tt> or <tt>WHISPER</tt>.
+     * 
+     * @return The last parameter, or <tt>null</tt> if there are no parameters.
+     */
+    public String getTrailing() {
+        return this.getParam(mParamCount - 1);
+
+    }
+
+    /**
+     * The index of the first non-space character at or after <tt>from</tt>.
+     * 
+     * @param line The line.
+     * @param from The index to start at.
+     * @return The index, possibly the length of the line.
+     */
+    private static int SkipSpaces(final String line, final int from) {
+        int i = from;
+
+        while (i < line.length() && line.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return mLine == null ? "" : mLine;
+
+    }
+}
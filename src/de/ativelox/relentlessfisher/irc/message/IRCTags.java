@@ -0,0 +1,374 @@
+package de.ativelox.relentlessfisher.irc.message;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides a lazy view onto the tags of an {@link IRCMessage}, e.g.
+ * <tt>badges=;color=#1E90FF;user-id=12345678</tt>. The boundaries of the tags
+ * are only indexed once a tag is asked for, and a value is only cut out of the
+ * line (and unescaped) when its key is asked for. Looking up a key doesn't
+ * allocate.<br>
+ * 
+ * Keys handed out by {@link IRCTags#getKey(int)} are interned, so all messages
+ * share the same instances.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class IRCTags {
+
+    /**
+     * The tag holding the id of the sending user.
+     */
+    public final static String USER_ID = "user-id";
+
+    /**
+     * The tag holding the id of a whisper.
+     */
+    public final static String MESSAGE_ID = "message-id";
+
+    /**
+     * The tag holding the id of a chat message.
+     */
+    public final static String ID = "id";
+
+    /**
+     * The tag holding the name of the sending user as displayed.
+     */
+    public final static String DISPLAY_NAME = "display-name";
+
+    /**
+     * The tag holding the time the server sent the message at, in ms since the
+     * epoch.
+     */
+    public final static String SENT_TIMESTAMP = "tmi-sent-ts";
+
+    /**
+     * The keys twitch sends, which are interned from the start.
+     */
+    private final static String[] KNOWN_KEYS = { "badge-info", "badges", "bits", "client-nonce", "color",
+            DISPLAY_NAME, "emote-only", "emote-sets", "emotes", "first-msg", "flags", "followers-only", ID,
+            MESSAGE_ID, "mod", "msg-id", "r9k", "returning-chatter", "room-id", "slow", "subs-only", "subscriber",
+            "thread-id", SENT_TIMESTAMP, "turbo", USER_ID, "user-type", "vip" };
+
+    /**
+     * The maximum amount of interned keys, so a misbehaving server can't grow the
+     * pool without bounds.
+     */
+    private final static int MAX_INTERNED = 1024;
+
+    /**
+     * The interned keys.
+     */
+    private final static ConcurrentHashMap<String, String> INTERNED = new ConcurrentHashMap<>();
+
+    static {
+        for (final String key : KNOWN_KEYS) {
+            INTERNED.put(key, key);
+        }
+    }
+
+    /**
+     * The amount of ints describing a single tag.
+     */
+    private final static int STRIDE = 3;
+
+    /**
+     * The line holding the tags.
+     */
+    private String mLine;
+
+    /**
+     * The start of the tags in the line.
+     */
+    private int mStart;
+
+    /**
+     * The end of the tags in the line, exclusive.
+     */
+    private int mEnd;
+
+    /**
+     * Whether the boundaries of the tags have been indexed yet.
+     */
+    private boolean mIndexed;
+
+    /**
+     * The amount of tags.
+     */
+    private int mCount;
+
+    /**
+     * For every tag the start of its key, the index of its <tt>=</tt> (or its
+     * end, if it has no value) and its end.
+     */
+    private int[] mBounds;
+
+    /**
+     * Creates a new, empty {@link IRCTags} view.
+     */
+    IRCTags() {
+        mBounds = new int[32 * STRIDE];
+
+        this.reset(null, 0, 0);
+    }
+
+    /**
+     * Moves this view onto the tags of another line.
+     * 
+     * @param line  The line, or <tt>null</tt> if there are no tags.
+     * @param start The start of the tags, excluding the <tt>@</tt>.
+     * @param end   The end of the tags, exclusive.
+     */
+    void reset(final String line, final int start, final int end) {
+        mLine = line;
+        mStart = start;
+        mEnd = end;
+        mIndexed = false;
+        mCount = 0;
+
+    }
+
+    /**
+     * The amount of tags.
+     * 
+     * @return The amount of tags.
+     */
+    public int size() {
+        this.index();
+
+        return mCount;
+    }
+
+    /**
+     * Checks whether the tag with the given key is present.
+     * 
+     * @param key The key of the tag.
+     * @return <tt>True</tt> if the tag is present, <tt>false</tt> otherwise.
+     */
+    public boolean has(final String key) {
+        return this.find(key) >= 0;
+
+    }
+
+    /**
+     * The value of the tag with the given key, unescaped.
+     * 
+     * @param key The key of the tag.
+     * @return The value, an empty string if the tag has no value, or
+     *         <tt>null</tt> if the tag isn't present.
+     */
+    public String get(final String key) {
+        final int index = this.find(key);
+
+        return index < 0 ? null : this.getValue(index);
+    }
+
+    /**
+     * The value of the tag with the given key as a number, parsed without
+     * allocating, e.g. for <tt>user-id</tt> or <tt>tmi-sent-ts</tt>.
+     * 
+     * @param key          The key of the tag.
+     * @param defaultValue The value returned if the tag isn't present or isn't a
+     *                     number.
+     * @return The value.
+     */
+    public long getLong(final String key, final long defaultValue) {
+        final int index = this.find(key);
+
+        if (index < 0) {
+            return defaultValue;
+        }
+        final int start = mBounds[index * STRIDE + 1] + 1;
+        final int end = mBounds[index * STRIDE + 2];
+
+        if (start >= end || end - start > 18) {
+            return defaultValue;
+        }
+        long value = 0;
+
+        for (int i = start; i < end; i++) {
+            final char c = mLine.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return defaultValue;
+            }
+            value = value * 10 + (c - '0');
+
+        }
+        return value;
+    }
+
+    /**
+     * The key of the tag at the given index.
+     * 
+     * @param index The index of the tag.
+     * @return The key, interned.
+     */
+    public String getKey(final int index) {
+        this.index();
+
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("No tag at index " + index + ".");
+        }
+        final int start = mBounds[index * STRIDE];
+        final int end = mBounds[index * STRIDE + 1];
+
+        for (final String known : KNOWN_KEYS) {
+            if (known.length() == end - start && mLine.startsWith(known, start)) {
+                return known;
+            }
+        }
+        final String key = mLine.substring(start, end);
+
+        if (INTERNED.size() >= MAX_INTERNED) {
+            final String interned = INTERNED.get(key);
+            return interned == null ? key : interned;
+
+        }
+        final String interned = INTERNED.putIfAbsent(key, key);
+        return interned == null ? key : interned;
+    }
+
+    /**
+     * The value of the tag at the given index, unescaped.
+     * 
+     * @param index The index of the tag.
+     * @return The value, an empty string if the tag has no value.
+     */
+    public String getValue(final int index) {
+        this.index();
+
+        if (index < 0 || index >= mCount) {
+            throw new IndexOutOfBoundsException("No tag at index " + index + ".");
+        }
+        final int start = mBounds[index * STRIDE + 1] + 1;
+        final int end = mBounds[index * STRIDE + 2];
+
+        if (start >= end) {
+            return "";
+        }
+        return Unescape(mLine, start, end);
+    }
+
+    /**
+     * Searches the tag with the given key.
+     * 
+     * @param key The key of the tag.
+     * @return The index of the tag, or <tt>-1</tt> if it isn't present.
+     */
+    private int find(final String key) {
+        this.index();
+
+        for (int i = 0; i < mCount; i++) {
+            final int start = mBounds[i * STRIDE];
+
+            if (mBounds[i * STRIDE + 1] - start == key.length() && mLine.startsWith(key, start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records the boundaries of all tags, if not done yet.
+     */
+    private void index() {
+        if (mIndexed) {
+            return;
+        }
+        mIndexed = true;
+
+        if (mLine == null) {
+            return;
+        }
+        int start = mStart;
+
+        while (start < mEnd) {
+            int end = mLine.indexOf(';', start);
+
+            if (end < 0 || end > mEnd) {
+                end = mEnd;
+            }
+
+            if (end > start) {
+                int separator = mLine.indexOf('=', start);
+
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+
+                if (mCount * STRIDE == mBounds.length) {
+                    final int[] bounds = new int[mBounds.length * 2];
+                    System.arraycopy(mBounds, 0, bounds, 0, mBounds.length);
+                    mBounds = bounds;
+
+                }
+                mBounds[mCount * STRIDE] = start;
+                mBounds[mCount * STRIDE + 1] = separator;
+                mBounds[mCount * STRIDE + 2] = end;
+                mCount++;
+
+            }
+            start = end + 1;
+
+        }
+    }
+
+    /**
+     * Unescapes a tag value as specified by IRCv3: <tt>\:</tt> is a semicolon,
+     * <tt>\s</tt> a space, <tt>\\</tt> a backslash, <tt>\r</tt> and <tt>\n</tt>
+     * line breaks. Any other escaped character stands for itself, and a trailing
+     * single backslash is dropped.
+     * 
+     * @param line  The line holding the value.
+     * @param start The start of the value.
+     * @param end   The end of the value, exclusive.
+     * @return The unescaped value.
+     */
+    static String Unescape(final String line, final int start, final int end) {
+        final int escape = line.indexOf('\\', start);
+
+        if (escape < 0 || escape >= end) {
+            return line.substring(start, end);
+        }
+        final StringBuilder builder = new StringBuilder(end - start);
+        builder.append(line, start, escape);
+
+        for (int i = escape; i < end; i++) {
+            final char c = line.charAt(i);
+
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+
+            }
+            i++;
+
+            if (i == end) {
+                break;
+            }
+            final char escaped = line.charAt(i);
+
+            switch (escaped) {
+            case ':':
+                builder.append(';');
+                break;
+            case 's':
+                builder.append(' ');
+                break;
+            case 'r':
+                builder.append('\r');
+                break;
+            case 'n':
+                builder.append('\n');
+                break;
+            default:
+                builder.append(escaped);
+                break;
+
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package de.ativelox.relentlessfisher.irc.nio;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * Provides a loop around a single {@link Selector}, which only wakes up when
+ * one of its registered channels is ready or when a task got submitted from
+ * another thread. Channel registration is always done on the thread driving
+ * this loop, since {@link SelectableChannel#register(Selector, int, Object)}
+ * blocks while another thread is selecting.<br>
+ * 
+ * A loop can either be driven by a caller repeatedly invoking
+ * {@link EventLoop#runOnce()}, or run on a thread of its own via
+ * {@link EventLoop#run()}, in which case it can be shared by many channels.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class EventLoop implements Runnable {
+
+    /**
+     * The selector all channels of this loop are registered to.
+     */
+    private final Selector mSelector;
+
+    /**
+     * Tasks submitted from other threads, which are to be run on the thread
+     * driving this loop.
+     */
+    private final Queue<Runnable> mTasks;
+
+    /**
+     * Tasks to be run once their delay passed, ordered by their deadline. Only
+     * accessed by the thread driving this loop.
+     */
+    private final PriorityQueue<Delayed> mDelayed;
+
+    /**
+     * The logger used to log information.
+     */
+    private final ILogger mLogger;
+
+    /**
+     * The thread which drove this loop last, <tt>null</tt> if it never ran.
+     */
+    private volatile Thread mThread;
+
+    /**
+     * Creates a new {@link EventLoop}.
+     * 
+     * @throws IOException If the underlying selector couldn't be opened.
+     */
+    public EventLoop() throws IOException {
+        mSelector = Selector.open();
+        mTasks = new ConcurrentLinkedQueue<>();
+        mDelayed = new PriorityQueue<>();
+
+        mLogger = LoggerFactory.Get();
+    }
+
+    /**
+     * Runs the given task on the thread driving this loop, waking the loop up if
+     * it is currently selecting.
+     * 
+     * @param task The task to run.
+     */
+    public void execute(final Runnable task) {
+        mTasks.add(task);
+        mSelector.wakeup();
+
+    }
+
+    /**
+     * Runs the given task on the thread driving this loop, once the given delay
+     * passed. Meant for rare tasks, e.g. resuming writes held back by a rate
+     * limit.
+     * 
+     * @param task  The task to run.
+     * @param delay The delay in ns.
+     */
+    public void schedule(final Runnable task, final long delay) {
+        final Delayed delayed = new Delayed(task, System.nanoTime() + delay);
+
+        if (this.inLoop()) {
+            mDelayed.add(delayed);
+            return;
+
+        }
+        this.execute(() -> mDelayed.add(delayed));
+
+    }
+
+    /**
+     * Whether the calling thread is the one driving this loop, i.e. whether work
+     * for the loop can be done right away instead of being submitted.
+     * 
+     * @return <tt>True</tt> if it is, <tt>false</tt> otherwise.
+     */
+    public boolean inLoop() {
+        return mThread == Thread.currentThread();
+
+    }
+
+    /**
+     * Registers the given channel to this loop. The registration itself happens
+     * asynchronously on the thread driving this loop.
+     * 
+     * @param channel The (non-blocking) channel to register.
+     * @param ops     The interest set for the channel.
+     * @param handler The handler receiving callbacks for the channel.
+     */
+    public void register(final SelectableChannel channel, final int ops, final ISelectionHandler handler) {
+        this.register(channel, ops, handler, false);
+
+    }
+
+    /**
+     * Registers the given channel to this loop, optionally handing it to the
+     * handler right after, as if it was selected, e.g. since the transport of
+     * the channel buffered data already which the selector doesn't know of. The
+     * registration itself happens asynchronously on the thread driving this
+     * loop.
+     * 
+     * @param channel The (non-blocking) channel to register.
+     * @param ops     The interest set for the channel.
+     * @param handler The handler receiving callbacks for the channel.
+     * @param ready   Whether to hand the channel to the handler right after
+     *                registering it.
+     */
+    public void register(final SelectableChannel channel, final int ops, final ISelectionHandler handler,
+            final boolean ready) {
+        this.execute(() -> {
+            try {
+                final SelectionKey key = channel.register(mSelector, ops, handler);
+
+                if (ready) {
+                    handler.onSelected(key);
+                }
+
+            } catch (final ClosedChannelException e) {
+                mLogger.log(ELogType.WARNING, "Tried to register an already closed channel.");
+
+            }
+        });
+    }
+
+    /**
+     * Blocks until at least one registered channel is ready, a task got submitted
+     * or a delayed task is due, then runs all pending tasks and dispatches all
+     * ready channels to their {@link ISelectionHandler handlers}.
+     */
+    public void runOnce() {
+        mThread = Thread.currentThread();
+        this.runTasks();
+
+        try {
+            final Delayed next = mDelayed.peek();
+
+            if (next == null) {
+                mSelector.select();
+
+            } else {
+                final long delay = next.mDeadline - System.nanoTime();
+
+                if (delay <= 0) {
+                    mSelector.selectNow();
+
+                } else {
+                    // a timeout of 0 would block forever, rather wake up a bit early.
+                    mSelector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(delay)));
+
+                }
+            }
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Encountered an I/O issue while selecting.");
+            return;
+
+        }
+        this.runTasks();
+        this.runDelayed();
+
+        final Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+
+        while (keys.hasNext()) {
+            final SelectionKey key = keys.next();
+            keys.remove();
+
+            if (!key.isValid()) {
+                continue;
+            }
+
+            try {
+                ((ISelectionHandler) key.attachment()).onSelected(key);
+
+            } catch (final RuntimeException e) {
+                // one misbehaving channel must not take down every other channel of this loop.
+                mLogger.log(ELogType.DANGER, "A channel handler failed: {}", e);
+
+            }
+        }
+    }
+
+    /**
+     * Drives this loop until the thread running it gets interrupted, after which
+     * all registered channels and the underlying selector are closed.
+     */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            this.runOnce();
+
+        }
+
+        try {
+            for (final SelectionKey key : mSelector.keys()) {
+                key.channel().close();
+            }
+            mSelector.close();
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't properly close the selector.");
+
+        }
+    }
+
+    /**
+     * Runs all delayed tasks that are due.
+     */
+    private void runDelayed() {
+        Delayed next = mDelayed.peek();
+
+        while (next != null && next.mDeadline - System.nanoTime() <= 0) {
+            try {
+                mDelayed.poll().mTask.run();
+
+            } catch (final RuntimeException e) {
+                // one failing task must not take down every other channel of this loop.
+                mLogger.log(ELogType.DANGER, "A delayed task failed: {}", e);
+
+            }
+            next = mDelayed.peek();
+
+        }
+    }
+
+    /**
+     * Runs all tasks that are currently pending.
+     */
+    private void runTasks() {
+        Runnable task = mTasks.poll();
+
+        while (task != null) {
+            try {
+                task.run();
+
+            } catch (final RuntimeException e) {
+                // one failing task must not take down every other channel of this loop.
+                mLogger.log(ELogType.DANGER, "A task failed: {}", e);
+
+            }
+            task = mTasks.poll();
+
+        }
+    }
+
+    /**
+     * A task to be run once its deadline passed.
+     */
+    private static final class Delayed implements Comparable<Delayed> {
+
+        /**
+         * The task to run.
+         */
+        private final Runnable mTask;
+
+        /**
+         * The time to run the task at in ns, given by {@link System#nanoTime()}.
+         */
+        private final long mDeadline;
+
+        /**
+         * Creates a new {@link Delayed}.
+         * 
+         * @param task     The task to run.
+         * @param deadline The time to run the task at in ns.
+         */
+        Delayed(final Runnable task, final long deadline) {
+            mTask = task;
+            mDeadline = deadline;
+
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(mDeadline - other.mDeadline, 0);
+
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package de.ativelox.relentlessfisher.irc.nio;
+
+import java.nio.channels.SelectionKey;
+
+/**
+ * Provides callbacks for objects which registered a channel to an
+ * {@link EventLoop}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface ISelectionHandler {
+
+    /**
+     * Gets called by the {@link EventLoop} on its own thread when the channel
+     * belonging to <tt>key</tt> is ready for at least one of the operations it is
+     * interested in.
+     * 
+     * @param key The key of the channel which is ready.
+     */
+    void onSelected(final SelectionKey key);
+
+}
@@ -0,0 +1,294 @@
+package de.ativelox.relentlessfisher.irc.replay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.capture.EDirection;
+import de.ativelox.relentlessfisher.capture.Recording;
+import de.ativelox.relentlessfisher.irc.AIRCController;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.timer.IClock;
+import de.ativelox.relentlessfisher.timer.SystemClock;
+
+/**
+ * Provides an {@link IIRCController} which doesn't connect anywhere, but
+ * replays the lines received during a {@link Recording} to its client, keeping
+ * their original inter-arrival times, sped up by a given factor or not at all
+ * ({@link ReplayIRCController#AS_FAST_AS_POSSIBLE}). Every line the client sends
+ * is kept, to compare it with the lines sent during the recording.<br>
+ * 
+ * Like the other controllers, every call to {@link IIRCController#read()}
+ * delivers received lines, here the next line of the recording once it's due.
+ * Connecting starts the replay, without sending any login lines.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class ReplayIRCController extends AIRCController {
+
+    /**
+     * The speed at which the lines are replayed without any delay in-between.
+     */
+    public final static double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    /**
+     * The time in ms to wait in {@link IIRCController#read()} while there is
+     * nothing to replay.
+     */
+    private final static long IDLE_POLL_DELAY = 100;
+
+    /**
+     * The lines to replay.
+     */
+    private final String[] mLines;
+
+    /**
+     * The times the lines were received at during the recording, in ns.
+     */
+    private final long[] mTimes;
+
+    /**
+     * The factor by which the replay is faster than the recording.
+     */
+    private final double mSpeed;
+
+    /**
+     * The clock used to wait for the lines to become due.
+     */
+    private final IClock mClock;
+
+    /**
+     * The lines sent by the client.
+     */
+    private final List<String> mSent;
+
+    /**
+     * The index of the next line to replay, only accessed by the reading thread.
+     */
+    private int mNext;
+
+    /**
+     * The time the replay started at, given by {@link IClock#nanoTime()}.
+     */
+    private volatile long mStartTime;
+
+    /**
+     * Whether the client connected, i.e. the replay started.
+     */
+    private volatile boolean mConnected;
+
+    /**
+     * Released once all lines are replayed.
+     */
+    private final CountDownLatch mEnd;
+
+    /**
+     * Creates a new {@link ReplayIRCController}.
+     * 
+     * @param recording The recording to replay.
+     * @param speed     The factor by which the replay is faster than the
+     *                  recording, e.g. <tt>1</tt> for the original timing or
+     *                  {@link ReplayIRCController#AS_FAST_AS_POSSIBLE}.
+     */
+    public ReplayIRCController(final Recording recording, final double speed) {
+        this(recording, speed, SystemClock.INSTANCE);
+
+    }
+
+    /**
+     * Creates a new {@link ReplayIRCController}.
+     * 
+     * @param recording The recording to replay.
+     * @param speed     The factor by which the replay is faster than the
+     *                  recording, e.g. <tt>1</tt> for the original timing or
+     *                  {@link ReplayIRCController#AS_FAST_AS_POSSIBLE}.
+     * @param clock     The clock used to wait for the lines to become due.
+     */
+    public ReplayIRCController(final Recording recording, final double speed, final IClock clock) {
+        super(null, 0);
+
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("The speed has to be positive: " + speed);
+        }
+        mLines = recording.getReceived();
+        mTimes = recording.getTimes();
+        mSpeed = speed;
+        mClock = clock;
+        mSent = new ArrayList<>();
+        mEnd = new CountDownLatch(mLines.length == 0 ? 0 : 1);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#connect(java.lang.String)
+     */
+    @Override
+    public boolean connect(final String token) {
+        mStartTime = mClock.nanoTime();
+        mConnected = true;
+
+        return true;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#disconnect()
+     */
+    @Override
+    public boolean disconnect() {
+        mConnected = false;
+
+        return true;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#JOIN(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void JOIN(final String channel, final String key) {
+        this.sendRawData("JOIN #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#PART(java.lang.String)
+     */
+    @Override
+    public void PART(final String channel) {
+        this.sendRawData("PART #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#PRIVMSG(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void PRIVMSG(final String receiver, final String textToBeSent) {
+        this.sendRawData("PRIVMSG #" + receiver + " :" + textToBeSent);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#read()
+     */
+    @Override
+    public void read() {
+        if (!mConnected || mNext == mLines.length) {
+            this.idle();
+            return;
+
+        }
+
+        if (mSpeed != AS_FAST_AS_POSSIBLE) {
+            final long due = mStartTime + (long) ((mTimes[mNext] - mTimes[0]) / mSpeed);
+
+            try {
+                mClock.sleep(due - mClock.nanoTime());
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+
+            }
+        }
+        final String line = mLines[mNext++];
+
+        if (mCapture != null) {
+            mCapture.capture(EDirection.INBOUND, line);
+        }
+
+        if (mClient.getPrefilter().accepts(line)) {
+            mClient.onServerMessageReceived(line);
+        }
+
+        if (mNext == mLines.length) {
+            mEnd.countDown();
+        }
+    }
+
+    /**
+     * Waits some time, since there is nothing to replay.
+     */
+    private void idle() {
+        try {
+            Thread.sleep(IDLE_POLL_DELAY);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#sendRawData(java.lang.String)
+     */
+    @Override
+    public void sendRawData(final String data) {
+        synchronized (mSent) {
+            mSent.add(data);
+        }
+
+        if (mCapture != null) {
+            mCapture.capture(EDirection.OUTBOUND, data);
+        }
+        mLogger.log(ELogType.CLIENT, data);
+
+    }
+
+    /**
+     * Blocks until all lines are replayed.
+     * 
+     * @param timeOut The maximum time to wait in ms.
+     * @return <tt>True</tt> if all lines are replayed, <tt>false</tt> if the
+     *         time ran out first.
+     * @throws InterruptedException If the thread got interrupted while waiting.
+     */
+    public boolean awaitEnd(final long timeOut) throws InterruptedException {
+        return mEnd.await(timeOut, TimeUnit.MILLISECONDS);
+
+    }
+
+    /**
+     * The amount of lines replayed so far, only accurate when called by the
+     * reading thread or after {@link ReplayIRCController#awaitEnd(long)}.
+     * 
+     * @return The amount of lines.
+     */
+    public int replayed() {
+        return mNext;
+
+    }
+
+    /**
+     * The lines sent by the client so far, in order.
+     * 
+     * @return A copy of the lines, excluding their line breaks.
+     */
+    public List<String> getSent() {
+        synchronized (mSent) {
+            return new ArrayList<>(mSent);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.ativelox.relentlessfisher.irc.twitch;
+
+import java.io.IOException;
+
+import de.ativelox.relentlessfisher.irc.AChannelIRCController;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.nio.EventLoop;
+
+/**
+ * Provides an implementation for the {@link IIRCController} interface which
+ * controls a non-blocking, selector driven connection to twitchs' IRC server.
+ * Messages get dispatched as soon as they arrive, instead of being polled.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ * @see {@link AChannelIRCController}
+ * @see {@link IIRCController}
+ */
+public class NioTwitchIRCController extends AChannelIRCController {
+
+    /**
+     * The URI for twitchs' IRC server.
+     */
+    private final static String HOST = "irc.chat.twitch.tv";
+
+    /**
+     * The port used for unsecured communication to the server.
+     */
+    private final static int PORT = 6667;
+
+    /**
+     * The user who gave authorization to be utilized by this application.
+     */
+    private final String mUser;
+
+    /**
+     * Creates a new {@link NioTwitchIRCController}.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     * 
+     * @throws IOException If the underlying selector couldn't be opened.
+     */
+    public NioTwitchIRCController(final String user) throws IOException {
+        super(HOST, PORT);
+        mUser = user;
+    }
+
+    /**
+     * Creates a new {@link NioTwitchIRCController} which connects to the given
+     * server instead of twitchs'.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     * @param host The host (URI) to connect to.
+     * @param port The port on which to connect to the given host.
+     * 
+     * @throws IOException If the underlying selector couldn't be opened.
+     */
+    public NioTwitchIRCController(final String user, final String host, final int port) throws IOException {
+        super(host, port);
+        mUser = user;
+    }
+
+    /**
+     * Creates a new {@link NioTwitchIRCController} which shares the given loop
+     * with other controllers.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     * @param loop The loop shared with other controllers.
+     */
+    public NioTwitchIRCController(final String user, final EventLoop loop) {
+        this(user, HOST, PORT, loop);
+
+    }
+
+    /**
+     * Creates a new {@link NioTwitchIRCController} which connects to the given
+     * server instead of twitchs' and shares the given loop with other
+     * controllers, e.g. to connect to a local stand-in server.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     * @param host The host (URI) to connect to.
+     * @param port The port on which to connect to the given host.
+     * @param loop The loop shared with other controllers.
+     */
+    public NioTwitchIRCController(final String user, final String host, final int port, final EventLoop loop) {
+        super(host, port, loop);
+        mUser = user;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#JOIN(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void JOIN(final String channel, final String key) {
+        this.sendRawData("JOIN #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.AChannelIRCController#onChannelConnected(
+     * java.lang.String)
+     */
+    @Override
+    protected void onChannelConnected(final String token) throws IOException {
+        /*
+         * log onto twitchs' IRC server as specified by twitch:
+         * https://dev.twitch.tv/docs/irc/guide/
+         */
+        this.sendRawData("PASS oauth:" + token);
+        this.sendRawData("NICK " + mUser);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#PART(java.lang.String)
+     */
+    @Override
+    public void PART(final String channel) {
+        this.sendRawData("PART #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#PRIVMSG(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void PRIVMSG(final String receiver, final String textToBeSent) {
+        this.sendRawData("PRIVMSG #" + receiver + " :" + textToBeSent);
+
+    }
+}
@@ -0,0 +1,440 @@
+package de.ativelox.relentlessfisher.irc.twitch;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.nio.EventLoop;
+import de.ativelox.relentlessfisher.logging.ELogType;
+
+/**
+ * Provides an implementation for the {@link IIRCController} interface which
+ * controls a TLS secured connection to twitchs' IRC server. The TLS session is
+ * driven by an {@link SSLEngine} directly on top of the non-blocking channel.
+ * All controllers sharing an {@link SSLContext} share its session cache, so
+ * reconnecting to the same server resumes the previous session instead of
+ * doing a full handshake.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ * @see {@link NioTwitchIRCController}
+ * @see {@link IIRCController}
+ */
+public class SecureTwitchIRCController extends NioTwitchIRCController {
+
+    /**
+     * The URI for twitchs' IRC server.
+     */
+    private final static String HOST = "irc.chat.twitch.tv";
+
+    /**
+     * The port used for secured communication to the server.
+     */
+    private final static int PORT = 6697;
+
+    /**
+     * An empty buffer, used to produce handshake data.
+     */
+    private final static ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    /**
+     * The context creating the engine of each connection.
+     */
+    private final SSLContext mContext;
+
+    /**
+     * The TLS session of the current connection, replaced as a whole once the
+     * handshake of a new connection finished, so the loop never mixes up the
+     * state of two connections.
+     */
+    private volatile Session mSession;
+
+    /**
+     * Creates a new {@link SecureTwitchIRCController}, using the default
+     * {@link SSLContext}.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     * 
+     * @throws IOException If the underlying selector couldn't be opened or the
+     *                     default context isn't available.
+     */
+    public SecureTwitchIRCController(final String user) throws IOException {
+        super(user, HOST, PORT);
+        mContext = DefaultContext();
+    }
+
+    /**
+     * Creates a new {@link SecureTwitchIRCController} which shares the given loop
+     * with other controllers.
+     * 
+     * @param user    The user who gave authorization to be utilized by this
+     *                application.
+     * @param loop    The loop shared with other controllers.
+     * @param context The context used for all connections, sessions are only
+     *                resumed for connections sharing a context.
+     */
+    public SecureTwitchIRCController(final String user, final EventLoop loop, final SSLContext context) {
+        this(user, HOST, PORT, loop, context);
+
+    }
+
+    /**
+     * Creates a new {@link SecureTwitchIRCController} which connects to the given
+     * server instead of twitchs', e.g. a local stand-in server.
+     * 
+     * @param user    The user who gave authorization to be utilized by this
+     *                application.
+     * @param host    The host (URI) to connect to.
+     * @param port    The port on which to connect to the given host.
+     * @param context The context used for all connections, sessions are only
+     *                resumed for connections sharing a context.
+     * 
+     * @throws IOException If the underlying selector couldn't be opened.
+     */
+    public SecureTwitchIRCController(final String user, final String host, final int port, final SSLContext context)
+            throws IOException {
+        super(user, host, port);
+        mContext = context;
+    }
+
+    /**
+     * Creates a new {@link SecureTwitchIRCController} which connects to the given
+     * server instead of twitchs' and shares the given loop with other
+     * controllers.
+     * 
+     * @param user    The user who gave authorization to be utilized by this
+     *                application.
+     * @param host    The host (URI) to connect to.
+     * @param port    The port on which to connect to the given host.
+     * @param loop    The loop shared with other controllers.
+     * @param context The context used for all connections, sessions are only
+     *                resumed for connections sharing a context.
+     */
+    public SecureTwitchIRCController(final String user, final String host, final int port, final EventLoop loop,
+            final SSLContext context) {
+        super(user, host, port, loop);
+        mContext = context;
+    }
+
+    /**
+     * The default context, which is shared by all controllers not given a context
+     * of their own.
+     * 
+     * @return The default context.
+     * @throws IOException If the default context isn't available.
+     */
+    public static SSLContext DefaultContext() throws IOException {
+        try {
+            return SSLContext.getDefault();
+
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException("No default TLS context available.", e);
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.AChannelIRCController#disconnect()
+     */
+    @Override
+    public boolean disconnect() {
+        final SocketChannel channel = mChannel;
+        final Session session = mSession;
+
+        if (session != null && session.mTransport == channel && channel.isOpen()) {
+            session.mEngine.closeOutbound();
+
+            try {
+                // a courtesy close_notify, the server doesn't have to answer.
+                this.wrap(session, EMPTY);
+
+            } catch (final IOException e) {
+                mLogger.log(ELogType.WARNING, "Couldn't properly close the TLS session.");
+
+            }
+        }
+        return super.disconnect();
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.AChannelIRCController#onTransportConnected(
+     * java.nio.channels.SocketChannel)
+     */
+    @Override
+    protected void onTransportConnected(final SocketChannel channel) throws IOException {
+        // host and port identify the session to resume in the contexts' cache.
+        final SSLEngine engine = mContext.createSSLEngine(mHost, mPort);
+        engine.setUseClientMode(true);
+
+        final SSLParameters parameters = engine.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        engine.setSSLParameters(parameters);
+
+        final Session session = new Session(channel, engine);
+
+        // the channel is still blocking, so the handshake can simply wait for data.
+        engine.beginHandshake();
+        HandshakeStatus status = engine.getHandshakeStatus();
+
+        while (status != HandshakeStatus.FINISHED && status != HandshakeStatus.NOT_HANDSHAKING) {
+            switch (status) {
+            case NEED_WRAP:
+                status = this.wrap(session, EMPTY).getHandshakeStatus();
+                break;
+            case NEED_UNWRAP:
+            case NEED_UNWRAP_AGAIN:
+                SSLEngineResult result = session.unwrap();
+
+                while (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    if (channel.read(session.mNetIn) < 0) {
+                        throw new EOFException("The server closed the connection during the handshake.");
+                    }
+                    result = session.unwrap();
+
+                }
+                status = result.getHandshakeStatus();
+                break;
+            case NEED_TASK:
+                status = session.runDelegatedTasks();
+                break;
+            default:
+                throw new SSLException("Unexpected handshake status: " + status);
+
+            }
+        }
+        // the first lines of the server may have arrived along with the last handshake record.
+        this.unwrapBuffered(session);
+
+        // visible to the loop before the channel gets registered to it.
+        mSession = session;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.AChannelIRCController#readTransport(java.nio
+     * .channels.SocketChannel, java.nio.ByteBuffer)
+     */
+    @Override
+    protected int readTransport(final SocketChannel channel, final ByteBuffer dst) throws IOException {
+        final Session session = mSession;
+
+        if (session == null || session.mTransport != channel) {
+            // a previous connection, superseded meanwhile.
+            return -1;
+        }
+        final boolean endOfStream = channel.read(session.mNetIn) < 0;
+        final SSLEngineResult result = this.unwrapBuffered(session);
+        final ByteBuffer appIn = session.mAppIn;
+
+        appIn.flip();
+        final int transferred = Math.min(appIn.remaining(), dst.remaining());
+
+        final ByteBuffer chunk = appIn.duplicate();
+        chunk.limit(chunk.position() + transferred);
+        dst.put(chunk);
+
+        appIn.position(appIn.position() + transferred);
+        appIn.compact();
+
+        if (transferred == 0 && (endOfStream || result.getStatus() == SSLEngineResult.Status.CLOSED)) {
+            return -1;
+        }
+        return transferred;
+
+    }
+
+    /**
+     * Unwraps as much of the encrypted data buffered by the given session as
+     * fits into its buffer holding unwrapped data, answering post-handshake
+     * messages on the way.
+     * 
+     * @param session The session.
+     * @return The result of the last unwrap.
+     * @throws IOException If the data couldn't be unwrapped, or an answer
+     *                     couldn't be written.
+     */
+    private SSLEngineResult unwrapBuffered(final Session session) throws IOException {
+        SSLEngineResult result = session.unwrap();
+
+        // post-handshake messages (e.g. session tickets) consume data without producing any.
+        while (result.getStatus() == SSLEngineResult.Status.OK && result.bytesConsumed() > 0) {
+            if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                session.runDelegatedTasks();
+            }
+            if (session.mEngine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                this.wrap(session, EMPTY);
+            }
+            result = session.unwrap();
+
+        }
+        return result;
+
+    }
+
+    /**
+     * Wraps all of <tt>src</tt> and writes the result to the channel of the
+     * given session.
+     * 
+     * @param session The session.
+     * @param src     The data to wrap.
+     * @return The result of the last wrap.
+     * @throws IOException If an I/O error occurs.
+     */
+    private SSLEngineResult wrap(final Session session, final ByteBuffer src) throws IOException {
+        return this.wrap(session, new ByteBuffer[] { src }, 1);
+
+    }
+
+    /**
+     * Wraps all of the given buffers and writes the result to the channel of the
+     * given session, the buffers being gathered into as few TLS records as
+     * possible.
+     * 
+     * @param session The session.
+     * @param srcs    The data to wrap, the first <tt>length</tt> buffers of which
+     *                are wrapped.
+     * @param length  The amount of buffers to wrap.
+     * @return The result of the last wrap.
+     * @throws IOException If an I/O error occurs.
+     */
+    private synchronized SSLEngineResult wrap(final Session session, final ByteBuffer[] srcs, final int length)
+            throws IOException {
+        final ByteBuffer netOut = session.mNetOut;
+        SSLEngineResult result;
+
+        do {
+            netOut.clear();
+            result = session.mEngine.wrap(srcs, 0, length, netOut);
+            netOut.flip();
+
+            while (netOut.hasRemaining()) {
+                session.mTransport.write(netOut);
+            }
+        } while (srcs[length - 1].hasRemaining() && result.getStatus() == SSLEngineResult.Status.OK);
+
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.AChannelIRCController#writeTransport(java.
+     * nio.channels.SocketChannel, java.nio.ByteBuffer[], int)
+     */
+    @Override
+    protected void writeTransport(final SocketChannel channel, final ByteBuffer[] srcs, final int length)
+            throws IOException {
+        final Session session = mSession;
+
+        if (session == null || session.mTransport != channel) {
+            throw new IOException("The TLS session of this connection is gone.");
+        }
+        this.wrap(session, srcs, length);
+
+    }
+
+    /**
+     * The TLS session of a single connection, i.e. its engine along with the
+     * buffers feeding it.
+     */
+    private static final class Session {
+
+        /**
+         * The channel the session is established on.
+         */
+        private final SocketChannel mTransport;
+
+        /**
+         * The engine of the connection.
+         */
+        private final SSLEngine mEngine;
+
+        /**
+         * Holds encrypted data read from the channel, which hasn't been unwrapped
+         * yet.
+         */
+        private final ByteBuffer mNetIn;
+
+        /**
+         * Holds encrypted data to be written to the channel.
+         */
+        private final ByteBuffer mNetOut;
+
+        /**
+         * Holds unwrapped data which didn't fit into the callers buffer yet.
+         */
+        private final ByteBuffer mAppIn;
+
+        /**
+         * Creates a new {@link Session}.
+         * 
+         * @param transport The channel the session is established on.
+         * @param engine    The engine of the connection.
+         */
+        private Session(final SocketChannel transport, final SSLEngine engine) {
+            mTransport = transport;
+            mEngine = engine;
+
+            mNetIn = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+            mNetOut = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+            mAppIn = ByteBuffer.allocate(engine.getSession().getApplicationBufferSize());
+
+        }
+
+        /**
+         * Runs all tasks the engine delegated, on the calling thread.
+         * 
+         * @return The handshake status after running the tasks.
+         */
+        private HandshakeStatus runDelegatedTasks() {
+            Runnable task = mEngine.getDelegatedTask();
+
+            while (task != null) {
+                task.run();
+                task = mEngine.getDelegatedTask();
+
+            }
+            return mEngine.getHandshakeStatus();
+        }
+
+        /**
+         * Unwraps as much of the buffered encrypted data as fits into the buffer
+         * holding unwrapped data.
+         * 
+         * @return The result of the unwrap.
+         * @throws SSLException If the data couldn't be unwrapped.
+         */
+        private SSLEngineResult unwrap() throws SSLException {
+            mNetIn.flip();
+
+            try {
+                return mEngine.unwrap(mNetIn, mAppIn);
+
+            } finally {
+                mNetIn.compact();
+
+            }
+        }
+    }
+}
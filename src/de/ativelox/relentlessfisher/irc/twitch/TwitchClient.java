@@ -1,280 +1,429 @@
-package de.ativelox.relentlessfisher.irc.twitch;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-
-import de.ativelox.relentlessfisher.irc.AClient;
-import de.ativelox.relentlessfisher.irc.IIRCController;
-import de.ativelox.relentlessfisher.listeners.IConnectionListener;
-import de.ativelox.relentlessfisher.listeners.IJoinListener;
-import de.ativelox.relentlessfisher.listeners.IWhisperListener;
-import de.ativelox.relentlessfisher.logging.ELogType;
-import de.ativelox.relentlessfisher.protocols.TwitchProtocolConfirmation;
-import de.ativelox.relentlessfisher.timer.ITimeoutListener;
-import de.ativelox.relentlessfisher.timer.ITimer;
-import de.ativelox.relentlessfisher.timer.SimpleTimer;
-import de.ativelox.relentlessfisher.utils.HTTPRequest;
-
-/**
- * Provides an implementation for an {@link AClient IRCClient}, which uses a
- * {@link UnsecuredTwitchIRCController} to control its behavior. Allows
- * registering of listeners, and provides callbacks for them accordingly.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- * @see {@link IConnectionListener}
- * @see {@link IJoinListener}
- * @see {@link IPartListener}
- * @see {@link IWhisperListener}
- */
-public class TwitchClient extends AClient implements ITimeoutListener {
-
-    /**
-     * The key that is given in a JSON object referring to the access token for the
-     * oauth2 authentification for this application.
-     */
-    private final static String ACCESS_TOKEN_IDENTIFIER = "access_token";
-
-    /**
-     * The user having granted authorization to be controlled by this application.
-     */
-    private final String mUser;
-
-    /**
-     * The refresh token, which is used to refresh your access token. More can be
-     * found here: <a href=
-     * "https://dev.twitch.tv/docs/authentication/#refreshing-access-tokens">https://dev.twitch.tv/docs/authentication/#refreshing-access-tokens</a>
-     */
-    private final String mRefreshToken;
-
-    /**
-     * The client id, which is uniquely assigned to every twitch-application. Used
-     * to identify this application.
-     */
-    private final String mClientId;
-
-    /**
-     * The client secret, which is used in refreshing access tokens.
-     */
-    private final String mClientSecret;
-
-    /**
-     * All the objects wanting to receive callbacks when the
-     * {@link TwitchClient#mUser user} gets a whisper.
-     */
-    private final List<IWhisperListener> mWhisperListeners;
-
-    /**
-     * The timer used to determine when to reconnect this client.
-     */
-    private final ITimer mReconnectTimer;
-
-    /**
-     * The time in ms after which to reconnect this client, afer no heartbeats have
-     * been received.
-     */
-    private static final long RECONNECT_TIME_OUT = 360000;
-
-    /**
-     * The accuracy of the timer in ms.
-     */
-    private static final long TIMER_ACCURACY = 30000;
-
-    /**
-     * The executor used for threading.
-     */
-    private final ExecutorService mExecutor;
-
-    /**
-     * Creates a new {@link TwitchClient}.
-     * 
-     * @param clientId     The ID used to uniquely identify this application.
-     *                     Provided by Twitch.
-     * @param clientSecret The secret used to refresh access tokens. Provided by
-     *                     Twitch.
-     * @param refreshToken The refresh token, used to refresh access tokens.
-     *                     Provided by Twitch when registering this application for
-     *                     an oauth token.
-     * @param user         The user which granted authorization to be controlled by
-     *                     this application.
-     * @param executor     the executor used for threading.
-     */
-    public TwitchClient(final String clientId, final String clientSecret, final String refreshToken, final String user,
-	    final ExecutorService executor) {
-	super(new UnsecuredTwitchIRCController(user));
-
-	mUser = user;
-
-	mRefreshToken = refreshToken;
-	mClientId = clientId;
-	mClientSecret = clientSecret;
-
-	mWhisperListeners = new ArrayList<>();
-
-	mReconnectTimer = new SimpleTimer(RECONNECT_TIME_OUT, TIMER_ACCURACY, this);
-	mExecutor = executor;
-    }
-
-    /**
-     * Connects this client by calling {@link IIRCController#connect(String)}. Also
-     * starts some timing related tasks.
-     */
-    private void connect() {
-	mExecutor.submit(mReconnectTimer);
-
-	String access_token = null;
-	try {
-	    mLogger.log(ELogType.INFO, "Fetching access token...");
-	    access_token = this.getAccessToken();
-	    mLogger.log(ELogType.INFO, "Done.");
-
-	} catch (final IOException e1) {
-	    mLogger.log(ELogType.DANGER, "Could not get an access token.");
-	    return;
-
-	}
-	int reconnectTries = 0;
-
-	// exponential reconnect increase, as to not over-strain the server.
-	while (!mController.connect(access_token)) {
-	    try {
-		Thread.sleep(1000 * (int) Math.pow(2, reconnectTries));
-	    } catch (InterruptedException e) {
-		mLogger.log(ELogType.WARNING, "Client got interrupted while sleeping.");
-	    }
-	    reconnectTries++;
-	}
-	reconnectTries = 0;
-
-    }
-
-    /**
-     * Gets (and refreshes) the access token needed to log onto twitch.
-     * 
-     * @return The access token.
-     * @throws IOException When the access token couldn't properly get fetched.
-     */
-    private String getAccessToken() throws IOException {
-	return HTTPRequest
-		.Post("https://id.twitch.tv/oauth2/token?grant_type=refresh_token&refresh_token=" + mRefreshToken
-			+ "&client_id=" + mClientId + "&client_secret=" + mClientSecret, "")
-		.get(ACCESS_TOKEN_IDENTIFIER);
-
-    }
-
-    /**
-     * Joins a given channel.
-     * 
-     * @param channel The channel to join.
-     * 
-     * @see {@link IIRCController#JOIN(String, String)}
-     */
-    public void join(final String channel) {
-	mController.JOIN(channel, "");
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see
-     * de.ativelox.relentlessfisher.irc.AClient#onServerMessageReceived(java.lang.
-     * String)
-     */
-    @Override
-    public void onServerMessageReceived(final String serverMessage) {
-	super.onServerMessageReceived(serverMessage);
-
-	if (serverMessage.contains("PING")) {
-	    mReconnectTimer.reset();
-
-	}
-
-	if (TwitchProtocolConfirmation.IsConnect(mUser, serverMessage)) {
-	    mLogger.log(ELogType.INFO, "Got successful connection confirmation.");
-
-	    for (final IConnectionListener listener : mConnectionListeners) {
-		listener.onConnection();
-
-	    }
-	    return;
-	}
-
-	final String possibleChannel = TwitchProtocolConfirmation.IsJoin(mUser, serverMessage);
-
-	if (possibleChannel != null) {
-	    mLogger.log(ELogType.INFO, "Got channel confirmation for: " + possibleChannel);
-
-	    for (final IJoinListener listener : mJoinListeners) {
-		listener.onJoin(possibleChannel);
-	    }
-	    return;
-
-	}
-
-	final String[] possibleWhisper = TwitchProtocolConfirmation.IsWhisper(mUser, serverMessage);
-
-	if (possibleWhisper != null) {
-	    for (final IWhisperListener listener : mWhisperListeners) {
-		listener.onWhisperReceived(possibleWhisper[0], possibleWhisper[1]);
-	    }
-
-	}
-    }
-
-    /**
-     * Registers the given listener to receive
-     * {@link IWhisperListener#onWhisperReceived(String, String)} callbacks.
-     * 
-     * @param listener The listener to receive callbacks.
-     */
-    public void register(final IWhisperListener listener) {
-	mWhisperListeners.add(listener);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.AClient#run()
-     */
-    @Override
-    public void run() {
-	this.connect();
-
-	while (true) {
-	    mController.read();
-
-	    try {
-		// TODO: properly handle sleeping
-		Thread.sleep(500);
-	    } catch (InterruptedException e) {
-
-	    }
-	}
-    }
-
-    /**
-     * Whispers (/w on twitch) a user (<tt>receiver</tt>) on a specific
-     * <tt>channel</tt> a message (<tt>contents</tt>).
-     * 
-     * @param channel  The channel on which the user has to be, in order for this
-     *                 whisper to work.
-     * @param receiver The <tt>user</tt> who is to receive this message.
-     * @param contents The <tt>contents</tt> of the whisper.
-     * 
-     * @see {@link IIRCController#PRIVMSG(String, String)}
-     */
-    public void whisper(final String channel, final String receiver, final String contents) {
-	mController.PRIVMSG(channel, "/w " + receiver + " " + contents);
-    }
-
-    @Override
-    public void onTimeout(final long ms) {
-	this.mController.disconnect();
-	this.connect();
-
-    }
-}
+package de.ativelox.relentlessfisher.irc.twitch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.auth.IAccessTokenProvider;
+import de.ativelox.relentlessfisher.auth.RefreshTokenProvider;
+import de.ativelox.relentlessfisher.irc.AClient;
+import de.ativelox.relentlessfisher.irc.AIRCController;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.pacing.WhisperScheduler;
+import de.ativelox.relentlessfisher.protocols.TwitchProtocolConfirmation;
+import de.ativelox.relentlessfisher.timer.ITimeoutListener;
+import de.ativelox.relentlessfisher.timer.ITimer;
+import de.ativelox.relentlessfisher.timer.ITimerFactory;
+import de.ativelox.relentlessfisher.timer.SimpleTimer;
+
+/**
+ * Provides an implementation for an {@link AClient IRCClient}, which uses an
+ * {@link IIRCController} (by default an {@link UnsecuredTwitchIRCController}) to
+ * control its behavior. Allows registering of listeners, and provides callbacks
+ * for them accordingly. Whispers draw their slots from a
+ * {@link WhisperScheduler}, shared with all other clients of this process by
+ * default, so they keep to twitchs' rate limits together.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ * @see {@link IConnectionListener}
+ * @see {@link IJoinListener}
+ * @see {@link IPartListener}
+ * @see {@link IWhisperListener}
+ */
+public class TwitchClient extends AClient implements ITimeoutListener {
+
+    /**
+     * The user having granted authorization to be controlled by this application.
+     */
+    private final String mUser;
+
+    /**
+     * Hands out the access token used to log onto twitch.
+     */
+    private final IAccessTokenProvider mTokenProvider;
+
+    /**
+     * All the objects wanting to receive callbacks when the
+     * {@link TwitchClient#mUser user} gets a whisper.
+     */
+    private final List<IWhisperListener> mWhisperListeners;
+
+    /**
+     * The timer used to determine when to reconnect this client.
+     */
+    private final ITimer mReconnectTimer;
+
+    /**
+     * The time in ms after which to reconnect this client, afer no heartbeats have
+     * been received.
+     */
+    private static final long RECONNECT_TIME_OUT = 360000;
+
+    /**
+     * The accuracy of the timer in ms.
+     */
+    private static final long TIMER_ACCURACY = 30000;
+
+    /**
+     * The executor used for threading.
+     */
+    private final ExecutorService mExecutor;
+
+    /**
+     * The time in ms a whisper sent by
+     * {@link TwitchClient#whisper(String, String, String)} may wait for its slot.
+     */
+    private static final long WHISPER_SLACK = 10000;
+
+    /**
+     * The account of the {@link TwitchClient#mUser user} drawing the slots of its
+     * whispers.
+     */
+    private final WhisperScheduler.Account mWhispers;
+
+    /**
+     * Creates a new {@link TwitchClient}.
+     * 
+     * @param clientId     The ID used to uniquely identify this application.
+     *                     Provided by Twitch.
+     * @param clientSecret The secret used to refresh access tokens. Provided by
+     *                     Twitch.
+     * @param refreshToken The refresh token, used to refresh access tokens.
+     *                     Provided by Twitch when registering this application for
+     *                     an oauth token.
+     * @param user         The user which granted authorization to be controlled by
+     *                     this application.
+     * @param executor     the executor used for threading.
+     */
+    public TwitchClient(final String clientId, final String clientSecret, final String refreshToken, final String user,
+            final ExecutorService executor) {
+        this(new UnsecuredTwitchIRCController(user), clientId, clientSecret, refreshToken, user, executor);
+
+    }
+
+    /**
+     * Creates a new {@link TwitchClient}.
+     * 
+     * @param controller   The controller which handles further server
+     *                     communication.
+     * @param clientId     The ID used to uniquely identify this application.
+     *                     Provided by Twitch.
+     * @param clientSecret The secret used to refresh access tokens. Provided by
+     *                     Twitch.
+     * @param refreshToken The refresh token, used to refresh access tokens.
+     *                     Provided by Twitch when registering this application for
+     *                     an oauth token.
+     * @param user         The user which granted authorization to be controlled by
+     *                     this application.
+     * @param executor     the executor used for threading.
+     */
+    public TwitchClient(final IIRCController controller, final String clientId, final String clientSecret,
+            final String refreshToken, final String user, final ExecutorService executor) {
+        this(controller, new RefreshTokenProvider(clientId, clientSecret, refreshToken), user, executor,
+                SimpleTimer.Factory(TIMER_ACCURACY));
+
+    }
+
+    /**
+     * Creates a new {@link TwitchClient}.
+     * 
+     * @param controller    The controller which handles further server
+     *                      communication.
+     * @param tokenProvider Hands out the access token used to log onto twitch.
+     * @param user          The user which granted authorization to be controlled
+     *                      by this application.
+     * @param executor      the executor used for threading.
+     * @param timers        The factory used to create the timers of this client.
+     */
+    public TwitchClient(final IIRCController controller, final IAccessTokenProvider tokenProvider, final String user,
+            final ExecutorService executor, final ITimerFactory timers) {
+        this(controller, tokenProvider, user, executor, timers, WhisperScheduler.Get());
+
+    }
+
+    /**
+     * Creates a new {@link TwitchClient}.
+     * 
+     * @param controller    The controller which handles further server
+     *                      communication.
+     * @param tokenProvider Hands out the access token used to log onto twitch.
+     * @param user          The user which granted authorization to be controlled
+     *                      by this application.
+     * @param executor      the executor used for threading.
+     * @param timers        The factory used to create the timers of this client.
+     * @param whispers      The scheduler handing out the slots of the whispers of
+     *                      this client.
+     */
+    public TwitchClient(final IIRCController controller, final IAccessTokenProvider tokenProvider, final String user,
+            final ExecutorService executor, final ITimerFactory timers, final WhisperScheduler whispers) {
+        super(controller);
+
+        mUser = user;
+        mTokenProvider = tokenProvider;
+
+        mWhisperListeners = new ArrayList<>();
+
+        mReconnectTimer = timers.create(RECONNECT_TIME_OUT, this);
+        mExecutor = executor;
+        mWhispers = whispers.register(user);
+
+        // everything else, mostly the chat of joined channels, gets dropped undecoded.
+        this.registerHandler(TwitchProtocolConfirmation.CONNECT, this::onConnect);
+        this.registerHandler(TwitchProtocolConfirmation.JOIN, this::onJoin);
+        this.registerHandler(TwitchProtocolConfirmation.WHISPER, this::onWhisper);
+        this.registerHandler(TwitchProtocolConfirmation.RECONNECT, this::onReconnect);
+        this.registerHandler(TwitchProtocolConfirmation.NOTICE, this::onNotice);
+    }
+
+    /**
+     * Connects this client by calling {@link IIRCController#connect(String)}. Also
+     * starts some timing related tasks.
+     */
+    private void connect() {
+        mExecutor.submit(mReconnectTimer);
+
+        String access_token = null;
+        try {
+            mLogger.log(ELogType.INFO, "Fetching access token...");
+            access_token = mTokenProvider.getAccessToken();
+            mLogger.log(ELogType.INFO, "Done.");
+
+        } catch (final IOException e1) {
+            mLogger.log(ELogType.DANGER, "Could not get an access token.");
+            return;
+
+        }
+        int reconnectTries = 0;
+
+        // exponential reconnect increase, as to not over-strain the server.
+        while (!mController.connect(access_token)) {
+            try {
+                Thread.sleep(1000 * (int) Math.pow(2, reconnectTries));
+            } catch (InterruptedException e) {
+                mLogger.log(ELogType.WARNING, "Client got interrupted while sleeping.");
+            }
+            reconnectTries++;
+        }
+        reconnectTries = 0;
+
+    }
+
+    /**
+     * Joins a given channel.
+     * 
+     * @param channel The channel to join.
+     * 
+     * @see {@link IIRCController#JOIN(String, String)}
+     */
+    public void join(final String channel) {
+        mController.JOIN(channel, "");
+
+    }
+
+    /**
+     * Handles the confirmation of a successful login.
+     * 
+     * @param message The <tt>376</tt> message.
+     */
+    private void onConnect(final IRCMessage message) {
+        if (!TwitchProtocolConfirmation.IsConnect(mUser, message)) {
+            return;
+        }
+        mLogger.log(ELogType.INFO, "Got successful connection confirmation.");
+
+        for (final IConnectionListener listener : mConnectionListeners) {
+            listener.onConnection();
+
+        }
+    }
+
+    /**
+     * Handles the confirmation of a successful JOIN.
+     * 
+     * @param message The <tt>366</tt> message.
+     */
+    private void onJoin(final IRCMessage message) {
+        final String channel = TwitchProtocolConfirmation.IsJoin(mUser, message);
+
+        if (channel == null) {
+            return;
+        }
+        mLogger.log(ELogType.INFO, "Got channel confirmation for: {}", channel);
+
+        for (final IJoinListener listener : mJoinListeners) {
+            listener.onJoin(channel);
+        }
+    }
+
+    /**
+     * Handles a notice of the server, which usually reports a failed login.
+     * 
+     * @param message The <tt>NOTICE</tt> message.
+     */
+    private void onNotice(final IRCMessage message) {
+        mLogger.log(ELogType.WARNING, "Got a notice from the server: {}", message.getTrailing());
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.AClient#onPing(de.ativelox.relentlessfisher.
+     * irc.message.IRCMessage)
+     */
+    @Override
+    protected void onPing(final IRCMessage message) {
+        super.onPing(message);
+        mReconnectTimer.reset();
+
+    }
+
+    /**
+     * Handles the announcement of a server restart, by reconnecting right away.
+     * 
+     * @param message The <tt>RECONNECT</tt> message.
+     */
+    private void onReconnect(final IRCMessage message) {
+        mLogger.log(ELogType.INFO, "The server asked to reconnect.");
+        this.reconnect();
+
+    }
+
+    /**
+     * Handles a whisper.
+     * 
+     * @param message The <tt>WHISPER</tt> message.
+     */
+    private void onWhisper(final IRCMessage message) {
+        final String[] whisper = TwitchProtocolConfirmation.IsWhisper(mUser, message);
+
+        if (whisper == null) {
+            return;
+        }
+
+        for (final IWhisperListener listener : mWhisperListeners) {
+            listener.onWhisperReceived(whisper[0], whisper[1]);
+        }
+    }
+
+    /**
+     * Registers the given listener to receive
+     * {@link IWhisperListener#onWhisperReceived(String, String)} callbacks.
+     * 
+     * @param listener The listener to receive callbacks.
+     */
+    public void register(final IWhisperListener listener) {
+        mWhisperListeners.add(listener);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.AClient#run()
+     */
+    @Override
+    public void run() {
+        this.start();
+
+        // reading blocks until data arrives, so there is no need to sleep in-between.
+        while (!Thread.currentThread().isInterrupted()) {
+            mController.read();
+
+        }
+    }
+
+    /**
+     * Connects this client without reading from the underlying controller, which
+     * is used if the controller is driven by a shared event loop. Blocks until the
+     * connection is established.
+     */
+    public void start() {
+        this.connect();
+
+    }
+
+    /**
+     * Whispers (/w on twitch) a user (<tt>receiver</tt>) on a specific
+     * <tt>channel</tt> a message (<tt>contents</tt>), once the whisper got its
+     * slot.
+     * 
+     * @param channel  The channel on which the user has to be, in order for this
+     *                 whisper to work.
+     * @param receiver The <tt>user</tt> who is to receive this message.
+     * @param contents The <tt>contents</tt> of the whisper.
+     * 
+     * @see {@link IIRCController#PRIVMSG(String, String)}
+     */
+    public void whisper(final String channel, final String receiver, final String contents) {
+        mWhispers.submit(EPriority.BEST_EFFORT, 0, TimeUnit.MILLISECONDS.toNanos(WHISPER_SLACK),
+                () -> mController.PRIVMSG(channel, "/w " + receiver + " " + contents));
+    }
+
+    /**
+     * Submits a whisper of the {@link TwitchClient#mUser user} to the
+     * {@link WhisperScheduler}, to be sent by the given task once it got its slot,
+     * e.g. a pre-encoded one, see
+     * {@link TwitchClient#WhisperFrame(String, String, String)}.
+     * 
+     * @param priority The priority of the whisper.
+     * @param delay    The time in ns to wait at least before sending the
+     *                 whisper.
+     * @param slack    The time in ns the whisper may wait for its slot after the
+     *                 delay passed, the smaller the more urgent the whisper is.
+     * @param send     Sends the whisper, right away on the calling thread if it
+     *                 may be, must not block.
+     * @return The whisper, which may be withdrawn while waiting for its slot.
+     */
+    public WhisperScheduler.Request whisper(final EPriority priority, final long delay, final long slack,
+            final Runnable send) {
+        return mWhispers.submit(priority, delay, slack, send);
+
+    }
+
+    /**
+     * Encodes the line sent by {@link TwitchClient#whisper(String, String, String)}
+     * for the given arguments once, to be sent by
+     * {@link AClient#sendFrame(ByteBuffer, EPriority, Runnable)} as often as
+     * needed.
+     * 
+     * @param channel  The channel to send the whisper over.
+     * @param receiver The <tt>user</tt> who is to receive this message.
+     * @param contents The <tt>contents</tt> of the whisper.
+     * @return The read-only frame, including the line break.
+     */
+    public static ByteBuffer WhisperFrame(final String channel, final String receiver, final String contents) {
+        return AIRCController.Encode("PRIVMSG #" + channel + " :/w " + receiver + " " + contents);
+
+    }
+
+    @Override
+    public void onTimeout(final long ms) {
+        this.reconnect();
+
+    }
+
+    /**
+     * Disconnects and connects this client again, on the executor.
+     */
+    private void reconnect() {
+        // reconnecting blocks, which must neither happen on a (possibly shared) timer
+        // nor reader thread.
+        mExecutor.submit(() -> {
+            this.mController.disconnect();
+            this.connect();
+        });
+
+    }
+}
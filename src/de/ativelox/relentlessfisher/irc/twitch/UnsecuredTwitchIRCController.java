@@ -1,178 +1,362 @@
-package de.ativelox.relentlessfisher.irc.twitch;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.Socket;
-
-import de.ativelox.relentlessfisher.irc.AIRCController;
-import de.ativelox.relentlessfisher.irc.IIRCController;
-import de.ativelox.relentlessfisher.logging.ELogType;
-
-/**
- * Provides an implementation for the {@link IIRCController} interface which
- * controls an unsecured connection to twitchs' IRC server.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- * 
- * @see {@link AIRCController}
- * @see {@link IIRCController}
- *
- */
-public class UnsecuredTwitchIRCController extends AIRCController {
-
-    /**
-     * The URI for twitchs' IRC server.
-     */
-    private final static String HOST = "irc.chat.twitch.tv";
-
-    /**
-     * The port used for unsecured communication to the server.
-     */
-    private final static int PORT = 6667;
-
-    /**
-     * A newline representation for twitch.
-     */
-    private final static String NEWLINE = "\r\n";
-
-    /**
-     * The user who gave authorization to be utilized by this application.
-     */
-    private final String mUser;
-
-    /**
-     * Creates a new {@link UnsecuredTwitchIRCController}.
-     * 
-     * @param user The user who gave authorization to be utilized by this
-     *             application.
-     */
-    public UnsecuredTwitchIRCController(final String user) {
-	super(HOST, PORT);
-	mUser = user;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.IIRCController#connect()
-     */
-    @Override
-    public boolean connect(final String token) {
-	try {
-	    mSocket = new Socket(mHost, mPort);
-	    mReader = new BufferedReader(new InputStreamReader(mSocket.getInputStream()));
-	    mWriter = new PrintWriter(new OutputStreamWriter(mSocket.getOutputStream()));
-
-	    /*
-	     * log onto twitchs' IRC server as specified by twitch:
-	     * https://dev.twitch.tv/docs/irc/guide/ this implementation uses the non-SSL
-	     * port.
-	     */
-	    this.sendRawData("PASS oauth:" + token);
-	    this.sendRawData("NICK " + mUser);
-
-	} catch (final IOException e) {
-	    try {
-		mSocket.close();
-		mReader.close();
-		mWriter.close();
-
-	    } catch (final IOException e1) {
-		mLogger.log(ELogType.WARNING,
-			"Couldn't close possibly bound resources. Connections to I/O Streams or Sockets might still be opened");
-
-	    }
-	    mLogger.log(ELogType.WARNING, "Couldn't properly establish a connection to: " + mHost + ":" + mPort + ".");
-	    return false;
-	}
-	return true;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.IIRCController#JOIN(java.lang.String,
-     * java.lang.String)
-     */
-    @Override
-    public void JOIN(final String channel, final String key) {
-	this.sendRawData("JOIN #" + channel);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.IIRCController#PART(java.lang.String)
-     */
-    @Override
-    public void PART(final String channel) {
-	this.sendRawData("PART #" + channel);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see
-     * de.ativelox.relentlessfisher.irc.IIRCController#PRIVMSG(java.lang.String,
-     * java.lang.String)
-     */
-    @Override
-    public void PRIVMSG(final String receiver, final String textToBeSent) {
-	this.sendRawData("PRIVMSG #" + receiver + " :" + textToBeSent);
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see de.ativelox.relentlessfisher.irc.IIRCController#read()
-     */
-    @Override
-    public void read() {
-	try {
-	    while (mReader.ready()) {
-		mClient.onServerMessageReceived(mReader.readLine());
-	    }
-
-	} catch (final IOException e) {
-	    mLogger.log(ELogType.WARNING,
-		    "Encountered an I/O issue while trying to read from the clients Input Stream.");
-	}
-
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see
-     * de.ativelox.relentlessfisher.irc.IIRCController#sendRawData(java.lang.String)
-     */
-    @Override
-    public void sendRawData(final String data) {
-	mWriter.write(data + NEWLINE);
-	mWriter.flush();
-
-	mLogger.log(ELogType.CLIENT, data);
-
-    }
-
-    @Override
-    public boolean disconnect() {
-	try {
-	    mSocket.close();
-	    mReader.close();
-	    mWriter.close();
-
-	} catch (final IOException e) {
-	    mLogger.log(ELogType.WARNING, "Couldn't properly disconnect.");
-	    return false;
-
-	}
-	return true;
-    }
-}
+package de.ativelox.relentlessfisher.irc.twitch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.capture.EDirection;
+import de.ativelox.relentlessfisher.irc.AIRCController;
+import de.ativelox.relentlessfisher.irc.IIRCController;
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.irc.framing.OutboundQueue;
+import de.ativelox.relentlessfisher.logging.ELogType;
+
+/**
+ * Provides an implementation for the {@link IIRCController} interface which
+ * controls an unsecured connection to twitchs' IRC server. Reading blocks the
+ * calling thread. Outgoing lines may be sent by any thread, they are queued
+ * into an {@link OutboundQueue} without locking and written by whichever
+ * sending thread finds it idle, all lines pending by then coalesced into a
+ * single gathering write, highest {@link EPriority priority} first.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ * @see {@link AIRCController}
+ * @see {@link IIRCController}
+ *
+ */
+public class UnsecuredTwitchIRCController extends AIRCController {
+
+    /**
+     * The URI for twitchs' IRC server.
+     */
+    private final static String HOST = "irc.chat.twitch.tv";
+
+    /**
+     * The port used for unsecured communication to the server.
+     */
+    private final static int PORT = 6667;
+
+    /**
+     * The time in ms to wait after the connection broke, before trying to read
+     * again.
+     */
+    private final static long RECONNECT_POLL_DELAY = 1000;
+
+    /**
+     * Writes the lines held back by twitchs' rate limit for all instances, since
+     * there is no thread doing their I/O which could be woken up later. Hitting
+     * the limit is rare, so a single thread suffices.
+     */
+    private final static ScheduledExecutorService RESUMER = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "outbound-resumer");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
+    /**
+     * The user who gave authorization to be utilized by this application.
+     */
+    private final String mUser;
+
+    /**
+     * The channel to the server, in blocking mode, <tt>null</tt> if not
+     * connected.
+     */
+    private volatile SocketChannel mChannel;
+
+    /**
+     * The frames waiting to be written to the
+     * {@link UnsecuredTwitchIRCController#mChannel channel}.
+     */
+    private final OutboundQueue mOutbound;
+
+    /**
+     * Gets called for every frame written, created once to not allocate on every
+     * write.
+     */
+    private final OutboundQueue.ISentHandler mSentHandler;
+
+    /**
+     * Drains the {@link UnsecuredTwitchIRCController#mOutbound outbound queue}
+     * once lines held back by the rate limit may be written.
+     */
+    private final Runnable mResume;
+
+    /**
+     * Creates a new {@link UnsecuredTwitchIRCController}.
+     * 
+     * @param user The user who gave authorization to be utilized by this
+     *             application.
+     */
+    public UnsecuredTwitchIRCController(final String user) {
+        super(HOST, PORT);
+        mUser = user;
+        mOutbound = new OutboundQueue();
+        mSentHandler = this::onFrameSent;
+        mResume = this::resume;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#connect()
+     */
+    @Override
+    public boolean connect(final String token) {
+        try {
+            final SocketChannel channel = SocketChannel.open(new InetSocketAddress(mHost, mPort));
+
+            mSocket = channel.socket();
+            mReader = new BufferedReader(new InputStreamReader(mSocket.getInputStream()));
+
+            mOutbound.clear();
+            mChannel = channel;
+
+            /*
+             * log onto twitchs' IRC server as specified by twitch:
+             * https://dev.twitch.tv/docs/irc/guide/ this implementation uses the non-SSL
+             * port.
+             */
+            this.sendRawData("PASS oauth:" + token);
+            this.sendRawData("NICK " + mUser);
+
+        } catch (final IOException e) {
+            try {
+                if (mSocket != null) {
+                    mSocket.close();
+                }
+
+            } catch (final IOException e1) {
+                mLogger.log(ELogType.WARNING,
+                        "Couldn't close possibly bound resources. Connections to I/O Streams or Sockets might still be opened");
+
+            }
+            mLogger.log(ELogType.WARNING, "Couldn't properly establish a connection to: {}:{}.", mHost, mPort);
+            return false;
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#JOIN(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void JOIN(final String channel, final String key) {
+        this.sendRawData("JOIN #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#PART(java.lang.String)
+     */
+    @Override
+    public void PART(final String channel) {
+        this.sendRawData("PART #" + channel);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#PRIVMSG(java.lang.String,
+     * java.lang.String)
+     */
+    @Override
+    public void PRIVMSG(final String receiver, final String textToBeSent) {
+        this.sendRawData("PRIVMSG #" + receiver + " :" + textToBeSent);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.IIRCController#read()
+     */
+    @Override
+    public void read() {
+        try {
+            String line = mReader.readLine();
+
+            if (line == null) {
+                mLogger.log(ELogType.WARNING, "The server closed the connection.");
+                this.awaitReconnect();
+                return;
+            }
+            this.dispatch(line);
+
+            while (mReader.ready()) {
+                line = mReader.readLine();
+
+                if (line == null) {
+                    return;
+                }
+                this.dispatch(line);
+            }
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING,
+                    "Encountered an I/O issue while trying to read from the clients Input Stream.");
+            this.awaitReconnect();
+        }
+
+    }
+
+    /**
+     * Passes the given line to the client, if it passes the clients' prefilter.
+     * 
+     * @param line The line received from the server.
+     */
+    private void dispatch(final String line) {
+        if (mCapture != null) {
+            mCapture.capture(EDirection.INBOUND, line);
+        }
+
+        if (mClient.getPrefilter().accepts(line)) {
+            mClient.onServerMessageReceived(line);
+        }
+    }
+
+    /**
+     * Waits some time after the connection broke, since nothing can be read until
+     * the client reconnects.
+     */
+    private void awaitReconnect() {
+        try {
+            Thread.sleep(RECONNECT_POLL_DELAY);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.irc.IIRCController#sendRawData(java.lang.String)
+     */
+    @Override
+    public void sendRawData(final String data) {
+        this.sendFrame(Encode(data), EPriority.Of(data), null);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.irc.AIRCController#sendFrame(java.nio.
+     * ByteBuffer, de.ativelox.relentlessfisher.irc.framing.EPriority,
+     * java.lang.Runnable)
+     */
+    @Override
+    public void sendFrame(final ByteBuffer frame, final EPriority priority, final Runnable onSent) {
+        if (mChannel == null) {
+            mLogger.log(ELogType.WARNING, "Couldn't send data, not connected.");
+            return;
+
+        }
+
+        if (mOutbound.offer(frame, priority, onSent)) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes all frames pending in the outbound queue to the channel, on the
+     * calling thread.
+     */
+    private void flush() {
+        final SocketChannel channel = mChannel;
+
+        try {
+            // failing the write rather than skipping the drain leaves the queue idle again.
+            final long delay = mOutbound.drain((frames, length) -> {
+                if (channel == null) {
+                    throw new IOException("Not connected.");
+                }
+
+                while (frames[length - 1].hasRemaining()) {
+                    channel.write(frames, 0, length);
+                }
+            }, mSentHandler);
+
+            if (delay >= 0) {
+                RESUMER.schedule(mResume, delay, TimeUnit.NANOSECONDS);
+            }
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't send data to the server.");
+
+        }
+    }
+
+    /**
+     * Writes the lines held back by the rate limit, once the delay asked for by
+     * the outbound queue passed.
+     */
+    private void resume() {
+        if (mOutbound.resume()) {
+            this.flush();
+        }
+    }
+
+    /**
+     * The queue of the lines waiting to be written, e.g. to look at the metrics
+     * of its lanes or to change its rate limit.
+     * 
+     * @return The queue.
+     */
+    public OutboundQueue getOutbound() {
+        return mOutbound;
+
+    }
+
+    /**
+     * Gets called for every frame once it got written to the channel.
+     * 
+     * @param frame  The frame.
+     * @param onSent The callback sent along with the frame, possibly
+     *               <tt>null</tt>.
+     */
+    private void onFrameSent(final ByteBuffer frame, final Runnable onSent) {
+        if (onSent != null) {
+            onSent.run();
+        }
+
+        if (mCapture != null) {
+            mCapture.capture(EDirection.OUTBOUND, Decode(frame));
+        }
+        mLogger.log(ELogType.CLIENT, () -> Decode(frame));
+
+    }
+
+    @Override
+    public boolean disconnect() {
+        try {
+            mChannel = null;
+            mSocket.close();
+            mReader.close();
+
+        } catch (final IOException e) {
+            mLogger.log(ELogType.WARNING, "Couldn't properly disconnect.");
+            return false;
+
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package de.ativelox.relentlessfisher.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Provides an abstract {@link ILogger} managing which types of logs are
+ * enabled, such that implementations only have to write the logs which are.
+ * Initially all types are enabled.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public abstract class ALogger implements ILogger {
+
+    /**
+     * The placeholder for arguments of parameterized messages.
+     */
+    private final static String PLACEHOLDER = "{}";
+
+    /**
+     * The enabled types, the bit at the {@link ELogType#ordinal() ordinal} of a
+     * type being set if it is enabled.
+     */
+    private volatile int mEnabled;
+
+    /**
+     * Creates a new {@link ALogger} with all types enabled.
+     */
+    public ALogger() {
+        mEnabled = (1 << ELogType.values().length) - 1;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#isEnabled(de.ativelox.
+     * relentlessfisher.logging.ELogType)
+     */
+    @Override
+    public boolean isEnabled(final ELogType type) {
+        return (mEnabled & (1 << type.ordinal())) != 0;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#setEnabled(de.ativelox.
+     * relentlessfisher.logging.ELogType, boolean)
+     */
+    @Override
+    public synchronized void setEnabled(final ELogType type, final boolean enabled) {
+        if (enabled) {
+            mEnabled |= 1 << type.ordinal();
+
+        } else {
+            mEnabled &= ~(1 << type.ordinal());
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#log(de.ativelox.relentlessfisher
+     * .logging.ELogType, java.lang.String)
+     */
+    @Override
+    public final void log(final ELogType type, final String message) {
+        if (this.isEnabled(type)) {
+            this.write(type, message);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#log(de.ativelox.relentlessfisher
+     * .logging.ELogType, java.util.function.Supplier)
+     */
+    @Override
+    public final void log(final ELogType type, final Supplier<String> message) {
+        if (this.isEnabled(type)) {
+            this.write(type, message.get());
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#log(de.ativelox.relentlessfisher
+     * .logging.ELogType, java.lang.String, java.lang.Object)
+     */
+    @Override
+    public final void log(final ELogType type, final String pattern, final Object arg) {
+        if (this.isEnabled(type)) {
+            this.write(type, Fill(pattern, arg));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ILogger#log(de.ativelox.relentlessfisher
+     * .logging.ELogType, java.lang.String, java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public final void log(final ELogType type, final String pattern, final Object first, final Object second) {
+        if (this.isEnabled(type)) {
+            this.write(type, Fill(pattern, first, second));
+        }
+    }
+
+    /**
+     * Writes a log of an enabled type.
+     * 
+     * @param type    The type (severity) of the log.
+     * @param message The message further describing the log.
+     */
+    protected abstract void write(final ELogType type, final String message);
+
+    /**
+     * Replaces the placeholders of the given pattern with the given arguments, in
+     * order. Surplus placeholders are kept, surplus arguments ignored.
+     * 
+     * @param pattern The pattern.
+     * @param args    The arguments.
+     * @return The filled in pattern.
+     */
+    static String Fill(final String pattern, final Object... args) {
+        final StringBuilder builder = new StringBuilder(pattern.length() + 16 * args.length);
+
+        int from = 0;
+
+        for (final Object arg : args) {
+            final int index = pattern.indexOf(PLACEHOLDER, from);
+
+            if (index < 0) {
+                break;
+            }
+            builder.append(pattern, from, index).append(arg);
+            from = index + PLACEHOLDER.length();
+
+        }
+        return builder.append(pattern, from, pattern.length()).toString();
+
+    }
+}
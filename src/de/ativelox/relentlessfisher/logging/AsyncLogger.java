@@ -0,0 +1,431 @@
+package de.ativelox.relentlessfisher.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Provides an {@link ILogger} which only hands logs over to a background
+ * thread, such that the threads reading from and writing to the network never
+ * wait for the console. Logs are put into a preallocated, lock-free ring
+ * buffer, the background thread drains it and prints everything it found in
+ * one batch, formatted like {@link TimestampedConsoleLogger}.<br>
+ * 
+ * If the console can't keep up, the buffer fills up and logs are dropped
+ * according to their type: every type may only fill the buffer up to its drop
+ * threshold, see {@link AsyncLogger#setDropThreshold(ELogType, double)}. By
+ * default {@link ELogType#SERVER} logs are dropped first, followed by
+ * {@link ELogType#CLIENT} logs. {@link ELogType#DANGER} logs are never dropped,
+ * if the buffer is full they are printed directly instead.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class AsyncLogger extends ALogger implements AutoCloseable {
+
+    /**
+     * The name of the background thread.
+     */
+    private final static String THREAD_NAME = "rf-logger";
+
+    /**
+     * The maximum amount of logs printed at once.
+     */
+    private final static int BATCH = 256;
+
+    /**
+     * The time in ns the background thread sleeps at most while the buffer is
+     * empty, in case a wake up got lost.
+     */
+    private final static long IDLE_PARK = 10_000_000;
+
+    /**
+     * The zone the times of the logs are printed in.
+     */
+    private final static ZoneId ZONE = ZoneId.systemDefault();
+
+    /**
+     * Per slot of the buffer, the position it may next be claimed for by a
+     * producer or, if it's the position plus one, that it holds a log of that
+     * position.
+     */
+    private final AtomicLongArray mSequences;
+
+    /**
+     * The types of the logs in the buffer.
+     */
+    private final ELogType[] mTypes;
+
+    /**
+     * The messages of the logs in the buffer.
+     */
+    private final String[] mMessages;
+
+    /**
+     * The times of the logs in the buffer, given by
+     * {@link System#currentTimeMillis()}.
+     */
+    private final long[] mTimes;
+
+    /**
+     * Maps a position to its slot, the capacity being a power of two.
+     */
+    private final int mMask;
+
+    /**
+     * The next position to be claimed by a producer.
+     */
+    private final AtomicLong mTail;
+
+    /**
+     * The next position to be drained, only written by the background thread.
+     */
+    private volatile long mHead;
+
+    /**
+     * Per {@link ELogType#ordinal() type}, the amount of logs in the buffer from
+     * which on logs of that type are dropped.
+     */
+    private volatile int[] mLimits;
+
+    /**
+     * Per {@link ELogType#ordinal() type}, the amount of logs dropped so far.
+     */
+    private final AtomicLongArray mDropped;
+
+    /**
+     * The stream all but {@link ELogType#DANGER} logs are printed on.
+     */
+    private final PrintStream mOut;
+
+    /**
+     * The stream {@link ELogType#DANGER} logs are printed on.
+     */
+    private final PrintStream mErr;
+
+    /**
+     * The background thread draining the buffer.
+     */
+    private final Thread mDrainer;
+
+    /**
+     * Whether the background thread is (about to be) sleeping, i.e. has to be
+     * woken up for new logs.
+     */
+    private volatile boolean mIdle;
+
+    /**
+     * Whether this logger is still accepting logs.
+     */
+    private volatile boolean mRunning;
+
+    /**
+     * Creates and starts a new {@link AsyncLogger} printing on the systems'
+     * default console.
+     * 
+     * @param capacity The amount of logs the buffer holds, rounded up to a power
+     *                 of two.
+     */
+    public AsyncLogger(final int capacity) {
+        this(capacity, System.out, System.err);
+
+    }
+
+    /**
+     * Creates and starts a new {@link AsyncLogger}.
+     * 
+     * @param capacity The amount of logs the buffer holds, rounded up to a power
+     *                 of two.
+     * @param out      The stream all but {@link ELogType#DANGER} logs are printed
+     *                 on.
+     * @param err      The stream {@link ELogType#DANGER} logs are printed on.
+     */
+    public AsyncLogger(final int capacity, final PrintStream out, final PrintStream err) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity has to be positive.");
+        }
+        int slots = 1;
+
+        while (slots < capacity) {
+            slots <<= 1;
+        }
+        mSequences = new AtomicLongArray(slots);
+
+        for (int i = 0; i < slots; i++) {
+            mSequences.set(i, i);
+        }
+        mTypes = new ELogType[slots];
+        mMessages = new String[slots];
+        mTimes = new long[slots];
+        mMask = slots - 1;
+        mTail = new AtomicLong();
+
+        mLimits = new int[ELogType.values().length];
+        mDropped = new AtomicLongArray(ELogType.values().length);
+
+        for (final ELogType type : ELogType.values()) {
+            mLimits[type.ordinal()] = slots;
+        }
+        this.setDropThreshold(ELogType.SERVER, 0.5);
+        this.setDropThreshold(ELogType.CLIENT, 0.75);
+
+        mOut = out;
+        mErr = err;
+        mRunning = true;
+
+        mDrainer = new Thread(this::drainUntilClosed, THREAD_NAME);
+        mDrainer.setDaemon(true);
+        mDrainer.start();
+
+    }
+
+    /**
+     * Sets how full the buffer may get before logs of the given type are
+     * dropped. Ignored for {@link ELogType#DANGER}, which is never dropped.
+     * 
+     * @param type The type of the logs.
+     * @param fill The fill level of the buffer from which on logs of the given
+     *             type are dropped, between <tt>0</tt> (always dropped) and
+     *             <tt>1</tt> (only dropped once the buffer is full).
+     */
+    public void setDropThreshold(final ELogType type, final double fill) {
+        if (fill < 0 || fill > 1) {
+            throw new IllegalArgumentException("The fill level has to be between 0 and 1: " + fill);
+        }
+
+        if (type == ELogType.DANGER) {
+            return;
+        }
+        final int[] limits = mLimits.clone();
+        limits[type.ordinal()] = (int) (fill * mTypes.length);
+        mLimits = limits;
+
+    }
+
+    /**
+     * The amount of logs of the given type dropped so far, because the buffer was
+     * too full.
+     * 
+     * @param type The type of the logs.
+     * @return The amount of dropped logs.
+     */
+    public long dropped(final ELogType type) {
+        return mDropped.get(type.ordinal());
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.logging.ALogger#write(de.ativelox.
+     * relentlessfisher.logging.ELogType, java.lang.String)
+     */
+    @Override
+    protected void write(final ELogType type, final String message) {
+        final long time = System.currentTimeMillis();
+
+        if (mRunning && this.offer(type, message, time)) {
+            if (mIdle) {
+                LockSupport.unpark(mDrainer);
+            }
+            return;
+
+        }
+
+        if (type == ELogType.DANGER || !mRunning) {
+            this.print(type, message, time);
+            return;
+
+        }
+        mDropped.incrementAndGet(type.ordinal());
+
+    }
+
+    /**
+     * Tries to put the given log into the buffer.
+     * 
+     * @param type    The type of the log.
+     * @param message The message of the log.
+     * @param time    The time of the log.
+     * @return <tt>True</tt> if the log was put into the buffer, <tt>false</tt> if
+     *         the buffer is too full for logs of the given type.
+     */
+    private boolean offer(final ELogType type, final String message, final long time) {
+        final int limit = mLimits[type.ordinal()];
+        long position = mTail.get();
+
+        while (true) {
+            if (position - mHead >= limit) {
+                return false;
+            }
+            final int slot = (int) position & mMask;
+            final long sequence = mSequences.get(slot);
+
+            if (sequence == position) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = mTail.get();
+
+            } else if (sequence < position) {
+                // the slot still holds a log of the previous round, i.e. the buffer is full.
+                return false;
+
+            } else {
+                position = mTail.get();
+
+            }
+        }
+        final int slot = (int) position & mMask;
+        mTypes[slot] = type;
+        mMessages[slot] = message;
+        mTimes[slot] = time;
+
+        // publishes the fields above to the background thread.
+        mSequences.set(slot, position + 1);
+        return true;
+
+    }
+
+    /**
+     * Drains the buffer in batches until this logger gets closed and everything
+     * logged until then is printed.
+     */
+    private void drainUntilClosed() {
+        final StringBuilder out = new StringBuilder();
+        final StringBuilder err = new StringBuilder();
+
+        while (true) {
+            final int drained = this.drain(out, err);
+
+            if (drained > 0) {
+                this.flush(out, mOut);
+                this.flush(err, mErr);
+                continue;
+
+            }
+
+            if (!mRunning) {
+                return;
+            }
+            mIdle = true;
+
+            if (!this.isReadable()) {
+                LockSupport.parkNanos(this, IDLE_PARK);
+            }
+            mIdle = false;
+
+        }
+    }
+
+    /**
+     * Whether the next log of the buffer is ready to be drained.
+     * 
+     * @return <tt>True</tt> if it is, <tt>false</tt> otherwise.
+     */
+    private boolean isReadable() {
+        return mSequences.get((int) mHead & mMask) == mHead + 1;
+
+    }
+
+    /**
+     * Formats up to {@link AsyncLogger#BATCH} logs of the buffer and releases
+     * their slots.
+     * 
+     * @param out The builder to append all but {@link ELogType#DANGER} logs to.
+     * @param err The builder to append {@link ELogType#DANGER} logs to.
+     * @return The amount of drained logs.
+     */
+    private int drain(final StringBuilder out, final StringBuilder err) {
+        long head = mHead;
+        int drained = 0;
+
+        while (drained < BATCH) {
+            final int slot = (int) head & mMask;
+
+            if (mSequences.get(slot) != head + 1) {
+                break;
+            }
+            final ELogType type = mTypes[slot];
+            final String message = mMessages[slot];
+            final long time = mTimes[slot];
+            mMessages[slot] = null;
+
+            // hands the slot back to the producers for the next round.
+            mSequences.set(slot, head + mTypes.length);
+            head++;
+            mHead = head;
+
+            (type == ELogType.DANGER ? err : out).append(Format(type, message, time)).append(System.lineSeparator());
+            drained++;
+
+        }
+        return drained;
+
+    }
+
+    /**
+     * Prints and clears the given builder, if it isn't empty.
+     * 
+     * @param logs   The formatted logs.
+     * @param stream The stream to print on.
+     */
+    private void flush(final StringBuilder logs, final PrintStream stream) {
+        if (logs.length() == 0) {
+            return;
+        }
+        stream.print(logs);
+        stream.flush();
+        logs.setLength(0);
+
+    }
+
+    /**
+     * Prints a log directly, bypassing the buffer.
+     * 
+     * @param type    The type of the log.
+     * @param message The message of the log.
+     * @param time    The time of the log.
+     */
+    private void print(final ELogType type, final String message, final long time) {
+        (type == ELogType.DANGER ? mErr : mOut).println(Format(type, message, time));
+
+    }
+
+    /**
+     * Formats a log like {@link TimestampedConsoleLogger}.
+     * 
+     * @param type    The type of the log.
+     * @param message The message of the log.
+     * @param time    The time of the log, given by
+     *                {@link System#currentTimeMillis()}.
+     * @return The formatted log.
+     */
+    private static String Format(final ELogType type, final String message, final long time) {
+        return TimestampedConsoleLogger.Format(LocalTime.ofInstant(Instant.ofEpochMilli(time), ZONE), type, message);
+
+    }
+
+    /**
+     * Stops accepting logs, prints everything logged so far and stops the
+     * background thread. Logs made afterwards are printed directly.
+     */
+    @Override
+    public void close() {
+        mRunning = false;
+        LockSupport.unpark(mDrainer);
+
+        try {
+            mDrainer.join();
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        }
+    }
+}
@@ -1,14 +1,14 @@
-package de.ativelox.relentlessfisher.logging;
-
-/**
- * Provides different distinguishable types for logging. This can also be seen
- * as a logs' severity.
- * 
- * @author Ativelox {@link<ativelox.dev@web.de>}
- *
- */
-public enum ELogType {
-
-    INFO, WARNING, DANGER, SERVER, CLIENT;
-
-}
+package de.ativelox.relentlessfisher.logging;
+
+/**
+ * Provides different distinguishable types for logging. This can also be seen
+ * as a logs' severity.
+ * 
+ * @author Ativelox {@link<ativelox.dev@web.de>}
+ *
+ */
+public enum ELogType {
+
+    INFO, WARNING, DANGER, SERVER, CLIENT;
+
+}
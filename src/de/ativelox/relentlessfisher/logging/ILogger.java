@@ -1,19 +1,75 @@
-package de.ativelox.relentlessfisher.logging;
-
-/**
- * Provides a basic interface to log messages.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public interface ILogger {
-
-    /**
-     * Used to log the given message with a given type, e.g. INFO, WARNING, ...
-     * 
-     * @param type    The type (severity) of the log.
-     * @param message The message further describing the log.
-     */
-    void log(final ELogType type, final String message);
-
-}
+package de.ativelox.relentlessfisher.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Provides a basic interface to log messages. Every type of log can be
+ * disabled, such that logging it costs no more than checking
+ * {@link ILogger#isEnabled(ELogType)}, as long as the message isn't built by
+ * the caller: use {@link ILogger#log(ELogType, Supplier)} or the parameterized
+ * overloads for messages which have to be put together first.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public interface ILogger {
+
+    /**
+     * Whether logs of the given type are logged at all.
+     * 
+     * @param type The type (severity) of the logs.
+     * @return <tt>True</tt> if they are logged, <tt>false</tt> otherwise.
+     */
+    boolean isEnabled(final ELogType type);
+
+    /**
+     * Enables or disables logs of the given type, taking effect immediately for
+     * all threads.
+     * 
+     * @param type    The type (severity) of the logs.
+     * @param enabled Whether logs of the given type should be logged.
+     */
+    void setEnabled(final ELogType type, final boolean enabled);
+
+    /**
+     * Used to log the given message with a given type, e.g. INFO, WARNING, ...
+     * 
+     * @param type    The type (severity) of the log.
+     * @param message The message further describing the log.
+     */
+    void log(final ELogType type, final String message);
+
+    /**
+     * Used to log a message with a given type, only creating the message if logs
+     * of that type are enabled.
+     * 
+     * @param type    The type (severity) of the log.
+     * @param message Creates the message further describing the log.
+     */
+    void log(final ELogType type, final Supplier<String> message);
+
+    /**
+     * Used to log a message with a given type, only putting the message together
+     * if logs of that type are enabled.
+     * 
+     * @param type    The type (severity) of the log.
+     * @param pattern The message, with <tt>{}</tt> in place of the argument.
+     * @param arg     The argument, inserted as given by
+     *                {@link String#valueOf(Object)}.
+     */
+    void log(final ELogType type, final String pattern, final Object arg);
+
+    /**
+     * Used to log a message with a given type, only putting the message together
+     * if logs of that type are enabled.
+     * 
+     * @param type    The type (severity) of the log.
+     * @param pattern The message, with <tt>{}</tt> in place of each argument.
+     * @param first   The first argument, inserted as given by
+     *                {@link String#valueOf(Object)}.
+     * @param second  The second argument, inserted as given by
+     *                {@link String#valueOf(Object)}.
+     */
+    void log(final ELogType type, final String pattern, final Object first, final Object second);
+
+}
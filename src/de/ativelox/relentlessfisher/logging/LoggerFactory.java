@@ -1,36 +1,47 @@
-package de.ativelox.relentlessfisher.logging;
-
-/**
- * This factory provides access to an {@link ILogger} which should be used
- * consistently throughout the project. This is done by using the singleton
- * concept.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public class LoggerFactory {
-
-    /**
-     * The current instance of the logger.
-     */
-    private static ILogger INSTANCE = null;
-
-    /**
-     * Gets the current logger instance. This should be used consistently throughout
-     * the project as to avoid multiple different loggers.
-     * 
-     * @return The logger, used to log messages.
-     */
-    public static ILogger Get() {
-	if (INSTANCE == null) {
-	    INSTANCE = new TimestampedConsoleLogger();
-	    
-	}
-	return INSTANCE;
-
-    }
-
-    private LoggerFactory() {
-    }
-
-}
+package de.ativelox.relentlessfisher.logging;
+
+/**
+ * This factory provides access to an {@link ILogger} which should be used
+ * consistently throughout the project. This is done by using the singleton
+ * concept.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class LoggerFactory {
+
+    /**
+     * The current instance of the logger.
+     */
+    private static volatile ILogger INSTANCE = null;
+
+    /**
+     * Gets the current logger instance. This should be used consistently throughout
+     * the project as to avoid multiple different loggers.
+     * 
+     * @return The logger, used to log messages.
+     */
+    public static ILogger Get() {
+        if (INSTANCE == null) {
+            INSTANCE = new TimestampedConsoleLogger();
+            
+        }
+        return INSTANCE;
+
+    }
+
+    /**
+     * Replaces the current logger instance. Since most classes fetch the logger
+     * once on creation, this should happen before creating any of them.
+     * 
+     * @param logger The logger to use from now on.
+     */
+    public static void Set(final ILogger logger) {
+        INSTANCE = logger;
+
+    }
+
+    private LoggerFactory() {
+    }
+
+}
@@ -1,33 +1,68 @@
-package de.ativelox.relentlessfisher.logging;
-
-import java.time.LocalTime;
-
-/**
- * * A basic {@link ILogger} implementation which simply prints on the Systems
- * default console, including a timestamp from the time on the system.
- * 
- * @author Ativelox ({@literal ativelox.dev@web.de})
- *
- */
-public class TimestampedConsoleLogger implements ILogger {
-
-    public TimestampedConsoleLogger() {
-
-    }
-
-    @Override
-    public void log(final ELogType type, final String message) {
-	final LocalTime t = LocalTime.now();
-
-	final String log = t.getHour() + ":" + t.getMinute() + ":" + t.getSecond() + " [" + type.toString() + "]: "
-		+ message;
-
-	if (type == ELogType.DANGER) {
-	    System.err.println(log);
-	    return;
-	}
-	System.out.println(log);
-
-    }
-
-}
+package de.ativelox.relentlessfisher.logging;
+
+import java.io.PrintStream;
+import java.time.LocalTime;
+
+/**
+ * * A basic {@link ILogger} implementation which simply prints on the Systems
+ * default console, including a timestamp from the time on the system.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public class TimestampedConsoleLogger extends ALogger {
+
+    /**
+     * The stream all but {@link ELogType#DANGER} logs are printed on.
+     */
+    private final PrintStream mOut;
+
+    /**
+     * The stream {@link ELogType#DANGER} logs are printed on.
+     */
+    private final PrintStream mErr;
+
+    public TimestampedConsoleLogger() {
+        this(System.out, System.err);
+
+    }
+
+    /**
+     * Creates a new {@link TimestampedConsoleLogger} printing on the given streams
+     * instead of the console.
+     * 
+     * @param out The stream all but {@link ELogType#DANGER} logs are printed on.
+     * @param err The stream {@link ELogType#DANGER} logs are printed on.
+     */
+    public TimestampedConsoleLogger(final PrintStream out, final PrintStream err) {
+        mOut = out;
+        mErr = err;
+
+    }
+
+    /**
+     * Formats a log the way this logger prints it.
+     * 
+     * @param t       The time the log was made at.
+     * @param type    The type (severity) of the log.
+     * @param message The message of the log.
+     * @return The formatted log, excluding the line break.
+     */
+    static String Format(final LocalTime t, final ELogType type, final String message) {
+        return t.getHour() + ":" + t.getMinute() + ":" + t.getSecond() + " [" + type.toString() + "]: " + message;
+
+    }
+
+    @Override
+    protected void write(final ELogType type, final String message) {
+        final String log = Format(LocalTime.now(), type, message);
+
+        if (type == ELogType.DANGER) {
+            mErr.println(log);
+            return;
+        }
+        mOut.println(log);
+
+    }
+
+}
@@ -0,0 +1,219 @@
+package de.ativelox.relentlessfisher.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies into log-linear buckets, i.e. every power of two is split
+ * into {@link LatencyHistogram#SUB_BUCKETS} equally sized buckets, so every
+ * recorded value is kept with a relative error below 1/16, from single ns up
+ * to centuries, in a fixed amount of memory. Recording is lock-free and never
+ * allocates, so it can be done from any thread on hot paths.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class LatencyHistogram {
+
+    /**
+     * The amount of bits of a value kept below its highest bit.
+     */
+    private final static int SUB_BITS = 4;
+
+    /**
+     * The amount of buckets every power of two is split into.
+     */
+    private final static int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The amount of buckets, covering every non-negative <tt>long</tt>.
+     */
+    private final static int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * The amount of values recorded into every bucket.
+     */
+    private final AtomicLongArray mBuckets;
+
+    /**
+     * The amount of values recorded.
+     */
+    private final AtomicLong mCount;
+
+    /**
+     * The sum of all values recorded.
+     */
+    private final AtomicLong mSum;
+
+    /**
+     * The highest value recorded.
+     */
+    private final AtomicLong mMax;
+
+    /**
+     * Creates a new, empty {@link LatencyHistogram}.
+     */
+    public LatencyHistogram() {
+        mBuckets = new AtomicLongArray(BUCKETS);
+        mCount = new AtomicLong();
+        mSum = new AtomicLong();
+        mMax = new AtomicLong();
+
+    }
+
+    /**
+     * The bucket of the given value.
+     * 
+     * @param value The value, not negative.
+     * @return The index of the bucket.
+     */
+    private static int IndexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int highest = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (highest - SUB_BITS)) - SUB_BUCKETS;
+
+        return (highest - SUB_BITS + 1) * SUB_BUCKETS + sub;
+
+    }
+
+    /**
+     * The highest value falling into the given bucket.
+     * 
+     * @param index The index of the bucket.
+     * @return The highest value.
+     */
+    private static long HighestOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long low = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+        return low + (1L << shift) - 1;
+
+    }
+
+    /**
+     * Records the given latency.
+     * 
+     * @param nanos The latency in ns, negative values are recorded as
+     *              <tt>0</tt>.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+
+        mBuckets.incrementAndGet(IndexOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        mMax.accumulateAndGet(value, Math::max);
+
+    }
+
+    /**
+     * Adds all latencies recorded by the given histogram to this one, e.g. to
+     * aggregate the histograms of many sessions.
+     * 
+     * @param other The histogram to add.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            final long count = other.mBuckets.get(i);
+
+            if (count != 0) {
+                mBuckets.addAndGet(i, count);
+            }
+        }
+        mCount.addAndGet(other.mCount.get());
+        mSum.addAndGet(other.mSum.get());
+        mMax.accumulateAndGet(other.mMax.get(), Math::max);
+
+    }
+
+    /**
+     * The amount of latencies recorded.
+     * 
+     * @return The amount.
+     */
+    public long count() {
+        return mCount.get();
+
+    }
+
+    /**
+     * The mean of all latencies recorded.
+     * 
+     * @return The mean in ns, <tt>0</tt> if none were recorded.
+     */
+    public long mean() {
+        final long count = mCount.get();
+
+        return count == 0 ? 0 : mSum.get() / count;
+
+    }
+
+    /**
+     * The highest latency recorded.
+     * 
+     * @return The highest latency in ns, <tt>0</tt> if none were recorded.
+     */
+    public long max() {
+        return mMax.get();
+
+    }
+
+    /**
+     * The latency below which the given percentage of all latencies recorded
+     * falls, within the precision of the buckets.
+     * 
+     * @param percentile The percentage, between <tt>0</tt> and <tt>100</tt>.
+     * @return The latency in ns, <tt>0</tt> if none were recorded.
+     */
+    public long percentile(final double percentile) {
+        final long count = mCount.get();
+
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mBuckets.get(i);
+
+            if (seen >= rank) {
+                return Math.min(HighestOf(i), mMax.get());
+            }
+        }
+        return mMax.get();
+
+    }
+
+    /**
+     * Drops all latencies recorded so far. Latencies recorded concurrently might
+     * be dropped only partially.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mBuckets.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d mean=%.2f ms p50=%.2f ms p90=%.2f ms p99=%.2f ms max=%.2f ms", this.count(),
+                this.mean() / 1e6, this.percentile(50) / 1e6, this.percentile(90) / 1e6, this.percentile(99) / 1e6,
+                this.max() / 1e6);
+
+    }
+}
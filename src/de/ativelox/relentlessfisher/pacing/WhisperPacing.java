@@ -0,0 +1,475 @@
+package de.ativelox.relentlessfisher.pacing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.protocols.EFishingAction;
+import de.ativelox.relentlessfisher.settings.Settings;
+import de.ativelox.relentlessfisher.timer.IClock;
+import de.ativelox.relentlessfisher.timer.SystemClock;
+import de.ativelox.relentlessfisher.timer.VirtualClock;
+
+/**
+ * Learns how fast the conversation with the bot can be paced. Fishers report
+ * the time the bot took to respond to each command, the time a cast took to
+ * get a bite, and every whisper which never got a response. From these, this
+ * class derives:
+ * <ul>
+ * <li>the delay before casting again, by additive decrease on every
+ * acknowledged command and multiplicative increase on dropped ones (AIMD), so
+ * it creeps towards the smallest delay twitch and the bot put up with, and
+ * backs off quickly once they don't. Like TCP reducing its window at most once
+ * per round trip, the delay increases at most once per delay, so a hiccup of
+ * the bot dropping the whispers of many fishers at once counts only once.</li>
+ * <li>the time to wait for a response to a command before assuming it got
+ * dropped, from the smoothed response time and its variation, the same way
+ * TCP derives its retransmission timeout (RFC 6298), backing off exponentially
+ * while whispers keep getting dropped.</li>
+ * <li>the time to wait for a bite, from the longest wait seen so far, once
+ * enough bites were seen. A bite isn't a response to a command, so a bite
+ * which never comes only widens this wait, but doesn't slow down the
+ * pacing.</li>
+ * </ul>
+ * The learned parameters can be stored and loaded, so they survive restarts.
+ * Instances are thread-safe and may be shared by many fishers talking to the
+ * same bot.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class WhisperPacing {
+
+    /**
+     * The delay in ms before casting again, until learned otherwise. Twitch
+     * doesn't allow rapid conversations.
+     */
+    public final static long INITIAL_DELAY = 2000;
+
+    /**
+     * The smallest delay in ms before casting again, twitchs' hard rate limits
+     * are enforced separately.
+     */
+    private final static long MIN_DELAY = 250;
+
+    /**
+     * The largest delay in ms before casting again.
+     */
+    private final static long MAX_DELAY = 60000;
+
+    /**
+     * The amount in ms the delay decreases by per acknowledged command.
+     */
+    private final static long DELAY_DECREASE = 50;
+
+    /**
+     * The factor the delay increases by per dropped command.
+     */
+    private final static double DELAY_INCREASE = 2;
+
+    /**
+     * The time in ms to wait for a response to a command, until a response time
+     * got measured.
+     */
+    private final static long INITIAL_TIMEOUT = 30000;
+
+    /**
+     * The least time in ms to wait for any response.
+     */
+    private final static long MIN_TIMEOUT = 2000;
+
+    /**
+     * The most time in ms to wait for any response, after which the bot is
+     * assumed not to be working properly.
+     */
+    public final static long MAX_TIMEOUT = 300000;
+
+    /**
+     * The factor of the longest wait for a bite waited at most for a bite.
+     */
+    private final static double BITE_TIMEOUT_FACTOR = 1.5;
+
+    /**
+     * The amount of bites to see before the longest wait for one is trusted.
+     */
+    private final static int MIN_BITES = 16;
+
+    /**
+     * The weight of a new response time in the smoothed response time.
+     */
+    private final static double ALPHA = 1.0 / 8;
+
+    /**
+     * The weight of a new deviation in the variation of the response time.
+     */
+    private final static double BETA = 1.0 / 4;
+
+    /**
+     * The most times the timeouts get doubled while commands keep getting
+     * dropped.
+     */
+    private final static int MAX_BACKOFF = 6;
+
+    /**
+     * The clock the pacing measures time with.
+     */
+    private final IClock mClock;
+
+    /**
+     * The current delay in ms before casting again.
+     */
+    private double mDelay;
+
+    /**
+     * The smoothed response time in ms of every command, indexed by its ordinal,
+     * <tt>NaN</tt> until measured.
+     */
+    private final double[] mSmoothed;
+
+    /**
+     * The variation of the response time in ms of every command, indexed by its
+     * ordinal.
+     */
+    private final double[] mVariation;
+
+    /**
+     * The longest wait for a bite in ms seen so far, <tt>0</tt> if none was seen
+     * yet.
+     */
+    private long mLongestBite;
+
+    /**
+     * The amount of bites seen, counting up to {@link WhisperPacing#MIN_BITES}.
+     */
+    private int mBites;
+
+    /**
+     * The time the delay last increased at in ns, given by the clock of this
+     * instance.
+     */
+    private long mIncreasedAt;
+
+    /**
+     * The amount of times the timeouts are doubled, since the last command got
+     * acknowledged.
+     */
+    private int mBackoff;
+
+    /**
+     * The amount of commands acknowledged by the bot.
+     */
+    private long mAcknowledged;
+
+    /**
+     * The amount of commands the bot never responded to.
+     */
+    private long mDropped;
+
+    /**
+     * The amount of casts which never got a bite.
+     */
+    private long mBiteTimeouts;
+
+    /**
+     * The response times of every command, indexed by its ordinal.
+     */
+    private final LatencyHistogram[] mResponseTimes;
+
+    /**
+     * The waits from a cast being acknowledged to the bite.
+     */
+    private final LatencyHistogram mBiteWaits;
+
+    /**
+     * Creates a new {@link WhisperPacing}, which hasn't learned anything yet.
+     */
+    public WhisperPacing() {
+        this(SystemClock.INSTANCE);
+
+    }
+
+    /**
+     * Creates a new {@link WhisperPacing}, which hasn't learned anything yet,
+     * measuring time with the given clock, e.g. a {@link VirtualClock} to
+     * simulate a conversation with the bot.
+     * 
+     * @param clock The clock to measure time with, the same the fishers reporting
+     *              to this instance measure the response times with.
+     */
+    public WhisperPacing(final IClock clock) {
+        final int commands = EFishingAction.values().length;
+
+        mClock = clock;
+        mDelay = INITIAL_DELAY;
+        mIncreasedAt = mClock.nanoTime() - TimeUnit.MILLISECONDS.toNanos(MAX_DELAY);
+        mSmoothed = new double[commands];
+        mVariation = new double[commands];
+        mResponseTimes = new LatencyHistogram[commands];
+        mBiteWaits = new LatencyHistogram();
+
+        for (int i = 0; i < commands; i++) {
+            mSmoothed[i] = Double.NaN;
+            mResponseTimes[i] = new LatencyHistogram();
+
+        }
+    }
+
+    /**
+     * Reports that the bot responded to the given command.
+     * 
+     * @param command      The command.
+     * @param responseTime The time from the command being sent to the response
+     *                     in ns.
+     */
+    public synchronized void onAcknowledged(final EFishingAction command, final long responseTime) {
+        final int index = command.ordinal();
+        final double sample = responseTime / 1e6;
+
+        if (Double.isNaN(mSmoothed[index])) {
+            mSmoothed[index] = sample;
+            mVariation[index] = sample / 2;
+
+        } else {
+            mVariation[index] = (1 - BETA) * mVariation[index] + BETA * Math.abs(mSmoothed[index] - sample);
+            mSmoothed[index] = (1 - ALPHA) * mSmoothed[index] + ALPHA * sample;
+
+        }
+        mResponseTimes[index].record(responseTime);
+
+        mDelay = Math.max(MIN_DELAY, mDelay - DELAY_DECREASE);
+        mBackoff = 0;
+        mAcknowledged++;
+
+    }
+
+    /**
+     * Reports that a fish bit after the given wait.
+     * 
+     * @param wait The time from the cast being acknowledged to the bite in ns.
+     */
+    public synchronized void onBite(final long wait) {
+        mLongestBite = Math.max(mLongestBite, TimeUnit.NANOSECONDS.toMillis(wait));
+        mBites = Math.min(MIN_BITES, mBites + 1);
+        mBiteWaits.record(wait);
+
+    }
+
+    /**
+     * Reports that a cast never got a bite, so the wait for one has to be longer.
+     * 
+     * @param waited The time waited for the bite in ns.
+     */
+    public synchronized void onBiteTimeout(final long waited) {
+        mLongestBite = Math.max(mLongestBite, TimeUnit.NANOSECONDS.toMillis(waited));
+        mBiteTimeouts++;
+
+    }
+
+    /**
+     * Reports that the bot never responded, i.e. either the command or its
+     * response got dropped.
+     */
+    public synchronized void onDropped() {
+        final long now = mClock.nanoTime();
+        mDropped++;
+
+        if (now - mIncreasedAt < TimeUnit.MILLISECONDS.toNanos(this.delay())) {
+            return;
+        }
+        mDelay = Math.min(MAX_DELAY, mDelay * DELAY_INCREASE);
+        mBackoff = Math.min(MAX_BACKOFF, mBackoff + 1);
+        mIncreasedAt = now;
+
+    }
+
+    /**
+     * The delay before casting again.
+     * 
+     * @return The delay in ms.
+     */
+    public synchronized long delay() {
+        return Math.round(mDelay);
+
+    }
+
+    /**
+     * The time to wait for a response to the given command, before assuming it
+     * got dropped.
+     * 
+     * @param command The command.
+     * @return The time in ms.
+     */
+    public synchronized long responseTimeout(final EFishingAction command) {
+        final int index = command.ordinal();
+
+        if (Double.isNaN(mSmoothed[index])) {
+            return this.backOff(INITIAL_TIMEOUT);
+        }
+        return this.backOff(Math.round(mSmoothed[index] + 4 * mVariation[index]));
+
+    }
+
+    /**
+     * The time to wait for a bite after a cast got acknowledged, before assuming
+     * the bot forgot about it.
+     * 
+     * @return The time in ms.
+     */
+    public synchronized long biteTimeout() {
+        if (mBites < MIN_BITES) {
+            return MAX_TIMEOUT;
+        }
+        return Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, Math.round(mLongestBite * BITE_TIMEOUT_FACTOR)));
+
+    }
+
+    /**
+     * Doubles the given timeout for every backoff, keeping it within the bounds.
+     * 
+     * @param timeout The timeout in ms.
+     * @return The timeout backed off, in ms.
+     */
+    private long backOff(final long timeout) {
+        return Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, timeout) << mBackoff);
+
+    }
+
+    /**
+     * The amount of commands acknowledged by the bot.
+     * 
+     * @return The amount.
+     */
+    public synchronized long acknowledged() {
+        return mAcknowledged;
+
+    }
+
+    /**
+     * The amount of commands the bot never responded to.
+     * 
+     * @return The amount.
+     */
+    public synchronized long dropped() {
+        return mDropped;
+
+    }
+
+    /**
+     * The amount of casts which never got a bite.
+     * 
+     * @return The amount.
+     */
+    public synchronized long biteTimeouts() {
+        return mBiteTimeouts;
+
+    }
+
+    /**
+     * The response times of the given command, since this instance got created.
+     * 
+     * @param command The command.
+     * @return The histogram of the response times.
+     */
+    public LatencyHistogram getResponseTimes(final EFishingAction command) {
+        return mResponseTimes[command.ordinal()];
+
+    }
+
+    /**
+     * The waits from a cast being acknowledged to the bite, since this instance
+     * got created.
+     * 
+     * @return The histogram of the waits.
+     */
+    public LatencyHistogram getBiteWaits() {
+        return mBiteWaits;
+
+    }
+
+    /**
+     * Loads the parameters stored by {@link WhisperPacing#store(Path)}, keeping
+     * the current ones if the file doesn't exist yet.
+     * 
+     * @param path The file.
+     * @throws IOException If the file couldn't be read or is malformed.
+     */
+    public synchronized void load(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        final Settings s = new Settings();
+        s.load(path.toString());
+
+        try {
+            mDelay = Math.min(MAX_DELAY, Math.max(MIN_DELAY, Double.parseDouble(s.get("delay"))));
+            mLongestBite = Long.parseLong(s.get("longest_bite"));
+            mBites = Math.min(MIN_BITES, Integer.parseInt(s.get("bites")));
+
+            for (final EFishingAction command : EFishingAction.values()) {
+                final String key = command.name().toLowerCase();
+
+                if (s.get(key + ".smoothed") != null) {
+                    mSmoothed[command.ordinal()] = Double.parseDouble(s.get(key + ".smoothed"));
+                    mVariation[command.ordinal()] = Double.parseDouble(s.get(key + ".variation"));
+
+                }
+            }
+        } catch (final NullPointerException | NumberFormatException e) {
+            throw new IOException("Malformed pacing file: " + path, e);
+
+        }
+    }
+
+    /**
+     * Stores the learned parameters into the given file, replacing it as a
+     * whole, so a crash never leaves it half written.
+     * 
+     * @param path The file.
+     * @throws IOException If the file couldn't be written.
+     */
+    public synchronized void store(final Path path) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add("delay=" + mDelay);
+        lines.add("longest_bite=" + mLongestBite);
+        lines.add("bites=" + mBites);
+
+        for (final EFishingAction command : EFishingAction.values()) {
+            if (!Double.isNaN(mSmoothed[command.ordinal()])) {
+                final String key = command.name().toLowerCase();
+
+                lines.add(key + ".smoothed=" + mSmoothed[command.ordinal()]);
+                lines.add(key + ".variation=" + mVariation[command.ordinal()]);
+
+            }
+        }
+        final Path absolute = path.toAbsolutePath();
+        final Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "delay=%d ms acknowledged=%d dropped=%d bite timeouts=%d cast timeout=%d ms catch timeout=%d ms"
+                        + " bite timeout=%d ms | cast response: %s | catch response: %s | bite wait: %s",
+                this.delay(), mAcknowledged, mDropped, mBiteTimeouts, this.responseTimeout(EFishingAction.CAST),
+                this.responseTimeout(EFishingAction.CATCH), this.biteTimeout(),
+                mResponseTimes[EFishingAction.CAST.ordinal()], mResponseTimes[EFishingAction.CATCH.ordinal()],
+                mBiteWaits);
+
+    }
+}
@@ -0,0 +1,783 @@
+package de.ativelox.relentlessfisher.pacing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.ativelox.relentlessfisher.irc.framing.EPriority;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.ILogger;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.timer.IClock;
+import de.ativelox.relentlessfisher.timer.SystemClock;
+import de.ativelox.relentlessfisher.timer.VirtualClock;
+import de.ativelox.relentlessfisher.utils.RateWindow;
+
+/**
+ * Hands out the slots to send whispers at, for all accounts run by this
+ * process, within twitchs' rate limits for whispers: the limits of every single
+ * account, and a budget shared by all accounts, since twitch also limits the
+ * whispers of a single host. Every whisper is submitted along with its
+ * {@link EPriority}, the earliest time it may be sent at and the latest time it
+ * should be sent at, its deadline. Whenever a slot frees up, it goes to the
+ * whisper of the highest priority among all which may be sent by then, among
+ * those to the one with the earliest deadline (earliest deadline first). So a
+ * <tt>!catch</tt> racing its fish overtakes any cast, and the casts of all
+ * accounts take turns instead of a single account using up the shared
+ * budget. Whispers which already missed their deadline only go once no whisper
+ * of the same priority which can still keep its deadline is waiting.<br>
+ * 
+ * With more accounts than the budget allows for, a growing backlog of casts
+ * would use up the budget of a whole minute within its first seconds, leaving
+ * the <tt>!catch</tt> following each of them without a slot for the rest of the
+ * minute, so that hardly any fish gets caught anymore. Hence
+ * {@link EPriority#BEST_EFFORT best effort} whispers are also spaced evenly
+ * within half the budget, so that a slot is always about to free up for the
+ * <tt>!catch</tt> answering a cast.<br>
+ * 
+ * A whisper which may be sent right away is sent by the submitting thread, all
+ * others are sent by the thread driving this scheduler: the executor given on
+ * creation, or whoever calls {@link WhisperScheduler#runDue()}, e.g. a
+ * simulation on a {@link VirtualClock}. Sending must therefore never block.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class WhisperScheduler {
+
+    /**
+     * The maximum amount of whispers twitch allows a single account per second.
+     */
+    public final static int ACCOUNT_PER_SECOND = 3;
+
+    /**
+     * The maximum amount of whispers twitch allows a single account per minute.
+     */
+    public final static int ACCOUNT_PER_MINUTE = 100;
+
+    /**
+     * The amount of whispers all accounts may send per second together, unless
+     * configured otherwise. Twitch doesn't document its limits per host, so
+     * this errs on the safe side.
+     */
+    public final static int GLOBAL_PER_SECOND = 20;
+
+    /**
+     * The amount of whispers all accounts may send per minute together, unless
+     * configured otherwise.
+     */
+    public final static int GLOBAL_PER_MINUTE = 600;
+
+    /**
+     * The name of the thread sending the whispers of the default scheduler.
+     */
+    private final static String THREAD_NAME = "rf-whispers";
+
+    /**
+     * The scheduler used by default, created once needed.
+     */
+    private static volatile WhisperScheduler INSTANCE = null;
+
+    /**
+     * The clock the slots are measured with.
+     */
+    private final IClock mClock;
+
+    /**
+     * Sends the whispers which couldn't be sent right away, <tt>null</tt> if this
+     * scheduler is driven by calling {@link WhisperScheduler#runDue()}.
+     */
+    private final ScheduledExecutorService mExecutor;
+
+    /**
+     * The logger used for logging.
+     */
+    private final ILogger mLogger;
+
+    /**
+     * The limits shared by all accounts, guarded by this instance.
+     */
+    private RateWindow[] mGlobal;
+
+    /**
+     * The limits of {@link EPriority#BEST_EFFORT best effort} whispers of all
+     * accounts together, guarded by this instance. They are spread evenly over
+     * half the budget, leaving the other half to the whispers answering them,
+     * e.g. the <tt>!catch</tt> following every cast.
+     */
+    private RateWindow[] mPaced;
+
+    /**
+     * The whispers waiting for their slot, guarded by this instance. Every
+     * account usually has at most one whisper waiting, so a list scanned as a
+     * whole is cheaper than keeping it ordered.
+     */
+    private final List<Request> mPending;
+
+    /**
+     * The upcoming run of {@link WhisperScheduler#runDue()} on the
+     * {@link WhisperScheduler#mExecutor executor}, if any, guarded by this
+     * instance.
+     */
+    private ScheduledFuture<?> mWakeUp;
+
+    /**
+     * The time in ns the {@link WhisperScheduler#mWakeUp upcoming run} happens
+     * at, guarded by this instance.
+     */
+    private long mWakeUpAt;
+
+    /**
+     * The amount of whispers submitted so far, used to break ties between equal
+     * deadlines in order of submission, guarded by this instance.
+     */
+    private long mSubmitted;
+
+    /**
+     * The amount of whispers granted a slot so far, guarded by this instance.
+     */
+    private long mGranted;
+
+    /**
+     * The amount of whispers granted a slot after their deadline, guarded by
+     * this instance.
+     */
+    private long mMissed;
+
+    /**
+     * The times whispers waited from their earliest time to their slot.
+     */
+    private final LatencyHistogram mLateness;
+
+    /**
+     * Creates a new {@link WhisperScheduler} with the default global budget,
+     * sending the whispers which have to wait on the given executor.
+     * 
+     * @param executor Sends the whispers which couldn't be sent right away.
+     */
+    public WhisperScheduler(final ScheduledExecutorService executor) {
+        this(SystemClock.INSTANCE, executor, GLOBAL_PER_SECOND, GLOBAL_PER_MINUTE);
+
+    }
+
+    /**
+     * Creates a new {@link WhisperScheduler}.
+     * 
+     * @param clock     The clock the slots are measured with.
+     * @param executor  Sends the whispers which couldn't be sent right away,
+     *                  <tt>null</tt> if this scheduler is driven by calling
+     *                  {@link WhisperScheduler#runDue()}. Its delays have to
+     *                  pass along with the given clock.
+     * @param perSecond The amount of whispers all accounts may send per second
+     *                  together, <tt>0</tt> for no limit.
+     * @param perMinute The amount of whispers all accounts may send per minute
+     *                  together, <tt>0</tt> for no limit.
+     */
+    public WhisperScheduler(final IClock clock, final ScheduledExecutorService executor, final int perSecond,
+            final int perMinute) {
+        mClock = clock;
+        mExecutor = executor;
+        mLogger = LoggerFactory.Get();
+
+        mGlobal = Limits(perSecond, perMinute);
+        mPaced = Paced(perSecond, perMinute);
+        mPending = new ArrayList<>();
+        mLateness = new LatencyHistogram();
+
+    }
+
+    /**
+     * The scheduler shared by all accounts of this process, sending the whispers
+     * which have to wait on a thread of its own.
+     * 
+     * @return The scheduler.
+     */
+    public static WhisperScheduler Get() {
+        WhisperScheduler scheduler = INSTANCE;
+
+        if (scheduler == null) {
+            synchronized (WhisperScheduler.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WhisperScheduler(Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        final Thread thread = new Thread(runnable, THREAD_NAME);
+                        thread.setDaemon(true);
+
+                        return thread;
+                    }));
+                }
+                scheduler = INSTANCE;
+
+            }
+        }
+        return scheduler;
+
+    }
+
+    /**
+     * Creates the windows of the given limits.
+     * 
+     * @param perSecond The amount of whispers per second, <tt>0</tt> for no
+     *                  limit.
+     * @param perMinute The amount of whispers per minute, <tt>0</tt> for no
+     *                  limit.
+     * @return The windows.
+     */
+    private static RateWindow[] Limits(final int perSecond, final int perMinute) {
+        final List<RateWindow> limits = new ArrayList<>(2);
+
+        if (perSecond > 0) {
+            limits.add(new RateWindow(perSecond, TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        if (perMinute > 0) {
+            limits.add(new RateWindow(perMinute, TimeUnit.MINUTES.toNanos(1)));
+        }
+        return limits.toArray(new RateWindow[limits.size()]);
+
+    }
+
+    /**
+     * Creates the windows spacing {@link EPriority#BEST_EFFORT best effort}
+     * whispers evenly within half the given limits. Without spacing them, they
+     * would use up the budget of a whole minute within its first seconds, so
+     * that every whisper answering them has to wait for the rest of the minute.
+     * 
+     * @param perSecond The amount of whispers per second, <tt>0</tt> for no
+     *                  limit.
+     * @param perMinute The amount of whispers per minute, <tt>0</tt> for no
+     *                  limit.
+     * @return The windows.
+     */
+    private static RateWindow[] Paced(final int perSecond, final int perMinute) {
+        final long spacing = Math.max(perMinute > 0 ? 2 * TimeUnit.MINUTES.toNanos(1) / perMinute : 0,
+                perSecond > 0 ? 2 * TimeUnit.SECONDS.toNanos(1) / perSecond : 0);
+
+        return spacing > 0 ? new RateWindow[] { new RateWindow(1, spacing) } : new RateWindow[0];
+
+    }
+
+    /**
+     * Whether a whisper may be sent at the given time, as far as the given limits
+     * are concerned.
+     * 
+     * @param limits The limits.
+     * @param now    The time in ns.
+     * @return <tt>True</tt> if it may, <tt>false</tt> otherwise.
+     */
+    private static boolean Free(final RateWindow[] limits, final long now) {
+        for (final RateWindow limit : limits) {
+            if (limit.earliest(now) - now > 0) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+    /**
+     * The earliest time a whisper may be sent at, as far as the given limits are
+     * concerned.
+     * 
+     * @param limits The limits.
+     * @param at     The earliest time in ns the whisper may be sent at otherwise.
+     * @return The earliest time in ns, not before <tt>at</tt>.
+     */
+    private static long Earliest(final RateWindow[] limits, final long at) {
+        long earliest = at;
+
+        for (final RateWindow limit : limits) {
+            earliest = limit.earliest(earliest);
+        }
+        return earliest;
+
+    }
+
+    /**
+     * Registers a new account, whose whispers are limited on their own as well as
+     * by the budget shared with all other accounts.
+     * 
+     * @param name The name of the account, only used for logging.
+     * @return The account.
+     */
+    public Account register(final String name) {
+        return new Account(name);
+
+    }
+
+    /**
+     * Replaces the budget shared by all accounts. Slots already handed out are
+     * forgotten, so this should happen before sending any whisper.
+     * 
+     * @param perSecond The amount of whispers all accounts may send per second
+     *                  together, <tt>0</tt> for no limit.
+     * @param perMinute The amount of whispers all accounts may send per minute
+     *                  together, <tt>0</tt> for no limit.
+     */
+    public synchronized void setGlobalLimits(final int perSecond, final int perMinute) {
+        mGlobal = Limits(perSecond, perMinute);
+        mPaced = Paced(perSecond, perMinute);
+
+    }
+
+    /**
+     * Queues the given whisper, sending it right away if it may be.
+     * 
+     * @param request The whisper.
+     */
+    private void submit(final Request request) {
+        final boolean sendNow;
+
+        synchronized (this) {
+            final long now = mClock.nanoTime();
+
+            request.mSequence = mSubmitted++;
+            request.mRelease += now;
+            request.mDeadline += now;
+            mPending.add(request);
+
+            // only if no other whisper which may be sent is more urgent.
+            sendNow = this.pick(now) == request;
+
+            if (sendNow) {
+                this.grant(request, now);
+
+            } else {
+                this.wakeUp(now);
+
+            }
+        }
+
+        if (sendNow) {
+            request.mSend.run();
+        }
+    }
+
+    /**
+     * Sends all whispers whose slot has come, on the calling thread.
+     * 
+     * @return The time in ns until the next slot comes, or <tt>-1</tt> if no
+     *         whisper is waiting.
+     */
+    public long runDue() {
+        final List<Request> granted = new ArrayList<>();
+        final long next;
+
+        synchronized (this) {
+            final long now = mClock.nanoTime();
+
+            if (mWakeUp != null) {
+                // either this very run, or made redundant by it.
+                mWakeUp.cancel(false);
+                mWakeUp = null;
+
+            }
+            Request request = this.pick(now);
+
+            while (request != null) {
+                this.grant(request, now);
+                granted.add(request);
+
+                request = this.pick(now);
+
+            }
+            next = this.next(now);
+            this.wakeUp(now);
+
+        }
+
+        for (final Request request : granted) {
+            try {
+                request.mSend.run();
+
+            } catch (final RuntimeException e) {
+                // the whispers of every other account still have to go out.
+                mLogger.log(ELogType.DANGER, "Sending the whisper of {} failed: {}", request.mAccount.mName, e);
+
+            }
+        }
+        return next;
+
+    }
+
+    /**
+     * The whisper to be sent next at the given time, i.e. the one of the highest
+     * priority among all which may be sent by then, preferring whispers which
+     * can still keep their deadline, and then the earliest deadline. Must be
+     * called while holding the monitor of this instance.
+     * 
+     * @param now The time in ns.
+     * @return The whisper, or <tt>null</tt> if none may be sent.
+     */
+    private Request pick(final long now) {
+        if (!Free(mGlobal, now)) {
+            return null;
+        }
+        Request best = null;
+        boolean bestLate = false;
+
+        for (final Request request : mPending) {
+            if (request.mRelease - now > 0 || !Free(request.mAccount.mLimits, now)
+                    || request.mPriority == EPriority.BEST_EFFORT && !Free(mPaced, now)) {
+                continue;
+            }
+            final boolean late = now - request.mDeadline > 0;
+
+            if (best == null || this.precedes(request, late, best, bestLate)) {
+                best = request;
+                bestLate = late;
+
+            }
+        }
+        return best;
+
+    }
+
+    /**
+     * Whether the given whisper is to be sent before the other one.
+     * 
+     * @param request      The whisper.
+     * @param late         Whether the whisper already missed its deadline.
+     * @param other        The other whisper.
+     * @param otherLate    Whether the other whisper already missed its deadline.
+     * @return <tt>True</tt> if it is, <tt>false</tt> otherwise.
+     */
+    private boolean precedes(final Request request, final boolean late, final Request other, final boolean otherLate) {
+        if (request.mPriority != other.mPriority) {
+            return request.mPriority.ordinal() < other.mPriority.ordinal();
+        }
+
+        if (late != otherLate) {
+            return otherLate;
+        }
+
+        if (request.mDeadline != other.mDeadline) {
+            return request.mDeadline - other.mDeadline < 0;
+        }
+        return request.mSequence < other.mSequence;
+
+    }
+
+    /**
+     * Hands out the slot at the given time to the given whisper. Must be called
+     * while holding the monitor of this instance.
+     * 
+     * @param request The whisper.
+     * @param now     The time of the slot in ns.
+     */
+    private void grant(final Request request, final long now) {
+        mPending.remove(request);
+
+        for (final RateWindow limit : mGlobal) {
+            limit.reserve(now);
+        }
+
+        for (final RateWindow limit : request.mAccount.mLimits) {
+            limit.reserve(now);
+        }
+
+        if (request.mPriority == EPriority.BEST_EFFORT) {
+            for (final RateWindow limit : mPaced) {
+                limit.reserve(now);
+            }
+        }
+        request.mGranted = true;
+        request.mAccount.mGranted++;
+        mGranted++;
+
+        if (now - request.mDeadline > 0) {
+            mMissed++;
+        }
+        mLateness.record(now - request.mRelease);
+
+    }
+
+    /**
+     * The time until the next slot comes. Must be called while holding the
+     * monitor of this instance.
+     * 
+     * @param now The current time in ns.
+     * @return The time in ns, or <tt>-1</tt> if no whisper is waiting.
+     */
+    private long next(final long now) {
+        if (mPending.isEmpty()) {
+            return -1;
+        }
+        long next = Long.MAX_VALUE;
+
+        for (final Request request : mPending) {
+            long at = Earliest(request.mAccount.mLimits, request.mRelease - now > 0 ? request.mRelease : now);
+
+            if (request.mPriority == EPriority.BEST_EFFORT) {
+                at = Earliest(mPaced, at);
+            }
+
+            if (next == Long.MAX_VALUE || at - next < 0) {
+                next = at;
+            }
+        }
+        return Math.max(0, Earliest(mGlobal, next) - now);
+
+    }
+
+    /**
+     * Makes sure the executor runs {@link WhisperScheduler#runDue()} once the
+     * next slot comes, if there is an executor. Must be called while holding the
+     * monitor of this instance.
+     * 
+     * @param now The current time in ns.
+     */
+    private void wakeUp(final long now) {
+        if (mExecutor == null) {
+            return;
+        }
+        final long next = this.next(now);
+
+        if (next < 0 || mWakeUp != null && mWakeUpAt - (now + next) <= 0) {
+            return;
+        }
+
+        if (mWakeUp != null) {
+            mWakeUp.cancel(false);
+        }
+        mWakeUp = mExecutor.schedule(this::runDue, next, TimeUnit.NANOSECONDS);
+        mWakeUpAt = now + next;
+
+    }
+
+    /**
+     * Withdraws the given whisper, if it is still waiting for its slot.
+     * 
+     * @param request The whisper.
+     * @return <tt>True</tt> if it got withdrawn, <tt>false</tt> if it got its
+     *         slot already.
+     */
+    private synchronized boolean cancel(final Request request) {
+        return mPending.remove(request);
+
+    }
+
+    /**
+     * The amount of whispers granted a slot so far.
+     * 
+     * @return The amount of whispers.
+     */
+    public synchronized long granted() {
+        return mGranted;
+
+    }
+
+    /**
+     * The amount of whispers granted a slot after their deadline, i.e. the
+     * amount of times the limits were too tight to keep every deadline.
+     * 
+     * @return The amount of whispers.
+     */
+    public synchronized long missed() {
+        return mMissed;
+
+    }
+
+    /**
+     * The amount of whispers currently waiting for their slot.
+     * 
+     * @return The amount of whispers.
+     */
+    public synchronized int pending() {
+        return mPending.size();
+
+    }
+
+    /**
+     * The times whispers waited from the earliest time they could be sent at to
+     * their slot, i.e. how much the limits held them up.
+     * 
+     * @return The histogram of the waits.
+     */
+    public LatencyHistogram getLateness() {
+        return mLateness;
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("granted=%d missed deadlines=%d pending=%d | lateness: %s", this.granted(), this.missed(),
+                this.pending(), mLateness);
+
+    }
+
+    /**
+     * An account sending whispers, limited on its own as well as by the budget
+     * shared with all other accounts of its {@link WhisperScheduler}.
+     */
+    public final class Account {
+
+        /**
+         * The name of the account, only used for logging.
+         */
+        private final String mName;
+
+        /**
+         * The limits of this account alone, guarded by the scheduler.
+         */
+        private final RateWindow[] mLimits;
+
+        /**
+         * The amount of whispers of this account granted a slot so far, guarded
+         * by the scheduler.
+         */
+        private long mGranted;
+
+        /**
+         * Creates a new {@link Account}.
+         * 
+         * @param name The name of the account, only used for logging.
+         */
+        private Account(final String name) {
+            mName = name;
+            mLimits = Limits(ACCOUNT_PER_SECOND, ACCOUNT_PER_MINUTE);
+
+        }
+
+        /**
+         * Submits a whisper of this account, which is sent by the calling thread
+         * right away if it may be, or later by the thread driving the scheduler.
+         * 
+         * @param priority The priority of the whisper, whispers of a higher
+         *                 priority always get their slot first.
+         * @param delay    The time in ns to wait at least before sending the
+         *                 whisper.
+         * @param slack    The time in ns the whisper may wait for its slot after
+         *                 the delay passed, the smaller the more urgent the
+         *                 whisper is among those of its priority.
+         * @param send     Sends the whisper once its slot came, must not block.
+         * @return The whisper, which may be withdrawn while waiting for its slot.
+         */
+        public Request submit(final EPriority priority, final long delay, final long slack, final Runnable send) {
+            final Request request = new Request(this, priority, delay, delay + slack, send);
+            WhisperScheduler.this.submit(request);
+
+            return request;
+
+        }
+
+        /**
+         * The amount of whispers of this account granted a slot so far.
+         * 
+         * @return The amount of whispers.
+         */
+        public long granted() {
+            synchronized (WhisperScheduler.this) {
+                return mGranted;
+
+            }
+        }
+
+        /**
+         * The name of the account.
+         * 
+         * @return The name.
+         */
+        public String getName() {
+            return mName;
+
+        }
+    }
+
+    /**
+     * A whisper waiting for its slot.
+     */
+    public final class Request {
+
+        /**
+         * The account sending the whisper.
+         */
+        private final Account mAccount;
+
+        /**
+         * The priority of the whisper.
+         */
+        private final EPriority mPriority;
+
+        /**
+         * Sends the whisper once its slot came.
+         */
+        private final Runnable mSend;
+
+        /**
+         * The earliest time in ns the whisper may be sent at, relative to its
+         * submission until submitted, guarded by the scheduler.
+         */
+        private long mRelease;
+
+        /**
+         * The time in ns the whisper should be sent by, relative to its
+         * submission until submitted, guarded by the scheduler.
+         */
+        private long mDeadline;
+
+        /**
+         * The place of the whisper in the order of submission, guarded by the
+         * scheduler.
+         */
+        private long mSequence;
+
+        /**
+         * Whether the whisper got its slot, guarded by the scheduler.
+         */
+        private boolean mGranted;
+
+        /**
+         * Creates a new {@link Request}.
+         * 
+         * @param account  The account sending the whisper.
+         * @param priority The priority of the whisper.
+         * @param release  The earliest time in ns the whisper may be sent at,
+         *                 relative to its submission.
+         * @param deadline The time in ns the whisper should be sent by, relative
+         *                 to its submission.
+         * @param send     Sends the whisper once its slot came.
+         */
+        private Request(final Account account, final EPriority priority, final long release, final long deadline,
+                final Runnable send) {
+            mAccount = account;
+            mPriority = priority;
+            mRelease = release;
+            mDeadline = deadline;
+            mSend = send;
+
+        }
+
+        /**
+         * Withdraws this whisper, if it is still waiting for its slot. A whisper
+         * whose slot came at the same time may still be sent.
+         * 
+         * @return <tt>True</tt> if it got withdrawn, <tt>false</tt> if it got its
+         *         slot already.
+         */
+        public boolean cancel() {
+            return WhisperScheduler.this.cancel(this);
+
+        }
+
+        /**
+         * Whether this whisper got its slot, i.e. is sent or about to be.
+         * 
+         * @return <tt>True</tt> if it did, <tt>false</tt> otherwise.
+         */
+        public boolean isGranted() {
+            synchronized (WhisperScheduler.this) {
+                return mGranted;
+
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package de.ativelox.relentlessfisher.protocols;
+
+/**
+ * Provides the classes of whispers sent by the twitch bot "lobotjr" during the
+ * fishing mini-game, as told apart by a {@link ResponseClassifier}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public enum EBotResponse {
+
+    CAST, ALREADY_CAST, BITE, CAUGHT, RECORD, ESCAPED, UNKNOWN;
+
+}
@@ -0,0 +1,14 @@
+package de.ativelox.relentlessfisher.protocols;
+
+/**
+ * Provides the actions taken on a transition of the fishing mini-game, i.e. the
+ * command whispered back to the bot, if any.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public enum EFishingAction {
+
+    NONE, CAST, CATCH;
+
+}
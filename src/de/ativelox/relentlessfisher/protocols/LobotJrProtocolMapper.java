@@ -1,52 +1,262 @@
-package de.ativelox.relentlessfisher.protocols;
-
-import de.ativelox.relentlessfisher.utils.EFishingState;
-
-/**
- * Provides a transition relation between messages and states. This is based on
- * the conversation flow with the twitch bot "lobotjr".
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public class LobotJrProtocolMapper {
-
-    /**
-     * This method will generate a {@link EFishingState} for a given state and
-     * message. This can be used to implement a state machine, by using this
-     * function as a transition relations.
-     * 
-     * @param currentState The state the application is currently in.
-     * @param message      The message given.
-     * @return A new state, which represents the transition given
-     *         <tt>currentState</tt> and <tt>message</tt>.
-     */
-    public static EFishingState Next(final EFishingState currentState, final String message) {
-	if (currentState == EFishingState.CAN_CAST) {
-	    if (message.startsWith("Congratulations")) {
-		return EFishingState.CAN_CAST;
-	    }
-	    return EFishingState.IS_CAST;
-
-	} else if (currentState == EFishingState.IS_CAST) {
-	    if (message.equals("Your line is already cast! I'm sure a fish'll be along soon...")) {
-		return EFishingState.IS_CAST;
-	    }
-	    return EFishingState.CAN_CATCH;
-
-	} else if (currentState == EFishingState.CAN_CATCH) {
-	    if (!message.startsWith("Congratulations")) {
-		return EFishingState.OPTIONAL_RECORD_STATE;
-	    }
-	    return EFishingState.CAN_CAST;
-	} else if (currentState == EFishingState.OPTIONAL_RECORD_STATE) {
-	    return EFishingState.CAN_CAST;
-	}
-
-	return EFishingState.CAN_CAST;
-
-    }
-
-    private LobotJrProtocolMapper() {
-    }
-}
+package de.ativelox.relentlessfisher.protocols;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import de.ativelox.relentlessfisher.utils.EFishingState;
+
+/**
+ * Provides a transition relation between messages and states. This is based on
+ * the conversation flow with the twitch bot "lobotjr".<br>
+ * 
+ * Every whisper of the bot gets classified into a {@link EBotResponse} by a
+ * {@link ResponseClassifier}, the state and the response then select a
+ * {@link Transition} from a table, holding the next state and the command to
+ * whisper back. Whispers which aren't recognized never change the state.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class LobotJrProtocolMapper {
+
+    /**
+     * The resource listing the phrases of the bot used by default.
+     */
+    private final static String DEFAULT_PHRASES = "lobotjr.phrases";
+
+    /**
+     * The transition for every state and response, indexed by their ordinals.
+     */
+    private final static Transition[][] TABLE = new Transition[EFishingState.values().length][EBotResponse
+            .values().length];
+
+    static {
+        // waiting for the cast to be confirmed.
+        Put(EFishingState.CAN_CAST, EBotResponse.CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.CAN_CAST, EBotResponse.ALREADY_CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.CAN_CAST, EBotResponse.BITE, EFishingState.CAN_CATCH, EFishingAction.CATCH);
+        Put(EFishingState.CAN_CAST, EBotResponse.CAUGHT, EFishingState.OPTIONAL_RECORD_STATE, EFishingAction.CAST);
+        Put(EFishingState.CAN_CAST, EBotResponse.RECORD, EFishingState.CAN_CAST, EFishingAction.NONE);
+        Put(EFishingState.CAN_CAST, EBotResponse.ESCAPED, EFishingState.CAN_CAST, EFishingAction.CAST);
+        Put(EFishingState.CAN_CAST, EBotResponse.UNKNOWN, EFishingState.CAN_CAST, EFishingAction.NONE);
+
+        // waiting for a bite.
+        Put(EFishingState.IS_CAST, EBotResponse.CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.IS_CAST, EBotResponse.ALREADY_CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.IS_CAST, EBotResponse.BITE, EFishingState.CAN_CATCH, EFishingAction.CATCH);
+        Put(EFishingState.IS_CAST, EBotResponse.CAUGHT, EFishingState.OPTIONAL_RECORD_STATE, EFishingAction.CAST);
+        Put(EFishingState.IS_CAST, EBotResponse.RECORD, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.IS_CAST, EBotResponse.ESCAPED, EFishingState.CAN_CAST, EFishingAction.CAST);
+        Put(EFishingState.IS_CAST, EBotResponse.UNKNOWN, EFishingState.IS_CAST, EFishingAction.NONE);
+
+        // waiting for the outcome of the catch.
+        Put(EFishingState.CAN_CATCH, EBotResponse.CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.CAN_CATCH, EBotResponse.ALREADY_CAST, EFishingState.CAN_CATCH, EFishingAction.NONE);
+        Put(EFishingState.CAN_CATCH, EBotResponse.BITE, EFishingState.CAN_CATCH, EFishingAction.CATCH);
+        Put(EFishingState.CAN_CATCH, EBotResponse.CAUGHT, EFishingState.OPTIONAL_RECORD_STATE, EFishingAction.CAST);
+        Put(EFishingState.CAN_CATCH, EBotResponse.RECORD, EFishingState.CAN_CATCH, EFishingAction.NONE);
+        Put(EFishingState.CAN_CATCH, EBotResponse.ESCAPED, EFishingState.CAN_CAST, EFishingAction.CAST);
+        Put(EFishingState.CAN_CATCH, EBotResponse.UNKNOWN, EFishingState.CAN_CATCH, EFishingAction.NONE);
+
+        // caught and cast again, a whisper about a new record may still follow.
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.CAST, EFishingState.IS_CAST, EFishingAction.NONE);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.ALREADY_CAST, EFishingState.IS_CAST,
+                EFishingAction.NONE);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.BITE, EFishingState.CAN_CATCH, EFishingAction.CATCH);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.CAUGHT, EFishingState.OPTIONAL_RECORD_STATE,
+                EFishingAction.CAST);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.RECORD, EFishingState.CAN_CAST, EFishingAction.NONE);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.ESCAPED, EFishingState.CAN_CAST, EFishingAction.CAST);
+        Put(EFishingState.OPTIONAL_RECORD_STATE, EBotResponse.UNKNOWN, EFishingState.OPTIONAL_RECORD_STATE,
+                EFishingAction.NONE);
+
+    }
+
+    /**
+     * The mapper used by default, <tt>null</tt> until first needed.
+     */
+    private static volatile LobotJrProtocolMapper INSTANCE;
+
+    /**
+     * A single entry of the transition table.
+     */
+    public static final class Transition {
+
+        /**
+         * The response this transition is taken on.
+         */
+        private final EBotResponse mResponse;
+
+        /**
+         * The state after this transition.
+         */
+        private final EFishingState mNext;
+
+        /**
+         * The action taken on this transition.
+         */
+        private final EFishingAction mAction;
+
+        /**
+         * Creates a new {@link Transition}.
+         * 
+         * @param response The response this transition is taken on.
+         * @param next     The state after this transition.
+         * @param action   The action taken on this transition.
+         */
+        Transition(final EBotResponse response, final EFishingState next, final EFishingAction action) {
+            mResponse = response;
+            mNext = next;
+            mAction = action;
+
+        }
+
+        /**
+         * The response this transition is taken on.
+         * 
+         * @return The response.
+         */
+        public EBotResponse getResponse() {
+            return mResponse;
+
+        }
+
+        /**
+         * The state after this transition.
+         * 
+         * @return The state.
+         */
+        public EFishingState getNext() {
+            return mNext;
+
+        }
+
+        /**
+         * The action taken on this transition.
+         * 
+         * @return The action.
+         */
+        public EFishingAction getAction() {
+            return mAction;
+
+        }
+    }
+
+    /**
+     * The classifier used for the whispers of the bot.
+     */
+    private final ResponseClassifier mClassifier;
+
+    /**
+     * Creates a new {@link LobotJrProtocolMapper}.
+     * 
+     * @param classifier The classifier used for the whispers of the bot.
+     */
+    public LobotJrProtocolMapper(final ResponseClassifier classifier) {
+        mClassifier = classifier;
+
+    }
+
+    /**
+     * Adds the given transition to the table.
+     * 
+     * @param state    The current state.
+     * @param response The response received.
+     * @param next     The state after the transition.
+     * @param action   The action taken on the transition.
+     */
+    private static void Put(final EFishingState state, final EBotResponse response, final EFishingState next,
+            final EFishingAction action) {
+        TABLE[state.ordinal()][response.ordinal()] = new Transition(response, next, action);
+
+    }
+
+    /**
+     * The transition for the given state and response.
+     * 
+     * @param currentState The state the application is currently in.
+     * @param response     The response received.
+     * @return The transition.
+     */
+    public static Transition Next(final EFishingState currentState, final EBotResponse response) {
+        return TABLE[currentState.ordinal()][response.ordinal()];
+
+    }
+
+    /**
+     * The transition for the given state and whisper of the bot. This can be used
+     * to implement a state machine, by using this function as a transition
+     * relation.
+     * 
+     * @param currentState The state the application is currently in.
+     * @param message      The whisper of the bot.
+     * @return The transition given <tt>currentState</tt> and <tt>message</tt>.
+     */
+    public Transition next(final EFishingState currentState, final String message) {
+        return Next(currentState, mClassifier.classify(message));
+
+    }
+
+    /**
+     * The classifier used for the whispers of the bot.
+     * 
+     * @return The classifier.
+     */
+    public ResponseClassifier getClassifier() {
+        return mClassifier;
+
+    }
+
+    /**
+     * The mapper used by default, classifying the whispers by the phrases
+     * shipped with this application unless {@link LobotJrProtocolMapper#Set(LobotJrProtocolMapper)}
+     * got called.
+     * 
+     * @return The mapper.
+     */
+    public static LobotJrProtocolMapper Get() {
+        LobotJrProtocolMapper mapper = INSTANCE;
+
+        if (mapper == null) {
+            synchronized (LobotJrProtocolMapper.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new LobotJrProtocolMapper(Default());
+                }
+                mapper = INSTANCE;
+
+            }
+        }
+        return mapper;
+
+    }
+
+    /**
+     * Sets the mapper used by default, e.g. one with phrases loaded from a file,
+     * affecting all fishers created afterwards.
+     * 
+     * @param mapper The mapper.
+     */
+    public static void Set(final LobotJrProtocolMapper mapper) {
+        INSTANCE = mapper;
+
+    }
+
+    /**
+     * Loads the classifier from the phrases shipped with this application.
+     * 
+     * @return The classifier.
+     */
+    private static ResponseClassifier Default() {
+        try (InputStream in = LobotJrProtocolMapper.class.getResourceAsStream(DEFAULT_PHRASES)) {
+            if (in == null) {
+                throw new IOException("Missing resource: " + DEFAULT_PHRASES);
+            }
+            return ResponseClassifier.Load(in);
+
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package de.ativelox.relentlessfisher.protocols;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Classifies the whispers of a bot into {@link EBotResponse responses}, by the
+ * phrases they contain. All phrases are matched in a single pass over the
+ * whisper, using an Aho-Corasick automaton compiled into a dense transition
+ * table, so the cost doesn't grow with the amount of phrases. Matching ignores
+ * case. If a whisper contains several phrases, the one listed first wins.<br>
+ * 
+ * The phrases are read from a file, one per line as
+ * <tt>RESPONSE=phrase</tt>, blank lines and lines starting with <tt>#</tt> are
+ * skipped. This allows to follow changes of the bots' wording without a
+ * rebuild.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public final class ResponseClassifier {
+
+    /**
+     * Marks a state of the automaton without any phrase ending in it.
+     */
+    private final static int NO_PHRASE = Integer.MAX_VALUE;
+
+    /**
+     * The amount of characters mapped by a lookup table instead of a map.
+     */
+    private final static int ASCII = 128;
+
+    /**
+     * The response of every phrase, in the order listed.
+     */
+    private final EBotResponse[] mResponses;
+
+    /**
+     * The symbol of every ASCII character, of both cases, <tt>0</tt> for
+     * characters not occurring in any phrase.
+     */
+    private final int[] mAsciiSymbols;
+
+    /**
+     * The symbols of all other characters occurring in a phrase.
+     */
+    private final Map<Character, Integer> mSymbols;
+
+    /**
+     * The amount of symbols, including <tt>0</tt> for all other characters.
+     */
+    private final int mSymbolCount;
+
+    /**
+     * The transitions of the automaton, the next state of state <tt>s</tt> for
+     * symbol <tt>c</tt> is at <tt>s * mSymbolCount + c</tt>. States are stored
+     * as <tt>s * mSymbolCount</tt>, so following a transition needs no
+     * multiplication.
+     */
+    private final int[] mTransitions;
+
+    /**
+     * The first listed phrase ending in every state, including its suffixes,
+     * {@link ResponseClassifier#NO_PHRASE} if none. Indexed like the
+     * {@link ResponseClassifier#mTransitions transitions}, only the first entry
+     * of every state is used.
+     */
+    private final int[] mMatches;
+
+    /**
+     * Creates a new {@link ResponseClassifier}.
+     * 
+     * @param phrases   The phrases, the first ones winning over later ones.
+     * @param responses The response every phrase identifies.
+     */
+    public ResponseClassifier(final List<String> phrases, final List<EBotResponse> responses) {
+        if (phrases.size() != responses.size()) {
+            throw new IllegalArgumentException("Every phrase needs exactly one response.");
+        }
+        mResponses = responses.toArray(new EBotResponse[0]);
+        mAsciiSymbols = new int[ASCII];
+        mSymbols = new HashMap<>();
+
+        int symbols = 1;
+
+        for (final String phrase : phrases) {
+            if (phrase.isEmpty()) {
+                throw new IllegalArgumentException("Empty phrases match every whisper.");
+            }
+
+            for (int i = 0; i < phrase.length(); i++) {
+                final char c = Character.toLowerCase(phrase.charAt(i));
+
+                if (c < ASCII) {
+                    if (mAsciiSymbols[c] == 0) {
+                        mAsciiSymbols[c] = symbols;
+                        mAsciiSymbols[Character.toUpperCase(c)] = symbols++;
+
+                    }
+                } else if (!mSymbols.containsKey(c)) {
+                    mSymbols.put(c, symbols++);
+
+                }
+            }
+        }
+        mSymbolCount = symbols;
+
+        // the trie, -1 marking missing children, grown as needed.
+        final List<int[]> children = new ArrayList<>();
+        final List<Integer> matches = new ArrayList<>();
+        children.add(this.newRow());
+        matches.add(NO_PHRASE);
+
+        for (int p = 0; p < phrases.size(); p++) {
+            final String phrase = phrases.get(p);
+            int state = 0;
+
+            for (int i = 0; i < phrase.length(); i++) {
+                final int symbol = this.symbolOf(phrase.charAt(i));
+
+                if (children.get(state)[symbol] < 0) {
+                    children.get(state)[symbol] = children.size();
+                    children.add(this.newRow());
+                    matches.add(NO_PHRASE);
+
+                }
+                state = children.get(state)[symbol];
+
+            }
+            matches.set(state, Math.min(matches.get(state), p));
+
+        }
+        final int states = children.size();
+
+        mTransitions = new int[states * mSymbolCount];
+        mMatches = new int[states * mSymbolCount];
+
+        for (int s = 0; s < states; s++) {
+            mMatches[s * mSymbolCount] = matches.get(s);
+        }
+        this.link(children);
+
+    }
+
+    /**
+     * Creates a row of the trie without any children.
+     * 
+     * @return The row.
+     */
+    private int[] newRow() {
+        final int[] row = new int[mSymbolCount];
+        Arrays.fill(row, -1);
+
+        return row;
+
+    }
+
+    /**
+     * Turns the given trie into the transition table of the automaton, by
+     * following the failure links breadth first, and merges the matches of every
+     * state with the ones of its longest proper suffix.
+     * 
+     * @param children The trie.
+     */
+    private void link(final List<int[]> children) {
+        // all states are handled as offsets into the table from here on.
+        final int[] failure = new int[mTransitions.length];
+        final Queue<Integer> queue = new ArrayDeque<>();
+
+        for (int c = 0; c < mSymbolCount; c++) {
+            final int child = children.get(0)[c];
+
+            if (child < 0) {
+                mTransitions[c] = 0;
+
+            } else {
+                mTransitions[c] = child * mSymbolCount;
+                queue.add(child * mSymbolCount);
+
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            final int state = queue.poll();
+            final int[] row = children.get(state / mSymbolCount);
+            mMatches[state] = Math.min(mMatches[state], mMatches[failure[state]]);
+
+            for (int c = 0; c < mSymbolCount; c++) {
+                final int fallback = mTransitions[failure[state] + c];
+
+                if (row[c] < 0) {
+                    mTransitions[state + c] = fallback;
+
+                } else {
+                    final int child = row[c] * mSymbolCount;
+
+                    mTransitions[state + c] = child;
+                    failure[child] = fallback;
+                    queue.add(child);
+
+                }
+            }
+        }
+    }
+
+    /**
+     * The symbol of the given character, ignoring case.
+     * 
+     * @param c The character.
+     * @return The symbol, <tt>0</tt> if the character doesn't occur in any phrase.
+     */
+    private int symbolOf(final char c) {
+        if (c < ASCII) {
+            return mAsciiSymbols[c];
+        }
+        final Integer symbol = mSymbols.get(Character.toLowerCase(c));
+
+        return symbol == null ? 0 : symbol;
+
+    }
+
+    /**
+     * Classifies the given whisper.
+     * 
+     * @param message The whisper.
+     * @return The response of the first listed phrase the whisper contains,
+     *         {@link EBotResponse#UNKNOWN} if it contains none.
+     */
+    public EBotResponse classify(final String message) {
+        final int[] transitions = mTransitions;
+        final int[] matches = mMatches;
+        final int[] ascii = mAsciiSymbols;
+
+        int state = 0;
+        int best = NO_PHRASE;
+
+        for (int i = 0; i < message.length(); i++) {
+            final char c = message.charAt(i);
+            state = transitions[state + (c < ASCII ? ascii[c] : this.symbolOf(c))];
+
+            if (matches[state] < best) {
+                best = matches[state];
+
+                if (best == 0) {
+                    break;
+                }
+            }
+        }
+        return best == NO_PHRASE ? EBotResponse.UNKNOWN : mResponses[best];
+
+    }
+
+    /**
+     * Loads a classifier from the given file.
+     * 
+     * @param file The file, listing the phrases as <tt>RESPONSE=phrase</tt>.
+     * @return The classifier.
+     * @throws IOException If the file couldn't be read or is malformed.
+     */
+    public static ResponseClassifier Load(final Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Load(in);
+
+        }
+    }
+
+    /**
+     * Loads a classifier from the given stream, which isn't closed.
+     * 
+     * @param in The stream, listing the phrases as <tt>RESPONSE=phrase</tt>.
+     * @return The classifier.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public static ResponseClassifier Load(final InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        final List<String> phrases = new ArrayList<>();
+        final List<EBotResponse> responses = new ArrayList<>();
+
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            final int separator = line.indexOf('=');
+
+            if (separator <= 0 || separator == line.length() - 1) {
+                throw new IOException("Malformed phrase, expected RESPONSE=phrase: " + line);
+            }
+
+            try {
+                responses.add(EBotResponse.valueOf(line.substring(0, separator).trim()));
+
+            } catch (final IllegalArgumentException e) {
+                throw new IOException("Unknown response: " + line, e);
+
+            }
+            phrases.add(line.substring(separator + 1));
+
+        }
+        return new ResponseClassifier(phrases, responses);
+
+    }
+}
@@ -0,0 +1,281 @@
+package de.ativelox.relentlessfisher.session;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import de.ativelox.relentlessfisher.RelentlessFisher;
+import de.ativelox.relentlessfisher.auth.IAccessTokenProvider;
+import de.ativelox.relentlessfisher.irc.nio.EventLoop;
+import de.ativelox.relentlessfisher.irc.twitch.NioTwitchIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.SecureTwitchIRCController;
+import de.ativelox.relentlessfisher.irc.twitch.TwitchClient;
+import de.ativelox.relentlessfisher.listeners.IConnectionListener;
+import de.ativelox.relentlessfisher.listeners.IJoinListener;
+import de.ativelox.relentlessfisher.listeners.IWhisperListener;
+import de.ativelox.relentlessfisher.metrics.LatencyHistogram;
+import de.ativelox.relentlessfisher.pacing.WhisperPacing;
+import de.ativelox.relentlessfisher.timer.HashedWheelTimer;
+import de.ativelox.relentlessfisher.timer.SystemClock;
+
+/**
+ * Runs many {@link TwitchClient}/{@link RelentlessFisher} pairs (sessions) on a
+ * small, fixed set of threads. All sessions share a few {@link EventLoop event
+ * loops} for reading, a single {@link HashedWheelTimer timing wheel} for their
+ * timeouts, a single scheduler thread for delayed replies and a small pool of
+ * workers for (re-)connecting, so the amount of threads doesn't grow
+ * with the amount of sessions.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class SessionManager {
+
+    /**
+     * The prefix for the names of all threads started by a manager.
+     */
+    public final static String THREAD_PREFIX = "rf-";
+
+    /**
+     * The resolution of the timers of all sessions in ms, timeouts are in the
+     * order of minutes.
+     */
+    private final static long TIMER_TICK = 100;
+
+    /**
+     * The amount of buckets of the timing wheel, covering about a minute.
+     */
+    private final static int WHEEL_SIZE = 512;
+
+    /**
+     * The loops shared by all sessions.
+     */
+    private final EventLoop[] mLoops;
+
+    /**
+     * The threads driving the {@link SessionManager#mLoops loops}.
+     */
+    private final Thread[] mLoopThreads;
+
+    /**
+     * The scheduler delaying the replies of all sessions.
+     */
+    private final ScheduledExecutorService mScheduler;
+
+    /**
+     * The executor used by all sessions for blocking tasks, e.g. connecting.
+     */
+    private final ExecutorService mWorkers;
+
+    /**
+     * The wheel serving the timers of all sessions.
+     */
+    private final HashedWheelTimer mTimers;
+
+    /**
+     * The latencies from a bite to the <tt>!catch</tt> of all sessions.
+     */
+    private final LatencyHistogram mCatchLatency;
+
+    /**
+     * The pacing shared by all sessions, since they all talk to the same bot.
+     */
+    private final WhisperPacing mPacing;
+
+    /**
+     * The host (URI) all sessions connect to, <tt>null</tt> for twitchs' IRC
+     * server.
+     */
+    private final String mHost;
+
+    /**
+     * The port all sessions connect to.
+     */
+    private final int mPort;
+
+    /**
+     * The context used to secure all connections, <tt>null</tt> for unsecured
+     * connections.
+     */
+    private final SSLContext mContext;
+
+    /**
+     * Creates the controller for a new session.
+     * 
+     * @param user The user of the session.
+     * @param loop The loop the controller is driven by.
+     * @return The controller.
+     */
+    private NioTwitchIRCController createController(final String user, final EventLoop loop) {
+        if (mContext == null) {
+            return mHost == null ? new NioTwitchIRCController(user, loop)
+                    : new NioTwitchIRCController(user, mHost, mPort, loop);
+
+        }
+        return mHost == null ? new SecureTwitchIRCController(user, loop, mContext)
+                : new SecureTwitchIRCController(user, mHost, mPort, loop, mContext);
+
+    }
+
+    /**
+     * The amount of sessions added to this manager.
+     */
+    private final AtomicInteger mSessions;
+
+    /**
+     * Creates a new {@link SessionManager} connecting all its sessions to twitchs'
+     * IRC server.
+     * 
+     * @param loopCount   The amount of event loops (threads) used for reading.
+     * @param workerCount The amount of threads used for blocking tasks.
+     * @throws IOException If an event loop couldn't be created.
+     */
+    public SessionManager(final int loopCount, final int workerCount) throws IOException {
+        this(null, 0, null, loopCount, workerCount);
+
+    }
+
+    /**
+     * Creates a new {@link SessionManager} connecting all its sessions to twitchs'
+     * IRC server via TLS.
+     * 
+     * @param context     The context used to secure all connections, sharing it
+     *                    allows to resume TLS sessions.
+     * @param loopCount   The amount of event loops (threads) used for reading.
+     * @param workerCount The amount of threads used for blocking tasks.
+     * @throws IOException If an event loop couldn't be created.
+     */
+    public SessionManager(final SSLContext context, final int loopCount, final int workerCount) throws IOException {
+        this(null, 0, context, loopCount, workerCount);
+
+    }
+
+    /**
+     * Creates a new {@link SessionManager} connecting all its sessions to the
+     * given server, e.g. a local stand-in server.
+     * 
+     * @param host        The host (URI) to connect to, <tt>null</tt> for twitchs'
+     *                    IRC server.
+     * @param port        The port on which to connect to the given host.
+     * @param context     The context used to secure all connections, <tt>null</tt>
+     *                    for unsecured connections.
+     * @param loopCount   The amount of event loops (threads) used for reading.
+     * @param workerCount The amount of threads used for blocking tasks.
+     * @throws IOException If an event loop couldn't be created.
+     */
+    public SessionManager(final String host, final int port, final SSLContext context, final int loopCount,
+            final int workerCount) throws IOException {
+        mHost = host;
+        mPort = port;
+        mContext = context;
+
+        mLoops = new EventLoop[loopCount];
+        mLoopThreads = new Thread[loopCount];
+
+        final ThreadFactory loopThreads = Threads("event-loop");
+
+        for (int i = 0; i < loopCount; i++) {
+            mLoops[i] = new EventLoop();
+            mLoopThreads[i] = loopThreads.newThread(mLoops[i]);
+            mLoopThreads[i].start();
+
+        }
+        mScheduler = Executors.newSingleThreadScheduledExecutor(Threads("scheduler"));
+        mWorkers = Executors.newFixedThreadPool(workerCount, Threads("worker"));
+        mTimers = new HashedWheelTimer(TIMER_TICK, WHEEL_SIZE);
+        mCatchLatency = new LatencyHistogram();
+        mPacing = new WhisperPacing();
+
+        mSessions = new AtomicInteger();
+    }
+
+    /**
+     * Creates a thread factory for threads named after the given purpose.
+     * 
+     * @param purpose The purpose of the threads.
+     * @return The thread factory.
+     */
+    private static ThreadFactory Threads(final String purpose) {
+        final AtomicInteger count = new AtomicInteger();
+
+        return runnable -> new Thread(runnable, THREAD_PREFIX + purpose + "-" + count.getAndIncrement());
+    }
+
+    /**
+     * Adds a new session for the given user, which immediately starts connecting
+     * in the background.
+     * 
+     * @param user          The user which granted authorization to be controlled
+     *                      by this application.
+     * @param tokenProvider Hands out the access token used to log the user onto
+     *                      twitch.
+     * @return The client of the new session.
+     */
+    public TwitchClient add(final String user, final IAccessTokenProvider tokenProvider) {
+        final EventLoop loop = mLoops[Math.floorMod(mSessions.getAndIncrement(), mLoops.length)];
+
+        final TwitchClient client = new TwitchClient(this.createController(user, loop), tokenProvider, user, mWorkers, mTimers);
+        // replies only get scheduled and sent, which is cheap enough for the scheduler thread.
+        final RelentlessFisher fisher = new RelentlessFisher(client, mScheduler, mTimers, SystemClock.INSTANCE,
+                mCatchLatency, mPacing);
+
+        client.register((IConnectionListener) fisher);
+        client.register((IJoinListener) fisher);
+        client.register((IWhisperListener) fisher);
+
+        mWorkers.submit(client::start);
+        return client;
+
+    }
+
+    /**
+     * The amount of sessions added to this manager.
+     * 
+     * @return The amount of sessions.
+     */
+    public int size() {
+        return mSessions.get();
+
+    }
+
+    /**
+     * The latencies from receiving a bite to the <tt>!catch</tt> being written to
+     * the socket, of all sessions.
+     * 
+     * @return The histogram of the latencies.
+     */
+    public LatencyHistogram getCatchLatency() {
+        return mCatchLatency;
+
+    }
+
+    /**
+     * The pacing shared by all sessions, e.g. to load the parameters learned
+     * by a previous run before adding sessions.
+     * 
+     * @return The pacing.
+     */
+    public WhisperPacing getPacing() {
+        return mPacing;
+
+    }
+
+    /**
+     * Stops all threads of this manager. Sessions aren't disconnected gracefully.
+     */
+    public void shutdown() {
+        mWorkers.shutdownNow();
+        mScheduler.shutdownNow();
+        mTimers.stop();
+
+        for (final Thread thread : mLoopThreads) {
+            thread.interrupt();
+
+        }
+    }
+}
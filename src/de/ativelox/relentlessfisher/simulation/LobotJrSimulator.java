@@ -0,0 +1,537 @@
+package de.ativelox.relentlessfisher.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates the twitch bot "lobotjr" running the fishing mini-game, answering
+ * the <tt>!cast</tt> and <tt>!catch</tt> whispers relayed by a
+ * {@link MockTwitchServer}. After a cast the fish bites after a random delay,
+ * then has to be caught within a window, and still gets away at a given rate.
+ * All of these, and the rate at which the bot ignores whispers altogether, can
+ * be changed while running, to script the behaviour over time.<br>
+ * 
+ * The game runs on a single thread of its own, which also keeps the statistics
+ * of all anglers, e.g. the reaction latency between a bite and the
+ * <tt>!catch</tt> arriving at the server.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class LobotJrSimulator implements AutoCloseable {
+
+    /**
+     * The name of the bot.
+     */
+    public final static String NAME = "lobotjr";
+
+    /**
+     * The command casting the line.
+     */
+    private final static String CAST_COMMAND = "!cast";
+
+    /**
+     * The command catching a biting fish.
+     */
+    private final static String CATCH_COMMAND = "!catch";
+
+    /**
+     * Whispered once the line is cast.
+     */
+    private final static String CAST = "Your line is cast. Type !catch when you get a bite.";
+
+    /**
+     * Whispered when casting a line which is already cast.
+     */
+    private final static String ALREADY_CAST = "Your line is already cast! I'm sure a fish'll be along soon...";
+
+    /**
+     * Whispered once a fish bites.
+     */
+    private final static String BITE = "Something's tugging at your line! Type !catch to reel it in!";
+
+    /**
+     * Whispered for a caught fish, given its weight and kind.
+     */
+    private final static String CAUGHT = "Congratulations! You caught a %.1f lb %s!";
+
+    /**
+     * Whispered if the fish gets away, even though it was caught in time.
+     */
+    private final static String ESCAPED = "The fish broke free and got away. Type !cast to try again.";
+
+    /**
+     * Whispered if the fish wasn't caught within the window.
+     */
+    private final static String TOO_SLOW = "You were too slow and the fish got away.";
+
+    /**
+     * The kinds of fish which can be caught.
+     */
+    private final static String[] FISH = { "Salmon", "Trout", "Pike", "Carp", "Catfish", "Perch" };
+
+    /**
+     * The states of a single angler.
+     */
+    private enum EAnglerState {
+        IDLE, CAST, BITE;
+    }
+
+    /**
+     * The game of a single user.
+     */
+    private static class Angler {
+
+        /**
+         * The state of the game.
+         */
+        private EAnglerState mState = EAnglerState.IDLE;
+
+        /**
+         * The bite or the end of the window to catch, <tt>null</tt> if idle.
+         */
+        private ScheduledFuture<?> mPending;
+
+        /**
+         * The time the fish bit at, given by {@link System#nanoTime()}.
+         */
+        private long mBiteTime;
+
+    }
+
+    /**
+     * The thread running the game of all anglers.
+     */
+    private final ScheduledExecutorService mScheduler;
+
+    /**
+     * The games of all users, only accessed by the
+     * {@link LobotJrSimulator#mScheduler scheduler}.
+     */
+    private final Map<String, Angler> mAnglers;
+
+    /**
+     * The source of all randomness, only accessed by the
+     * {@link LobotJrSimulator#mScheduler scheduler}.
+     */
+    private final Random mRandom;
+
+    /**
+     * The server to whisper to.
+     */
+    private volatile MockTwitchServer mServer;
+
+    /**
+     * The minimum time in ms between a cast and a bite.
+     */
+    private volatile long mMinBiteDelay;
+
+    /**
+     * The maximum time in ms between a cast and a bite.
+     */
+    private volatile long mMaxBiteDelay;
+
+    /**
+     * The time in ms a biting fish can be caught.
+     */
+    private volatile long mCatchWindow;
+
+    /**
+     * The rate at which a fish caught in time still gets away.
+     */
+    private volatile double mFailureRate;
+
+    /**
+     * The rate at which whispers are ignored.
+     */
+    private volatile double mIgnoreRate;
+
+    /**
+     * The amount of lines cast.
+     */
+    private final AtomicLong mCasts;
+
+    /**
+     * The amount of bites.
+     */
+    private final AtomicLong mBites;
+
+    /**
+     * The amount of fish caught.
+     */
+    private final AtomicLong mCatches;
+
+    /**
+     * The amount of fish which got away, even though caught in time.
+     */
+    private final AtomicLong mEscapes;
+
+    /**
+     * The amount of fish which weren't caught in time.
+     */
+    private final AtomicLong mTooSlow;
+
+    /**
+     * The amount of whispers ignored.
+     */
+    private final AtomicLong mIgnored;
+
+    /**
+     * The summed up reaction latency of all catches in time, in ns.
+     */
+    private final AtomicLong mReactionTotal;
+
+    /**
+     * The highest reaction latency of all catches in time, in ns.
+     */
+    private final AtomicLong mReactionMax;
+
+    /**
+     * Creates a new {@link LobotJrSimulator}, which never ignores whispers.
+     * 
+     * @param minBiteDelay The minimum time in ms between a cast and a bite.
+     * @param maxBiteDelay The maximum time in ms between a cast and a bite.
+     * @param catchWindow  The time in ms a biting fish can be caught.
+     * @param failureRate  The rate at which a fish caught in time still gets
+     *                     away, between <tt>0</tt> and <tt>1</tt>.
+     * @param seed         The seed of all randomness, making runs repeatable.
+     */
+    public LobotJrSimulator(final long minBiteDelay, final long maxBiteDelay, final long catchWindow,
+            final double failureRate, final long seed) {
+        mScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mock-" + NAME);
+            thread.setDaemon(true);
+
+            return thread;
+
+        });
+        mAnglers = new HashMap<>();
+        mRandom = new Random(seed);
+
+        this.setBiteDelay(minBiteDelay, maxBiteDelay);
+        this.setCatchWindow(catchWindow);
+        this.setFailureRate(failureRate);
+
+        mCasts = new AtomicLong();
+        mBites = new AtomicLong();
+        mCatches = new AtomicLong();
+        mEscapes = new AtomicLong();
+        mTooSlow = new AtomicLong();
+        mIgnored = new AtomicLong();
+        mReactionTotal = new AtomicLong();
+        mReactionMax = new AtomicLong();
+    }
+
+    /**
+     * Sets the range of the time between a cast and a bite, applying to the
+     * following casts.
+     * 
+     * @param min The minimum time in ms.
+     * @param max The maximum time in ms.
+     */
+    public void setBiteDelay(final long min, final long max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid bite delay: " + min + " to " + max);
+        }
+        mMinBiteDelay = min;
+        mMaxBiteDelay = max;
+
+    }
+
+    /**
+     * Sets the time a biting fish can be caught, applying to the following bites.
+     * 
+     * @param window The time in ms.
+     */
+    public void setCatchWindow(final long window) {
+        mCatchWindow = window;
+
+    }
+
+    /**
+     * Sets the rate at which a fish caught in time still gets away.
+     * 
+     * @param rate The rate, between <tt>0</tt> and <tt>1</tt>.
+     */
+    public void setFailureRate(final double rate) {
+        mFailureRate = Rate(rate);
+
+    }
+
+    /**
+     * Sets the rate at which whispers are ignored, as if the bot was lagging
+     * behind or offline.
+     * 
+     * @param rate The rate, between <tt>0</tt> and <tt>1</tt>.
+     */
+    public void setIgnoreRate(final double rate) {
+        mIgnoreRate = Rate(rate);
+
+    }
+
+    /**
+     * Checks the given rate.
+     * 
+     * @param rate The rate.
+     * @return The rate, if it's between <tt>0</tt> and <tt>1</tt>.
+     */
+    private static double Rate(final double rate) {
+        if (!(rate >= 0 && rate <= 1)) {
+            throw new IllegalArgumentException("The rate has to be between 0 and 1: " + rate);
+        }
+        return rate;
+
+    }
+
+    /**
+     * Attaches the server this bot whispers to.
+     * 
+     * @param server The server.
+     */
+    void attach(final MockTwitchServer server) {
+        mServer = server;
+
+    }
+
+    /**
+     * Gets called by the server for every whisper to this bot.
+     * 
+     * @param user     The user who whispered.
+     * @param message  The contents of the whisper.
+     * @param received The time the whisper arrived at, given by
+     *                 {@link System#nanoTime()}.
+     */
+    void onWhisper(final String user, final String message, final long received) {
+        mScheduler.execute(() -> this.handle(user, message, received));
+
+    }
+
+    /**
+     * Gets called by the server once the given user disconnects, ending their
+     * game.
+     * 
+     * @param user The user.
+     */
+    void onDisconnect(final String user) {
+        mScheduler.execute(() -> {
+            final Angler angler = mAnglers.remove(user);
+
+            if (angler != null && angler.mPending != null) {
+                angler.mPending.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Plays the game of the given user.
+     * 
+     * @param user     The user who whispered.
+     * @param message  The contents of the whisper.
+     * @param received The time the whisper arrived at, given by
+     *                 {@link System#nanoTime()}.
+     */
+    private void handle(final String user, final String message, final long received) {
+        if (mRandom.nextDouble() < mIgnoreRate) {
+            mIgnored.incrementAndGet();
+            return;
+
+        }
+        final Angler angler = mAnglers.computeIfAbsent(user, key -> new Angler());
+
+        if (CAST_COMMAND.equals(message)) {
+            if (angler.mState != EAnglerState.IDLE) {
+                this.whisper(user, ALREADY_CAST);
+                return;
+
+            }
+            final long delay = mMinBiteDelay + (long) (mRandom.nextDouble() * (mMaxBiteDelay - mMinBiteDelay));
+
+            angler.mState = EAnglerState.CAST;
+            angler.mPending = mScheduler.schedule(() -> this.bite(user, angler), delay, TimeUnit.MILLISECONDS);
+            mCasts.incrementAndGet();
+
+            this.whisper(user, CAST);
+
+        } else if (CATCH_COMMAND.equals(message) && angler.mState == EAnglerState.BITE) {
+            angler.mPending.cancel(false);
+            angler.mPending = null;
+            angler.mState = EAnglerState.IDLE;
+
+            final long reaction = received - angler.mBiteTime;
+            mReactionTotal.addAndGet(reaction);
+            mReactionMax.accumulateAndGet(reaction, Math::max);
+
+            if (mRandom.nextDouble() < mFailureRate) {
+                mEscapes.incrementAndGet();
+                this.whisper(user, ESCAPED);
+                return;
+
+            }
+            mCatches.incrementAndGet();
+            this.whisper(user,
+                    String.format(CAUGHT, 1 + mRandom.nextDouble() * 30, FISH[mRandom.nextInt(FISH.length)]));
+
+        }
+        // catching without a bite or anything else goes unanswered.
+    }
+
+    /**
+     * Lets a fish bite on the line of the given angler.
+     * 
+     * @param user   The user.
+     * @param angler The game of the user.
+     */
+    private void bite(final String user, final Angler angler) {
+        angler.mState = EAnglerState.BITE;
+        angler.mBiteTime = System.nanoTime();
+        angler.mPending = mScheduler.schedule(() -> this.tooSlow(user, angler), mCatchWindow,
+                TimeUnit.MILLISECONDS);
+        mBites.incrementAndGet();
+
+        this.whisper(user, BITE);
+
+    }
+
+    /**
+     * Lets the biting fish of the given angler get away.
+     * 
+     * @param user   The user.
+     * @param angler The game of the user.
+     */
+    private void tooSlow(final String user, final Angler angler) {
+        angler.mState = EAnglerState.IDLE;
+        angler.mPending = null;
+        mTooSlow.incrementAndGet();
+
+        this.whisper(user, TOO_SLOW);
+
+    }
+
+    /**
+     * Whispers the given message to the given user, if a server is attached.
+     * 
+     * @param user    The user.
+     * @param message The message.
+     */
+    private void whisper(final String user, final String message) {
+        final MockTwitchServer server = mServer;
+
+        if (server != null) {
+            server.whisper(NAME, user, message);
+        }
+    }
+
+    /**
+     * Resets all statistics, e.g. once all sessions are up.
+     */
+    public void resetStatistics() {
+        mCasts.set(0);
+        mBites.set(0);
+        mCatches.set(0);
+        mEscapes.set(0);
+        mTooSlow.set(0);
+        mIgnored.set(0);
+        mReactionTotal.set(0);
+        mReactionMax.set(0);
+
+    }
+
+    /**
+     * The amount of lines cast.
+     * 
+     * @return The amount of casts.
+     */
+    public long casts() {
+        return mCasts.get();
+
+    }
+
+    /**
+     * The amount of bites.
+     * 
+     * @return The amount of bites.
+     */
+    public long bites() {
+        return mBites.get();
+
+    }
+
+    /**
+     * The amount of fish caught.
+     * 
+     * @return The amount of catches.
+     */
+    public long catches() {
+        return mCatches.get();
+
+    }
+
+    /**
+     * The amount of fish which got away, even though caught in time.
+     * 
+     * @return The amount of escapes.
+     */
+    public long escapes() {
+        return mEscapes.get();
+
+    }
+
+    /**
+     * The amount of fish which weren't caught in time.
+     * 
+     * @return The amount of fish.
+     */
+    public long tooSlow() {
+        return mTooSlow.get();
+
+    }
+
+    /**
+     * The amount of whispers ignored.
+     * 
+     * @return The amount of whispers.
+     */
+    public long ignored() {
+        return mIgnored.get();
+
+    }
+
+    /**
+     * The mean time between a bite and the <tt>!catch</tt> arriving, over all
+     * catches in time.
+     * 
+     * @return The mean reaction latency in ns, <tt>0</tt> if there were none.
+     */
+    public long meanReaction() {
+        final long reactions = mCatches.get() + mEscapes.get();
+
+        return reactions == 0 ? 0 : mReactionTotal.get() / reactions;
+
+    }
+
+    /**
+     * The highest time between a bite and the <tt>!catch</tt> arriving, over all
+     * catches in time.
+     * 
+     * @return The highest reaction latency in ns, <tt>0</tt> if there were none.
+     */
+    public long maxReaction() {
+        return mReactionMax.get();
+
+    }
+
+    /**
+     * Stops the game of all anglers.
+     */
+    @Override
+    public void close() {
+        mScheduler.shutdownNow();
+
+    }
+}
@@ -0,0 +1,808 @@
+package de.ativelox.relentlessfisher.simulation;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.ativelox.relentlessfisher.irc.framing.ILineHandler;
+import de.ativelox.relentlessfisher.irc.framing.LineFramer;
+import de.ativelox.relentlessfisher.irc.framing.LineSlice;
+import de.ativelox.relentlessfisher.irc.message.IRCMessage;
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * A stand-in for twitchs' IRC server on a loopback port, speaking enough of its
+ * protocol for the twitch controllers to log in, join a channel and whisper: it
+ * confirms <tt>PASS</tt>/<tt>NICK</tt> with the welcome up to <tt>376</tt>,
+ * acknowledges capabilities, confirms <tt>JOIN</tt> with <tt>366</tt>, answers
+ * and sends <tt>PING</tt>s and relays whispers sent via <tt>PRIVMSG #channel
+ * :/w lobotjr ...</tt> to a {@link LobotJrSimulator}. On top of that it floods
+ * every joined connection with a given volume of chat lines.<br>
+ * 
+ * All connections are served by a single selector thread, running
+ * {@link MockTwitchServer#run()}, so thousands of sessions can be simulated on a
+ * single machine without any network. Lines can be sent from any thread, they
+ * are queued per connection and written by the selector thread.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class MockTwitchServer implements Runnable, AutoCloseable {
+
+    /**
+     * The host name of the server.
+     */
+    private final static String HOST = "tmi.twitch.tv";
+
+    /**
+     * The interval in ms at which chat lines are flooded.
+     */
+    private final static long FLOOD_TICK = 100;
+
+    /**
+     * The maximum amount of lines queued for a connection, beyond which flooded
+     * chat lines are dropped instead of queued.
+     */
+    private final static int MAX_QUEUED = 1024;
+
+    /**
+     * The maximum length of a received line.
+     */
+    private final static int MAX_LINE = 2048;
+
+    /**
+     * The maximum amount of lines written at once.
+     */
+    private final static int WRITE_BATCH = 64;
+
+    /**
+     * The prefix of a whisper sent via a <tt>PRIVMSG</tt>.
+     */
+    private final static String WHISPER_PREFIX = "/w ";
+
+    /**
+     * The contents of the chat lines flooded.
+     */
+    private final static String[] CHAT = { "Kappa that was close", "LUL", "!cast",
+            "did anyone see that?? PogChamp PogChamp", "wolfpack wolfpack wolfpack",
+            "hey lobos how is the stream going today", "F", "monkaS monkaS monkaS monkaS monkaS monkaS" };
+
+    /**
+     * The state of a single connection.
+     */
+    private static class Connection implements ILineHandler {
+
+        /**
+         * The server this connection belongs to.
+         */
+        private final MockTwitchServer mServer;
+
+        /**
+         * The key of the connection.
+         */
+        private final SelectionKey mKey;
+
+        /**
+         * Splits the received data into lines.
+         */
+        private final LineFramer mFramer;
+
+        /**
+         * The lines queued by any thread.
+         */
+        private final Queue<ByteBuffer> mOutbound;
+
+        /**
+         * The lines being written, only accessed by the selector thread.
+         */
+        private final ArrayDeque<ByteBuffer> mWriting;
+
+        /**
+         * The amount of lines queued or being written.
+         */
+        private final AtomicInteger mQueued;
+
+        /**
+         * Whether this connection waits for its queued lines to be written.
+         */
+        private final AtomicBoolean mDirty;
+
+        /**
+         * The user logged in on this connection, <tt>null</tt> before the
+         * <tt>NICK</tt>.
+         */
+        private volatile String mUser;
+
+        /**
+         * The chat lines flooded to this connection, <tt>null</tt> if it didn't
+         * join a channel.
+         */
+        private byte[][] mChat;
+
+        /**
+         * The index of the next chat line flooded.
+         */
+        private int mNextChat;
+
+        /**
+         * Creates a new {@link Connection}.
+         * 
+         * @param server The server this connection belongs to.
+         * @param key    The key of the connection.
+         */
+        Connection(final MockTwitchServer server, final SelectionKey key) {
+            mServer = server;
+            mKey = key;
+            mFramer = new LineFramer(MAX_LINE);
+            mOutbound = new ConcurrentLinkedQueue<>();
+            mWriting = new ArrayDeque<>();
+            mQueued = new AtomicInteger();
+            mDirty = new AtomicBoolean();
+
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * de.ativelox.relentlessfisher.irc.framing.ILineHandler#onLine(de.ativelox.
+         * relentlessfisher.irc.framing.LineSlice)
+         */
+        @Override
+        public void onLine(final LineSlice line) {
+            mServer.handle(this, line.toString());
+
+        }
+    }
+
+    /**
+     * The channel accepting connections.
+     */
+    private final ServerSocketChannel mServer;
+
+    /**
+     * The selector used for all connections.
+     */
+    private final Selector mSelector;
+
+    /**
+     * The bot whispers get relayed to.
+     */
+    private final LobotJrSimulator mBot;
+
+    /**
+     * The interval in ms at which every connection gets a <tt>PING</tt>.
+     */
+    private final long mPingInterval;
+
+    /**
+     * The logged in connections by their user.
+     */
+    private final Map<String, Connection> mUsers;
+
+    /**
+     * The connections with lines queued by other threads.
+     */
+    private final Queue<Connection> mDirty;
+
+    /**
+     * The chat lines flooded, by channel, only accessed by the selector thread.
+     */
+    private final Map<String, byte[][]> mChat;
+
+    /**
+     * The message received lines are parsed into, only accessed by the selector
+     * thread.
+     */
+    private final IRCMessage mMessage;
+
+    /**
+     * The buffers of a single gathering write, only accessed by the selector
+     * thread.
+     */
+    private final ByteBuffer[] mBatch;
+
+    /**
+     * The amount of chat lines flooded to every joined connection per second.
+     */
+    private volatile double mFloodRate;
+
+    /**
+     * The amount of chat lines due but not yet flooded, below <tt>1</tt>.
+     */
+    private double mFloodCarry;
+
+    /**
+     * The thread running the selector, <tt>null</tt> before it started.
+     */
+    private volatile Thread mThread;
+
+    /**
+     * Whether the server keeps running.
+     */
+    private volatile boolean mRunning;
+
+    /**
+     * The amount of logins.
+     */
+    private final AtomicInteger mLogins;
+
+    /**
+     * The amount of confirmed JOINs.
+     */
+    private final AtomicInteger mJoins;
+
+    /**
+     * The amount of <tt>PONG</tt>s received.
+     */
+    private final AtomicLong mPongs;
+
+    /**
+     * The amount of chat lines flooded.
+     */
+    private final AtomicLong mFlooded;
+
+    /**
+     * The amount of chat lines dropped, since the connection didn't keep up.
+     */
+    private final AtomicLong mFloodDropped;
+
+    /**
+     * The amount of whispers sent.
+     */
+    private final AtomicLong mWhispers;
+
+    /**
+     * Creates a new {@link MockTwitchServer} on an ephemeral loopback port,
+     * without any chat flood.
+     * 
+     * @param bot          The bot whispers get relayed to.
+     * @param pingInterval The interval in ms at which every connection gets a
+     *                     <tt>PING</tt>.
+     * @throws IOException If the server couldn't be bound.
+     */
+    public MockTwitchServer(final LobotJrSimulator bot, final long pingInterval) throws IOException {
+        mSelector = Selector.open();
+        mServer = ServerSocketChannel.open();
+        mServer.bind(new InetSocketAddress("127.0.0.1", 0), 4096);
+        mServer.configureBlocking(false);
+        mServer.register(mSelector, SelectionKey.OP_ACCEPT);
+
+        mBot = bot;
+        mPingInterval = pingInterval;
+
+        mUsers = new ConcurrentHashMap<>();
+        mDirty = new ConcurrentLinkedQueue<>();
+        mChat = new HashMap<>();
+        mMessage = new IRCMessage();
+        mBatch = new ByteBuffer[WRITE_BATCH];
+
+        mLogins = new AtomicInteger();
+        mJoins = new AtomicInteger();
+        mPongs = new AtomicLong();
+        mFlooded = new AtomicLong();
+        mFloodDropped = new AtomicLong();
+        mWhispers = new AtomicLong();
+
+        mRunning = true;
+        bot.attach(this);
+
+    }
+
+    /**
+     * The port this server listens on.
+     * 
+     * @return The port.
+     * @throws IOException If the port couldn't be determined.
+     */
+    public int port() throws IOException {
+        return ((InetSocketAddress) mServer.getLocalAddress()).getPort();
+
+    }
+
+    /**
+     * Sets the amount of chat lines flooded to every joined connection.
+     * 
+     * @param linesPerSecond The amount of lines per second, <tt>0</tt> for none.
+     */
+    public void setChatFlood(final double linesPerSecond) {
+        mFloodRate = linesPerSecond;
+
+    }
+
+    /**
+     * Whispers the given message to the given user, if logged in.
+     * 
+     * @param sender   The name of the sender.
+     * @param receiver The user receiving the whisper.
+     * @param message  The contents of the whisper.
+     */
+    public void whisper(final String sender, final String receiver, final String message) {
+        final Connection connection = mUsers.get(receiver);
+
+        if (connection == null) {
+            return;
+        }
+        final long id = mWhispers.incrementAndGet();
+
+        this.send(connection, "@badges=;color=;display-name=" + sender + ";emotes=;message-id=" + id
+                + ";thread-id=1_2;turbo=0;user-id=1;user-type= :" + sender + "!" + sender + "@" + sender + "."
+                + HOST + " WHISPER " + receiver + " :" + message);
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+        mThread = Thread.currentThread();
+
+        long nextPing = System.currentTimeMillis() + mPingInterval;
+        long nextFlood = System.currentTimeMillis() + FLOOD_TICK;
+
+        try {
+            while (mRunning) {
+                mSelector.select(Math.max(1, Math.min(nextPing, nextFlood) - System.currentTimeMillis()));
+
+                for (final SelectionKey key : mSelector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        this.accept();
+                        continue;
+
+                    }
+                    final Connection connection = (Connection) key.attachment();
+
+                    if (key.isWritable()) {
+                        this.flush(connection);
+                    }
+
+                    if (key.isValid() && key.isReadable()) {
+                        this.read(connection);
+                    }
+                }
+                mSelector.selectedKeys().clear();
+
+                final long now = System.currentTimeMillis();
+
+                if (now >= nextPing) {
+                    nextPing = now + mPingInterval;
+                    this.ping();
+
+                }
+
+                if (now >= nextFlood) {
+                    nextFlood = now + FLOOD_TICK;
+                    this.flood();
+
+                }
+                Connection dirty;
+
+                while ((dirty = mDirty.poll()) != null) {
+                    dirty.mDirty.set(false);
+                    this.flush(dirty);
+
+                }
+            }
+        } catch (final IOException e) {
+            LoggerFactory.Get().log(ELogType.DANGER, "The mock server failed: {}", e);
+
+        } finally {
+            for (final SelectionKey key : mSelector.keys()) {
+                try {
+                    key.channel().close();
+
+                } catch (final IOException e) {
+                    // closing anyway.
+                }
+            }
+
+            try {
+                mSelector.close();
+
+            } catch (final IOException e) {
+                // closing anyway.
+            }
+        }
+    }
+
+    /**
+     * Accepts a pending connection.
+     * 
+     * @throws IOException If an I/O error occurs.
+     */
+    private void accept() throws IOException {
+        final SocketChannel channel = mServer.accept();
+
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+
+        final SelectionKey key = channel.register(mSelector, SelectionKey.OP_READ);
+        key.attach(new Connection(this, key));
+
+    }
+
+    /**
+     * Reads from the given connection and handles all complete lines.
+     * 
+     * @param connection The connection.
+     */
+    private void read(final Connection connection) {
+        try {
+            if (((SocketChannel) connection.mKey.channel()).read(connection.mFramer.buffer()) < 0) {
+                this.close(connection);
+                return;
+
+            }
+            connection.mFramer.frame(connection);
+
+        } catch (final IOException e) {
+            this.close(connection);
+
+        }
+    }
+
+    /**
+     * Handles a single line received on the given connection.
+     * 
+     * @param connection The connection.
+     * @param line       The line, excluding its line break.
+     */
+    private void handle(final Connection connection, final String line) {
+        if (!mMessage.parse(line)) {
+            return;
+        }
+        final String user = connection.mUser;
+
+        switch (mMessage.getCommand()) {
+        case "NICK":
+            this.login(connection, mMessage.getParam(0));
+            break;
+
+        case "CAP":
+            this.send(connection, ":" + HOST + " CAP * ACK :" + mMessage.getTrailing());
+            break;
+
+        case "JOIN":
+            this.join(connection, mMessage.getParam(0));
+            break;
+
+        case "PART":
+            connection.mChat = null;
+            break;
+
+        case "PING":
+            this.send(connection, ":" + HOST + " PONG " + HOST + " :" + mMessage.getTrailing());
+            break;
+
+        case "PONG":
+            mPongs.incrementAndGet();
+            break;
+
+        case "PRIVMSG":
+            final String text = mMessage.getTrailing();
+
+            if (user == null || text == null || !text.startsWith(WHISPER_PREFIX)) {
+                break;
+            }
+            final int space = text.indexOf(' ', WHISPER_PREFIX.length());
+
+            if (space > 0 && text.regionMatches(true, WHISPER_PREFIX.length(), LobotJrSimulator.NAME, 0,
+                    space - WHISPER_PREFIX.length())) {
+                mBot.onWhisper(user, text.substring(space + 1), System.nanoTime());
+            }
+            break;
+
+        default:
+            // PASS is accepted whatever it is, everything else is ignored.
+            break;
+
+        }
+    }
+
+    /**
+     * Logs the given user in on the given connection.
+     * 
+     * @param connection The connection.
+     * @param user       The user.
+     */
+    private void login(final Connection connection, final String user) {
+        if (user == null || connection.mUser != null) {
+            return;
+        }
+        connection.mUser = user;
+        mUsers.put(user, connection);
+
+        final String prefix = ":" + HOST + " ";
+
+        this.send(connection, prefix + "001 " + user + " :Welcome, GLHF!");
+        this.send(connection, prefix + "002 " + user + " :Your host is " + HOST);
+        this.send(connection, prefix + "003 " + user + " :This server is rather new");
+        this.send(connection, prefix + "004 " + user + " :-");
+        this.send(connection, prefix + "375 " + user + " :-");
+        this.send(connection, prefix + "372 " + user + " :You are in a maze of twisty passages, all alike.");
+        this.send(connection, prefix + "376 " + user + " :>");
+
+        mLogins.incrementAndGet();
+
+    }
+
+    /**
+     * Joins the given connection to the given channel.
+     * 
+     * @param connection The connection.
+     * @param channel    The channel, including its <tt>#</tt>.
+     */
+    private void join(final Connection connection, final String channel) {
+        final String user = connection.mUser;
+
+        if (user == null || channel == null || !channel.startsWith("#")) {
+            return;
+        }
+        final String host = user + "." + HOST;
+
+        this.send(connection, ":" + user + "!" + user + "@" + host + " JOIN " + channel);
+        this.send(connection, ":" + host + " 353 " + user + " = " + channel + " :" + user);
+        this.send(connection, ":" + host + " 366 " + user + " " + channel + " :End of /NAMES list");
+
+        connection.mChat = mChat.computeIfAbsent(channel, MockTwitchServer::Chat);
+        mJoins.incrementAndGet();
+
+    }
+
+    /**
+     * Creates the chat lines flooded to the given channel.
+     * 
+     * @param channel The channel, including its <tt>#</tt>.
+     * @return The lines, including their line breaks.
+     */
+    private static byte[][] Chat(final String channel) {
+        final byte[][] lines = new byte[CHAT.length][];
+
+        for (int i = 0; i < CHAT.length; i++) {
+            final String nick = "viewer" + i;
+
+            lines[i] = ("@badge-info=;badges=;color=#1E90FF;display-name=" + nick + ";emotes=;flags=;id=" + i
+                    + ";mod=0;room-id=28640725;subscriber=0;tmi-sent-ts=1600000000000;turbo=0;user-id=" + (100 + i)
+                    + ";user-type= :" + nick + "!" + nick + "@" + nick + "." + HOST + " PRIVMSG " + channel + " :"
+                    + CHAT[i] + "\r\n").getBytes(StandardCharsets.UTF_8);
+
+        }
+        return lines;
+
+    }
+
+    /**
+     * Sends a <tt>PING</tt> to every logged in connection.
+     */
+    private void ping() {
+        for (final Connection connection : mUsers.values()) {
+            this.send(connection, "PING :" + HOST);
+
+        }
+    }
+
+    /**
+     * Floods the chat lines due to every joined connection.
+     */
+    private void flood() {
+        mFloodCarry += mFloodRate * FLOOD_TICK / 1000;
+
+        final int due = (int) mFloodCarry;
+        mFloodCarry -= due;
+
+        if (due == 0) {
+            return;
+        }
+
+        for (final Connection connection : mUsers.values()) {
+            final byte[][] chat = connection.mChat;
+
+            if (chat == null) {
+                continue;
+            }
+
+            for (int i = 0; i < due; i++) {
+                if (connection.mQueued.get() >= MAX_QUEUED) {
+                    mFloodDropped.addAndGet(due - i);
+                    break;
+
+                }
+                this.send(connection, ByteBuffer.wrap(chat[connection.mNextChat++ % chat.length]));
+                mFlooded.incrementAndGet();
+
+            }
+        }
+    }
+
+    /**
+     * Queues the given line for the given connection.
+     * 
+     * @param connection The connection.
+     * @param line       The line, excluding its line break.
+     */
+    private void send(final Connection connection, final String line) {
+        this.send(connection, ByteBuffer.wrap((line + "\r\n").getBytes(StandardCharsets.UTF_8)));
+
+    }
+
+    /**
+     * Queues the given line for the given connection, waking up the selector
+     * thread if called by another thread.
+     * 
+     * @param connection The connection.
+     * @param line       The line, including its line break.
+     */
+    private void send(final Connection connection, final ByteBuffer line) {
+        connection.mOutbound.add(line);
+        connection.mQueued.incrementAndGet();
+
+        if (connection.mDirty.compareAndSet(false, true)) {
+            mDirty.add(connection);
+
+            if (Thread.currentThread() != mThread) {
+                mSelector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Writes as many queued lines of the given connection as the socket takes,
+     * waiting for it to become writable for the rest.
+     * 
+     * @param connection The connection.
+     */
+    private void flush(final Connection connection) {
+        if (!connection.mKey.isValid()) {
+            return;
+        }
+        ByteBuffer line;
+
+        while ((line = connection.mOutbound.poll()) != null) {
+            connection.mWriting.add(line);
+        }
+
+        try {
+            while (!connection.mWriting.isEmpty()) {
+                int count = 0;
+                long remaining = 0;
+
+                for (final ByteBuffer buffer : connection.mWriting) {
+                    if (count == mBatch.length) {
+                        break;
+                    }
+                    mBatch[count++] = buffer;
+                    remaining += buffer.remaining();
+
+                }
+                final long written = ((SocketChannel) connection.mKey.channel()).write(mBatch, 0, count);
+
+                while (!connection.mWriting.isEmpty() && !connection.mWriting.peekFirst().hasRemaining()) {
+                    connection.mWriting.pollFirst();
+                    connection.mQueued.decrementAndGet();
+
+                }
+
+                if (written < remaining) {
+                    connection.mKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+
+                }
+            }
+            connection.mKey.interestOps(SelectionKey.OP_READ);
+
+        } catch (final IOException e) {
+            this.close(connection);
+
+        } finally {
+            Arrays.fill(mBatch, null);
+
+        }
+    }
+
+    /**
+     * Closes the given connection, ending the game of its user.
+     * 
+     * @param connection The connection.
+     */
+    private void close(final Connection connection) {
+        connection.mKey.cancel();
+
+        try {
+            connection.mKey.channel().close();
+
+        } catch (final IOException e) {
+            // closing anyway.
+        }
+        final String user = connection.mUser;
+
+        if (user != null && mUsers.remove(user, connection)) {
+            mBot.onDisconnect(user);
+        }
+    }
+
+    /**
+     * The amount of logins so far.
+     * 
+     * @return The amount of logins.
+     */
+    public int logins() {
+        return mLogins.get();
+
+    }
+
+    /**
+     * The amount of confirmed JOINs so far.
+     * 
+     * @return The amount of JOINs.
+     */
+    public int joins() {
+        return mJoins.get();
+
+    }
+
+    /**
+     * The amount of <tt>PONG</tt>s received so far.
+     * 
+     * @return The amount of <tt>PONG</tt>s.
+     */
+    public long pongs() {
+        return mPongs.get();
+
+    }
+
+    /**
+     * The amount of chat lines flooded so far.
+     * 
+     * @return The amount of lines.
+     */
+    public long flooded() {
+        return mFlooded.get();
+
+    }
+
+    /**
+     * The amount of chat lines dropped so far, since the connection didn't keep
+     * up with the flood.
+     * 
+     * @return The amount of lines.
+     */
+    public long floodDropped() {
+        return mFloodDropped.get();
+
+    }
+
+    /**
+     * Stops the server, closing all connections.
+     */
+    @Override
+    public void close() {
+        mRunning = false;
+        mSelector.wakeup();
+
+    }
+}
@@ -0,0 +1,432 @@
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.ativelox.relentlessfisher.logging.ELogType;
+import de.ativelox.relentlessfisher.logging.LoggerFactory;
+
+/**
+ * Provides a hashed timing wheel, which creates {@link ITimer ITimers} all
+ * served by a single ticker thread. The wheel advances one bucket per tick, a
+ * timer sits in the bucket of the tick its deadline falls into, so a timer
+ * fires at most one tick after its deadline. Arming, {@link ITimer#reset()}
+ * and {@link ITimer#cancel()} all take constant time: resetting only moves the
+ * deadline, and the ticker moves the timer to its new bucket once it reaches
+ * the old one.<br>
+ * 
+ * Listeners are called on the ticker thread and therefore must not block.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public class HashedWheelTimer implements ITimerFactory {
+
+    /**
+     * The name of the ticker thread.
+     */
+    private final static String THREAD_NAME = "rf-timer-wheel";
+
+    /**
+     * The duration of a single tick in ns.
+     */
+    private final long mTickNanos;
+
+    /**
+     * The buckets, each the head of a list of timers.
+     */
+    private final WheelTimer[] mWheel;
+
+    /**
+     * Selects the bucket of a tick, the amount of buckets being a power of two.
+     */
+    private final int mMask;
+
+    /**
+     * Timers armed since the last tick, waiting to be put into their bucket.
+     */
+    private final Queue<WheelTimer> mPending;
+
+    /**
+     * The thread advancing the wheel.
+     */
+    private final Thread mTicker;
+
+    /**
+     * The clock the wheel and its timers measure time with.
+     */
+    private final IClock mClock;
+
+    /**
+     * The time the wheel started at, in ns.
+     */
+    private final long mStartTime;
+
+    /**
+     * The tick currently processed, only accessed by the ticker thread.
+     */
+    private long mTick;
+
+    /**
+     * Creates and starts a new {@link HashedWheelTimer}.
+     * 
+     * @param tick      The duration of a single tick in ms, i.e. the resolution
+     *                  of the timers.
+     * @param wheelSize The amount of buckets, rounded up to a power of two. Timers
+     *                  further away than <tt>tick * wheelSize</tt> simply stay in
+     *                  their bucket for more than one round.
+     */
+    public HashedWheelTimer(final long tick, final int wheelSize) {
+        this(SystemClock.INSTANCE, tick, wheelSize);
+
+    }
+
+    /**
+     * Creates and starts a new {@link HashedWheelTimer} advancing with the given
+     * clock, e.g. a {@link VirtualClock} to let timeouts pass instantly.
+     * 
+     * @param clock     The clock to measure time with.
+     * @param tick      The duration of a single tick in ms.
+     * @param wheelSize The amount of buckets, rounded up to a power of two.
+     */
+    public HashedWheelTimer(final IClock clock, final long tick, final int wheelSize) {
+        if (tick <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("The tick and wheel size have to be positive.");
+        }
+        mTickNanos = TimeUnit.MILLISECONDS.toNanos(tick);
+        int buckets = 1;
+
+        while (buckets < wheelSize) {
+            buckets <<= 1;
+        }
+        mWheel = new WheelTimer[buckets];
+        mMask = mWheel.length - 1;
+        mPending = new ConcurrentLinkedQueue<>();
+
+        mClock = clock;
+        mStartTime = mClock.nanoTime();
+        mTicker = new Thread(this::tickUntilStopped, THREAD_NAME);
+        mTicker.setDaemon(true);
+        mTicker.start();
+
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see de.ativelox.relentlessfisher.timer.ITimerFactory#create(long,
+     * de.ativelox.relentlessfisher.timer.ITimeoutListener[])
+     */
+    @Override
+    public ITimer create(final long timeOut, final ITimeoutListener... timeoutListeners) {
+        return new WheelTimer(timeOut, timeoutListeners);
+
+    }
+
+    /**
+     * Stops the ticker thread, no timer fires afterwards.
+     */
+    public void stop() {
+        mTicker.interrupt();
+
+    }
+
+    /**
+     * Advances the wheel once per tick, until the ticker thread gets interrupted.
+     */
+    private void tickUntilStopped() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final long tickEnd = mStartTime + (mTick + 1) * mTickNanos;
+            final long sleep = tickEnd - mClock.nanoTime();
+
+            if (sleep > 0) {
+                try {
+                    mClock.sleep(sleep);
+
+                } catch (final InterruptedException e) {
+                    return;
+
+                }
+            }
+            this.transferPending();
+            this.expire(mWheel[(int) (mTick & mMask)], tickEnd);
+
+            mTick++;
+
+        }
+    }
+
+    /**
+     * Puts all timers armed since the last tick into their bucket.
+     */
+    private void transferPending() {
+        WheelTimer timer = mPending.poll();
+
+        while (timer != null) {
+            if (timer.mArmed.get()) {
+                this.place(timer);
+
+            } else {
+                this.release(timer);
+
+            }
+            timer = mPending.poll();
+
+        }
+    }
+
+    /**
+     * Processes all timers of a bucket: fires the due ones, moves the ones which
+     * got reset and drops the canceled ones.
+     * 
+     * @param head    The first timer of the bucket.
+     * @param tickEnd The end of the current tick in ns.
+     */
+    private void expire(final WheelTimer head, final long tickEnd) {
+        WheelTimer timer = head;
+
+        while (timer != null) {
+            final WheelTimer next = timer.mNext;
+
+            if (timer.mRounds > 0) {
+                timer.mRounds--;
+
+            } else {
+                this.unlink(timer);
+
+                if (!timer.mArmed.get()) {
+                    this.release(timer);
+
+                } else if (timer.mDeadline - tickEnd > 0) {
+                    // placed from the next tick, its bucket may be the one already passed.
+                    mPending.add(timer);
+
+                } else if (timer.mArmed.compareAndSet(true, false)) {
+                    this.release(timer);
+                    timer.fire();
+
+                }
+            }
+            timer = next;
+
+        }
+    }
+
+    /**
+     * Puts the given timer into the bucket its deadline falls into. Only called
+     * before the current bucket is expired, as the timer would otherwise be
+     * skipped by the current pass and fire one round late.
+     * 
+     * @param timer The timer.
+     */
+    private void place(final WheelTimer timer) {
+        // a timer whose deadline moved closer is queued again while still in a bucket.
+        if (timer.mLinked) {
+            this.unlink(timer);
+        }
+        final long ticks = Math.max(mTick, (timer.mDeadline - mStartTime) / mTickNanos);
+
+        timer.mRounds = (ticks - mTick) / mWheel.length;
+
+        final int bucket = (int) (ticks & mMask);
+        timer.mNext = mWheel[bucket];
+        timer.mPrevious = null;
+        timer.mBucket = bucket;
+        timer.mLinked = true;
+
+        if (mWheel[bucket] != null) {
+            mWheel[bucket].mPrevious = timer;
+        }
+        mWheel[bucket] = timer;
+
+    }
+
+    /**
+     * Removes the given timer from its bucket.
+     * 
+     * @param timer The timer.
+     */
+    private void unlink(final WheelTimer timer) {
+        if (timer.mPrevious == null) {
+            mWheel[timer.mBucket] = timer.mNext;
+
+        } else {
+            timer.mPrevious.mNext = timer.mNext;
+
+        }
+
+        if (timer.mNext != null) {
+            timer.mNext.mPrevious = timer.mPrevious;
+        }
+        timer.mNext = null;
+        timer.mPrevious = null;
+        timer.mLinked = false;
+
+    }
+
+    /**
+     * Marks the given timer as no longer held by the wheel. If it got armed again
+     * in the meantime, it is queued to be placed from the next tick on.
+     * 
+     * @param timer The timer.
+     */
+    private void release(final WheelTimer timer) {
+        timer.mScheduled.set(false);
+
+        if (timer.mArmed.get() && timer.mScheduled.compareAndSet(false, true)) {
+            mPending.add(timer);
+        }
+    }
+
+    /**
+     * Provides an {@link ITimer} served by the enclosing wheel. Calling
+     * {@link ITimer#run()} arms the timer and returns immediately, after the
+     * timeout is reached it calls {@link ITimeoutListener#onTimeout(long)} on all
+     * its listeners once and has to be run again to be re-armed.
+     */
+    private final class WheelTimer implements ITimer {
+
+        /**
+         * A list of all the listeners that are currently registered to this
+         * instance.
+         */
+        private final List<ITimeoutListener> mTimeoutListeners;
+
+        /**
+         * The time in ns after which a time out is reached.
+         */
+        private volatile long mTimeOut;
+
+        /**
+         * The time this timer times out at, in ns.
+         */
+        private volatile long mDeadline;
+
+        /**
+         * Whether this timer is armed, i.e. will fire once its deadline passes.
+         */
+        private final AtomicBoolean mArmed;
+
+        /**
+         * Whether this timer is held by the wheel, i.e. pending or in a bucket.
+         */
+        private final AtomicBoolean mScheduled;
+
+        /**
+         * The amount of rounds of the wheel to wait before checking the deadline,
+         * only accessed by the ticker thread.
+         */
+        private long mRounds;
+
+        /**
+         * The bucket holding this timer, only accessed by the ticker thread.
+         */
+        private int mBucket;
+
+        /**
+         * Whether this timer is in a bucket, only accessed by the ticker thread.
+         */
+        private boolean mLinked;
+
+        /**
+         * The previous timer of the bucket, only accessed by the ticker thread.
+         */
+        private WheelTimer mPrevious;
+
+        /**
+         * The next timer of the bucket, only accessed by the ticker thread.
+         */
+        private WheelTimer mNext;
+
+        /**
+         * Creates a new {@link WheelTimer}.
+         * 
+         * @param timeOut          The time in ms when this timer calls
+         *                         {@link ITimeoutListener#onTimeout(long)} on all its
+         *                         listeners.
+         * @param timeoutListeners All the listeners initially registered to this
+         *                         timer.
+         */
+        WheelTimer(final long timeOut, final ITimeoutListener... timeoutListeners) {
+            mTimeoutListeners = new CopyOnWriteArrayList<>(timeoutListeners);
+            mTimeOut = TimeUnit.MILLISECONDS.toNanos(timeOut);
+            mArmed = new AtomicBoolean();
+            mScheduled = new AtomicBoolean();
+
+        }
+
+        @Override
+        public boolean add(final ITimeoutListener timeoutListener) {
+            return mTimeoutListeners.add(timeoutListener);
+
+        }
+
+        @Override
+        public void cancel() {
+            // the wheel drops the timer once it reaches its bucket.
+            mArmed.set(false);
+
+        }
+
+        /**
+         * Calls {@link ITimeoutListener#onTimeout(long)} on all listeners.
+         */
+        private void fire() {
+            final long passed = this.passed();
+
+            for (final ITimeoutListener t : mTimeoutListeners) {
+                try {
+                    t.onTimeout(passed);
+
+                } catch (final RuntimeException e) {
+                    LoggerFactory.Get().log(ELogType.DANGER, "A timeout listener failed: {}", e);
+
+                }
+            }
+        }
+
+        @Override
+        public long passed() {
+            return TimeUnit.NANOSECONDS.toMillis(mClock.nanoTime() - (mDeadline - mTimeOut));
+        }
+
+        @Override
+        public boolean remove(final ITimeoutListener timeoutListener) {
+            return mTimeoutListeners.remove(timeoutListener);
+        }
+
+        @Override
+        public void reset() {
+            mDeadline = mClock.nanoTime() + mTimeOut;
+
+        }
+
+        @Override
+        public void setTimeout(final long timeOut) {
+            final long start = mDeadline - mTimeOut;
+            final long previous = mDeadline;
+
+            mTimeOut = TimeUnit.MILLISECONDS.toNanos(timeOut);
+            mDeadline = start + mTimeOut;
+
+            // the wheel only notices a later deadline by itself, a closer one has to be placed anew.
+            if (mDeadline - previous < 0 && mArmed.get()) {
+                mPending.add(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            this.reset();
+            mArmed.set(true);
+
+            if (mScheduled.compareAndSet(false, true)) {
+                mPending.add(this);
+            }
+        }
+    }
+}
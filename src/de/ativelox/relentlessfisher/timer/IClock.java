@@ -0,0 +1,47 @@
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an interface for the monotonic time source of timers, such that
+ * tests and simulations can let time pass instantly, see {@link VirtualClock}.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public interface IClock {
+
+    /**
+     * The current time in ns, only meaningful compared to other values returned
+     * by the same clock, just like {@link System#nanoTime()}.
+     * 
+     * @return The current time (ns).
+     */
+    long nanoTime();
+
+    /**
+     * Blocks the calling thread until the given amount of time passed on this
+     * clock.
+     * 
+     * @param nanos The time to sleep (ns), returns immediately if not positive.
+     * @throws InterruptedException If the thread got interrupted while sleeping.
+     */
+    void sleep(final long nanos) throws InterruptedException;
+
+    /**
+     * Runs the given task once the given amount of time passed on this clock.
+     * Clocks following real time hand it to the given scheduler, while a
+     * {@link VirtualClock} runs it itself once advanced far enough.
+     * 
+     * @param scheduler The scheduler running the task in real time.
+     * @param task      The task to run.
+     * @param nanos     The time until the task is run (ns).
+     * @return The pending task, e.g. to cancel it.
+     */
+    default Future<?> schedule(final ScheduledExecutorService scheduler, final Runnable task, final long nanos) {
+        return scheduler.schedule(task, nanos, TimeUnit.NANOSECONDS);
+
+    }
+}
@@ -1,47 +1,68 @@
-package de.ativelox.relentlessfisher.timer;
-
-import java.util.Collection;
-
-/**
- * Provides an interface for timers, being able to call
- * {@link ITimeoutListener#onTimeout(long)} when a given timeout is reached on
- * all it's listeners.
- * 
- * @author Ativelox ({@literal ativelox.dev@web.de})
- *
- */
-public interface ITimer extends Runnable {
-
-    /**
-     * Adds the given {@link ITimeoutListener} to receive the callback
-     * {@link ITimeoutListener#onTimeout(long) onTimeout(long)}.
-     * 
-     * @param timeoutListener The listener to start receiving callbacks.
-     * @return As specified by {@link Collection#add(Object)}
-     */
-    boolean add(final ITimeoutListener timeoutListener);
-
-    /**
-     * The time that has passed since the start of this timer and it's timeout, in
-     * milliseconds.
-     * 
-     * @return The passed time (ms).
-     */
-    long passed();
-
-    /**
-     * Removes the given {@link ITimeoutListener} such that it no longer receives
-     * callbacks.
-     * 
-     * @param timeoutListener The listener to stop receiving callbacks.
-     * @return As specified by {@link Collection#remove(Object)}
-     */
-    boolean remove(final ITimeoutListener timeoutListener);
-
-    /**
-     * Resets this timer, behaves the same as creating a new {@link ITimer}
-     * instance, given the timeout hasn't yet been reached.
-     */
-    void reset();
-
-}
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.Collection;
+
+/**
+ * Provides an interface for timers, being able to call
+ * {@link ITimeoutListener#onTimeout(long)} when a given timeout is reached on
+ * all it's listeners. Time is measured with a monotonic {@link IClock}, so
+ * timeouts don't move along with the wall clock. All methods but
+ * {@link ITimer#run()} may be called from any thread, a reset or cancel being
+ * visible to the thread checking the timeout.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public interface ITimer extends Runnable {
+
+    /**
+     * Adds the given {@link ITimeoutListener} to receive the callback
+     * {@link ITimeoutListener#onTimeout(long) onTimeout(long)}.
+     * 
+     * @param timeoutListener The listener to start receiving callbacks.
+     * @return As specified by {@link Collection#add(Object)}
+     */
+    boolean add(final ITimeoutListener timeoutListener);
+
+    /**
+     * Disarms this timer, such that it doesn't time out until it gets run again.
+     * Does nothing if this timer isn't armed.
+     */
+    void cancel();
+
+    /**
+     * The time that has passed since the start of this timer and it's timeout, in
+     * milliseconds.
+     * 
+     * @return The passed time (ms).
+     */
+    long passed();
+
+    /**
+     * Removes the given {@link ITimeoutListener} such that it no longer receives
+     * callbacks.
+     * 
+     * @param timeoutListener The listener to stop receiving callbacks.
+     * @return As specified by {@link Collection#remove(Object)}
+     */
+    boolean remove(final ITimeoutListener timeoutListener);
+
+    /**
+     * Resets this timer, behaves the same as creating a new {@link ITimer}
+     * instance, given the timeout hasn't yet been reached.
+     */
+    void reset();
+
+    /**
+     * Changes the time after which this timer times out, e.g. to adapt it to the
+     * currently expected silence. If this timer is armed, the new timeout counts
+     * from its start or last reset, so a timeout already passed fires right away
+     * (within the accuracy of the timer).
+     * 
+     * @param timeOut The time in ms after which this timer calls
+     *                {@link ITimeoutListener#onTimeout(long)} on all its
+     *                listeners.
+     */
+    void setTimeout(final long timeOut);
+
+}
@@ -0,0 +1,24 @@
+package de.ativelox.relentlessfisher.timer;
+
+/**
+ * Provides an interface for factories creating {@link ITimer} instances. Used
+ * to decide which timer implementation backs a client, e.g. a thread per timer
+ * or a shared scheduler.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public interface ITimerFactory {
+
+    /**
+     * Creates a new {@link ITimer}.
+     * 
+     * @param timeOut          The time in ms after which the timer calls
+     *                         {@link ITimeoutListener#onTimeout(long)} on all its
+     *                         listeners.
+     * @param timeoutListeners All the listeners initially registered to the timer.
+     * @return The newly created timer.
+     */
+    ITimer create(final long timeOut, final ITimeoutListener... timeoutListeners);
+
+}
@@ -0,0 +1,212 @@
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an {@link ITimer} implementation backed by a (shared)
+ * {@link ScheduledExecutorService}, such that many timers can be served by a
+ * single thread. Calling {@link ITimer#run()} arms the timer and returns
+ * immediately, after the timeout is reached it calls
+ * {@link ITimeoutListener#onTimeout(long)} on all its listeners once and has to
+ * be run again to be re-armed, just like {@link SimpleTimer}.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public class ScheduledTimer implements ITimer {
+
+    /**
+     * A list of all the listeners that are currently registered to this instance.
+     */
+    private final List<ITimeoutListener> mTimeoutListeners;
+
+    /**
+     * The scheduler checking for this timers' timeout.
+     */
+    private final ScheduledExecutorService mScheduler;
+
+    /**
+     * The time in milliseconds after which a time out is reached.
+     */
+    private volatile long mTimeOut;
+
+    /**
+     * The clock this timer measures time with.
+     */
+    private final IClock mClock;
+
+    /**
+     * The time that this timer has started, given by {@link IClock#nanoTime()}.
+     */
+    private volatile long mStartTime;
+
+    /**
+     * Whether this timer is currently armed.
+     */
+    private volatile boolean mArmed;
+
+    /**
+     * The pending check for this timers' timeout, if any, guarded by this
+     * instance.
+     */
+    private Future<?> mCheck;
+
+    /**
+     * Creates a new {@link ScheduledTimer}.
+     * 
+     * @param scheduler        The scheduler used to check for the timeout.
+     * @param timeOut          The time in ms when this timer calls
+     *                         {@link ITimeoutListener#onTimeout(long)} on all its
+     *                         listeners.
+     * @param timeoutListeners All the listeners initially registered to this timer.
+     */
+    public ScheduledTimer(final ScheduledExecutorService scheduler, final long timeOut,
+            final ITimeoutListener... timeoutListeners) {
+        this(scheduler, SystemClock.INSTANCE, timeOut, timeoutListeners);
+
+    }
+
+    /**
+     * Creates a new {@link ScheduledTimer} measuring time with the given clock.
+     * The checks are scheduled on the clock, so a {@link VirtualClock} runs them
+     * itself once advanced far enough, leaving the scheduler unused.
+     * 
+     * @param scheduler        The scheduler used to check for the timeout in
+     *                         real time.
+     * @param clock            The clock to measure time with.
+     * @param timeOut          The time in ms when this timer calls
+     *                         {@link ITimeoutListener#onTimeout(long)} on all its
+     *                         listeners.
+     * @param timeoutListeners All the listeners initially registered to this timer.
+     */
+    public ScheduledTimer(final ScheduledExecutorService scheduler, final IClock clock, final long timeOut,
+            final ITimeoutListener... timeoutListeners) {
+        mTimeoutListeners = new CopyOnWriteArrayList<>(timeoutListeners);
+        mScheduler = scheduler;
+        mClock = clock;
+        mTimeOut = timeOut;
+
+    }
+
+    /**
+     * Creates a factory for {@link ScheduledTimer ScheduledTimers} which all share
+     * the given scheduler.
+     * 
+     * @param scheduler The scheduler shared by all timers.
+     * @return The factory.
+     */
+    public static ITimerFactory Factory(final ScheduledExecutorService scheduler) {
+        return Factory(scheduler, SystemClock.INSTANCE);
+
+    }
+
+    /**
+     * Creates a factory for {@link ScheduledTimer ScheduledTimers} which all share
+     * the given scheduler and clock.
+     * 
+     * @param scheduler The scheduler shared by all timers.
+     * @param clock     The clock the timers measure time with.
+     * @return The factory.
+     */
+    public static ITimerFactory Factory(final ScheduledExecutorService scheduler, final IClock clock) {
+        return (timeOut, timeoutListeners) -> new ScheduledTimer(scheduler, clock, timeOut, timeoutListeners);
+
+    }
+
+    @Override
+    public boolean add(final ITimeoutListener timeoutListener) {
+        return mTimeoutListeners.add(timeoutListener);
+
+    }
+
+    @Override
+    public void cancel() {
+        // the pending check finds the timer disarmed and returns.
+        mArmed = false;
+
+    }
+
+    /**
+     * Checks whether the timeout is reached, since {@link ITimer#reset()} only
+     * moves the start time, the check is re-scheduled for the remaining time if
+     * it isn't.
+     */
+    private void check() {
+        synchronized (this) {
+            if (!mArmed) {
+                return;
+            }
+            final long passed = this.passed();
+
+            if (passed < mTimeOut) {
+                this.schedule(mTimeOut - passed);
+                return;
+
+            }
+            mArmed = false;
+            mCheck = null;
+
+        }
+        final long passed = this.passed();
+
+        for (final ITimeoutListener t : mTimeoutListeners) {
+            t.onTimeout(passed);
+        }
+    }
+
+    @Override
+    public long passed() {
+        return TimeUnit.NANOSECONDS.toMillis(mClock.nanoTime() - mStartTime);
+    }
+
+    @Override
+    public boolean remove(final ITimeoutListener timeoutListener) {
+        return mTimeoutListeners.remove(timeoutListener);
+    }
+
+    @Override
+    public void reset() {
+        mStartTime = mClock.nanoTime();
+
+    }
+
+    /**
+     * Schedules the check for this timers' timeout, replacing the pending one,
+     * so there's never more than one.
+     * 
+     * @param delay The time in ms until the check.
+     */
+    private synchronized void schedule(final long delay) {
+        if (mCheck != null) {
+            mCheck.cancel(false);
+        }
+        mCheck = mClock.schedule(mScheduler, this::check, TimeUnit.MILLISECONDS.toNanos(delay));
+
+    }
+
+    @Override
+    public synchronized void setTimeout(final long timeOut) {
+        final long previous = mTimeOut;
+        mTimeOut = timeOut;
+
+        // a longer timeout is handled by the pending check re-scheduling itself.
+        if (mArmed && timeOut < previous) {
+            this.schedule(Math.max(0, timeOut - this.passed()));
+        }
+    }
+
+    @Override
+    public synchronized void run() {
+        this.reset();
+
+        if (!mArmed) {
+            mArmed = true;
+            this.schedule(mTimeOut);
+
+        }
+    }
+}
@@ -1,114 +1,176 @@
-package de.ativelox.relentlessfisher.timer;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * Provides a simple {@link ITimer} implementation, which will call
- * {@link ITimeoutListener#onTimeout(long)} on all its listeners when the given
- * timeout is reached. When the timeout is reached, this thread will stop
- * running. Calling {@link ITimer#run()} will ensure that the this instance is
- * in a legal state by calling {@link ITimer#reset()} internally.
- * 
- * @author Ativelox ({@literal ativelox.dev@web.de})
- *
- */
-public class SimpleTimer implements ITimer {
-
-    /**
-     * A list of all the listeners that are currently registered to this instance.
-     */
-    private final List<ITimeoutListener> mTimeoutListeners;
-
-    /**
-     * The time in milliseconds after which a time out is reached.
-     */
-    private final long mTimeOut;
-
-    /**
-     * The time that has passed from the start of this timer.
-     */
-    private long mPassedTime;
-
-    /**
-     * The time that this timer has started, given by
-     * {@link System#currentTimeMillis()}.
-     */
-    private long mStartTime;
-
-    /**
-     * The accuracy of the timer, i.e. how often the timer checks whether the
-     * timeout is reached (in ms).
-     */
-    private final long mAccuracy;
-
-    /**
-     * Creates a new {@link SimpleTimer}.
-     * 
-     * @param timeOut          The time in ms when this timer calls
-     *                         {@link ITimeoutListener#onTimeout(long)} on all its
-     *                         listeners.
-     * @param accuracy         The accuracy of the timer, see
-     *                         {@link SimpleTimer#mAccuracy}.
-     * @param timeoutListeners All the listeners initially registered to this timer.
-     */
-    public SimpleTimer(final long timeOut, final long accuracy, final ITimeoutListener... timeoutListeners) {
-	mTimeoutListeners = new ArrayList<>();
-	mTimeOut = timeOut;
-	mAccuracy = accuracy;
-
-	for (final ITimeoutListener t : timeoutListeners) {
-	    mTimeoutListeners.add(t);
-
-	}
-
-    }
-
-    @Override
-    public boolean add(final ITimeoutListener timeoutListener) {
-	return mTimeoutListeners.add(timeoutListener);
-
-    }
-
-    @Override
-    public long passed() {
-	return mPassedTime;
-    }
-
-    @Override
-    public boolean remove(final ITimeoutListener timeoutListener) {
-	return mTimeoutListeners.remove(timeoutListener);
-    }
-
-    @Override
-    public void reset() {
-	mStartTime = System.currentTimeMillis();
-	mPassedTime = 0;
-
-    }
-
-    @Override
-    public void run() {
-	this.reset();
-
-	while (true) {
-	    mPassedTime = System.currentTimeMillis() - mStartTime;
-
-	    if (mPassedTime >= mTimeOut) {
-		for (final ITimeoutListener t : mTimeoutListeners) {
-		    t.onTimeout(mPassedTime);
-		}
-		break;
-	    }
-
-	    try {
-		Thread.sleep(mAccuracy);
-
-	    } catch (final InterruptedException e) {
-		e.printStackTrace();
-
-	    }
-	}
-    }
-
-}
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides a simple {@link ITimer} implementation, which will call
+ * {@link ITimeoutListener#onTimeout(long)} on all its listeners when the given
+ * timeout is reached. When the timeout is reached, this thread will stop
+ * running. Calling {@link ITimer#run()} will ensure that the this instance is
+ * in a legal state by calling {@link ITimer#reset()} internally.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public class SimpleTimer implements ITimer {
+
+    /**
+     * A list of all the listeners that are currently registered to this instance.
+     */
+    private final List<ITimeoutListener> mTimeoutListeners;
+
+    /**
+     * The time in milliseconds after which a time out is reached. Volatile, since
+     * {@link ITimer#setTimeout(long)} is called by other threads.
+     */
+    private volatile long mTimeOut;
+
+    /**
+     * The clock this timer measures time with.
+     */
+    private final IClock mClock;
+
+    /**
+     * The time that this timer has started, given by {@link IClock#nanoTime()}.
+     * Volatile, since {@link ITimer#reset()} is called by other threads.
+     */
+    private volatile long mStartTime;
+
+    /**
+     * The accuracy of the timer, i.e. how often the timer checks whether the
+     * timeout is reached (in ms).
+     */
+    private final long mAccuracy;
+
+    /**
+     * Whether this timer got canceled while running.
+     */
+    private volatile boolean mCanceled;
+
+    /**
+     * Creates a new {@link SimpleTimer}.
+     * 
+     * @param timeOut          The time in ms when this timer calls
+     *                         {@link ITimeoutListener#onTimeout(long)} on all its
+     *                         listeners.
+     * @param accuracy         The accuracy of the timer, see
+     *                         {@link SimpleTimer#mAccuracy}.
+     * @param timeoutListeners All the listeners initially registered to this timer.
+     */
+    public SimpleTimer(final long timeOut, final long accuracy, final ITimeoutListener... timeoutListeners) {
+        this(SystemClock.INSTANCE, timeOut, accuracy, timeoutListeners);
+
+    }
+
+    /**
+     * Creates a new {@link SimpleTimer} measuring time with the given clock.
+     * 
+     * @param clock            The clock to measure time with.
+     * @param timeOut          The time in ms when this timer calls
+     *                         {@link ITimeoutListener#onTimeout(long)} on all its
+     *                         listeners.
+     * @param accuracy         The accuracy of the timer, see
+     *                         {@link SimpleTimer#mAccuracy}.
+     * @param timeoutListeners All the listeners initially registered to this timer.
+     */
+    public SimpleTimer(final IClock clock, final long timeOut, final long accuracy,
+            final ITimeoutListener... timeoutListeners) {
+        mTimeoutListeners = new CopyOnWriteArrayList<>(timeoutListeners);
+        mClock = clock;
+        mTimeOut = timeOut;
+        mAccuracy = accuracy;
+
+    }
+
+    /**
+     * Creates a factory for {@link SimpleTimer SimpleTimers} which all share the
+     * given accuracy.
+     * 
+     * @param accuracy The accuracy of the timers, see
+     *                 {@link SimpleTimer#mAccuracy}.
+     * @return The factory.
+     */
+    public static ITimerFactory Factory(final long accuracy) {
+        return Factory(SystemClock.INSTANCE, accuracy);
+
+    }
+
+    /**
+     * Creates a factory for {@link SimpleTimer SimpleTimers} which all share the
+     * given clock and accuracy.
+     * 
+     * @param clock    The clock the timers measure time with.
+     * @param accuracy The accuracy of the timers, see
+     *                 {@link SimpleTimer#mAccuracy}.
+     * @return The factory.
+     */
+    public static ITimerFactory Factory(final IClock clock, final long accuracy) {
+        return (timeOut, timeoutListeners) -> new SimpleTimer(clock, timeOut, accuracy, timeoutListeners);
+
+    }
+
+    @Override
+    public boolean add(final ITimeoutListener timeoutListener) {
+        return mTimeoutListeners.add(timeoutListener);
+
+    }
+
+    @Override
+    public void cancel() {
+        mCanceled = true;
+
+    }
+
+    @Override
+    public long passed() {
+        return TimeUnit.NANOSECONDS.toMillis(mClock.nanoTime() - mStartTime);
+    }
+
+    @Override
+    public boolean remove(final ITimeoutListener timeoutListener) {
+        return mTimeoutListeners.remove(timeoutListener);
+    }
+
+    @Override
+    public void reset() {
+        mStartTime = mClock.nanoTime();
+
+    }
+
+    @Override
+    public void setTimeout(final long timeOut) {
+        // a shorter timeout is seen once the current sleep ends, within the accuracy.
+        mTimeOut = timeOut;
+
+    }
+
+    @Override
+    public void run() {
+        this.reset();
+        mCanceled = false;
+
+        while (!mCanceled) {
+            final long passed = this.passed();
+            final long timeOut = mTimeOut;
+
+            if (passed >= timeOut) {
+                for (final ITimeoutListener t : mTimeoutListeners) {
+                    t.onTimeout(passed);
+                }
+                break;
+            }
+
+            try {
+                // never oversleep the timeout, a reset in the meantime is seen on the next check.
+                mClock.sleep(TimeUnit.MILLISECONDS.toNanos(Math.min(mAccuracy, timeOut - passed)));
+
+            } catch (final InterruptedException e) {
+                e.printStackTrace();
+
+            }
+        }
+    }
+
+}
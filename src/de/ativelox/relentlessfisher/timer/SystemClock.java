@@ -0,0 +1,36 @@
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the {@link IClock} backed by {@link System#nanoTime()}, which
+ * doesn't jump along with the wall clock.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public final class SystemClock implements IClock {
+
+    /**
+     * The only instance.
+     */
+    public final static IClock INSTANCE = new SystemClock();
+
+    /**
+     * Use {@link SystemClock#INSTANCE}.
+     */
+    private SystemClock() {
+
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleep(final long nanos) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(nanos);
+
+    }
+}
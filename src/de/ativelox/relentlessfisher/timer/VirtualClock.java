@@ -0,0 +1,194 @@
+package de.ativelox.relentlessfisher.timer;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides an {@link IClock} which only moves when told to by
+ * {@link VirtualClock#advance(long, TimeUnit)}, so e.g. a 300 s timeout passes
+ * as fast as the code reacting to it runs. Tasks scheduled on this clock, e.g.
+ * the checks of a {@link ScheduledTimer}, are run by the advancing thread in
+ * the order they are due, each seeing the time it was due at, before the
+ * advance returns. Threads sleeping on this clock, e.g. the one of a
+ * {@link SimpleTimer}, wake once it advanced past their wake up time.
+ * 
+ * @author Ativelox ({@literal ativelox.dev@web.de})
+ *
+ */
+public class VirtualClock implements IClock {
+
+    /**
+     * The current time in ns, only written while holding the monitor of this
+     * clock.
+     */
+    private volatile long mNow;
+
+    /**
+     * The tasks waiting for their time, ordered by it, guarded by this clock.
+     */
+    private final PriorityQueue<Pending> mPending;
+
+    /**
+     * The amount of tasks scheduled so far, ordering tasks due at the same time
+     * by their scheduling, guarded by this clock.
+     */
+    private long mScheduled;
+
+    /**
+     * The amount of threads currently sleeping on this clock, guarded by this
+     * clock.
+     */
+    private int mSleepers;
+
+    /**
+     * Creates a new {@link VirtualClock} starting at <tt>0</tt>.
+     */
+    public VirtualClock() {
+        mPending = new PriorityQueue<>();
+
+    }
+
+    /**
+     * Lets the given amount of time pass, running every task due by then on the
+     * calling thread and waking all threads whose sleep ended by now. Meant to
+     * be called by a single thread driving the time.
+     * 
+     * @param time The amount of time to pass, not negative.
+     * @param unit The unit of the given time.
+     */
+    public void advance(final long time, final TimeUnit unit) {
+        if (time < 0) {
+            throw new IllegalArgumentException("Time can't go backwards: " + time);
+        }
+        final long target = mNow + unit.toNanos(time);
+
+        while (true) {
+            final Pending due;
+
+            synchronized (this) {
+                due = mPending.peek();
+
+                if (due == null || due.mTime - target > 0) {
+                    mNow = target;
+                    this.notifyAll();
+
+                    return;
+
+                }
+                mPending.poll();
+
+                if (due.mTime - mNow > 0) {
+                    mNow = due.mTime;
+                    this.notifyAll();
+
+                }
+            }
+            // outside the monitor, the task may well schedule the next one.
+            due.mTask.run();
+
+        }
+    }
+
+    /**
+     * The amount of threads currently sleeping on this clock, e.g. to only let
+     * time pass once a timer thread waits for it.
+     * 
+     * @return The amount of threads.
+     */
+    public synchronized int sleepers() {
+        return mSleepers;
+
+    }
+
+    @Override
+    public long nanoTime() {
+        return mNow;
+    }
+
+    @Override
+    public synchronized void sleep(final long nanos) throws InterruptedException {
+        final long wakeUp = mNow + nanos;
+        mSleepers++;
+
+        try {
+            while (mNow - wakeUp < 0) {
+                this.wait();
+            }
+        } finally {
+            mSleepers--;
+
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * de.ativelox.relentlessfisher.timer.IClock#schedule(java.util.concurrent.
+     * ScheduledExecutorService, java.lang.Runnable, long)
+     */
+    @Override
+    public synchronized Future<?> schedule(final ScheduledExecutorService scheduler, final Runnable task,
+            final long nanos) {
+        // the scheduler runs in real time, this clock runs the task itself once advanced.
+        final FutureTask<Void> future = new FutureTask<>(task, null);
+        mPending.add(new Pending(future, mNow + Math.max(0, nanos), mScheduled++));
+
+        return future;
+
+    }
+
+    /**
+     * A task waiting for its time, a canceled one simply doesn't run once due.
+     */
+    private static final class Pending implements Comparable<Pending> {
+
+        /**
+         * The task to run.
+         */
+        private final FutureTask<Void> mTask;
+
+        /**
+         * The time to run the task at in ns.
+         */
+        private final long mTime;
+
+        /**
+         * The number of the task among all scheduled ones.
+         */
+        private final long mSequence;
+
+        /**
+         * Creates a new {@link Pending}.
+         * 
+         * @param task     The task to run.
+         * @param time     The time to run the task at in ns.
+         * @param sequence The number of the task among all scheduled ones.
+         */
+        Pending(final FutureTask<Void> task, final long time, final long sequence) {
+            mTask = task;
+            mTime = time;
+            mSequence = sequence;
+
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        @Override
+        public int compareTo(final Pending other) {
+            final long difference = mTime - other.mTime;
+
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+            return Long.compare(mSequence, other.mSequence);
+
+        }
+    }
+}
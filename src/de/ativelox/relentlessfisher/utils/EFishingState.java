@@ -1,14 +1,14 @@
-package de.ativelox.relentlessfisher.utils;
-
-/**
- * Provides all required states to properly formulate the fishing mini-game from
- * "lobotjr".
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public enum EFishingState {
-
-    IS_CAST, CAN_CAST, CAN_CATCH, OPTIONAL_RECORD_STATE;
-
-}
+package de.ativelox.relentlessfisher.utils;
+
+/**
+ * Provides all required states to properly formulate the fishing mini-game from
+ * "lobotjr".
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public enum EFishingState {
+
+    IS_CAST, CAN_CAST, CAN_CATCH, OPTIONAL_RECORD_STATE;
+
+}
@@ -1,109 +1,282 @@
-package de.ativelox.relentlessfisher.utils;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.net.URL;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import javax.net.ssl.HttpsURLConnection;
-
-/**
- * Provides a Utility class to formulate HTTP requests.
- * 
- * @author Ativelox {@literal<ativelox.dev@web.de>}
- *
- */
-public class HTTPRequest {
-
-    /**
-     * Parses the given string as a JSON object on the "top-level-view". Meaning
-     * that key-value pairs only get parsed on the first "layer" of the JSON object,
-     * e.g. arrays in JSON objects as values will not be properly encoded, and
-     * rather just be parsed as their JSON equivalent in a string.
-     * 
-     * 
-     * @param json The json to parse to a map.
-     * @return A map representing the top-level-view of the given json.
-     */
-    private static Map<String, String> parseSimpleJSON(final String json) {
-	int depth = 0;
-	String current = "";
-
-	final List<String> contents = new ArrayList<>();
-
-	for (final char s : json.toCharArray()) {
-	    if (s == '{' || s == '[') {
-		depth++;
-	    } else if (s == '}' || s == ']') {
-		depth--;
-
-	    }
-
-	    if (depth <= 1) {
-		if (s == ':' || s == ',' || s == '}') {
-		    contents.add(current);
-		    current = "";
-		    continue;
-		}
-		if (s == '\"' || s == '{') {
-		    continue;
-		}
-	    }
-	    current += s;
-
-	}
-
-	final Map<String, String> mapping = new HashMap<>();
-
-	for (int i = 0; i < contents.size(); i += 2) {
-	    mapping.put(contents.get(i), contents.get(i + 1));
-
-	}
-	return mapping;
-    }
-
-    /**
-     * Sends a POST request to the given URL with the given contents. This method
-     * expects for the server to respond with a JSON object (request was proper),
-     * and returns that.
-     * 
-     * @param url     The url on which to perform a POST request.
-     * @param content The content to send with the POST request.
-     * @return A JSON objects representation of the servers response.
-     * @throws IOException if an I/O exception occurs.
-     */
-    public static Map<String, String> Post(final String url, final String content) throws IOException {
-	final URL formedUrl = new URL(url);
-	final HttpsURLConnection connection = (HttpsURLConnection) formedUrl.openConnection();
-
-	connection.setRequestMethod("POST");
-	connection.setDoInput(true);
-	connection.setDoOutput(true);
-	connection.setUseCaches(false);
-	connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-	connection.setRequestProperty("Content-Length", String.valueOf(content.length()));
-
-	final OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream());
-	writer.write(content);
-	writer.flush();
-
-	final BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-	String answer = "";
-
-	String line = reader.readLine();
-
-	while (line != null) {
-	    answer += line;
-	    line = reader.readLine();
-
-	}
-	return parseSimpleJSON(answer);
-
-    }
-}
+package de.ativelox.relentlessfisher.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Provides a Utility class to formulate HTTP requests. All requests share a
+ * single {@link HttpClient}, which keeps its connections alive and speaks
+ * HTTP/2 where the server does, so only the first request to a host pays for
+ * the TCP and TLS handshakes. Requests are sent asynchronously, blocking only
+ * whoever waits for their {@link CompletableFuture}, e.g. by
+ * {@link HTTPRequest#Await(CompletableFuture)}. Responses are read straight off
+ * the stream of their body as it arrives, on threads of their own, so no thread
+ * of the client ever blocks.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class HTTPRequest {
+
+    /**
+     * The time to wait for a connection to be established, unless configured
+     * otherwise.
+     */
+    public final static Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * The time to wait for the response of a request, unless configured
+     * otherwise.
+     */
+    public final static Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    /**
+     * The name of the threads reading the responses.
+     */
+    private final static String THREAD_NAME = "rf-http";
+
+    /**
+     * The instance used by default, created once needed.
+     */
+    private static volatile HTTPRequest INSTANCE = null;
+
+    /**
+     * The client sending all requests.
+     */
+    private final HttpClient mClient;
+
+    /**
+     * The time to wait for the response of a request, up to the end of its body.
+     */
+    private final Duration mRequestTimeout;
+
+    /**
+     * Reads the responses off their streams, which blocks until the body
+     * arrived.
+     */
+    private final ExecutorService mReader;
+
+    /**
+     * Creates a new {@link HTTPRequest}, with a client of its own.
+     * 
+     * @param connectTimeout The time to wait for a connection to be
+     *                       established.
+     * @param requestTimeout The time to wait for the response of a request, up
+     *                       to the end of its body.
+     */
+    public HTTPRequest(final Duration connectTimeout, final Duration requestTimeout) {
+        // the client falls back to HTTP/1.1 for servers not speaking HTTP/2.
+        mClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL).build();
+        mRequestTimeout = requestTimeout;
+        mReader = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+    }
+
+    /**
+     * The instance shared by all requests, with the default timeouts unless
+     * replaced by {@link HTTPRequest#Set(HTTPRequest)}.
+     * 
+     * @return The instance.
+     */
+    public static HTTPRequest Get() {
+        HTTPRequest request = INSTANCE;
+
+        if (request == null) {
+            synchronized (HTTPRequest.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new HTTPRequest(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+                }
+                request = INSTANCE;
+
+            }
+        }
+        return request;
+
+    }
+
+    /**
+     * Replaces the instance shared by all requests, e.g. to configure the
+     * timeouts. Requests already sent are unaffected.
+     * 
+     * @param request The instance.
+     */
+    public static void Set(final HTTPRequest request) {
+        INSTANCE = request;
+
+    }
+
+    /**
+     * Sends a POST request to the given URL with the given contents, blocking
+     * until the response arrived. See
+     * {@link HTTPRequest#post(String, String, String...)}.
+     * 
+     * @param url     The url on which to perform a POST request.
+     * @param content The content to send with the POST request.
+     * @param fields  The names of the top-level fields of the response to
+     *                return, all others are skipped.
+     * @return The given fields of the servers response, as far as it had them.
+     * @throws IOException if an I/O exception occurs, the request timed out, or
+     *                     the response isn't a JSON object.
+     */
+    public static Map<String, String> Post(final String url, final String content, final String... fields)
+            throws IOException {
+        return Await(Get().post(url, content, fields));
+
+    }
+
+    /**
+     * Waits for the given request to complete.
+     * 
+     * @param <T>     The type of the result.
+     * @param request The request.
+     * @return The result of the request.
+     * @throws IOException If the request failed, or the waiting thread got
+     *                     interrupted.
+     */
+    public static <T> T Await(final CompletableFuture<T> request) throws IOException {
+        try {
+            return request.get();
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the response.", e);
+
+        } catch (final ExecutionException e) {
+            throw Unwrap(e.getCause());
+
+        }
+    }
+
+    /**
+     * The exception a request failed with, as an {@link IOException}.
+     * 
+     * @param cause Why the request failed, possibly wrapped by a
+     *              {@link CompletionException}.
+     * @return The exception.
+     */
+    public static IOException Unwrap(final Throwable cause) {
+        final Throwable unwrapped = cause instanceof CompletionException && cause.getCause() != null
+                ? cause.getCause()
+                : cause;
+
+        return unwrapped instanceof IOException ? (IOException) unwrapped
+                : new IOException("The request failed.", unwrapped);
+
+    }
+
+    /**
+     * Sends a POST request to the given URL with the given contents. This method
+     * expects for the server to respond with a JSON object (request was proper),
+     * and completes with the given fields of it, read by a {@link JsonReader}.
+     * 
+     * @param url     The url on which to perform a POST request.
+     * @param content The content to send with the POST request.
+     * @param fields  The names of the top-level fields of the response to
+     *                return, all others are skipped.
+     * @return The request, completing with the given fields of the servers
+     *         response, as far as it had them, see
+     *         {@link JsonReader#ReadFields(InputStream, String...)}.
+     */
+    public CompletableFuture<Map<String, String>> post(final String url, final String content,
+            final String... fields) {
+        return this.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(content)), fields);
+
+    }
+
+    /**
+     * Sends the given request, e.g. a call to twitchs' API needing additional
+     * headers, and completes with the given fields of the JSON object the server
+     * responds with.
+     * 
+     * @param request The request, its timeout is set by this method.
+     * @param fields  The names of the top-level fields of the response to
+     *                return, all others are skipped.
+     * @return The request, completing with the given fields of the servers
+     *         response, as far as it had them, or failing with an
+     *         {@link IOException} if the server didn't respond with success or
+     *         not with a JSON object, or with a {@link TimeoutException} if the
+     *         response didn't arrive in time.
+     */
+    public CompletableFuture<Map<String, String>> send(final HttpRequest.Builder request, final String... fields) {
+        // completes once the headers arrived, the body is read off the stream as it follows.
+        final CompletableFuture<HttpResponse<InputStream>> response = mClient
+                .sendAsync(request.timeout(mRequestTimeout).build(), HttpResponse.BodyHandlers.ofInputStream());
+        final CompletableFuture<Map<String, String>> read = response
+                .thenApplyAsync(answer -> this.read(answer, fields), mReader);
+
+        // the timeout of the request only covers the headers, a body stalling after them is cut off here.
+        read.orTimeout(mRequestTimeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            if (error instanceof TimeoutException) {
+                response.thenAccept(this::cutOff);
+            }
+        });
+        return read;
+
+    }
+
+    /**
+     * Reads the given fields of the JSON object the given response consists
+     * of, blocking until its body arrived.
+     * 
+     * @param response The response.
+     * @param fields   The names of the top-level fields to return.
+     * @return The given fields of the response, as far as it had them.
+     * @throws CompletionException If the server didn't respond with success or
+     *                             not with a JSON object.
+     */
+    private Map<String, String> read(final HttpResponse<InputStream> response, final String... fields) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                body.transferTo(OutputStream.nullOutputStream());
+                throw new IOException("Server returned HTTP " + response.statusCode() + " for " + response.uri());
+            }
+            final Map<String, String> read = JsonReader.ReadFields(body, fields);
+
+            // only a body read to its end hands the connection back for the next request.
+            body.transferTo(OutputStream.nullOutputStream());
+            return read;
+
+        } catch (final IOException e) {
+            throw new CompletionException(e);
+
+        }
+    }
+
+    /**
+     * Closes the body of the given response, which wakes up the thread reading
+     * it, and drops the connection.
+     * 
+     * @param response The response.
+     */
+    private void cutOff(final HttpResponse<InputStream> response) {
+        try {
+            response.body().close();
+
+        } catch (final IOException e) {
+            // the response is given up on either way.
+
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package de.ativelox.relentlessfisher.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides a pull reader for JSON, reading straight off an {@link InputStream}
+ * in UTF-8. Names are only ever compared against the names asked for, and
+ * values are only decoded if asked for, skipping any other value, including
+ * nested objects and arrays, allocates nothing. Only the value asked for is
+ * turned into a string.<br>
+ * 
+ * Objects are read by calling {@link JsonReader#beginObject()}, then
+ * {@link JsonReader#nextName(String...)} followed by either
+ * {@link JsonReader#nextValue()} or {@link JsonReader#skipValue()} as long as
+ * {@link JsonReader#hasNext()}, and finally {@link JsonReader#endObject()}.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class JsonReader {
+
+    /**
+     * The size of the buffer the stream is read into.
+     */
+    private final static int BUFFER_SIZE = 4096;
+
+    /**
+     * The stream read from.
+     */
+    private final InputStream mIn;
+
+    /**
+     * The bytes read from the stream, but not consumed yet.
+     */
+    private final byte[] mBuffer;
+
+    /**
+     * The position of the next byte to consume in the buffer.
+     */
+    private int mPosition;
+
+    /**
+     * The amount of bytes in the buffer.
+     */
+    private int mLimit;
+
+    /**
+     * The amount of bytes consumed before the current buffer, to locate errors.
+     */
+    private long mOffset;
+
+    /**
+     * Whether the next member of the current object is its first one, i.e. not
+     * preceded by a comma.
+     */
+    private boolean mFirst;
+
+    /**
+     * The last name or value decoded, reused for all of them.
+     */
+    private final StringBuilder mScratch;
+
+    /**
+     * Creates a new {@link JsonReader}.
+     * 
+     * @param in The stream to read from, which is neither buffered nor closed
+     *           by this reader.
+     */
+    public JsonReader(final InputStream in) {
+        mIn = in;
+        mBuffer = new byte[BUFFER_SIZE];
+        mScratch = new StringBuilder();
+
+    }
+
+    /**
+     * Reads the top-level object of the given stream, decoding only the values
+     * of the given names. Values which are objects or arrays are skipped even if
+     * asked for.
+     * 
+     * @param in    The stream.
+     * @param names The names of the values to decode.
+     * @return The values of the given names found, numbers and literals in
+     *         their textual form, <tt>null</tt> for JSON's <tt>null</tt>.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public static Map<String, String> ReadFields(final InputStream in, final String... names) throws IOException {
+        final Map<String, String> fields = new HashMap<>(2 * names.length);
+        final JsonReader reader = new JsonReader(in);
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            final int index = reader.nextName(names);
+            final int next = reader.peek();
+
+            if (index < 0 || next == '{' || next == '[') {
+                reader.skipValue();
+
+            } else {
+                fields.put(names[index], reader.nextValue());
+
+            }
+        }
+        reader.endObject();
+
+        return fields;
+
+    }
+
+    /**
+     * Consumes the start of an object.
+     * 
+     * @throws IOException If the stream couldn't be read or no object starts.
+     */
+    public void beginObject() throws IOException {
+        this.expect('{');
+        mFirst = true;
+
+    }
+
+    /**
+     * Whether another member of the current object follows, consuming the comma
+     * separating it from the previous one.
+     * 
+     * @return <tt>True</tt> if it does, <tt>false</tt> if the object ends.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public boolean hasNext() throws IOException {
+        if (this.peek() == '}') {
+            return false;
+        }
+
+        if (!mFirst) {
+            this.expect(',');
+        }
+        mFirst = false;
+
+        return true;
+
+    }
+
+    /**
+     * Consumes the name of the next member, including the colon following it,
+     * and tells which of the given names it is.
+     * 
+     * @param names The names looked for.
+     * @return The index of the name among the given ones, or <tt>-1</tt> if it
+     *         is none of them.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public int nextName(final String... names) throws IOException {
+        this.expect('"');
+        this.readString();
+        this.expect(':');
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].contentEquals(mScratch)) {
+                return i;
+            }
+        }
+        return -1;
+
+    }
+
+    /**
+     * Consumes the next value, which has to be a string, number or literal.
+     * 
+     * @return The decoded string, or the textual form of the number or literal,
+     *         <tt>null</tt> for JSON's <tt>null</tt>.
+     * @throws IOException If the stream couldn't be read, is malformed or the
+     *                     value is an object or array.
+     */
+    public String nextValue() throws IOException {
+        final int next = this.peek();
+
+        if (next == '"') {
+            mPosition++;
+            this.readString();
+
+            return mScratch.toString();
+
+        }
+
+        if (next == '{' || next == '[' || next < 0) {
+            throw this.malformed("Expected a string, number or literal");
+        }
+        mScratch.setLength(0);
+
+        for (int b = this.peekRaw(); b >= 0 && !IsDelimiter(b); b = this.peekRaw()) {
+            mScratch.append((char) b);
+            mPosition++;
+
+        }
+        return "null".contentEquals(mScratch) ? null : mScratch.toString();
+
+    }
+
+    /**
+     * Consumes the next value without decoding it, whatever it is.
+     * 
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+
+        do {
+            final int next = this.peek();
+
+            if (next < 0) {
+                throw this.malformed("Unexpected end of input");
+            }
+            mPosition++;
+
+            if (next == '"') {
+                this.skipString();
+
+            } else if (next == '{' || next == '[') {
+                depth++;
+
+            } else if (next == '}' || next == ']') {
+                depth--;
+
+            } else if (next != ',' && next != ':') {
+                // the rest of a number or literal.
+                for (int b = this.peekRaw(); b >= 0 && !IsDelimiter(b); b = this.peekRaw()) {
+                    mPosition++;
+                }
+            }
+        } while (depth > 0);
+
+        if (depth < 0) {
+            throw this.malformed("Unexpected end of an object or array");
+        }
+    }
+
+    /**
+     * Consumes the end of the current object.
+     * 
+     * @throws IOException If the stream couldn't be read or the object doesn't
+     *                     end.
+     */
+    public void endObject() throws IOException {
+        this.expect('}');
+        // whatever object contained this one continues after a value.
+        mFirst = false;
+
+    }
+
+    /**
+     * Whether the given byte ends a number or literal.
+     * 
+     * @param b The byte.
+     * @return <tt>True</tt> if it does, <tt>false</tt> otherwise.
+     */
+    private static boolean IsDelimiter(final int b) {
+        return b == ',' || b == '}' || b == ']' || b == ':' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+
+    }
+
+    /**
+     * Decodes the rest of a string, whose opening quote got consumed already,
+     * into the scratch buffer, including the closing quote.
+     * 
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    private void readString() throws IOException {
+        mScratch.setLength(0);
+
+        while (true) {
+            final int b = this.read();
+
+            if (b == '"') {
+                return;
+
+            } else if (b == '\\') {
+                this.readEscape();
+
+            } else if (b < 0x80) {
+                if (b < 0x20) {
+                    throw this.malformed("Unescaped control character in a string");
+                }
+                mScratch.append((char) b);
+
+            } else {
+                this.readMultiByte(b);
+
+            }
+        }
+    }
+
+    /**
+     * Decodes an escape sequence, whose backslash got consumed already.
+     * 
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    private void readEscape() throws IOException {
+        final int escaped = this.read();
+
+        switch (escaped) {
+        case '"':
+        case '\\':
+        case '/':
+            mScratch.append((char) escaped);
+            break;
+        case 'b':
+            mScratch.append('\b');
+            break;
+        case 'f':
+            mScratch.append('\f');
+            break;
+        case 'n':
+            mScratch.append('\n');
+            break;
+        case 'r':
+            mScratch.append('\r');
+            break;
+        case 't':
+            mScratch.append('\t');
+            break;
+        case 'u':
+            int unit = 0;
+
+            for (int i = 0; i < 4; i++) {
+                final int digit = Character.digit(this.read(), 16);
+
+                if (digit < 0) {
+                    throw this.malformed("Malformed unicode escape");
+                }
+                unit = unit << 4 | digit;
+
+            }
+            // surrogate pairs arrive as two escapes, appended one after another.
+            mScratch.append((char) unit);
+            break;
+        default:
+            throw this.malformed("Unknown escape");
+
+        }
+    }
+
+    /**
+     * Decodes a character encoded in multiple bytes of UTF-8.
+     * 
+     * @param lead The first byte of the character.
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    private void readMultiByte(final int lead) throws IOException {
+        final int continuations;
+        int codePoint;
+
+        if ((lead & 0xE0) == 0xC0) {
+            continuations = 1;
+            codePoint = lead & 0x1F;
+
+        } else if ((lead & 0xF0) == 0xE0) {
+            continuations = 2;
+            codePoint = lead & 0x0F;
+
+        } else if ((lead & 0xF8) == 0xF0) {
+            continuations = 3;
+            codePoint = lead & 0x07;
+
+        } else {
+            throw this.malformed("Malformed UTF-8");
+
+        }
+
+        for (int i = 0; i < continuations; i++) {
+            final int b = this.read();
+
+            if ((b & 0xC0) != 0x80) {
+                throw this.malformed("Malformed UTF-8");
+            }
+            codePoint = codePoint << 6 | b & 0x3F;
+
+        }
+
+        if (!Character.isValidCodePoint(codePoint)) {
+            throw this.malformed("Malformed UTF-8");
+        }
+        mScratch.appendCodePoint(codePoint);
+
+    }
+
+    /**
+     * Consumes the rest of a string, whose opening quote got consumed already,
+     * without decoding it.
+     * 
+     * @throws IOException If the stream couldn't be read or is malformed.
+     */
+    private void skipString() throws IOException {
+        while (true) {
+            final int b = this.read();
+
+            if (b == '"') {
+                return;
+            }
+
+            if (b == '\\') {
+                // whatever is escaped, it can't end the string.
+                this.read();
+            }
+        }
+    }
+
+    /**
+     * Consumes the given byte, after any whitespace.
+     * 
+     * @param expected The byte.
+     * @throws IOException If the stream couldn't be read or another byte
+     *                     follows.
+     */
+    private void expect(final char expected) throws IOException {
+        if (this.peek() != expected) {
+            throw this.malformed("Expected '" + expected + "'");
+        }
+        mPosition++;
+
+    }
+
+    /**
+     * Skips any whitespace and returns the byte following it, without consuming
+     * it.
+     * 
+     * @return The byte, or <tt>-1</tt> if the stream ended.
+     * @throws IOException If the stream couldn't be read.
+     */
+    private int peek() throws IOException {
+        while (true) {
+            final int b = this.peekRaw();
+
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return b;
+            }
+            mPosition++;
+
+        }
+    }
+
+    /**
+     * Returns the next byte without consuming it.
+     * 
+     * @return The byte, or <tt>-1</tt> if the stream ended.
+     * @throws IOException If the stream couldn't be read.
+     */
+    private int peekRaw() throws IOException {
+        if (mPosition == mLimit && !this.fill()) {
+            return -1;
+        }
+        return mBuffer[mPosition] & 0xFF;
+
+    }
+
+    /**
+     * Consumes the next byte.
+     * 
+     * @return The byte.
+     * @throws IOException If the stream couldn't be read or ended.
+     */
+    private int read() throws IOException {
+        if (mPosition == mLimit && !this.fill()) {
+            throw this.malformed("Unexpected end of input");
+        }
+        return mBuffer[mPosition++] & 0xFF;
+
+    }
+
+    /**
+     * Reads the next bytes of the stream into the empty buffer.
+     * 
+     * @return <tt>True</tt> if any got read, <tt>false</tt> if the stream
+     *         ended.
+     * @throws IOException If the stream couldn't be read.
+     */
+    private boolean fill() throws IOException {
+        mOffset += mLimit;
+        mPosition = 0;
+        mLimit = 0;
+
+        final int read = mIn.read(mBuffer);
+
+        if (read <= 0) {
+            return false;
+        }
+        mLimit = read;
+
+        return true;
+
+    }
+
+    /**
+     * Creates the exception reporting malformed input at the current position.
+     * 
+     * @param message What is wrong.
+     * @return The exception.
+     */
+    private IOException malformed(final String message) {
+        return new IOException(message + " at byte " + (mOffset + mPosition) + ".");
+
+    }
+}
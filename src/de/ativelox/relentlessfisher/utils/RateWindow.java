@@ -0,0 +1,78 @@
+package de.ativelox.relentlessfisher.utils;
+
+/**
+ * Enforces a rate limit of the form "at most <tt>n</tt> sends per window", as
+ * used by twitch for whispers, by remembering the times of the last <tt>n</tt>
+ * sends. A send may happen once the oldest of them left the window. Sends are
+ * reserved ahead of time, so concurrent senders are spaced properly without
+ * ever exceeding the limit.
+ * 
+ * @author Ativelox {@literal<ativelox.dev@web.de>}
+ *
+ */
+public class RateWindow {
+
+    /**
+     * The times of the last sends in ns, given by {@link System#nanoTime()}, as a
+     * ring.
+     */
+    private final long[] mSends;
+
+    /**
+     * The length of the window in ns.
+     */
+    private final long mWindow;
+
+    /**
+     * The index of the oldest send in {@link RateWindow#mSends}.
+     */
+    private int mOldest;
+
+    /**
+     * The amount of slots of {@link RateWindow#mSends} reserved so far, up to
+     * its length. The others are free right away.
+     */
+    private int mUsed;
+
+    /**
+     * Creates a new {@link RateWindow}.
+     * 
+     * @param sends  The maximum amount of sends per window.
+     * @param window The length of the window in ns.
+     */
+    public RateWindow(final int sends, final long window) {
+        mSends = new long[sends];
+        mWindow = window;
+
+    }
+
+    /**
+     * The earliest time a send may happen at, without reserving it.
+     * 
+     * @param now The current time in ns, given by {@link System#nanoTime()}.
+     * @return The earliest time in ns, not before <tt>now</tt>.
+     */
+    public synchronized long earliest(final long now) {
+        if (mUsed < mSends.length) {
+            return now;
+        }
+        final long free = mSends[mOldest] + mWindow;
+
+        // compared by their difference, nanoTime() may wrap around.
+        return free - now > 0 ? free : now;
+
+    }
+
+    /**
+     * Reserves a send at the given time, which must not be before
+     * {@link RateWindow#earliest(long)} and not before earlier reservations.
+     * 
+     * @param at The time of the send in ns, given by {@link System#nanoTime()}.
+     */
+    public synchronized void reserve(final long at) {
+        mSends[mOldest] = at;
+        mOldest = (mOldest + 1) % mSends.length;
+        mUsed = Math.min(mSends.length, mUsed + 1);
+
+    }
+}